@@ -15,8 +15,11 @@ import com.batch.SpringBatchApp.steps.ErrorInteresesWriter;
 import com.batch.SpringBatchApp.steps.ErrorTransactionWriter;
 import com.batch.SpringBatchApp.steps.ErrorCuentasAnualesWriter;
 import com.batch.SpringBatchApp.steps.InteresesItemProcessor;
+import com.batch.SpringBatchApp.steps.LoadedIdIndexes;
 import com.batch.SpringBatchApp.steps.TransaccionesItemProcessor;
 import com.batch.SpringBatchApp.steps.CuentasAnualesItemProcessor;
+import com.batch.SpringBatchApp.utils.DateParser;
+import com.batch.SpringBatchApp.utils.TypeDictionary;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -48,6 +51,15 @@ public class SpringBatchAppApplication {
 	@Autowired
 	private ErrorCuentasAnualesWriter errorCuentasAnualesWriter;
 
+	@Autowired
+	private DateParser dateParser;
+
+	@Autowired
+	private LoadedIdIndexes loadedIdIndexes;
+
+	@Autowired
+	private TypeDictionary typeDictionary;
+
 	public static void main(String[] args) {
 		SpringApplication.run(SpringBatchAppApplication.class, args);
 	}
@@ -65,18 +77,35 @@ public class SpringBatchAppApplication {
 					return;
 				}
 
+				// Reprocesar errores guardados en lugar de cargar los archivos
+				if (jobSelector.isReprocesoMode()) {
+					resetProcessorCounters();
+					Map<String, JobExecution> reprocessResults = jobSelector.executeReprocesoErrores();
+					generateFinalSummary(reprocessResults, Map.of(processorConfig.getReprocesoEntidad().trim(), true));
+					return;
+				}
+
 				// Verificar archivos disponibles
 				Map<String, Boolean> fileAvailability = jobSelector.getFileAvailability();
 				if (!jobSelector.hasAvailableFiles()) {
 					log.error("No se encontraron archivos CSV para procesar");
-					log.error("Archivos esperados: transacciones.csv, intereses.csv, cuentas_anuales.csv");
-					log.error("Ubicación: src/main/resources/");
+					if (jobSelector.isHotFolderMode()) {
+						log.error("Directorio de entrada: {}", processorConfig.getDirectorioEntrada());
+					} else {
+						log.error("Archivos esperados: transacciones.csv, intereses.csv, cuentas_anuales.csv");
+						log.error("Ubicación: src/main/resources/");
+					}
 					return;
 				}
 
 				// Resetear contadores antes de la ejecución
 				resetProcessorCounters();
 
+				// Reconstruir los índices de ids cargados si se pidió
+				if (processorConfig.isIndiceIdsHabilitado() && processorConfig.isReconstruirIndiceIds()) {
+					loadedIdIndexes.reconstruir();
+				}
+
 				// Ejecutar todos los jobs disponibles
 				log.info("=== INICIANDO PROCESAMIENTO DE ARCHIVOS DISPONIBLES ===");
 				Map<String, JobExecution> executionResults = jobSelector.executeAvailableJobs();
@@ -97,24 +126,46 @@ public class SpringBatchAppApplication {
 	private void logApplicationConfiguration() {
 		log.info("=== CONFIGURACION DE LA APLICACION ===");
 		log.info("Tamaño de chunk: {}", processorConfig.getTamanoChunk());
+		log.info("Escritura: transacciones={}, intereses={}, cuentas anuales={}",
+				processorConfig.getEscrituraTransacciones(), processorConfig.getEscrituraIntereses(),
+				processorConfig.getEscrituraCuentasAnuales());
 		log.info("Límite de errores: {}", processorConfig.getLimiteErrores());
 		log.info("Número de reintentos: {}", processorConfig.getNumeroReintentos());
 		log.info("Monto máximo permitido: ${}", processorConfig.getMontoMaximo());
 		log.info("Convertir negativos a positivos: {}", processorConfig.isConvertirNegativos());
 		log.info("Directorio de archivos de error: {}", processorConfig.getDirectorioErrores());
+		if (processorConfig.getTamanoMaximoSegmentoErrores() > 0
+				|| processorConfig.getRegistrosMaximosSegmentoErrores() > 0
+				|| processorConfig.isComprimirArchivosErrores()) {
+			log.info("Segmentos de errores: máximo {} bytes, {} registros (0 sin límite), gzip: {}",
+					processorConfig.getTamanoMaximoSegmentoErrores(),
+					processorConfig.getRegistrosMaximosSegmentoErrores(), processorConfig.isComprimirArchivosErrores());
+		}
+		if (processorConfig.isAlmacenErroresHabilitado()) {
+			log.info("Almacén de errores: {}", processorConfig.getDirectorioAlmacenErrores());
+		}
+		if (jobSelector.isHotFolderMode()) {
+			log.info("Directorio de entrada: {} (hasta {} archivos en paralelo)",
+					processorConfig.getDirectorioEntrada(), processorConfig.getParalelismoArchivos());
+		}
 		log.info("Año mínimo para fechas: {}", processorConfig.getAnioMinimo());
 		log.info("Validar fechas futuras: {}", processorConfig.isValidarFechasFuturas());
 		log.info("Edad mínima permitida: {}", processorConfig.getEdadMinima());
 		log.info("Edad máxima permitida: {}", processorConfig.getEdadMaxima());
+		log.info("Cache de fechas: {} (máximo {} entradas)", processorConfig.isCacheFechasHabilitado(),
+				processorConfig.getTamanoMaximoCacheFechas());
+		if (processorConfig.isIndiceIdsHabilitado()) {
+			log.info("Índice de ids cargados: {} (ids conocidos se {})", processorConfig.getDirectorioIndiceIds(),
+					processorConfig.isActualizarIdsCargados() ? "actualizan" : "omiten");
+		}
 
 		log.info("=== CONFIGURACION DE VALIDACIONES ===");
-		log.info("TRANSACCIONES - Tipos válidos: DEBITO, CREDITO");
+		log.info("TRANSACCIONES - Tipos válidos: {}", typeDictionary.transacciones().getTipos());
 		log.info("TRANSACCIONES - Omitir montos cero: {}", processorConfig.isOmitirMontosCero());
-		log.info("INTERESES - Tipos válidos: AHORRO, PRESTAMO, HIPOTECA, CREDITO");
+		log.info("INTERESES - Tipos válidos: {}", typeDictionary.intereses().getTipos());
 		log.info("INTERESES - Omitir saldos cero: {}", processorConfig.isOmitirSaldosCero());
 		log.info("INTERESES - Capitalizar nombres: {}", processorConfig.isCapitalizarNombres());
-		log.info(
-				"CUENTAS ANUALES - Tipos válidos: DEBITO, CREDITO, DEPOSITO, RETIRO, TRANSFERENCIA, INTERES, COMISION, AJUSTE, CARGO, ABONO");
+		log.info("CUENTAS ANUALES - Tipos válidos: {}", typeDictionary.cuentasAnuales().getTipos());
 		log.info("CUENTAS ANUALES - Permitir montos cero: true (ajustes pueden tener $0)");
 	}
 
@@ -127,6 +178,7 @@ public class SpringBatchAppApplication {
 		errorTransactionWriter.resetErrorCount();
 		errorInteresesWriter.resetErrorCount();
 		errorCuentasAnualesWriter.resetErrorCount();
+		dateParser.resetCache();
 		log.info("✓ Contadores reseteados exitosamente");
 	}
 
@@ -139,7 +191,7 @@ public class SpringBatchAppApplication {
 		// Resumen de archivos procesados
 		log.info("ARCHIVOS PROCESADOS:");
 		fileAvailability.forEach((jobType, available) -> {
-			boolean executed = executionResults.containsKey(jobType);
+			boolean executed = wasExecuted(executionResults, jobType);
 			String status = !available ? "NO ENCONTRADO" : executed ? "PROCESADO" : "DISPONIBLE PERO NO EJECUTADO";
 			log.info("  - {}.csv: {}", jobType.toUpperCase(), status);
 		});
@@ -147,27 +199,32 @@ public class SpringBatchAppApplication {
 		// Resumen de estadísticas de procesamiento
 		log.info("ESTADISTICAS DE PROCESAMIENTO:");
 
-		if (executionResults.containsKey("transacciones")) {
+		if (wasExecuted(executionResults, "transacciones")) {
 			log.info("TRANSACCIONES:");
 			transaccionesProcessor.logProcessingStats();
 			log.info("  - Archivo de errores: {}", errorTransactionWriter.getErrorFilePath());
 			log.info("  - Registros con errores: {}", errorTransactionWriter.getErrorCount());
 		}
 
-		if (executionResults.containsKey("intereses")) {
+		if (wasExecuted(executionResults, "intereses")) {
 			log.info("INTERESES:");
 			interesesProcessor.logProcessingStats();
 			log.info("  - Archivo de errores: {}", errorInteresesWriter.getErrorFilePath());
 			log.info("  - Registros con errores: {}", errorInteresesWriter.getErrorCount());
 		}
 
-		if (executionResults.containsKey("cuentas_anuales")) {
+		if (wasExecuted(executionResults, "cuentas_anuales")) {
 			log.info("CUENTAS ANUALES:");
 			cuentasAnualesProcessor.logProcessingStats();
 			log.info("  - Archivo de errores: {}", errorCuentasAnualesWriter.getErrorFilePath());
 			log.info("  - Registros con errores: {}", errorCuentasAnualesWriter.getErrorCount());
 		}
 
+		if (processorConfig.isCacheFechasHabilitado()) {
+			log.info("CACHE DE FECHAS:");
+			dateParser.logCacheStats();
+		}
+
 		// Resumen de ejecuciones de jobs
 		log.info("RESULTADO DE JOBS:");
 		if (executionResults.isEmpty()) {
@@ -232,6 +289,13 @@ public class SpringBatchAppApplication {
 		}
 	}
 
+	// Indica si se ejecutó algún job del tipo indicado. Con directorio de entrada las
+	// claves del resultado son tipo:archivo
+	private boolean wasExecuted(Map<String, JobExecution> executionResults, String jobType) {
+		return executionResults.keySet().stream()
+				.anyMatch(key -> key.equals(jobType) || key.startsWith(jobType + ":"));
+	}
+
 	// Maneja la finalización de la aplicación con cleanup
 	private void performCleanup() {
 		log.info("Realizando limpieza final...");
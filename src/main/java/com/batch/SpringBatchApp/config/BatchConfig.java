@@ -1,29 +1,60 @@
 package com.batch.SpringBatchApp.config;
 
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.core.step.skip.SkipPolicy;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
 
 import com.batch.SpringBatchApp.entities.CuentasAnuales;
 import com.batch.SpringBatchApp.entities.Intereses;
 import com.batch.SpringBatchApp.entities.Transacciones;
+import com.batch.SpringBatchApp.steps.BatchChunkProcessor;
+import com.batch.SpringBatchApp.steps.BatchItemProcessor;
+import com.batch.SpringBatchApp.steps.ConcurrentItemProcessor;
 import com.batch.SpringBatchApp.steps.CuentasAnualesItemProcessor;
 import com.batch.SpringBatchApp.steps.CuentasAnualesItemReader;
 import com.batch.SpringBatchApp.steps.CuentasAnualesItemWriter;
+import com.batch.SpringBatchApp.steps.ErrorCuentasAnualesWriter;
+import com.batch.SpringBatchApp.steps.ErrorInteresesWriter;
+import com.batch.SpringBatchApp.steps.ErrorReplay;
+import com.batch.SpringBatchApp.steps.ErrorStores;
+import com.batch.SpringBatchApp.steps.ErrorTransactionWriter;
+import com.batch.SpringBatchApp.steps.FileRangePartitioner;
+import com.batch.SpringBatchApp.steps.FutureItemWriter;
+import com.batch.SpringBatchApp.steps.IndexedItemWriter;
 import com.batch.SpringBatchApp.steps.InteresesItemProcessor;
 import com.batch.SpringBatchApp.steps.InteresesItemReader;
 import com.batch.SpringBatchApp.steps.InteresesItemWriter;
+import com.batch.SpringBatchApp.steps.LoadedIdIndex;
+import com.batch.SpringBatchApp.steps.LoadedIdIndexes;
+import com.batch.SpringBatchApp.steps.PrefetchingItemReader;
 import com.batch.SpringBatchApp.steps.TransaccionesItemProcessor;
 import com.batch.SpringBatchApp.steps.TransaccionesItemReader;
 import com.batch.SpringBatchApp.steps.TransaccionesItemWriter;
+import com.batch.SpringBatchApp.utils.ValidationPolicies;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,6 +63,12 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class BatchConfig {
 
+    @Autowired
+    private ProcessorConfig processorConfig;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
     @Autowired
     private TransaccionesItemReader transaccionesItemReader;
 
@@ -59,6 +96,25 @@ public class BatchConfig {
     @Autowired
     private CuentasAnualesItemWriter cuentasAnualesItemWriter;
 
+    @Autowired
+    private LoadedIdIndexes loadedIdIndexes;
+
+    @Autowired
+    private ErrorTransactionWriter errorTransactionWriter;
+
+    @Autowired
+    private ErrorInteresesWriter errorInteresesWriter;
+
+    @Autowired
+    private ErrorCuentasAnualesWriter errorCuentasAnualesWriter;
+
+    // Construye la política de validación al iniciar cada paso maestro, antes que las particiones
+    @Autowired
+    private ValidationPolicies validationPolicies;
+
+    @Autowired
+    private ErrorReplay errorReplay;
+
     @Bean
     public SkipPolicy customTransaccionesSkipPolicy() {
         return new SkipPolicy() {
@@ -288,57 +344,350 @@ public class BatchConfig {
         };
     }
 
+    // Paso maestro: divide el archivo en rangos y ejecuta un worker por partición
     @Bean
-    public Step readTransaccionesFile(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+    public Step readTransaccionesFile(JobRepository jobRepository, Step readTransaccionesFileWorker,
+            FileRangePartitioner transaccionesPartitioner, TaskExecutor particionesTaskExecutor) {
         return new StepBuilder("readTransaccionesFile", jobRepository)
-                .<Transacciones, Transacciones>chunk(50, transactionManager)
-                .reader(transaccionesItemReader)
-                .processor(transaccionesItemProcessor)
-                .writer(transaccionesItemWriter)
-                .faultTolerant()
-                .skipPolicy(customTransaccionesSkipPolicy())
-                .skipLimit(1000)
-                .retryLimit(3)
-                .retry(Exception.class)
+                .partitioner("readTransaccionesFileWorker", transaccionesPartitioner)
+                .step(readTransaccionesFileWorker)
+                .gridSize(processorConfig.getNumeroParticiones())
+                .taskExecutor(particionesTaskExecutor)
+                .listener(validationPolicies)
                 .allowStartIfComplete(true)
-                .startLimit(3)
                 .build();
     }
 
+    // Worker: procesa el rango de bytes de una partición. Al reiniciar, solo se
+    // vuelven a ejecutar las particiones que no terminaron
+    @Bean
+    public Step readTransaccionesFileWorker(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+        StepBuilder builder = new StepBuilder("readTransaccionesFileWorker", jobRepository);
+        ItemReader<Transacciones> reader = processorConfig.isPrefetchHabilitado() ? transaccionesPrefetchReader()
+                : transaccionesItemReader;
+
+        if (isProcesamientoParalelo()) {
+            return tolerante(builder.<Transacciones, Future<Transacciones>>chunk(50, transactionManager)
+                    .reader(reader)
+                    .processor(transaccionesParallelProcessor())
+                    .writer(transaccionesParallelWriter())
+                    .listener((Object) transaccionesItemProcessor),
+                    customTransaccionesSkipPolicy(), errorTransactionWriter);
+        }
+        return tolerante(conProcessor(builder.<Transacciones, Transacciones>chunk(50, transactionManager).reader(reader),
+                transaccionesItemProcessor, transaccionesWriter()),
+                customTransaccionesSkipPolicy(), errorTransactionWriter);
+    }
+
+    // Reader con lectura por adelantado; uno por ejecución del step (partición)
+    @Bean
+    @StepScope
+    public PrefetchingItemReader<Transacciones> transaccionesPrefetchReader() {
+        return new PrefetchingItemReader<>(transaccionesItemReader, processorConfig.getProfundidadPrefetch());
+    }
+
+    // Processor y writer del procesamiento paralelo; uno por ejecución del step (partición)
+    @Bean
+    @StepScope
+    public ConcurrentItemProcessor<Transacciones, Transacciones> transaccionesParallelProcessor() {
+        return new ConcurrentItemProcessor<>(transaccionesItemProcessor, procesamientoTaskExecutor());
+    }
+
     @Bean
-    public Step readInteresesFile(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+    @StepScope
+    public FutureItemWriter<Transacciones> transaccionesParallelWriter() {
+        return new FutureItemWriter<>(transaccionesWriter(), transaccionesParallelProcessor());
+    }
+
+    @Bean
+    @JobScope
+    public FileRangePartitioner transaccionesPartitioner(@Value("#{jobParameters['fileName']}") String fileName) {
+        return new FileRangePartitioner(resourceLoader.getResource(fileName), fileName);
+    }
+
+    // Paso maestro: divide el archivo en rangos y ejecuta un worker por partición
+    @Bean
+    public Step readInteresesFile(JobRepository jobRepository, Step readInteresesFileWorker,
+            FileRangePartitioner interesesPartitioner, TaskExecutor particionesTaskExecutor) {
         return new StepBuilder("readInteresesFile", jobRepository)
-                .<Intereses, Intereses>chunk(50, transactionManager)
-                .reader(interesesItemReader)
-                .processor(interesesItemProcessor)
-                .writer(interesesItemWriter)
-                .faultTolerant()
-                .skipPolicy(customInteresesSkipPolicy())
-                .skipLimit(1000)
-                .retryLimit(3)
-                .retry(Exception.class)
+                .partitioner("readInteresesFileWorker", interesesPartitioner)
+                .step(readInteresesFileWorker)
+                .gridSize(processorConfig.getNumeroParticiones())
+                .taskExecutor(particionesTaskExecutor)
+                .listener(validationPolicies)
                 .allowStartIfComplete(true)
-                .startLimit(3)
                 .build();
     }
 
+    // Worker: procesa el rango de bytes de una partición. Al reiniciar, solo se
+    // vuelven a ejecutar las particiones que no terminaron
+    @Bean
+    public Step readInteresesFileWorker(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+        StepBuilder builder = new StepBuilder("readInteresesFileWorker", jobRepository);
+        ItemReader<Intereses> reader = processorConfig.isPrefetchHabilitado() ? interesesPrefetchReader()
+                : interesesItemReader;
+
+        if (isProcesamientoParalelo()) {
+            return tolerante(builder.<Intereses, Future<Intereses>>chunk(50, transactionManager)
+                    .reader(reader)
+                    .processor(interesesParallelProcessor())
+                    .writer(interesesParallelWriter())
+                    .listener((Object) interesesItemProcessor),
+                    customInteresesSkipPolicy(), errorInteresesWriter);
+        }
+        return tolerante(conProcessor(builder.<Intereses, Intereses>chunk(50, transactionManager).reader(reader),
+                interesesItemProcessor, interesesWriter()),
+                customInteresesSkipPolicy(), errorInteresesWriter);
+    }
+
+    // Reader con lectura por adelantado; uno por ejecución del step (partición)
     @Bean
-    public Step readCuentasAnualesFile(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+    @StepScope
+    public PrefetchingItemReader<Intereses> interesesPrefetchReader() {
+        return new PrefetchingItemReader<>(interesesItemReader, processorConfig.getProfundidadPrefetch());
+    }
+
+    // Processor y writer del procesamiento paralelo; uno por ejecución del step (partición)
+    @Bean
+    @StepScope
+    public ConcurrentItemProcessor<Intereses, Intereses> interesesParallelProcessor() {
+        return new ConcurrentItemProcessor<>(interesesItemProcessor, procesamientoTaskExecutor());
+    }
+
+    @Bean
+    @StepScope
+    public FutureItemWriter<Intereses> interesesParallelWriter() {
+        return new FutureItemWriter<>(interesesWriter(), interesesParallelProcessor());
+    }
+
+    @Bean
+    @JobScope
+    public FileRangePartitioner interesesPartitioner(@Value("#{jobParameters['fileName']}") String fileName) {
+        return new FileRangePartitioner(resourceLoader.getResource(fileName), fileName);
+    }
+
+    // Paso maestro: divide el archivo en rangos y ejecuta un worker por partición
+    @Bean
+    public Step readCuentasAnualesFile(JobRepository jobRepository, Step readCuentasAnualesFileWorker,
+            FileRangePartitioner cuentasAnualesPartitioner, TaskExecutor particionesTaskExecutor) {
         return new StepBuilder("readCuentasAnualesFile", jobRepository)
-                .<CuentasAnuales, CuentasAnuales>chunk(50, transactionManager)
-                .reader(cuentasAnualesItemReader)
-                .processor(cuentasAnualesItemProcessor)
-                .writer(cuentasAnualesItemWriter)
+                .partitioner("readCuentasAnualesFileWorker", cuentasAnualesPartitioner)
+                .step(readCuentasAnualesFileWorker)
+                .gridSize(processorConfig.getNumeroParticiones())
+                .taskExecutor(particionesTaskExecutor)
+                .listener(validationPolicies)
+                .allowStartIfComplete(true)
+                .build();
+    }
+
+    // Worker: procesa el rango de bytes de una partición. Al reiniciar, solo se
+    // vuelven a ejecutar las particiones que no terminaron
+    @Bean
+    public Step readCuentasAnualesFileWorker(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+        StepBuilder builder = new StepBuilder("readCuentasAnualesFileWorker", jobRepository);
+        ItemReader<CuentasAnuales> reader = processorConfig.isPrefetchHabilitado() ? cuentasAnualesPrefetchReader()
+                : cuentasAnualesItemReader;
+
+        if (isProcesamientoParalelo()) {
+            return tolerante(builder.<CuentasAnuales, Future<CuentasAnuales>>chunk(50, transactionManager)
+                    .reader(reader)
+                    .processor(cuentasAnualesParallelProcessor())
+                    .writer(cuentasAnualesParallelWriter())
+                    .listener((Object) cuentasAnualesItemProcessor),
+                    customCuentasAnualesSkipPolicy(), errorCuentasAnualesWriter);
+        }
+        return tolerante(conProcessor(builder.<CuentasAnuales, CuentasAnuales>chunk(50, transactionManager).reader(reader),
+                cuentasAnualesItemProcessor, cuentasAnualesWriter()),
+                customCuentasAnualesSkipPolicy(), errorCuentasAnualesWriter);
+    }
+
+    // Reader con lectura por adelantado; uno por ejecución del step (partición)
+    @Bean
+    @StepScope
+    public PrefetchingItemReader<CuentasAnuales> cuentasAnualesPrefetchReader() {
+        return new PrefetchingItemReader<>(cuentasAnualesItemReader, processorConfig.getProfundidadPrefetch());
+    }
+
+    // Processor y writer del procesamiento paralelo; uno por ejecución del step (partición)
+    @Bean
+    @StepScope
+    public ConcurrentItemProcessor<CuentasAnuales, CuentasAnuales> cuentasAnualesParallelProcessor() {
+        return new ConcurrentItemProcessor<>(cuentasAnualesItemProcessor, procesamientoTaskExecutor());
+    }
+
+    @Bean
+    @StepScope
+    public FutureItemWriter<CuentasAnuales> cuentasAnualesParallelWriter() {
+        return new FutureItemWriter<>(cuentasAnualesWriter(), cuentasAnualesParallelProcessor());
+    }
+
+    @Bean
+    @JobScope
+    public FileRangePartitioner cuentasAnualesPartitioner(@Value("#{jobParameters['fileName']}") String fileName) {
+        return new FileRangePartitioner(resourceLoader.getResource(fileName), fileName);
+    }
+
+    // Reproceso: exporta del almacén de errores los registros seleccionados
+    @Bean
+    public Step exportarErrores(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+        return new StepBuilder("exportarErrores", jobRepository)
+                .tasklet(errorReplay::exportar, transactionManager)
+                .build();
+    }
+
+    // Reproceso: marca como reprocesados los registros exportados, después de cargarlos
+    @Bean
+    public Step marcarErroresReprocesados(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+        return new StepBuilder("marcarErroresReprocesados", jobRepository)
+                .tasklet(errorReplay::marcarReprocesados, transactionManager)
+                .build();
+    }
+
+    // Pasos maestros del reproceso: el mismo worker de cada entidad sobre el archivo exportado
+    @Bean
+    public Step reprocesarTransacciones(JobRepository jobRepository, Step readTransaccionesFileWorker,
+            FileRangePartitioner reprocesoPartitioner, TaskExecutor particionesTaskExecutor) {
+        return reproceso("reprocesarTransacciones", jobRepository, readTransaccionesFileWorker, reprocesoPartitioner,
+                particionesTaskExecutor);
+    }
+
+    @Bean
+    public Step reprocesarIntereses(JobRepository jobRepository, Step readInteresesFileWorker,
+            FileRangePartitioner reprocesoPartitioner, TaskExecutor particionesTaskExecutor) {
+        return reproceso("reprocesarIntereses", jobRepository, readInteresesFileWorker, reprocesoPartitioner,
+                particionesTaskExecutor);
+    }
+
+    @Bean
+    public Step reprocesarCuentasAnuales(JobRepository jobRepository, Step readCuentasAnualesFileWorker,
+            FileRangePartitioner reprocesoPartitioner, TaskExecutor particionesTaskExecutor) {
+        return reproceso("reprocesarCuentasAnuales", jobRepository, readCuentasAnualesFileWorker,
+                reprocesoPartitioner, particionesTaskExecutor);
+    }
+
+    private Step reproceso(String nombre, JobRepository jobRepository, Step worker, FileRangePartitioner partitioner,
+            TaskExecutor particionesTaskExecutor) {
+        return new StepBuilder(nombre, jobRepository)
+                .partitioner(worker.getName(), partitioner)
+                .step(worker)
+                .gridSize(processorConfig.getNumeroParticiones())
+                .taskExecutor(particionesTaskExecutor)
+                .listener(validationPolicies)
+                .build();
+    }
+
+    // Archivo que dejó exportarErrores en el contexto del job (ErrorReplay.ARCHIVO_KEY)
+    @Bean
+    @JobScope
+    public FileRangePartitioner reprocesoPartitioner(
+            @Value("#{jobExecutionContext['archivoReproceso']}") String fileName) {
+        return new FileRangePartitioner(resourceLoader.getResource(fileName), fileName);
+    }
+
+    // Writers de cada entidad, detrás del índice de ids cargados si está habilitado
+    private ItemWriter<Transacciones> transaccionesWriter() {
+        return this.<Transacciones>conIndice(transaccionesItemWriter, loadedIdIndexes.transacciones(),
+                Transacciones::getId, transaccionesItemWriter::actualizar);
+    }
+
+    private ItemWriter<Intereses> interesesWriter() {
+        return this.<Intereses>conIndice(interesesItemWriter, loadedIdIndexes.intereses(),
+                Intereses::getCuenta_id, interesesItemWriter::actualizar);
+    }
+
+    private ItemWriter<CuentasAnuales> cuentasAnualesWriter() {
+        return this.<CuentasAnuales>conIndice(cuentasAnualesItemWriter, loadedIdIndexes.cuentasAnuales(),
+                CuentasAnuales::getCuenta_id, cuentasAnualesItemWriter::actualizar);
+    }
+
+    // Los registros ya cargados se omiten o, con actualizarIdsCargados, se actualizan
+    private <T> ItemWriter<T> conIndice(ItemWriter<T> writer, LoadedIdIndex indice, ToLongFunction<T> id,
+            ItemWriter<T> actualizador) {
+        if (indice == null) {
+            return writer;
+        }
+        return new IndexedItemWriter<>(indice, id, writer,
+                processorConfig.isActualizarIdsCargados() ? actualizador : null);
+    }
+
+    // Configuración de tolerancia a fallos común a los workers. El writer de errores se
+    // registra como listener para escribir sus líneas al confirmarse cada chunk
+    private <I, O> Step tolerante(SimpleStepBuilder<I, O> builder, SkipPolicy skipPolicy, Object errorWriter) {
+        return builder.listener(errorWriter)
                 .faultTolerant()
-                .skipPolicy(customCuentasAnualesSkipPolicy())
+                .skipPolicy(skipPolicy)
                 .skipLimit(1000)
                 .retryLimit(3)
                 .retry(Exception.class)
-                .allowStartIfComplete(true)
                 .startLimit(3)
                 .build();
     }
 
+    // En lectura fusionada no hay processor que paralelizar, y el procesamiento por lote
+    // ya valida el chunk completo
+    private boolean isProcesamientoParalelo() {
+        return processorConfig.isProcesamientoParalelo() && !processorConfig.isLecturaFusionada()
+                && !processorConfig.isProcesamientoPorLote();
+    }
+
+    // En lectura fusionada el reader valida cada registro y el step no tiene processor;
+    // en procesamiento por lote BatchChunkProcessor valida el chunk completo antes de
+    // transformarlo, y los rechazados cuentan como filtrados. En ambos casos el processor
+    // se registra como listener para que compile sus reglas en cada ejecución
+    private <T, P extends ItemProcessor<T, T> & BatchItemProcessor<T, T>> SimpleStepBuilder<T, T> conProcessor(
+            SimpleStepBuilder<T, T> builder, P processor, ItemWriter<T> writer) {
+        if (processorConfig.isLecturaFusionada()) {
+            return builder.listener((Object) processor).writer(writer);
+        }
+        if (processorConfig.isProcesamientoPorLote()) {
+            return BatchChunkProcessor.faultTolerant(builder.listener((Object) processor).writer(writer), processor);
+        }
+        return builder.processor(processor).writer(writer);
+    }
+
+    // Ejecutor compartido por las particiones de todos los jobs
+    @Bean
+    public TaskExecutor particionesTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Con directorio de entrada varios archivos se procesan a la vez, cada uno con sus particiones
+        int hilos = processorConfig.getNumeroParticiones();
+        if (StringUtils.hasText(processorConfig.getDirectorioEntrada())) {
+            hilos *= Math.max(1, processorConfig.getParalelismoArchivos());
+        }
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setThreadNamePrefix("particion-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Ejecutor del procesamiento paralelo de los registros de cada chunk: hilos virtuales
+    // o un pool acotado de hilos de plataforma
+    @Bean
+    public AsyncTaskExecutor procesamientoTaskExecutor() {
+        int hilos = processorConfig.getHilosProcesamiento();
+        if (hilos <= 0) {
+            return new VirtualThreadTaskExecutor("proceso-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setThreadNamePrefix("proceso-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Ejecuta los jobs de los archivos del directorio de entrada con paralelismo acotado
+    @Bean
+    public ThreadPoolTaskExecutor archivosTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, processorConfig.getParalelismoArchivos()));
+        executor.setMaxPoolSize(Math.max(1, processorConfig.getParalelismoArchivos()));
+        executor.setThreadNamePrefix("archivo-");
+        executor.initialize();
+        return executor;
+    }
+
     @Bean(name = "job")
     public Job transaccionesJob(JobRepository jobRepository, Step readTransaccionesFile) {
         return new JobBuilder("transaccionesProcessingJob", jobRepository)
@@ -359,4 +708,22 @@ public class BatchConfig {
                 .start(readCuentasAnualesFile)
                 .build();
     }
+
+    // Reprocesa errores guardados de una entidad: exporta la selección, la carga con el
+    // worker de la entidad y marca los registros exportados. Sin registros termina
+    // después de exportar
+    @Bean(name = "reprocesoErroresJob")
+    public Job reprocesoErroresJob(JobRepository jobRepository, Step exportarErrores, Step reprocesarTransacciones,
+            Step reprocesarIntereses, Step reprocesarCuentasAnuales, Step marcarErroresReprocesados) {
+        return new JobBuilder("reprocesoErroresJob", jobRepository)
+                .start(exportarErrores)
+                .next(errorReplay)
+                .on(ErrorStores.TRANSACCIONES).to(reprocesarTransacciones).next(marcarErroresReprocesados)
+                .from(errorReplay).on(ErrorStores.INTERESES).to(reprocesarIntereses).next(marcarErroresReprocesados)
+                .from(errorReplay).on(ErrorStores.CUENTAS_ANUALES).to(reprocesarCuentasAnuales)
+                .next(marcarErroresReprocesados)
+                .from(errorReplay).on("*").end()
+                .end()
+                .build();
+    }
 }
\ No newline at end of file
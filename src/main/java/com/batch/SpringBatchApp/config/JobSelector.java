@@ -1,17 +1,35 @@
 package com.batch.SpringBatchApp.config;
 
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.batch.SpringBatchApp.steps.ErrorReplay;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -22,6 +40,9 @@ public class JobSelector {
     @Autowired
     private JobLauncher jobLauncher;
 
+    @Autowired
+    private JobExplorer jobExplorer;
+
     @Autowired
     @Qualifier("job")
     private Job transaccionesJob;
@@ -34,8 +55,25 @@ public class JobSelector {
     @Qualifier("cuentasAnualesJob")
     private Job cuentasAnualesJob;
 
+    @Autowired
+    @Qualifier("reprocesoErroresJob")
+    private Job reprocesoErroresJob;
+
+    @Autowired
+    private ProcessorConfig processorConfig;
+
+    @Autowired
+    @Qualifier("archivosTaskExecutor")
+    private ThreadPoolTaskExecutor archivosTaskExecutor;
+
     private final Map<String, String> jobFileMapping = new HashMap<>();
 
+    // Extensiones comprimidas que se aceptan en lugar del CSV plano, en orden de preferencia
+    private static final String[] EXTENSIONES_COMPRIMIDAS = { ".gz", ".zip" };
+
+    // Instancias recientes de cada job que se revisan al buscar una ejecución a reiniciar
+    private static final int INSTANCIAS_REVISADAS = 100;
+
     public JobSelector() {
         // Mapear cada job con su archivo correspondiente
         jobFileMapping.put("transacciones", "transacciones.csv");
@@ -52,7 +90,7 @@ public class JobSelector {
             return null;
         }
 
-        JobParameters jobParameters = createJobParameters("transacciones");
+        JobParameters jobParameters = createJobParameters(transaccionesJob, "transacciones");
 
         log.info("Ejecutando job de transacciones con parámetros: {}", jobParameters.getParameters());
         JobExecution execution = jobLauncher.run(transaccionesJob, jobParameters);
@@ -70,7 +108,7 @@ public class JobSelector {
             return null;
         }
 
-        JobParameters jobParameters = createJobParameters("intereses");
+        JobParameters jobParameters = createJobParameters(interesesJob, "intereses");
 
         log.info("Ejecutando job de intereses con parámetros: {}", jobParameters.getParameters());
         JobExecution execution = jobLauncher.run(interesesJob, jobParameters);
@@ -88,7 +126,7 @@ public class JobSelector {
             return null;
         }
 
-        JobParameters jobParameters = createJobParameters("cuentas_anuales");
+        JobParameters jobParameters = createJobParameters(cuentasAnualesJob, "cuentas_anuales");
 
         log.info("Ejecutando job de cuentas anuales con parámetros: {}", jobParameters.getParameters());
         JobExecution execution = jobLauncher.run(cuentasAnualesJob, jobParameters);
@@ -99,6 +137,10 @@ public class JobSelector {
 
     // Ejecuta todos los jobs disponibles según los archivos presentes
     public Map<String, JobExecution> executeAvailableJobs() {
+        if (isHotFolderMode()) {
+            return executeHotFolderJobs();
+        }
+
         Map<String, JobExecution> results = new HashMap<>();
 
         log.info("=== INICIANDO EJECUCIÓN DE JOBS DISPONIBLES ===");
@@ -154,8 +196,185 @@ public class JobSelector {
         return results;
     }
 
-    // Verifica si un archivo específico existe en el classpath
+    // Indica si se pidió reprocesar errores guardados en lugar de cargar archivos
+    public boolean isReprocesoMode() {
+        return StringUtils.hasText(processorConfig.getReprocesoEntidad());
+    }
+
+    // Ejecuta el job de reproceso con los filtros de la configuración. La clave del
+    // resultado es la entidad reprocesada
+    public Map<String, JobExecution> executeReprocesoErrores() throws Exception {
+        String entidad = processorConfig.getReprocesoEntidad().trim();
+        JobParametersBuilder builder = new JobParametersBuilder()
+                .addString("jobType", "reproceso")
+                .addString(ErrorReplay.ENTIDAD_KEY, entidad)
+                .addString(ErrorReplay.INCLUIR_REPROCESADOS_KEY,
+                        String.valueOf(processorConfig.isReprocesoIncluirReprocesados()))
+                .addLong(ErrorReplay.POSICION_DESDE_KEY, processorConfig.getReprocesoPosicionDesde())
+                .addLong(ErrorReplay.POSICION_HASTA_KEY, processorConfig.getReprocesoPosicionHasta())
+                .addLong("timestamp", System.currentTimeMillis())
+                .addString("executionId", java.util.UUID.randomUUID().toString());
+        agregarSiTieneTexto(builder, ErrorReplay.MOTIVO_KEY, processorConfig.getReprocesoMotivo());
+        agregarSiTieneTexto(builder, ErrorReplay.ORIGEN_KEY, processorConfig.getReprocesoOrigen());
+        agregarSiTieneTexto(builder, ErrorReplay.ID_KEY, processorConfig.getReprocesoId());
+        agregarSiTieneTexto(builder, ErrorReplay.CORRECCIONES_KEY, processorConfig.getReprocesoCorrecciones());
+        JobParameters jobParameters = builder.toJobParameters();
+
+        log.info("=== INICIANDO REPROCESO DE ERRORES DE {} ===", entidad.toUpperCase());
+        log.info("Ejecutando job de reproceso con parámetros: {}", jobParameters.getParameters());
+        JobExecution execution = jobLauncher.run(reprocesoErroresJob, jobParameters);
+        log.info("Job de reproceso completado con estado: {}", execution.getStatus());
+
+        Map<String, JobExecution> results = new HashMap<>();
+        results.put(entidad, execution);
+        return results;
+    }
+
+    private static void agregarSiTieneTexto(JobParametersBuilder builder, String clave, String valor) {
+        if (StringUtils.hasText(valor)) {
+            builder.addString(clave, valor.trim());
+        }
+    }
+
+    // Indica si los archivos se toman del directorio de entrada en lugar del classpath
+    public boolean isHotFolderMode() {
+        return StringUtils.hasText(processorConfig.getDirectorioEntrada());
+    }
+
+    // Ejecuta un job por cada archivo del directorio de entrada, con a lo sumo
+    // paralelismoArchivos archivos a la vez. Los archivos cuyo job termina en COMPLETED
+    // se mueven al directorio de procesados. Las claves del resultado son tipo:archivo
+    public Map<String, JobExecution> executeHotFolderJobs() {
+        Map<String, JobExecution> results = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> pendientes = new ArrayList<>();
+
+        log.info("=== INICIANDO EJECUCIÓN DE JOBS DESDE {} ===", processorConfig.getDirectorioEntrada());
+
+        for (String jobType : List.of("transacciones", "intereses", "cuentas_anuales")) {
+            List<Path> archivos = findHotFolderFiles(jobType);
+            log.info("Archivos de {} encontrados: {}", jobType, archivos.size());
+            for (Path archivo : archivos) {
+                pendientes.add(archivosTaskExecutor.submitCompletable(() -> {
+                    executeHotFolderJob(jobType, archivo, results);
+                    return null;
+                }));
+            }
+        }
+
+        CompletableFuture.allOf(pendientes.toArray(new CompletableFuture<?>[0])).join();
+
+        log.info("=== RESUMEN DE EJECUCIÓN DE JOBS ===");
+        log.info("Jobs ejecutados exitosamente: {}", results.size());
+        results.forEach((jobName, execution) -> log.info("  - {}: {} ({})", jobName, execution.getStatus(),
+                execution.getExitStatus().getExitCode()));
+
+        return new HashMap<>(results);
+    }
+
+    // Ejecuta el job del tipo indicado sobre un archivo del directorio de entrada
+    private void executeHotFolderJob(String jobType, Path archivo, Map<String, JobExecution> results) {
+        String nombre = archivo.getFileName().toString();
+        try {
+            Job job = getJob(jobType);
+            JobParameters jobParameters = parametrosParaArchivo(job, jobType,
+                    archivo.toAbsolutePath().toUri().toString());
+
+            log.info("Ejecutando job de {} para {}", jobType, nombre);
+            JobExecution execution = jobLauncher.run(job, jobParameters);
+            results.put(jobType + ":" + nombre, execution);
+
+            if (execution.getStatus() == BatchStatus.COMPLETED) {
+                moveToProcessed(archivo);
+                log.info("✓ Job de {} para {} completado", jobType, nombre);
+            } else {
+                log.warn("Job de {} para {} terminó con estado {}; el archivo se deja en el directorio de entrada",
+                        jobType, nombre, execution.getStatus());
+            }
+        } catch (Exception e) {
+            log.error("✗ Error al ejecutar job de {} para {}: {}", jobType, nombre, e.getMessage(), e);
+        }
+    }
+
+    // Lista los archivos del directorio de entrada que coinciden con el patrón del tipo de job
+    public List<Path> findHotFolderFiles(String jobType) {
+        Path directorio = Paths.get(processorConfig.getDirectorioEntrada());
+        List<Path> archivos = new ArrayList<>();
+        if (!Files.isDirectory(directorio)) {
+            log.warn("El directorio de entrada no existe: {}", directorio.toAbsolutePath());
+            return archivos;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directorio, getFilePattern(jobType))) {
+            for (Path archivo : stream) {
+                if (Files.isRegularFile(archivo)) {
+                    archivos.add(archivo);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Error al listar el directorio {}: {}", directorio, e.getMessage());
+        }
+
+        archivos.sort(null);
+        return archivos;
+    }
+
+    // Mueve un archivo procesado al directorio de procesados. Si ambos directorios
+    // están en distintos sistemas de archivos se copia a un temporal en el destino y
+    // se renombra, para que el destino nunca quede con un archivo a medio copiar
+    private void moveToProcessed(Path archivo) throws IOException {
+        Path directorio = Paths.get(processorConfig.getDirectorioEntrada())
+                .resolve(processorConfig.getDirectorioProcesados());
+        Files.createDirectories(directorio);
+        Path destino = directorio.resolve(archivo.getFileName());
+
+        try {
+            Files.move(archivo, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Path temporal = directorio.resolve(archivo.getFileName() + ".tmp");
+            Files.copy(archivo, temporal, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(archivo);
+        }
+        log.info("Archivo {} movido a {}", archivo.getFileName(), destino);
+    }
+
+    private String getFilePattern(String jobType) {
+        return switch (jobType) {
+            case "transacciones" -> processorConfig.getPatronTransacciones();
+            case "intereses" -> processorConfig.getPatronIntereses();
+            default -> processorConfig.getPatronCuentasAnuales();
+        };
+    }
+
+    private Job getJob(String jobType) {
+        return switch (jobType) {
+            case "transacciones" -> transaccionesJob;
+            case "intereses" -> interesesJob;
+            default -> cuentasAnualesJob;
+        };
+    }
+
+    // Verifica si un archivo específico existe en el classpath, plano o comprimido
     public boolean checkFileExists(String fileName) {
+        return resolveFileName(fileName) != null;
+    }
+
+    // Retorna el nombre del archivo a procesar para el CSV indicado: el propio CSV o,
+    // si no existe, su versión .gz o .zip. Retorna null si no hay ninguno
+    public String resolveFileName(String fileName) {
+        if (existsInClasspath(fileName)) {
+            return fileName;
+        }
+        for (String extension : EXTENSIONES_COMPRIMIDAS) {
+            if (existsInClasspath(fileName + extension)) {
+                log.debug("Usando archivo comprimido {}{}", fileName, extension);
+                return fileName + extension;
+            }
+        }
+        return null;
+    }
+
+    private boolean existsInClasspath(String fileName) {
         try {
             ClassPathResource resource = new ClassPathResource(fileName);
             boolean exists = resource.exists();
@@ -171,10 +390,20 @@ public class JobSelector {
     public Map<String, Boolean> getFileAvailability() {
         Map<String, Boolean> availability = new HashMap<>();
 
+        if (isHotFolderMode()) {
+            jobFileMapping.keySet().forEach(jobName -> {
+                int archivos = findHotFolderFiles(jobName).size();
+                availability.put(jobName, archivos > 0);
+                log.info("Archivos para job {} en {}: {}", jobName, processorConfig.getDirectorioEntrada(), archivos);
+            });
+            return availability;
+        }
+
         jobFileMapping.forEach((jobName, fileName) -> {
-            boolean available = checkFileExists(fileName);
+            String resolved = resolveFileName(fileName);
+            boolean available = resolved != null;
             availability.put(jobName, available);
-            log.info("Archivo para job {}: {} - {}", jobName, fileName,
+            log.info("Archivo para job {}: {} - {}", jobName, available ? resolved : fileName,
                     available ? "DISPONIBLE" : "NO DISPONIBLE");
         });
 
@@ -182,23 +411,64 @@ public class JobSelector {
     }
 
     // Crea parámetros específicos para un job
-    private JobParameters createJobParameters(String jobType) {
+    private JobParameters createJobParameters(Job job, String jobType) {
+        String fileName = jobFileMapping.get(jobType);
+        String resolved = resolveFileName(fileName);
+        return parametrosParaArchivo(job, jobType, resolved != null ? resolved : fileName);
+    }
+
+    // Parámetros para procesar un archivo. Si la última ejecución del mismo tipo y
+    // archivo terminó en FAILED o STOPPED se reutilizan sus parámetros, con lo que
+    // Spring Batch reinicia esa instancia y los readers continúan desde el offset
+    // guardado en cada partición. Si no, se crea una instancia nueva
+    private JobParameters parametrosParaArchivo(Job job, String jobType, String fileName) {
+        JobExecution reiniciable = buscarEjecucionReiniciable(job.getName(), jobType, fileName);
+        if (reiniciable != null) {
+            log.info("Reiniciando la ejecución {} de {} para {} (estado {})", reiniciable.getId(), jobType,
+                    fileName, reiniciable.getStatus());
+            return reiniciable.getJobParameters();
+        }
         return new JobParametersBuilder()
                 .addString("jobType", jobType)
-                .addString("fileName", jobFileMapping.get(jobType))
+                .addString("fileName", fileName)
                 .addLong("timestamp", System.currentTimeMillis())
                 .addString("executionId", java.util.UUID.randomUUID().toString())
                 .toJobParameters();
     }
 
+    // Última ejecución del job para el tipo y archivo indicados si quedó en FAILED o
+    // STOPPED; null si no hay o si la más reciente terminó de otra forma
+    private JobExecution buscarEjecucionReiniciable(String jobName, String jobType, String fileName) {
+        for (JobInstance instancia : jobExplorer.getJobInstances(jobName, 0, INSTANCIAS_REVISADAS)) {
+            JobExecution ultima = jobExplorer.getLastJobExecution(instancia);
+            if (ultima == null) {
+                continue;
+            }
+            JobParameters parametros = ultima.getJobParameters();
+            if (!jobType.equals(parametros.getString("jobType"))
+                    || !fileName.equals(parametros.getString("fileName"))) {
+                continue;
+            }
+            BatchStatus estado = ultima.getStatus();
+            return estado == BatchStatus.FAILED || estado == BatchStatus.STOPPED ? ultima : null;
+        }
+        return null;
+    }
+
     // Verifica si hay al menos un archivo disponible para procesamiento
     public boolean hasAvailableFiles() {
+        if (isHotFolderMode()) {
+            return jobFileMapping.keySet().stream().anyMatch(jobName -> !findHotFolderFiles(jobName).isEmpty());
+        }
         return jobFileMapping.values().stream()
                 .anyMatch(this::checkFileExists);
     }
 
     // Obtiene el número total de archivos disponibles
     public int getAvailableFileCount() {
+        if (isHotFolderMode()) {
+            return jobFileMapping.keySet().stream().mapToInt(jobName -> findHotFolderFiles(jobName).size()).sum();
+        }
         return (int) jobFileMapping.values().stream()
                 .mapToLong(fileName -> checkFileExists(fileName) ? 1 : 0)
                 .sum();
@@ -225,6 +495,11 @@ public class JobSelector {
             valid = false;
         }
 
+        if (reprocesoErroresJob == null) {
+            log.error("Job de reproceso de errores no está configurado correctamente");
+            valid = false;
+        }
+
         if (jobLauncher == null) {
             log.error("JobLauncher no está configurado correctamente");
             valid = false;
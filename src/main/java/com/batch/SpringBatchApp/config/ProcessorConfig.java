@@ -1,9 +1,19 @@
 package com.batch.SpringBatchApp.config;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import com.batch.SpringBatchApp.utils.ModoEscritura;
+import com.batch.SpringBatchApp.utils.TipoCanonico;
+
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
 @Configuration
 @ConfigurationProperties(prefix = "batch.processor")
@@ -21,6 +31,10 @@ public class ProcessorConfig {
     // Si debe normalizar tipos (tanto transacciones como cuentas)
     private boolean normalizarTipos = true;
 
+    // Si los montos/saldos se leen y validan como long en centavos (escala 2) en vez de
+    // BigDecimal. Los montos con más de 2 decimales se rechazan como formato inválido
+    private boolean montosPuntoFijo = false;
+
     // === CONFIGURACIÓN ESPECÍFICA PARA TRANSACCIONES ===
 
     // Año mínimo permitido para fechas de transacciones
@@ -35,6 +49,12 @@ public class ProcessorConfig {
     // Si debe omitir transacciones con montos cero
     private boolean omitirMontosCero = true;
 
+    // Si debe guardar en cache las fechas ya parseadas (incluidas las inválidas)
+    private boolean cacheFechasHabilitado = true;
+
+    // Número máximo de fechas distintas en cache antes de vaciarla
+    private int tamanoMaximoCacheFechas = 10000;
+
     // === CONFIGURACIÓN ESPECÍFICA PARA INTERESES ===
 
     // Tipo por defecto cuando no se puede mapear un tipo de cuenta de interés
@@ -59,6 +79,36 @@ public class ProcessorConfig {
     // Si debe capitalizar nombres automáticamente
     private boolean capitalizarNombres = true;
 
+    // === DICCIONARIOS DE TIPOS ===
+
+    // Alias (sin distinguir mayúsculas) que se aceptan para cada tipo canónico. Cada
+    // entrada reemplaza la lista por defecto de su tipo, por ejemplo
+    // batch.processor.alias-transacciones.DEBITO=DEBITO,DEBIT,DB
+    private Map<TipoCanonico, List<String>> aliasTransacciones = new EnumMap<>(Map.of(
+            TipoCanonico.DEBITO, List.of("DEBITO", "DEBIT", "DB", "RETIRO", "WITHDRAWAL", "EGRESO"),
+            TipoCanonico.CREDITO, List.of("CREDITO", "CREDIT", "CR", "DEPOSITO", "DEPOSIT", "INGRESO")));
+
+    private Map<TipoCanonico, List<String>> aliasIntereses = new EnumMap<>(Map.of(
+            TipoCanonico.AHORRO, List.of("AHORRO", "SAVINGS", "SAV", "CUENTA_AHORRO", "CUENTAAHORRO"),
+            TipoCanonico.PRESTAMO, List.of("PRESTAMO", "LOAN", "CREDITO", "CREDIT", "CREDITO_PERSONAL",
+                    "CREDITOPERSONAL"),
+            TipoCanonico.HIPOTECA, List.of("HIPOTECA", "MORTGAGE", "HIP", "CREDITO_HIPOTECARIO",
+                    "CREDITOHIPOTECARIO"),
+            // Las cuentas corrientes se registran como crédito
+            TipoCanonico.CREDITO, List.of("CORRIENTE", "CHECKING", "CURRENT", "CHK")));
+
+    private Map<TipoCanonico, List<String>> aliasCuentasAnuales = new EnumMap<>(Map.of(
+            TipoCanonico.DEBITO, List.of("DEBITO", "DEBIT", "DB", "RETIRO", "WITHDRAWAL", "EGRESO"),
+            TipoCanonico.CREDITO, List.of("CREDITO", "CREDIT", "CR", "DEPOSITO", "DEPOSIT", "INGRESO"),
+            TipoCanonico.DEPOSITO, List.of("DEP"),
+            TipoCanonico.RETIRO, List.of("RET"),
+            TipoCanonico.TRANSFERENCIA, List.of("TRANSFERENCIA", "TRANSFER", "TRF", "TRANSF"),
+            TipoCanonico.INTERES, List.of("INTERES", "INTEREST", "INT", "INTERESES"),
+            TipoCanonico.COMISION, List.of("COMISION", "COMMISSION", "COM", "COMISIONES", "FEE"),
+            TipoCanonico.AJUSTE, List.of("AJUSTE", "ADJUSTMENT", "ADJ", "AJUSTES"),
+            TipoCanonico.CARGO, List.of("CARGO", "CHARGE", "CHG", "CARGOS"),
+            TipoCanonico.ABONO, List.of("ABONO", "CREDIT_NOTE", "ABN", "ABONOS")));
+
     // === CONFIGURACIÓN DE TOLERANCIA A ERRORES ===
 
     // Límite máximo de errores antes de fallar el job
@@ -70,6 +120,80 @@ public class ProcessorConfig {
     // Tamaño del chunk para procesamiento por lotes
     private int tamanoChunk = 50;
 
+    // Cómo guarda cada writer sus chunks: JPA (saveAll) o JDBC, con todo el chunk en un
+    // único lote de sentencias preparadas que el driver de MySQL reescribe como un
+    // INSERT multi-fila (requiere rewriteBatchedStatements=true en la URL)
+    private ModoEscritura escrituraTransacciones = ModoEscritura.JPA;
+    private ModoEscritura escrituraIntereses = ModoEscritura.JPA;
+    private ModoEscritura escrituraCuentasAnuales = ModoEscritura.JPA;
+
+    // Número de particiones (rangos de bytes) en que se divide cada archivo; cada
+    // partición se procesa en su propio hilo
+    private int numeroParticiones = 4;
+
+    // Si los registros de cada chunk se procesan en paralelo antes de escribirlos (en
+    // lectura fusionada no hay processor y no se aplica)
+    private boolean procesamientoParalelo = false;
+
+    // Hilos para el procesamiento paralelo; 0 usa un hilo virtual por registro
+    private int hilosProcesamiento = 0;
+
+    // Si cada chunk se valida completo, regla por regla sobre columnas de valores, en
+    // lugar de registro por registro. No aplica en lectura fusionada y tiene prioridad
+    // sobre el procesamiento paralelo
+    private boolean procesamientoPorLote = false;
+
+    // Si cada reader debe leer y mapear registros por adelantado en un hilo propio
+    private boolean prefetchHabilitado = false;
+
+    // Número máximo de registros leídos por adelantado en espera del step
+    private int profundidadPrefetch = 500;
+
+    // Si los registros mapeados de cada archivo se guardan en una cache binaria para
+    // que las siguientes ejecuciones sobre el mismo archivo no vuelvan a parsear el CSV
+    private boolean cacheParseoHabilitado = false;
+
+    // Directorio de las caches de parseo
+    private String directorioCacheParseo = "parse-cache";
+
+    // Si el reader valida y normaliza cada registro al mapearlo (lectura fusionada). Las
+    // líneas rechazadas se omiten en lugar de entregar marcadores de error y el step no
+    // tiene processor
+    private boolean lecturaFusionada = false;
+
+    // Si los writers consultan el índice persistente de ids ya cargados en las tablas
+    // para no volver a guardar registros de ejecuciones anteriores
+    private boolean indiceIdsHabilitado = false;
+
+    // Directorio de los índices de ids cargados
+    private String directorioIndiceIds = "id-index";
+
+    // Qué hacer con los registros que el índice registra como cargados: false los
+    // omite, true los actualiza sin consultar antes la base de datos
+    private boolean actualizarIdsCargados = false;
+
+    // Si al iniciar se reconstruyen los índices de ids desde la base de datos (por
+    // ejemplo tras perder el directorio o cargar datos por otra vía)
+    private boolean reconstruirIndiceIds = false;
+
+    // === CONFIGURACIÓN DE DIRECTORIO DE ENTRADA ===
+
+    // Directorio desde el que se toman los archivos a procesar. Vacío para procesar
+    // los archivos fijos del classpath
+    private String directorioEntrada = "";
+
+    // Directorio al que se mueven los archivos procesados exitosamente (relativo al
+    // directorio de entrada si no es absoluto)
+    private String directorioProcesados = "procesados";
+
+    // Patrones glob de los archivos de cada tipo dentro del directorio de entrada
+    private String patronTransacciones = "transacciones_*.{csv,csv.gz,csv.zip}";
+    private String patronIntereses = "intereses_*.{csv,csv.gz,csv.zip}";
+    private String patronCuentasAnuales = "cuentas_anuales_*.{csv,csv.gz,csv.zip}";
+
+    // Número máximo de archivos procesados al mismo tiempo
+    private int paralelismoArchivos = 4;
+
     // === CONFIGURACIÓN DE ARCHIVOS DE ERROR ===
 
     // Directorio donde se guardan los archivos de error
@@ -78,6 +202,46 @@ public class ProcessorConfig {
     // Si debe incluir timestamp en nombres de archivos de error
     private boolean incluirTimestampEnErrores = true;
 
+    // Tamaño máximo sin comprimir (bytes) y cantidad máxima de registros de cada
+    // segmento de un archivo de errores; 0 sin límite. Al alcanzar uno el archivo
+    // continúa en un segmento nuevo y el manifiesto lista todos los segmentos
+    private long tamanoMaximoSegmentoErrores = 0;
+    private long registrosMaximosSegmentoErrores = 0;
+
+    // Si los segmentos de errores se comprimen con gzip mientras se escriben
+    private boolean comprimirArchivosErrores = false;
+
+    // === CONFIGURACIÓN DEL ALMACÉN DE ERRORES ===
+
+    // Si los registros rechazados también se guardan en un almacén indexado (ver
+    // ErrorStore) donde se pueden buscar por motivo, archivo y posición de origen y
+    // desde el que se reprocesan
+    private boolean almacenErroresHabilitado = false;
+
+    // Directorio del almacén de errores y de los archivos exportados para reprocesar
+    private String directorioAlmacenErrores = "error-store";
+
+    // Entidad cuyos errores se reprocesan (transacciones, intereses o cuentas_anuales).
+    // Si se indica, la aplicación ejecuta el job de reproceso en lugar de cargar archivos
+    private String reprocesoEntidad = "";
+
+    // Filtros del reproceso; los vacíos no filtran. Motivo y origen se buscan como
+    // texto contenido y el id se compara con la primera columna
+    private String reprocesoMotivo = "";
+    private String reprocesoOrigen = "";
+    private String reprocesoId = "";
+
+    // Rango de posiciones (byte de inicio de la línea) en el archivo de origen; -1 sin límite
+    private long reprocesoPosicionDesde = -1;
+    private long reprocesoPosicionHasta = -1;
+
+    // CSV con registros corregidos: la secuencia del registro en el almacén seguida de
+    // las columnas del archivo original. Si se indica solo se reprocesan esos registros
+    private String reprocesoCorrecciones = "";
+
+    // Si también se reprocesan registros que ya se reprocesaron antes
+    private boolean reprocesoIncluirReprocesados = false;
+
     // === CONFIGURACIÓN DE LOGGING ===
 
     // Nivel de detalle en logs (DEBUG, INFO, WARN, ERROR)
@@ -88,12 +252,12 @@ public class ProcessorConfig {
 
     // === MÉTODOS DE CONVENIENCIA ===
 
-    // Verifica si un monto está dentro del rango permitido
+    // Verifica si un monto está dentro del rango permitido. Durante una ejecución se
+    // usa ValidationPolicy, que ya tiene el límite calculado
     public boolean esMontoValido(java.math.BigDecimal monto) {
         if (monto == null)
             return false;
-        java.math.BigDecimal limite = new java.math.BigDecimal(montoMaximo);
-        return monto.abs().compareTo(limite) <= 0;
+        return monto.abs().compareTo(getLimiteMaximoComoDecimal()) <= 0;
     }
 
     // Verifica si una edad está dentro del rango permitido
@@ -109,15 +273,46 @@ public class ProcessorConfig {
         return longitud >= longitudMinimaNombre && longitud <= longitudMaximaNombre;
     }
 
-    // Verifica si un año está dentro del rango permitido para fechas
+    // Verifica si un año está dentro del rango permitido para fechas. Durante una
+    // ejecución se usa ValidationPolicy, que fija el año actual al iniciar
     public boolean esAnioValido(int anio) {
         int anioActual = java.time.LocalDate.now().getYear();
         return anio >= anioMinimo && anio <= anioActual + (validarFechasFuturas ? 0 : 10);
     }
 
+    // Límite máximo como BigDecimal, calculado una sola vez
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile java.math.BigDecimal limiteMaximoDecimal;
+
     // Obtiene el límite máximo como BigDecimal para comparaciones
     public java.math.BigDecimal getLimiteMaximoComoDecimal() {
-        return new java.math.BigDecimal(montoMaximo);
+        java.math.BigDecimal limite = limiteMaximoDecimal;
+        if (limite == null) {
+            limite = new java.math.BigDecimal(montoMaximo);
+            limiteMaximoDecimal = limite;
+        }
+        return limite;
+    }
+
+    // Límite máximo en centavos para el modo de punto fijo, calculado una sola vez
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile long limiteMaximoEscalado = -1;
+
+    public void setMontoMaximo(String montoMaximo) {
+        this.montoMaximo = montoMaximo;
+        this.limiteMaximoDecimal = null;
+        this.limiteMaximoEscalado = -1;
+    }
+
+    public long getLimiteMaximoEscalado() {
+        long limite = limiteMaximoEscalado;
+        if (limite < 0) {
+            limite = com.batch.SpringBatchApp.utils.ScaledAmount.fromBigDecimal(getLimiteMaximoComoDecimal());
+            limiteMaximoEscalado = limite;
+        }
+        return limite;
     }
 
     // === CONFIGURACIÓN ADICIONAL PARA VALIDACIONES ESTRICTAS ===
@@ -125,9 +320,16 @@ public class ProcessorConfig {
     // Si debe aplicar validaciones estrictas (más restrictivas)
     private boolean validacionesEstrictas = false;
 
-    // Si debe rechazar automáticamente registros duplicados por ID
+    // Si debe rechazar automáticamente registros duplicados por ID. Se compara con los
+    // registros aceptados en la ejecución, en todas las particiones y archivos
     private boolean rechazarDuplicados = false;
 
+    // Ids esperados por entidad en una ejecución, para reservar de una vez el registro
+    // de duplicados. Se reservan 8 bytes por celda con la tabla llena hasta el 75%,
+    // redondeado a potencia de 2: con 1M son 64 segmentos de 32768 celdas, unos 16,8
+    // bytes por id
+    private long idsEsperados = 1_000_000;
+
     // Si debe normalizar automáticamente espacios en blanco
     private boolean normalizarEspacios = true;
 
@@ -6,6 +6,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -26,10 +27,20 @@ public class Intereses {
     @Column(name = "saldo", nullable = false)
     private BigDecimal saldo;
 
+    // Saldo en centavos cuando batch.processor.montos-punto-fijo está activo; el
+    // BigDecimal se completa recién en el writer
+    @Transient
+    private long saldoEscalado;
+
     @Column(name = "edad", nullable = false)
     private int edad;
 
     @Column(name = "tipo", nullable = false)
     private String tipo;
 
+    // Byte de inicio de la línea del archivo de origen, para ubicar el registro si se
+    // rechaza; -1 si no viene de un archivo
+    @Transient
+    private long posicionOrigen = -1;
+
 }
@@ -7,6 +7,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -27,7 +28,17 @@ public class Transacciones {
     @Column(name = "monto", nullable = false)
     private BigDecimal monto;
 
+    // Monto en centavos cuando batch.processor.montos-punto-fijo está activo; el
+    // BigDecimal se completa recién en el writer
+    @Transient
+    private long montoEscalado;
+
     @Column(name = "tipo", nullable = false)
     private String tipo;
 
+    // Byte de inicio de la línea del archivo de origen, para ubicar el registro si se
+    // rechaza; -1 si no viene de un archivo
+    @Transient
+    private long posicionOrigen = -1;
+
 }
@@ -0,0 +1,39 @@
+package com.batch.SpringBatchApp.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.batch.SpringBatchApp.entities.CuentasAnuales;
+
+// Escritura de cuentas anuales por lotes JDBC, sin el contexto de persistencia de JPA.
+// Con rewriteBatchedStatements el driver de MySQL envía el lote como un único INSERT
+// multi-fila, en un solo viaje a la base de datos
+@Repository
+public class CuentasAnualesJdbcRepository {
+
+    private static final String UPSERT = "insert into cuentas_anuales "
+            + "(cuenta_id, fecha, transaccion, monto, descripcion) values (?, ?, ?, ?, ?) "
+            + "on duplicate key update fecha = values(fecha), "
+            + "transaccion = values(transaccion), monto = values(monto), descripcion = values(descripcion)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Guarda los registros en un lote del tamaño de la lista; los que ya existen se
+    // actualizan, como en saveAll
+    public void upsertAll(List<? extends CuentasAnuales> registros) {
+        if (registros.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT, registros, registros.size(), (ps, item) -> {
+            ps.setLong(1, item.getCuenta_id());
+            ps.setObject(2, item.getFecha());
+            ps.setString(3, item.getTransaccion());
+            ps.setBigDecimal(4, item.getMonto());
+            ps.setString(5, item.getDescripcion());
+        });
+    }
+}
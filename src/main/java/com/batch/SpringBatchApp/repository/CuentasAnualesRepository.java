@@ -1,11 +1,39 @@
 package com.batch.SpringBatchApp.repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.batch.SpringBatchApp.entities.CuentasAnuales;
 
 @Repository
 public interface CuentasAnualesRepository extends JpaRepository<CuentasAnuales, Long> {
 
+    // Ids guardados mayores a desde, en orden, para reconstruir el índice de ids por páginas
+    @Query("select c.cuenta_id from CuentasAnuales c where c.cuenta_id > :desde order by c.cuenta_id")
+    List<Long> findIdsMayoresA(@Param("desde") Long desde, Pageable pagina);
+
+    // Actualiza un registro ya cargado sin leerlo antes; retorna las filas afectadas
+    @Modifying
+    @Transactional
+    @Query("update CuentasAnuales c set "
+            + "c.fecha = :fecha, "
+            + "c.transaccion = :transaccion, "
+            + "c.monto = :monto, "
+            + "c.descripcion = :descripcion "
+            + "where c.cuenta_id = :cuenta_id")
+    int actualizar(@Param("fecha") LocalDate fecha,
+            @Param("transaccion") String transaccion,
+            @Param("monto") BigDecimal monto,
+            @Param("descripcion") String descripcion,
+            @Param("cuenta_id") Long cuenta_id);
+
 }
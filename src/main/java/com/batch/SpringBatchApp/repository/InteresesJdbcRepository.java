@@ -0,0 +1,38 @@
+package com.batch.SpringBatchApp.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.batch.SpringBatchApp.entities.Intereses;
+
+// Escritura de registros de interés por lotes JDBC, sin el contexto de persistencia de
+// JPA. Con rewriteBatchedStatements el driver de MySQL envía el lote como un único
+// INSERT multi-fila, en un solo viaje a la base de datos
+@Repository
+public class InteresesJdbcRepository {
+
+    private static final String UPSERT = "insert into intereses (cuenta_id, nombre, saldo, edad, tipo) "
+            + "values (?, ?, ?, ?, ?) on duplicate key update nombre = values(nombre), saldo = values(saldo), "
+            + "edad = values(edad), tipo = values(tipo)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Guarda los registros en un lote del tamaño de la lista; los que ya existen se
+    // actualizan, como en saveAll
+    public void upsertAll(List<? extends Intereses> registros) {
+        if (registros.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT, registros, registros.size(), (ps, item) -> {
+            ps.setLong(1, item.getCuenta_id());
+            ps.setString(2, item.getNombre());
+            ps.setBigDecimal(3, item.getSaldo());
+            ps.setInt(4, item.getEdad());
+            ps.setString(5, item.getTipo());
+        });
+    }
+}
@@ -1,11 +1,38 @@
 package com.batch.SpringBatchApp.repository;
 
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.batch.SpringBatchApp.entities.Intereses;
 
 @Repository
 public interface InteresesRepository extends JpaRepository<Intereses, Long> {
 
+    // Ids guardados mayores a desde, en orden, para reconstruir el índice de ids por páginas
+    @Query("select i.cuenta_id from Intereses i where i.cuenta_id > :desde order by i.cuenta_id")
+    List<Long> findIdsMayoresA(@Param("desde") Long desde, Pageable pagina);
+
+    // Actualiza un registro ya cargado sin leerlo antes; retorna las filas afectadas
+    @Modifying
+    @Transactional
+    @Query("update Intereses i set "
+            + "i.nombre = :nombre, "
+            + "i.saldo = :saldo, "
+            + "i.edad = :edad, "
+            + "i.tipo = :tipo "
+            + "where i.cuenta_id = :cuenta_id")
+    int actualizar(@Param("nombre") String nombre,
+            @Param("saldo") BigDecimal saldo,
+            @Param("edad") int edad,
+            @Param("tipo") String tipo,
+            @Param("cuenta_id") Long cuenta_id);
+
 }
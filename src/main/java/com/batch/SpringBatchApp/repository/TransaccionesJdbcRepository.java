@@ -0,0 +1,36 @@
+package com.batch.SpringBatchApp.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.batch.SpringBatchApp.entities.Transacciones;
+
+// Escritura de transacciones por lotes JDBC, sin el contexto de persistencia de JPA. Con
+// rewriteBatchedStatements el driver de MySQL envía el lote como un único INSERT
+// multi-fila, en un solo viaje a la base de datos
+@Repository
+public class TransaccionesJdbcRepository {
+
+    private static final String UPSERT = "insert into transacciones (id, fecha, monto, tipo) values (?, ?, ?, ?) "
+            + "on duplicate key update fecha = values(fecha), monto = values(monto), tipo = values(tipo)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Guarda los registros en un lote del tamaño de la lista; los que ya existen se
+    // actualizan, como en saveAll
+    public void upsertAll(List<? extends Transacciones> registros) {
+        if (registros.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT, registros, registros.size(), (ps, item) -> {
+            ps.setLong(1, item.getId());
+            ps.setObject(2, item.getFecha());
+            ps.setBigDecimal(3, item.getMonto());
+            ps.setString(4, item.getTipo());
+        });
+    }
+}
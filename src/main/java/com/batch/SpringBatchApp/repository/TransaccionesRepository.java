@@ -1,11 +1,37 @@
 package com.batch.SpringBatchApp.repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.batch.SpringBatchApp.entities.Transacciones;
 
 @Repository
 public interface TransaccionesRepository extends JpaRepository<Transacciones, Long> {
 
+    // Ids guardados mayores a desde, en orden, para reconstruir el índice de ids por páginas
+    @Query("select t.id from Transacciones t where t.id > :desde order by t.id")
+    List<Long> findIdsMayoresA(@Param("desde") Long desde, Pageable pagina);
+
+    // Actualiza un registro ya cargado sin leerlo antes; retorna las filas afectadas
+    @Modifying
+    @Transactional
+    @Query("update Transacciones t set "
+            + "t.fecha = :fecha, "
+            + "t.monto = :monto, "
+            + "t.tipo = :tipo "
+            + "where t.id = :id")
+    int actualizar(@Param("fecha") LocalDate fecha,
+            @Param("monto") BigDecimal monto,
+            @Param("tipo") String tipo,
+            @Param("id") Long id);
+
 }
\ No newline at end of file
@@ -11,4 +11,12 @@ public interface CuentasAnualesService {
 
     List<CuentasAnuales> saveAll(Iterable<? extends CuentasAnuales> cuentasAnualesList);
 
+    // Actualiza registros que ya existen sin leerlos antes; los que no se encuentran se
+    // guardan con saveAll. Retorna cuántos se actualizaron
+    int updateAll(Iterable<? extends CuentasAnuales> cuentasAnualesList);
+
+    // Guarda los registros en un único lote JDBC, sin el contexto de persistencia de JPA;
+    // los que ya existen se actualizan
+    void saveAllBatch(List<? extends CuentasAnuales> cuentasAnualesList);
+
 }
@@ -1,11 +1,13 @@
 package com.batch.SpringBatchApp.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.batch.SpringBatchApp.entities.CuentasAnuales;
+import com.batch.SpringBatchApp.repository.CuentasAnualesJdbcRepository;
 import com.batch.SpringBatchApp.repository.CuentasAnualesRepository;
 
 @Service
@@ -14,9 +16,35 @@ public class CuentasAnualesServiceImpl implements CuentasAnualesService {
     @Autowired
     CuentasAnualesRepository cuentasAnualesRepository;
 
+    @Autowired
+    CuentasAnualesJdbcRepository cuentasAnualesJdbcRepository;
+
     @Override
     public List<CuentasAnuales> saveAll(Iterable<? extends CuentasAnuales> cuentasAnualesList) {
         return (List<CuentasAnuales>) cuentasAnualesRepository.saveAll(cuentasAnualesList);
     }
 
+    @Override
+    public int updateAll(Iterable<? extends CuentasAnuales> cuentasAnualesList) {
+        int actualizados = 0;
+        List<CuentasAnuales> faltantes = new ArrayList<>();
+        for (CuentasAnuales item : cuentasAnualesList) {
+            if (cuentasAnualesRepository.actualizar(item.getFecha(), item.getTransaccion(),
+                    item.getMonto(), item.getDescripcion(), item.getCuenta_id()) > 0) {
+                actualizados++;
+            } else {
+                faltantes.add(item);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            cuentasAnualesRepository.saveAll(faltantes);
+        }
+        return actualizados;
+    }
+
+    @Override
+    public void saveAllBatch(List<? extends CuentasAnuales> cuentasAnualesList) {
+        cuentasAnualesJdbcRepository.upsertAll(cuentasAnualesList);
+    }
+
 }
@@ -1,11 +1,13 @@
 package com.batch.SpringBatchApp.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.batch.SpringBatchApp.entities.Intereses;
+import com.batch.SpringBatchApp.repository.InteresesJdbcRepository;
 import com.batch.SpringBatchApp.repository.InteresesRepository;
 
 @Service
@@ -14,9 +16,35 @@ public class InteresesServiceImpl implements InteresesService {
     @Autowired
     InteresesRepository interesesRepository;
 
+    @Autowired
+    InteresesJdbcRepository interesesJdbcRepository;
+
     @Override
     public List<Intereses> saveAll(Iterable<? extends Intereses> interesesList) {
         return (List<Intereses>) interesesRepository.saveAll(interesesList);
     }
 
+    @Override
+    public int updateAll(Iterable<? extends Intereses> interesesList) {
+        int actualizados = 0;
+        List<Intereses> faltantes = new ArrayList<>();
+        for (Intereses item : interesesList) {
+            if (interesesRepository.actualizar(item.getNombre(), item.getSaldo(),
+                    item.getEdad(), item.getTipo(), item.getCuenta_id()) > 0) {
+                actualizados++;
+            } else {
+                faltantes.add(item);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            interesesRepository.saveAll(faltantes);
+        }
+        return actualizados;
+    }
+
+    @Override
+    public void saveAllBatch(List<? extends Intereses> interesesList) {
+        interesesJdbcRepository.upsertAll(interesesList);
+    }
+
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.batch.SpringBatchApp.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.batch.SpringBatchApp.entities.Transacciones;
+import com.batch.SpringBatchApp.repository.TransaccionesJdbcRepository;
 import com.batch.SpringBatchApp.repository.TransaccionesRepository;
 
 @Service
@@ -14,9 +16,35 @@ public class TransaccionesServiceImpl implements TransaccionesService {
     @Autowired
     private TransaccionesRepository transaccionesRepository;
 
+    @Autowired
+    private TransaccionesJdbcRepository transaccionesJdbcRepository;
+
     @Override
     public List<Transacciones> saveAll(Iterable<? extends Transacciones> transactionsList) {
         return (List<Transacciones>) transaccionesRepository.saveAll(transactionsList);
     }
 
+    @Override
+    public int updateAll(Iterable<? extends Transacciones> transactionsList) {
+        int actualizados = 0;
+        List<Transacciones> faltantes = new ArrayList<>();
+        for (Transacciones item : transactionsList) {
+            if (transaccionesRepository.actualizar(item.getFecha(), item.getMonto(),
+                    item.getTipo(), item.getId()) > 0) {
+                actualizados++;
+            } else {
+                faltantes.add(item);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            transaccionesRepository.saveAll(faltantes);
+        }
+        return actualizados;
+    }
+
+    @Override
+    public void saveAllBatch(List<? extends Transacciones> transactionsList) {
+        transaccionesJdbcRepository.upsertAll(transactionsList);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.core.step.item.ChunkProcessor;
+import org.springframework.batch.item.Chunk;
+import org.springframework.util.Assert;
+
+// ChunkProcessor del procesamiento por lote. Antes de la fase de transformación valida
+// el chunk completo con un BatchItemProcessor: los registros rechazados se quitan del
+// chunk y se cuentan como filtrados, igual que los que filtra un ItemProcessor, y el
+// processor del step entrega a cada registro aceptado su versión procesada, así el
+// writer recibe solo los aceptados. El resultado se guarda en el contexto del step
+// hasta que el chunk termina, para que los reintentos de escritura y el recorrido uno
+// a uno tras un error no vuelvan a validar ni a sumar contadores
+public class BatchChunkProcessor<I, O> implements ChunkProcessor<I> {
+
+    private static final String LOTE_KEY = BatchChunkProcessor.class.getName() + ".lote";
+
+    private final BatchItemProcessor<I, O> processor;
+    private ChunkProcessor<I> delegate;
+
+    private BatchChunkProcessor(BatchItemProcessor<I, O> processor) {
+        this.processor = processor;
+    }
+
+    // Step tolerante a fallos cuyo chunk processor valida cada chunk completo con el
+    // processor por lote antes de transformarlo y escribirlo
+    public static <I, O> FaultTolerantStepBuilder<I, O> faultTolerant(SimpleStepBuilder<I, O> builder,
+            BatchItemProcessor<I, O> processor) {
+        Assert.notNull(processor, "Se requiere un processor por lote");
+        BatchChunkProcessor<I, O> chunkProcessor = new BatchChunkProcessor<>(processor);
+        return new FaultTolerantStepBuilder<>(builder.processor(chunkProcessor::resultado)) {
+            @Override
+            protected ChunkProcessor<I> createChunkProcessor() {
+                chunkProcessor.delegate = super.createChunkProcessor();
+                return chunkProcessor;
+            }
+        };
+    }
+
+    @Override
+    public void process(StepContribution contribution, Chunk<I> inputs) throws Exception {
+        StepContext contexto = StepSynchronizationManager.getContext();
+        Assert.state(contexto != null, "El procesamiento por lote requiere el contexto del step");
+
+        Lote<I, O> lote = loteEnCurso(contexto);
+        if (lote == null || lote.entradas() != inputs) {
+            lote = validar(inputs);
+            contexto.setAttribute(LOTE_KEY, lote);
+            // TaskletStep aplica la contribución aunque el intento se revierta: los
+            // filtrados se cuentan solo en el intento que valida el chunk
+            contribution.incrementFilterCount(lote.filtrados());
+        }
+
+        delegate.process(contribution, inputs);
+
+        if (!inputs.isBusy()) {
+            contexto.removeAttribute(LOTE_KEY);
+        }
+    }
+
+    // Valida el chunk y quita de él los registros rechazados
+    private Lote<I, O> validar(Chunk<I> inputs) throws Exception {
+        List<O> resultados = processor.procesarLote(inputs.getItems());
+        Assert.state(resultados.size() == inputs.size(),
+                "El processor por lote debe retornar un resultado por registro");
+
+        Map<I, O> aceptados = new IdentityHashMap<>(resultados.size());
+        int filtrados = 0;
+        Iterator<O> resultado = resultados.iterator();
+        for (Iterator<I> entrada = inputs.iterator(); entrada.hasNext();) {
+            I item = entrada.next();
+            O procesado = resultado.next();
+            if (procesado != null) {
+                aceptados.put(item, procesado);
+            } else {
+                entrada.remove();
+                filtrados++;
+            }
+        }
+        return new Lote<>(inputs, aceptados, filtrados);
+    }
+
+    // ItemProcessor del step: la versión procesada de un registro aceptado del chunk en curso
+    private O resultado(I item) {
+        StepContext contexto = StepSynchronizationManager.getContext();
+        Lote<I, O> lote = contexto != null ? loteEnCurso(contexto) : null;
+        Assert.state(lote != null && lote.aceptados().containsKey(item), "Registro fuera del chunk validado");
+        return lote.aceptados().get(item);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Lote<I, O> loteEnCurso(StepContext contexto) {
+        return (Lote<I, O>) contexto.getAttribute(LOTE_KEY);
+    }
+
+    // Resultado de validar un chunk: las entradas validadas, la versión procesada de
+    // cada una que se aceptó y la cantidad de rechazadas
+    private record Lote<I, O>(Chunk<I> entradas, Map<I, O> aceptados, int filtrados) {
+    }
+}
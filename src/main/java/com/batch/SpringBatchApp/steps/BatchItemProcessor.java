@@ -0,0 +1,14 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.util.List;
+
+// Processor que recibe un chunk completo, para validar sus registros por columnas en
+// lugar de uno a uno (ver RuleChain.validarLote)
+@FunctionalInterface
+public interface BatchItemProcessor<I, O> {
+
+    // Retorna un resultado por registro, en el orden del chunk: su versión procesada o
+    // null si se rechazó
+    List<O> procesarLote(List<? extends I> items) throws Exception;
+
+}
@@ -0,0 +1,69 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+// Processor que entrega cada registro a un executor y retorna el Future del resultado
+// del processor delegado, para que los registros de un chunk se procesen en paralelo.
+// FutureItemWriter espera los resultados en el orden del chunk antes de escribirlos.
+// El delegado debe poder usarse desde varios hilos a la vez.
+public class ConcurrentItemProcessor<I, O> implements ItemProcessor<I, Future<O>> {
+
+    private final ItemProcessor<I, O> delegate;
+    private final AsyncTaskExecutor executor;
+
+    // Métricas
+    private final LongAdder registrosProcesados = new LongAdder();
+    private final LongAdder procesoNanos = new LongAdder();
+
+    public ConcurrentItemProcessor(ItemProcessor<I, O> delegate, AsyncTaskExecutor executor) {
+        Assert.notNull(delegate, "Se requiere un processor delegado");
+        Assert.notNull(executor, "Se requiere un executor");
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public Future<O> process(@NonNull I item) throws Exception {
+        // Los hilos del executor se registran en la misma ejecución del step, por si el
+        // delegado depende de beans @StepScope
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        StepExecution stepExecution = stepContext != null ? stepContext.getStepExecution() : null;
+
+        return executor.submitCompletable(() -> procesar(item, stepExecution));
+    }
+
+    private O procesar(I item, StepExecution stepExecution) throws Exception {
+        if (stepExecution != null) {
+            StepSynchronizationManager.register(stepExecution);
+        }
+        long inicio = System.nanoTime();
+        try {
+            return delegate.process(item);
+        } finally {
+            procesoNanos.add(System.nanoTime() - inicio);
+            registrosProcesados.increment();
+            if (stepExecution != null) {
+                StepSynchronizationManager.close();
+            }
+        }
+    }
+
+    public long getRegistrosProcesados() {
+        return registrosProcesados.sum();
+    }
+
+    // Suma del tiempo de proceso de todos los registros, en todos los hilos
+    public long getProcesoAcumuladoMs() {
+        return TimeUnit.NANOSECONDS.toMillis(procesoNanos.sum());
+    }
+}
@@ -0,0 +1,221 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.springframework.core.io.Resource;
+
+import com.batch.SpringBatchApp.utils.ReadAheadInputStream;
+
+// Fuente de bytes de MappedCsvItemReader. Entrega ventanas del contenido (ya
+// descomprimido) donde el índice 0 corresponde al byte pedido.
+public interface CsvByteSource extends Closeable {
+
+    // Tamaño de bloque y bloques en cola al descomprimir gzip en segundo plano
+    int TAMANO_BLOQUE_DESCOMPRESION = 256 * 1024;
+    int BLOQUES_DESCOMPRESION = 8;
+
+    // Retorna una ventana que comienza en el byte indicado y tiene hasta tamano bytes
+    // (menos solo al final de los datos)
+    ByteBuffer ventana(long desde, int tamano) throws IOException;
+
+    // true si la última ventana entregada llega hasta el final de los datos
+    boolean esUltimaVentana();
+
+    // Si se puede comenzar a leer en cualquier byte sin recorrer lo anterior. Los
+    // streams sin comprimir avanzan con InputStream.skip; en los comprimidos habría que
+    // descomprimir todo lo anterior
+    boolean permitePosicionar();
+
+    // Tamaño de ventana a usar para esta fuente según el tamaño configurado
+    default int ajustarTamanoVentana(int tamanoConfigurado) {
+        return tamanoConfigurado;
+    }
+
+    // Indica si el nombre corresponde a un archivo comprimido soportado
+    static boolean esComprimido(String nombre) {
+        if (nombre == null) {
+            return false;
+        }
+        String minusculas = nombre.toLowerCase(Locale.ROOT);
+        return minusculas.endsWith(".gz") || minusculas.endsWith(".zip");
+    }
+
+    // Abre la fuente adecuada para el resource: gzip y zip se descomprimen mientras se
+    // leen, los archivos se mapean en memoria y el resto se lee como stream
+    static CsvByteSource abrir(Resource resource) throws IOException {
+        String nombre = resource.getFilename() != null ? resource.getFilename().toLowerCase(Locale.ROOT) : "";
+
+        if (nombre.endsWith(".gz")) {
+            // GZIPInputStream lee también gzip de varios miembros; la descompresión corre
+            // en su propio hilo para solaparse con el parseo
+            InputStream gzip = new GZIPInputStream(
+                    new BufferedInputStream(resource.getInputStream(), TAMANO_BLOQUE_DESCOMPRESION),
+                    TAMANO_BLOQUE_DESCOMPRESION);
+            return new StreamByteSource(new ReadAheadInputStream(gzip, TAMANO_BLOQUE_DESCOMPRESION,
+                    BLOQUES_DESCOMPRESION, "gzip-" + resource.getFilename()), false);
+        }
+
+        if (nombre.endsWith(".zip")) {
+            ZipInputStream zip = new ZipInputStream(
+                    new BufferedInputStream(resource.getInputStream(), TAMANO_BLOQUE_DESCOMPRESION));
+            ZipEntry entrada = zip.getNextEntry();
+            while (entrada != null && entrada.isDirectory()) {
+                entrada = zip.getNextEntry();
+            }
+            if (entrada == null) {
+                zip.close();
+                return new StreamByteSource(InputStream.nullInputStream(), false);
+            }
+            return new StreamByteSource(zip, false);
+        }
+
+        if (resource.isFile()) {
+            return new MappedFileByteSource(FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ));
+        }
+
+        // Recursos sin archivo (por ejemplo dentro de un jar) no se pueden mapear
+        return new StreamByteSource(resource.getInputStream(), true);
+    }
+
+    // Archivo mapeado en memoria por ventanas
+    final class MappedFileByteSource implements CsvByteSource {
+
+        private final FileChannel channel;
+        private final long tamano;
+        private boolean ultimaVentana;
+
+        MappedFileByteSource(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.tamano = channel.size();
+        }
+
+        @Override
+        public ByteBuffer ventana(long desde, int tamanoVentana) throws IOException {
+            long longitud = Math.max(0, Math.min(tamanoVentana, tamano - desde));
+            ultimaVentana = desde + longitud >= tamano;
+            if (longitud == 0) {
+                return ByteBuffer.allocate(0);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, desde, longitud);
+        }
+
+        @Override
+        public boolean esUltimaVentana() {
+            return ultimaVentana;
+        }
+
+        @Override
+        public boolean permitePosicionar() {
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Stream leído de forma secuencial sobre un buffer en heap que se reutiliza: al
+    // pedir la siguiente ventana, lo no consumido se mueve al inicio y se completa
+    // con datos nuevos del stream. Solo se puede avanzar; los saltos hacia adelante
+    // usan InputStream.skip
+    final class StreamByteSource implements CsvByteSource {
+
+        // Tamaño máximo de ventana para streams, para no reservar el tamaño de los mapeos
+        private static final int TAMANO_VENTANA_STREAM = 1024 * 1024;
+
+        private final InputStream inputStream;
+        private final boolean permiteSaltar;
+        private byte[] datos = new byte[0];
+        private long inicioDatos;
+        private int llenos;
+        private boolean finStream;
+        private boolean ultimaVentana;
+
+        StreamByteSource(InputStream inputStream, boolean permiteSaltar) {
+            this.inputStream = inputStream;
+            this.permiteSaltar = permiteSaltar;
+        }
+
+        @Override
+        public ByteBuffer ventana(long desde, int tamanoVentana) throws IOException {
+            if (desde < inicioDatos) {
+                throw new IllegalStateException("No se puede retroceder en un stream (byte " + desde + ")");
+            }
+
+            long desplazamiento = desde - inicioDatos;
+            if (desplazamiento <= llenos) {
+                // Mover lo que queda sin consumir al inicio del buffer
+                int restantes = llenos - (int) desplazamiento;
+                System.arraycopy(datos, (int) desplazamiento, datos, 0, restantes);
+                llenos = restantes;
+            } else {
+                descartar(desplazamiento - llenos);
+                llenos = 0;
+            }
+            inicioDatos = desde;
+
+            if (datos.length < tamanoVentana) {
+                datos = Arrays.copyOf(datos, tamanoVentana);
+            }
+            while (llenos < tamanoVentana && !finStream) {
+                int leidos = inputStream.read(datos, llenos, tamanoVentana - llenos);
+                if (leidos < 0) {
+                    finStream = true;
+                } else {
+                    llenos += leidos;
+                }
+            }
+
+            int limite = Math.min(llenos, tamanoVentana);
+            ultimaVentana = finStream && llenos <= tamanoVentana;
+            return ByteBuffer.wrap(datos, 0, limite).slice();
+        }
+
+        // Avanza el stream descartando bytes
+        private void descartar(long bytes) throws IOException {
+            while (bytes > 0 && !finStream) {
+                long saltados = inputStream.skip(bytes);
+                if (saltados <= 0) {
+                    if (inputStream.read() < 0) {
+                        finStream = true;
+                        return;
+                    }
+                    saltados = 1;
+                }
+                bytes -= saltados;
+            }
+        }
+
+        @Override
+        public boolean esUltimaVentana() {
+            return ultimaVentana;
+        }
+
+        @Override
+        public boolean permitePosicionar() {
+            return permiteSaltar;
+        }
+
+        @Override
+        public int ajustarTamanoVentana(int tamanoConfigurado) {
+            return Math.min(tamanoConfigurado, TAMANO_VENTANA_STREAM);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import com.batch.SpringBatchApp.utils.CsvLineTokenizer;
+
+// Vista de una línea CSV sobre el buffer del reader. Los límites de cada campo los
+// calcula el CsvLineTokenizer del hilo actual; los valores tipados se parsean
+// directamente desde los bytes y el String solo se construye cuando se pide.
+public class CsvRecord {
+
+    private final String[] names;
+    private final byte delimiter;
+
+    private CsvLineTokenizer tokenizer;
+
+    public CsvRecord(String[] names, byte delimiter) {
+        this.names = names;
+        this.delimiter = delimiter;
+    }
+
+    // Apunta el registro a una nueva línea y calcula los límites de sus campos
+    void reset(ByteBuffer buffer, int lineStart, int lineEnd) {
+        tokenizer = CsvLineTokenizer.forCurrentThread(delimiter);
+        tokenizer.tokenize(buffer, lineStart, lineEnd);
+    }
+
+    public int getFieldCount() {
+        return tokenizer.getFieldCount();
+    }
+
+    // Una línea vacía o con solo espacios no tiene campos
+    public boolean isBlank() {
+        return tokenizer.isBlankLine();
+    }
+
+    public boolean isEmpty(int index) {
+        return tokenizer.isEmpty(index);
+    }
+
+    public long readLong(int index) {
+        return tokenizer.parseLong(index);
+    }
+
+    public int readInt(int index) {
+        return tokenizer.parseInt(index);
+    }
+
+    public BigDecimal readDecimal(int index) {
+        return tokenizer.parseDecimal(index);
+    }
+
+    // Monto en punto fijo con la escala indicada (ver ScaledAmount)
+    public long readScaled(int index, int scale) {
+        return tokenizer.parseScaledLong(index, scale);
+    }
+
+    // Vista sin copia del campo; válida hasta la siguiente lectura del registro
+    public CharSequence readChars(int index) {
+        return tokenizer.readChars(index);
+    }
+
+    // Lee un campo por nombre, recortado como lo hace FieldSet.readString
+    public String readString(String name) {
+        return readString(indexOf(name));
+    }
+
+    public String readString(int index) {
+        return tokenizer.readString(index);
+    }
+
+    // Todos los campos como String, solo para registrar errores
+    public String[] readAll() {
+        String[] values = tokenizer.readAll();
+        if (values.length >= names.length) {
+            return values;
+        }
+        String[] completos = new String[names.length];
+        System.arraycopy(values, 0, completos, 0, values.length);
+        return completos;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Campo desconocido: " + name);
+    }
+
+    // Línea completa decodificada, usada solo para logs y mensajes de error
+    @Override
+    public String toString() {
+        return tokenizer != null ? tokenizer.lineAsString() : "";
+    }
+}
@@ -0,0 +1,9 @@
+package com.batch.SpringBatchApp.steps;
+
+// Convierte un registro CSV (campos como offsets sobre el buffer) en una entidad
+@FunctionalInterface
+public interface CsvRecordMapper<T> {
+
+    T mapRecord(CsvRecord record) throws Exception;
+
+}
@@ -1,11 +1,16 @@
 package com.batch.SpringBatchApp.steps;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
@@ -14,22 +19,26 @@ import org.springframework.stereotype.Component;
 
 import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.CuentasAnuales;
+import com.batch.SpringBatchApp.utils.ScaledAmount;
+import com.batch.SpringBatchApp.utils.TextNormalizer;
+import com.batch.SpringBatchApp.utils.TipoCanonico;
+import com.batch.SpringBatchApp.utils.TypeDictionary;
+import com.batch.SpringBatchApp.utils.ValidationPolicies;
+import com.batch.SpringBatchApp.utils.ValidationPolicy;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
-public class CuentasAnualesItemProcessor implements ItemProcessor<CuentasAnuales, CuentasAnuales> {
+public class CuentasAnualesItemProcessor
+        implements ItemProcessor<CuentasAnuales, CuentasAnuales>, BatchItemProcessor<CuentasAnuales, CuentasAnuales>,
+        FusedItemValidator<CuentasAnuales> {
 
-    // Tipos de transacción válidos para cuentas anuales (más amplios que
-    // transacciones regulares)
-    private static final List<String> TIPOS_VALIDOS = Arrays.asList(
-            "DEBITO", "CREDITO", "DEPOSITO", "RETIRO", "TRANSFERENCIA",
-            "INTERES", "COMISION", "AJUSTE", "CARGO", "ABONO");
+    // Regla de tipo válido, que se registra como advertencia al rechazar
+    private static final String REGLA_TIPO = "tipoValido";
 
-    // Tipos que deben ser enviados al archivo de errores
-    private static final List<String> TIPOS_INVALIDOS = Arrays.asList(
-            "-1", "INVALID", "DESCONOCIDO", "UNKNOWN", "ERROR", "NULL");
+    // Rechazo por id ya aceptado en la ejecución (con rechazarDuplicados)
+    private static final String REGLA_DUPLICADO = "idDuplicado";
 
     @Autowired
     private ProcessorConfig processorConfig;
@@ -37,6 +46,21 @@ public class CuentasAnualesItemProcessor implements ItemProcessor<CuentasAnuales
     @Autowired
     private ErrorCuentasAnualesWriter errorWriter;
 
+    // Tipos de transacción válidos para cuentas anuales (más amplios que
+    // transacciones regulares)
+    @Autowired
+    private TypeDictionary typeDictionary;
+
+    // Límites de validación de cada ejecución del job
+    @Autowired
+    private ValidationPolicies politicas;
+
+    // Rechazos por regla; las reglas de cada ejecución se guardan en sus políticas
+    private final RuleChain.Contadores rechazosPorRegla = new RuleChain.Contadores();
+
+    // Ids aceptados en la ejecución, para rechazar duplicados
+    private final DuplicateIdFilter duplicados = new DuplicateIdFilter();
+
     // Contadores para estadísticas
     private final AtomicLong processedCount = new AtomicLong(0);
     private final AtomicLong validCount = new AtomicLong(0);
@@ -46,236 +70,245 @@ public class CuentasAnualesItemProcessor implements ItemProcessor<CuentasAnuales
     @Override
     @Nullable
     public CuentasAnuales process(@NonNull CuentasAnuales item) throws Exception {
-        processedCount.incrementAndGet();
+        return procesarLote(List.of(item), false, false).get(0); // null filtra el registro si se rechazó
+    }
 
-        log.debug("Procesando cuenta anual: cuenta_id={}, transaccion={}", item.getCuenta_id(), item.getTransaccion());
+    // Lectura fusionada: el reader pasa cada registro recién mapeado, que se valida con
+    // las mismas reglas y se normaliza sobre el mismo objeto
+    @Override
+    public boolean validar(CuentasAnuales item) {
+        return procesarLote(List.of(item), true, true).get(0) != null;
+    }
 
-        // Verificar si es un marcador de error del reader
-        if (isErrorMarker(item)) {
-            log.debug("Marcador de error detectado, saltando: cuenta_id={}", item.getCuenta_id());
-            skippedCount.incrementAndGet();
-            return null; // Filtrar - no procesar más
-        }
+    // Procesa un chunk completo: salta los marcadores de error, valida el resto en lote
+    // y retorna, en el orden del chunk, la versión procesada de cada registro o null si
+    // se rechazó
+    @Override
+    public List<CuentasAnuales> procesarLote(List<? extends CuentasAnuales> items) {
+        return procesarLote(items, false, true);
+    }
 
-        try {
-            // Validación de campos obligatorios
-            if (!validarCamposObligatorios(item)) {
-                errorWriter.writeErrorCuentaAnual(item, "Campos obligatorios faltantes", "N/A");
-                errorCount.incrementAndGet();
-                return null;
+    // Con idsConfirmados los ids aceptados no se liberan si el chunk se revierte: la
+    // lectura fusionada y BatchChunkProcessor no vuelven a validar los registros en el
+    // reintento
+    private List<CuentasAnuales> procesarLote(List<? extends CuentasAnuales> items, boolean enLugar,
+            boolean idsConfirmados) {
+        processedCount.addAndGet(items.size());
+
+        List<CuentasAnuales> candidatas = new ArrayList<>(items.size());
+        int[] indices = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            CuentasAnuales item = items.get(i);
+            log.debug("Procesando cuenta anual: cuenta_id={}, transaccion={}", item.getCuenta_id(),
+                    item.getTransaccion());
+
+            // Verificar si es un marcador de error del reader
+            if (isErrorMarker(item)) {
+                log.debug("Marcador de error detectado, saltando: cuenta_id={}", item.getCuenta_id());
+                skippedCount.incrementAndGet();
+            } else {
+                indices[candidatas.size()] = i;
+                candidatas.add(item);
             }
+        }
 
-            // Validación de cuenta_id
-            if (!validarCuentaId(item)) {
-                errorWriter.writeErrorCuentaAnual(item, "cuenta_id inválido",
-                        item.getCuenta_id() != null ? item.getCuenta_id().toString() : "null");
-                errorCount.incrementAndGet();
-                return null;
+        RuleChain.Lote<CuentasAnuales> lote = validarLote(candidatas);
+        List<CuentasAnuales> procesadas = Arrays.asList(new CuentasAnuales[items.size()]);
+        for (int i = 0; i < candidatas.size(); i++) {
+            CuentasAnuales item = candidatas.get(i);
+            TipoCanonico transaccionNormalizada = revisar(item, lote, i);
+            if (transaccionNormalizada != null && !esDuplicada(item, idsConfirmados)) {
+                CuentasAnuales procesada = normalizar(item, enLugar ? item : new CuentasAnuales(),
+                        transaccionNormalizada);
+                registrarValida(procesada);
+                procesadas.set(indices[i], procesada);
             }
+        }
+        return procesadas;
+    }
 
-            // Validación de fecha
-            if (!validarFecha(item)) {
-                errorWriter.writeErrorCuentaAnual(item, "Fecha inválida",
-                        item.getFecha() != null ? item.getFecha().toString() : "null");
-                errorCount.incrementAndGet();
-                return null;
-            }
+    // Valida las candidatas en lote; si alguna regla lanza una excepción retorna null
+    // para que cada registro se valide por separado
+    @Nullable
+    private RuleChain.Lote<CuentasAnuales> validarLote(List<CuentasAnuales> candidatas) {
+        try {
+            return getReglas().validarLote(candidatas);
+        } catch (RuntimeException e) {
+            log.warn("Error en la validación por lote, se valida cada registro por separado: {}",
+                    e.getMessage());
+            return null;
+        }
+    }
 
-            // Validación de monto
-            if (!validarMonto(item)) {
-                errorWriter.writeErrorCuentaAnual(item, "Monto inválido",
-                        item.getMonto() != null ? item.getMonto().toString() : "null");
-                errorCount.incrementAndGet();
-                return null;
-            }
+    // Con rechazarDuplicados, rechaza el registro si su id ya se aceptó en la ejecución.
+    // Solo se registran ids de registros que cumplen las reglas
+    private boolean esDuplicada(CuentasAnuales item, boolean idsConfirmados) {
+        if (!processorConfig.isRechazarDuplicados() || duplicados.registrar(item.getCuenta_id(), idsConfirmados)) {
+            return false;
+        }
+        log.debug("Cuenta anual rechazada por id duplicado: cuenta_id={}", item.getCuenta_id());
+        rechazosPorRegla.sumar(REGLA_DUPLICADO);
+        escribirError(item, "Registro duplicado", String.valueOf(item.getCuenta_id()));
+        errorCount.incrementAndGet();
+        return true;
+    }
 
-            // Validación de descripción
-            if (!validarDescripcion(item)) {
-                errorWriter.writeErrorCuentaAnual(item, "Descripción inválida", item.getDescripcion());
-                errorCount.incrementAndGet();
-                return null;
-            }
+    // Al confirmarse el chunk sus ids quedan registrados; si se revierte se liberan
+    // para que el reintento no los rechace como duplicados
+    @AfterChunk
+    public void confirmarIds(ChunkContext chunkContext) {
+        duplicados.confirmar(chunkContext.getStepContext().getStepExecution());
+    }
 
-            // Validación crítica de tipo de transacción - RECHAZAR tipos inválidos
-            String transaccionNormalizada = normalizarTipoTransaccion(item.getTransaccion());
-            if (!TIPOS_VALIDOS.contains(transaccionNormalizada)) {
-                log.warn(
-                        "Cuenta anual rechazada por tipo de transacción inválido: cuenta_id={}, Transaccion original='{}', Transaccion normalizada='{}'",
-                        item.getCuenta_id(), item.getTransaccion(), transaccionNormalizada);
-                errorWriter.writeErrorCuentaAnual(item, "Tipo de transacción no válido", item.getTransaccion());
+    @AfterChunkError
+    public void liberarIds(ChunkContext chunkContext) {
+        duplicados.liberar(chunkContext.getStepContext().getStepExecution());
+    }
+
+    // Registra el rechazo del registro y retorna null, o retorna su tipo de transacción
+    // normalizado si cumple todas las reglas. Sin lote se validan aquí las reglas
+    private TipoCanonico revisar(CuentasAnuales item, @Nullable RuleChain.Lote<CuentasAnuales> lote,
+            int indice) {
+        try {
+            ValidationRule<CuentasAnuales> rechazo = lote != null ? lote.getRechazo(indice)
+                    : getReglas().validar(item);
+            if (rechazo != null) {
+                if (REGLA_TIPO.equals(rechazo.nombre())) {
+                    log.warn(
+                            "Cuenta anual rechazada por tipo de transacción inválido: cuenta_id={}, Transaccion original='{}'",
+                            item.getCuenta_id(), item.getTransaccion());
+                } else {
+                    log.debug("Cuenta anual rechazada por la regla {}: cuenta_id={}", rechazo.nombre(),
+                            item.getCuenta_id());
+                }
+                escribirError(item, rechazo.motivo(), rechazo.valorOriginal().apply(item));
                 errorCount.incrementAndGet();
                 return null;
             }
 
-            // Si llegamos aquí, el registro es válido - crear versión procesada
-            CuentasAnuales cuentaAnualProcesada = crearCuentaAnualProcesada(item, transaccionNormalizada);
-            validCount.incrementAndGet();
-
-            log.info(
-                    "Cuenta anual procesada exitosamente: cuenta_id={}, fecha={}, transaccion={}, monto={}, descripcion={}",
-                    cuentaAnualProcesada.getCuenta_id(), cuentaAnualProcesada.getFecha(),
-                    cuentaAnualProcesada.getTransaccion(), cuentaAnualProcesada.getMonto(),
-                    cuentaAnualProcesada.getDescripcion().substring(0,
-                            Math.min(50, cuentaAnualProcesada.getDescripcion().length())) + "...");
-
-            return cuentaAnualProcesada;
+            return typeDictionary.cuentasAnuales().buscar(item.getTransaccion());
 
         } catch (Exception e) {
             log.error("Error inesperado al procesar cuenta anual cuenta_id={}: {}", item.getCuenta_id(), e.getMessage(),
                     e);
-            errorWriter.writeErrorCuentaAnual(item, "Error de procesamiento: " + e.getMessage(), "N/A");
+            escribirError(item, "Error de procesamiento: " + e.getMessage(), "N/A");
             errorCount.incrementAndGet();
             return null; // Filtrar en lugar de lanzar excepción
         }
     }
 
+    private void registrarValida(CuentasAnuales procesada) {
+        validCount.incrementAndGet();
+        log.info(
+                "Cuenta anual procesada exitosamente: cuenta_id={}, fecha={}, transaccion={}, monto={}, descripcion={}",
+                procesada.getCuenta_id(), procesada.getFecha(), procesada.getTransaccion(), montoComoTexto(procesada),
+                procesada.getDescripcion().substring(0, Math.min(50, procesada.getDescripcion().length())) + "...");
+    }
+
     // Verifica si el registro es un marcador de error del reader
     private boolean isErrorMarker(CuentasAnuales item) {
         return item.getTransaccion() != null && item.getTransaccion().startsWith("__ERROR_MARKER__");
     }
 
-    private CuentasAnuales crearCuentaAnualProcesada(CuentasAnuales original, String transaccionNormalizada) {
-        CuentasAnuales procesada = new CuentasAnuales();
+    // Copia los campos del registro original al procesado aplicando las
+    // transformaciones; ambos pueden ser el mismo objeto
+    private CuentasAnuales normalizar(CuentasAnuales original, CuentasAnuales procesada,
+            TipoCanonico transaccionNormalizada) {
         procesada.setCuenta_id(original.getCuenta_id());
         procesada.setFecha(original.getFecha());
-        procesada.setTransaccion(transaccionNormalizada);
+        procesada.setTransaccion(transaccionNormalizada.name());
         procesada.setDescripcion(normalizarDescripcion(original.getDescripcion()));
 
         // Aplicar transformaciones al monto
-        BigDecimal montoTransformado = transformarMonto(original.getMonto());
-        procesada.setMonto(montoTransformado);
+        if (processorConfig.isMontosPuntoFijo()) {
+            procesada.setMontoEscalado(transformarMontoEscalado(original.getMontoEscalado()));
+        } else {
+            BigDecimal montoTransformado = transformarMonto(original.getMonto());
+            procesada.setMonto(montoTransformado);
+        }
 
         return procesada;
     }
 
-    private boolean validarCamposObligatorios(CuentasAnuales item) {
-        if (item.getCuenta_id() == null || item.getCuenta_id() <= 0) {
-            log.debug("cuenta_id inválido: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (item.getFecha() == null) {
-            log.debug("Fecha nula para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (item.getTransaccion() == null || item.getTransaccion().trim().isEmpty()) {
-            log.debug("Transacción nula o vacía para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (item.getMonto() == null) {
-            log.debug("Monto nulo para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (item.getDescripcion() == null || item.getDescripcion().trim().isEmpty()) {
-            log.debug("Descripción nula o vacía para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        return true;
+    // Compila las reglas para la ejecución del step que comienza
+    @BeforeStep
+    public void compilarReglas(StepExecution stepExecution) {
+        RuleChain<CuentasAnuales> reglas = politicas.compilado(stepExecution, this, this::compilarReglas);
+        log.debug("Reglas de cuentas anuales compiladas: {}", reglas.getNombres());
     }
 
-    private boolean validarCuentaId(CuentasAnuales item) {
-        Long cuentaId = item.getCuenta_id();
-
-        if (cuentaId == null || cuentaId <= 0) {
-            log.debug("cuenta_id debe ser un número positivo: {}", cuentaId);
-            return false;
-        }
-
-        // Validar rango razonable para IDs de cuenta
-        if (cuentaId > 999999999L) {
-            log.debug("cuenta_id fuera de rango válido: {}", cuentaId);
-            return false;
-        }
-
-        return true;
+    // Reglas de la ejecución a la que pertenece el step del hilo actual
+    private RuleChain<CuentasAnuales> getReglas() {
+        return politicas.compiladoVigente(this, this::compilarReglas);
     }
 
-    private boolean validarFecha(CuentasAnuales item) {
-        LocalDate fecha = item.getFecha();
-
-        // Validar que no sea futura si está configurado
-        if (processorConfig.isValidarFechasFuturas()) {
-            LocalDate ahora = LocalDate.now();
-            if (fecha.isAfter(ahora)) {
-                log.debug("Fecha futura no permitida: {} para cuenta_id: {}", fecha, item.getCuenta_id());
-                return false;
-            }
-        }
-
-        // Validar año mínimo
-        LocalDate fechaMinima = LocalDate.of(processorConfig.getAnioMinimo(), 1, 1);
-        if (fecha.isBefore(fechaMinima)) {
-            log.debug("Fecha anterior al año mínimo {}: {} para cuenta_id: {}",
-                    processorConfig.getAnioMinimo(), fecha, item.getCuenta_id());
-            return false;
-        }
-
-        return true;
+    // Arma la cadena de reglas con los límites ya calculados de la política de la ejecución
+    private RuleChain<CuentasAnuales> compilarReglas(ValidationPolicy politica) {
+        boolean puntoFijo = processorConfig.isMontosPuntoFijo();
+        long montoMaximoEscalado = politica.getMontoMaximoEscalado();
+        TypeDictionary.Diccionario tipos = typeDictionary.cuentasAnuales();
+
+        return RuleChain.<CuentasAnuales>builder(rechazosPorRegla)
+                // Campos obligatorios
+                .regla("cuentaIdPositivo", 0, c -> c.getCuenta_id() != null && c.getCuenta_id() > 0,
+                        "Campos obligatorios faltantes", c -> "N/A")
+                .regla("fechaPresente", 0, c -> c.getFecha() != null,
+                        "Campos obligatorios faltantes", c -> "N/A")
+                .reglaSi(!puntoFijo, "montoPresente", 0, c -> c.getMonto() != null,
+                        "Campos obligatorios faltantes", c -> "N/A")
+                .regla("transaccionPresente", 1, c -> !esVacio(c.getTransaccion()),
+                        "Campos obligatorios faltantes", c -> "N/A")
+                .regla("descripcionPresente", 1, c -> !esVacio(c.getDescripcion()),
+                        "Campos obligatorios faltantes", c -> "N/A")
+                // Rango razonable para IDs de cuenta
+                .reglaRango("cuentaIdEnRango", 0, CuentasAnuales::getCuenta_id, Long.MIN_VALUE, 999999999L,
+                        "cuenta_id inválido", c -> String.valueOf(c.getCuenta_id()))
+                // Fecha desde el año mínimo y, si está configurado, no futura
+                .reglaRango("fechaEnRango", 2, c -> c.getFecha().toEpochDay(),
+                        politica.getDiaMinimo(), politica.getDiaMaximo(),
+                        "Fecha inválida", c -> String.valueOf(c.getFecha()))
+                // Monto dentro del límite (los montos cero se permiten, pueden ser ajustes)
+                .reglaRangoSi(puntoFijo, "montoMaximo", 3, CuentasAnuales::getMontoEscalado,
+                        -montoMaximoEscalado, montoMaximoEscalado, "Monto inválido", this::montoComoTexto)
+                .reglaSi(!puntoFijo, "montoMaximo", 3,
+                        c -> politica.esMontoValido(c.getMonto()),
+                        "Monto inválido", this::montoComoTexto)
+                // Descripción entre 2 y 500 caracteres
+                .regla("descripcionLongitud", 2, c -> longitudDescripcionValida(c.getDescripcion()),
+                        "Descripción inválida", CuentasAnuales::getDescripcion)
+                // Tipo de transacción reconocido por el diccionario de cuentas anuales
+                .regla(REGLA_TIPO, 5, c -> tipos.buscar(c.getTransaccion()) != null,
+                        "Tipo de transacción no válido", CuentasAnuales::getTransaccion)
+                .build();
     }
 
-    private boolean validarMonto(CuentasAnuales item) {
-        BigDecimal monto = item.getMonto();
-
-        // Validar rangos máximos
-        BigDecimal montoMaximo = new BigDecimal(processorConfig.getMontoMaximo());
-        if (monto.abs().compareTo(montoMaximo) > 0) {
-            log.debug("Monto excede el límite permitido: {} para cuenta_id: {}", monto, item.getCuenta_id());
-            return false;
-        }
-
-        // Permitir montos cero para cuentas anuales (pueden tener movimientos de $0
-        // como ajustes)
-        return true;
+    private static boolean esVacio(String valor) {
+        return TextNormalizer.esVacio(valor);
     }
 
-    private boolean validarDescripcion(CuentasAnuales item) {
-        String descripcion = item.getDescripcion();
-
-        if (descripcion == null || descripcion.trim().isEmpty()) {
-            log.debug("Descripción vacía para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        String descripcionLimpia = descripcion.trim();
-
-        // Validar longitud mínima
-        if (descripcionLimpia.length() < 2) {
-            log.debug("Descripción muy corta para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        // Validar longitud máxima
-        if (descripcionLimpia.length() > 500) {
-            log.debug("Descripción muy larga para cuenta_id: {}", item.getCuenta_id());
+    private static boolean longitudDescripcionValida(String descripcion) {
+        if (descripcion == null) {
             return false;
         }
-
-        return true;
+        int longitud = TextNormalizer.longitudRecortada(descripcion);
+        return longitud >= 2 && longitud <= 500;
     }
 
+    // Recorta, normaliza espacios múltiples y capitaliza la primera letra según la
+    // configuración, en una sola pasada
     private String normalizarDescripcion(String descripcion) {
-        if (descripcion == null) {
-            return null;
-        }
-
-        String descripcionLimpia = descripcion.trim();
-
-        // Normalizar espacios múltiples
-        if (processorConfig.isNormalizarEspacios()) {
-            descripcionLimpia = descripcionLimpia.replaceAll("\\s+", " ");
+        if (processorConfig.isCapitalizarNombres()) {
+            return TextNormalizer.capitalizarPrimera(descripcion, processorConfig.isNormalizarEspacios());
         }
+        return TextNormalizer.limpiar(descripcion, processorConfig.isNormalizarEspacios());
+    }
 
-        // Capitalizar primera letra si está configurado
-        if (processorConfig.isCapitalizarNombres() && descripcionLimpia.length() > 0) {
-            descripcionLimpia = Character.toUpperCase(descripcionLimpia.charAt(0)) +
-                    (descripcionLimpia.length() > 1 ? descripcionLimpia.substring(1).toLowerCase() : "");
+    private long transformarMontoEscalado(long monto) {
+        if (processorConfig.isConvertirNegativos() && monto < 0) {
+            log.debug("Convirtiendo monto negativo {} a positivo", monto);
+            return -monto;
         }
-
-        return descripcionLimpia;
+        return monto;
     }
 
     private BigDecimal transformarMonto(BigDecimal monto) {
@@ -286,84 +319,20 @@ public class CuentasAnualesItemProcessor implements ItemProcessor<CuentasAnuales
         return monto;
     }
 
-    private String normalizarTipoTransaccion(String transaccion) {
-        if (transaccion == null) {
-            return null;
-        }
-
-        String transaccionLimpia = transaccion.trim().toUpperCase();
-
-        // Verificar si es un tipo explícitamente inválido
-        if (TIPOS_INVALIDOS.contains(transaccionLimpia)) {
-            log.debug("Tipo de transacción identificado como inválido: {}", transaccion);
-            return transaccionLimpia; // Retornar para que sea rechazado posteriormente
+    // Texto del monto para logs y archivo de errores, en cualquiera de los dos modos
+    private String montoComoTexto(CuentasAnuales item) {
+        if (processorConfig.isMontosPuntoFijo()) {
+            return ScaledAmount.toString(item.getMontoEscalado());
         }
+        return item.getMonto() != null ? item.getMonto().toString() : "null";
+    }
 
-        // Mapear tipos comunes a los estándar
-        switch (transaccionLimpia) {
-            case "DEBITO":
-            case "DEBIT":
-            case "DB":
-            case "RETIRO":
-            case "WITHDRAWAL":
-            case "EGRESO":
-                return "DEBITO";
-
-            case "CREDITO":
-            case "CREDIT":
-            case "CR":
-            case "DEPOSITO":
-            case "DEPOSIT":
-            case "INGRESO":
-                return "CREDITO";
-
-            case "DEP":
-                return "DEPOSITO";
-
-            case "RET":
-                return "RETIRO";
-
-            case "TRANSFERENCIA":
-            case "TRANSFER":
-            case "TRF":
-            case "TRANSF":
-                return "TRANSFERENCIA";
-
-            case "INTERES":
-            case "INTEREST":
-            case "INT":
-            case "INTERESES":
-                return "INTERES";
-
-            case "COMISION":
-            case "COMMISSION":
-            case "COM":
-            case "COMISIONES":
-            case "FEE":
-                return "COMISION";
-
-            case "AJUSTE":
-            case "ADJUSTMENT":
-            case "ADJ":
-            case "AJUSTES":
-                return "AJUSTE";
-
-            case "CARGO":
-            case "CHARGE":
-            case "CHG":
-            case "CARGOS":
-                return "CARGO";
-
-            case "ABONO":
-            case "CREDIT_NOTE":
-            case "ABN":
-            case "ABONOS":
-                return "ABONO";
-
-            default:
-                log.debug("Tipo de transacción no reconocido, será rechazado: {}", transaccion);
-                return transaccionLimpia; // Retornar el tipo sin cambios para que sea rechazado
+    // Registra el error; en modo punto fijo el BigDecimal se completa solo aquí
+    private void escribirError(CuentasAnuales item, String motivo, String valorOriginal) {
+        if (processorConfig.isMontosPuntoFijo() && item.getMonto() == null) {
+            item.setMonto(ScaledAmount.toBigDecimal(item.getMontoEscalado()));
         }
+        errorWriter.writeErrorCuentaAnual(item, motivo, valorOriginal);
     }
 
     // Obtiene estadísticas del procesamiento
@@ -374,8 +343,13 @@ public class CuentasAnualesItemProcessor implements ItemProcessor<CuentasAnuales
         log.info("Registros con errores filtrados: {}", errorCount.get());
         log.info("Marcadores de error saltados: {}", skippedCount.get());
         log.info("Archivo de errores: {}", errorWriter.getErrorFilePath());
-        log.info("Tipos de transacción válidos aceptados: {}", TIPOS_VALIDOS);
-        log.info("Tipos inválidos rechazados automáticamente: {}", TIPOS_INVALIDOS);
+        errorWriter.logQueueStats();
+        log.info("Tipos de transacción válidos aceptados: {}", typeDictionary.cuentasAnuales().getAlias());
+        log.info("Rechazos por regla: {}", rechazosPorRegla.getRechazos());
+        if (processorConfig.isRechazarDuplicados()) {
+            log.info("Ids registrados para duplicados: {} ({} KB)", duplicados.getCantidad(),
+                    duplicados.getBytesReservados() / 1024);
+        }
     }
 
     // Resetea los contadores para una nueva ejecución
@@ -384,5 +358,7 @@ public class CuentasAnualesItemProcessor implements ItemProcessor<CuentasAnuales
         validCount.set(0);
         errorCount.set(0);
         skippedCount.set(0);
+        rechazosPorRegla.reset();
+        duplicados.reiniciar(processorConfig.isRechazarDuplicados() ? processorConfig.getIdsEsperados() : 0);
     }
 }
\ No newline at end of file
@@ -1,159 +1,193 @@
 package com.batch.SpringBatchApp.steps;
 
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 
-import org.springframework.batch.item.file.FlatFileItemReader;
-import org.springframework.batch.item.file.LineMapper;
-import org.springframework.batch.item.file.mapping.DefaultLineMapper;
-import org.springframework.batch.item.file.mapping.FieldSetMapper;
-import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
-import org.springframework.batch.item.file.transform.FieldSet;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 
+import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.CuentasAnuales;
 import com.batch.SpringBatchApp.utils.DateParser;
+import com.batch.SpringBatchApp.utils.ScaledAmount;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@StepScope
 @Slf4j
-public class CuentasAnualesItemReader extends FlatFileItemReader<CuentasAnuales> {
+public class CuentasAnualesItemReader extends MappedCsvItemReader<CuentasAnuales> {
+
+    // Posición de cada columna en el archivo
+    private static final int CUENTA_ID = 0;
+    private static final int FECHA = 1;
+    private static final int TRANSACCION = 2;
+    private static final int MONTO = 3;
+    private static final int DESCRIPCION = 4;
+
+    // Formato de las cuentas anuales en la cache de parseo
+    private static final ParsedRowCodec<CuentasAnuales> CODEC = new ParsedRowCodec<CuentasAnuales>() {
+        @Override
+        public void escribir(CuentasAnuales item, DataOutput out) throws IOException {
+            ParsedRowCodec.escribirLong(out, item.getCuenta_id());
+            ParsedRowCodec.escribirFecha(out, item.getFecha());
+            ParsedRowCodec.escribirTexto(out, item.getTransaccion());
+            ParsedRowCodec.escribirDecimal(out, item.getMonto());
+            out.writeLong(item.getMontoEscalado());
+            ParsedRowCodec.escribirTexto(out, item.getDescripcion());
+        }
+
+        @Override
+        public CuentasAnuales leer(DataInput in) throws IOException {
+            CuentasAnuales item = new CuentasAnuales();
+            item.setCuenta_id(ParsedRowCodec.leerLong(in));
+            item.setFecha(ParsedRowCodec.leerFecha(in));
+            item.setTransaccion(ParsedRowCodec.leerTexto(in));
+            item.setMonto(ParsedRowCodec.leerDecimal(in));
+            item.setMontoEscalado(in.readLong());
+            item.setDescripcion(ParsedRowCodec.leerTexto(in));
+            return item;
+        }
+    };
 
     @Autowired
     private DateParser dateParser;
 
+    @Autowired
+    private ProcessorConfig processorConfig;
+
     @Autowired
     private ErrorCuentasAnualesWriter errorWriter;
 
-    public CuentasAnualesItemReader() {
+    @Autowired
+    private CuentasAnualesItemProcessor cuentasAnualesItemProcessor;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    // Archivo (ruta del classpath o URL file:) y rango de bytes asignados por
+    // FileRangePartitioner a esta partición
+    @Value("#{stepExecutionContext['fileName']}")
+    private String archivoParticion;
+
+    @Value("#{stepExecutionContext['startOffset']}")
+    private Long inicioParticion;
+
+    @Value("#{stepExecutionContext['endOffset']}")
+    private Long finParticion;
+
+    // Archivo y columnas por defecto. Se configuran después de construir el reader para
+    // no invocar métodos sobrescribibles desde el constructor
+    @PostConstruct
+    public void configurarArchivo() {
         setName("readCuentasAnuales");
         setResource(new ClassPathResource("cuentas_anuales.csv"));
         setLinesToSkip(1); // Saltar header
-        setEncoding(StandardCharsets.UTF_8.name());
+        setNames("cuenta_id", "fecha", "transaccion", "monto", "descripcion");
     }
 
     @Autowired
     public void configureAfterPropertiesSet() {
-        setLineMapper(getLineMapper());
+        setRecordMapper(getRecordMapper());
     }
 
-    private LineMapper<CuentasAnuales> getLineMapper() {
-        DefaultLineMapper<CuentasAnuales> lineMapper = new DefaultLineMapper<>();
-
-        // Configurar tokenizer
-        DelimitedLineTokenizer lineTokenizer = new DelimitedLineTokenizer();
-        lineTokenizer.setNames("cuenta_id", "fecha", "transaccion", "monto", "descripcion");
-        lineTokenizer.setDelimiter(",");
-
-        // Configurar mapper personalizado que NO lanza excepciones
-        FieldSetMapper<CuentasAnuales> fieldSetMapper = new FieldSetMapper<CuentasAnuales>() {
+    private CsvRecordMapper<CuentasAnuales> getRecordMapper() {
+        // Configurar mapper personalizado que NO lanza excepciones. Los campos se
+        // parsean directamente del registro; los String originales solo se
+        // construyen cuando hay que registrar un error
+        CsvRecordMapper<CuentasAnuales> recordMapper = new CsvRecordMapper<CuentasAnuales>() {
             @Override
-            public CuentasAnuales mapFieldSet(FieldSet fieldSet) {
-                String cuentaIdStr = null;
-                String fechaStr = null;
-                String transaccionStr = null;
-                String montoStr = null;
-                String descripcionStr = null;
-
+            public CuentasAnuales mapRecord(CsvRecord record) {
                 try {
-                    // Extraer valores del FieldSet
-                    cuentaIdStr = fieldSet.readString("cuenta_id");
-                    fechaStr = fieldSet.readString("fecha");
-                    transaccionStr = fieldSet.readString("transaccion");
-                    montoStr = fieldSet.readString("monto");
-                    descripcionStr = fieldSet.readString("descripcion");
-
                     // Crear registro de cuentas anuales
                     CuentasAnuales cuentaAnual = new CuentasAnuales();
 
                     // Procesar cuenta_id
-                    if (cuentaIdStr == null || cuentaIdStr.trim().isEmpty()) {
+                    if (record.isEmpty(CUENTA_ID)) {
                         log.warn("cuenta_id vacío o nulo en línea");
-                        errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                "cuenta_id vacío o nulo");
+                        writeErrorLine(record, "cuenta_id vacío o nulo");
                         return createErrorMarker(-1L, "cuenta_id inválido");
                     }
 
-                    Long cuentaId;
+                    long cuentaId;
                     try {
-                        cuentaId = Long.parseLong(cuentaIdStr.trim());
+                        cuentaId = record.readLong(CUENTA_ID);
                         if (cuentaId <= 0) {
-                            log.warn("cuenta_id debe ser positivo: '{}'", cuentaIdStr);
-                            errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                    "cuenta_id debe ser positivo");
+                            log.warn("cuenta_id debe ser positivo: '{}'", record.readString(CUENTA_ID));
+                            writeErrorLine(record, "cuenta_id debe ser positivo");
                             return createErrorMarker(-1L, "cuenta_id inválido");
                         }
                         cuentaAnual.setCuenta_id(cuentaId);
                     } catch (NumberFormatException e) {
-                        log.warn("cuenta_id con formato inválido: '{}'", cuentaIdStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                "Formato de cuenta_id inválido");
+                        log.warn("cuenta_id con formato inválido: '{}'", record.readString(CUENTA_ID));
+                        writeErrorLine(record, "Formato de cuenta_id inválido");
                         return createErrorMarker(-1L, "Formato de cuenta_id inválido");
                     }
 
                     // Procesar fecha
-                    LocalDate fecha = dateParser.parseDate(fechaStr);
+                    LocalDate fecha = dateParser.parseDate(record.readChars(FECHA));
                     if (fecha == null || !dateParser.isValidDate(fecha)) {
-                        log.warn("Fecha inválida para cuenta_id {}: '{}'", cuentaId, fechaStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                "Fecha inválida o fuera de rango");
+                        log.warn("Fecha inválida para cuenta_id {}: '{}'", cuentaId, record.readString(FECHA));
+                        writeErrorLine(record, "Fecha inválida o fuera de rango");
                         return createErrorMarker(cuentaId, "Fecha inválida");
                     }
                     cuentaAnual.setFecha(fecha);
 
                     // Procesar transacción
-                    if (transaccionStr == null || transaccionStr.trim().isEmpty()) {
+                    if (record.isEmpty(TRANSACCION)) {
                         log.warn("Transacción vacía para cuenta_id {}", cuentaId);
-                        errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                "Tipo de transacción vacío");
+                        writeErrorLine(record, "Tipo de transacción vacío");
                         return createErrorMarker(cuentaId, "Transacción vacía");
                     }
 
-                    cuentaAnual.setTransaccion(transaccionStr.trim());
+                    cuentaAnual.setTransaccion(record.readString(TRANSACCION));
 
                     // Procesar monto
-                    if (montoStr == null || montoStr.trim().isEmpty()) {
+                    if (record.isEmpty(MONTO)) {
                         log.warn("Monto vacío para cuenta_id {}", cuentaId);
-                        errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                "Monto vacío");
+                        writeErrorLine(record, "Monto vacío");
                         return createErrorMarker(cuentaId, "Monto vacío");
                     }
 
                     try {
-                        BigDecimal monto = new BigDecimal(montoStr.trim());
-                        cuentaAnual.setMonto(monto);
+                        if (processorConfig.isMontosPuntoFijo()) {
+                            cuentaAnual.setMontoEscalado(record.readScaled(MONTO, ScaledAmount.SCALE));
+                        } else {
+                            cuentaAnual.setMonto(record.readDecimal(MONTO));
+                        }
                     } catch (NumberFormatException e) {
-                        log.warn("Formato de monto inválido para cuenta_id {}: '{}'", cuentaId, montoStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                "Formato de monto inválido");
+                        log.warn("Formato de monto inválido para cuenta_id {}: '{}'", cuentaId,
+                                record.readString(MONTO));
+                        writeErrorLine(record, "Formato de monto inválido");
                         return createErrorMarker(cuentaId, "Formato de monto inválido");
                     }
 
                     // Procesar descripción
-                    if (descripcionStr == null || descripcionStr.trim().isEmpty()) {
+                    if (record.isEmpty(DESCRIPCION)) {
                         log.warn("Descripción vacía para cuenta_id {}", cuentaId);
-                        errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                "Descripción vacía");
+                        writeErrorLine(record, "Descripción vacía");
                         return createErrorMarker(cuentaId, "Descripción vacía");
                     }
 
                     // Validar longitud de descripción
-                    String descripcionLimpia = descripcionStr.trim();
+                    String descripcionLimpia = record.readString(DESCRIPCION);
                     if (descripcionLimpia.length() < 2) {
-                        log.warn("Descripción muy corta para cuenta_id {}: '{}'", cuentaId, descripcionStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                "Descripción muy corta (mínimo 2 caracteres)");
+                        log.warn("Descripción muy corta para cuenta_id {}: '{}'", cuentaId, descripcionLimpia);
+                        writeErrorLine(record, "Descripción muy corta (mínimo 2 caracteres)");
                         return createErrorMarker(cuentaId, "Descripción muy corta");
                     }
 
                     if (descripcionLimpia.length() > 500) {
-                        log.warn("Descripción muy larga para cuenta_id {}: '{}'", cuentaId, descripcionStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                                "Descripción muy larga (máximo 500 caracteres)");
+                        log.warn("Descripción muy larga para cuenta_id {}: '{}'", cuentaId, descripcionLimpia);
+                        writeErrorLine(record, "Descripción muy larga (máximo 500 caracteres)");
                         return createErrorMarker(cuentaId, "Descripción muy larga");
                     }
 
@@ -161,29 +195,44 @@ public class CuentasAnualesItemReader extends FlatFileItemReader<CuentasAnuales>
 
                     log.debug(
                             "Registro de cuenta anual mapeado exitosamente en reader: cuenta_id={}, fecha={}, transaccion={}, monto={}, descripcion={}",
-                            cuentaId, fecha, transaccionStr.trim(), cuentaAnual.getMonto(), descripcionLimpia);
+                            cuentaId, fecha, cuentaAnual.getTransaccion(), cuentaAnual.getMonto(), descripcionLimpia);
 
                     return cuentaAnual;
 
                 } catch (Exception e) {
                     String errorMsg = "Error general en mapeo: " + e.getMessage();
-                    log.error("Error inesperado al mapear línea de cuentas anuales: {}", fieldSet.toString(), e);
-                    errorWriter.writeErrorLine(cuentaIdStr, fechaStr, transaccionStr, montoStr, descripcionStr,
-                            errorMsg);
+                    log.error("Error inesperado al mapear línea de cuentas anuales: {}", record.toString(), e);
+                    writeErrorLine(record, errorMsg);
                     return createErrorMarker(-1L, "Error de mapeo general");
                 }
             }
         };
 
-        lineMapper.setLineTokenizer(lineTokenizer);
-        lineMapper.setFieldSetMapper(fieldSetMapper);
+        return recordMapper;
+    }
+
+    // Registra la línea original en el archivo de errores
+    private void writeErrorLine(CsvRecord record, String motivo) {
+        registrarRechazo(record.readAll(), motivo);
+    }
+
+    @Override
+    protected void escribirRechazo(String[] campos, String motivo, long posicion) {
+        errorWriter.writeErrorLine(posicion, campos[CUENTA_ID], campos[FECHA], campos[TRANSACCION],
+                campos[MONTO], campos[DESCRIPCION], motivo);
+    }
 
-        return lineMapper;
+    @Override
+    protected void asignarPosicion(CuentasAnuales item, long posicion) {
+        item.setPosicionOrigen(posicion);
     }
 
     // Crea un registro de cuenta anual marcador para indicar error que será
     // filtrado en el processor
     private CuentasAnuales createErrorMarker(Long cuentaId, String reason) {
+        if (processorConfig.isLecturaFusionada()) {
+            return null; // Lectura fusionada: la línea se omite sin marcador
+        }
         CuentasAnuales errorMarker = new CuentasAnuales();
         errorMarker.setCuenta_id(cuentaId);
         errorMarker.setTransaccion("__ERROR_MARKER__:" + reason);
@@ -192,9 +241,23 @@ public class CuentasAnualesItemReader extends FlatFileItemReader<CuentasAnuales>
 
     @Override
     public void afterPropertiesSet() throws Exception {
+        if (archivoParticion != null) {
+            setResource(resourceLoader.getResource(archivoParticion));
+        }
+        if (inicioParticion != null && finParticion != null) {
+            setRango(inicioParticion, finParticion);
+        }
+        if (processorConfig != null && processorConfig.isCacheParseoHabilitado()) {
+            setCacheParseo(Paths.get(processorConfig.getDirectorioCacheParseo()), CODEC,
+                    (processorConfig.isMontosPuntoFijo() ? 1 : 0) | (processorConfig.isLecturaFusionada() ? 2 : 0),
+                    dateParser != null ? dateParser.getHoy().toEpochDay() : 0);
+        }
+        if (processorConfig != null && processorConfig.isLecturaFusionada()) {
+            setValidador(cuentasAnualesItemProcessor);
+        }
         super.afterPropertiesSet();
         if (dateParser != null && errorWriter != null) {
-            setLineMapper(getLineMapper());
+            setRecordMapper(getRecordMapper());
         }
     }
-}
\ No newline at end of file
+}
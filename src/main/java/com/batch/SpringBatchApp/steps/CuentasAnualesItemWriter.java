@@ -6,8 +6,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
+import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.CuentasAnuales;
 import com.batch.SpringBatchApp.service.CuentasAnualesService;
+import com.batch.SpringBatchApp.utils.ModoEscritura;
+import com.batch.SpringBatchApp.utils.ScaledAmount;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,6 +21,9 @@ public class CuentasAnualesItemWriter implements ItemWriter<CuentasAnuales> {
     @Autowired
     private CuentasAnualesService cuentasAnualesService;
 
+    @Autowired
+    private ProcessorConfig processorConfig;
+
     @Override
     public void write(@NonNull Chunk<? extends CuentasAnuales> chunk) throws Exception {
         log.info("=== ESCRIBIENDO CHUNK DE CUENTAS ANUALES ===");
@@ -28,6 +34,11 @@ public class CuentasAnualesItemWriter implements ItemWriter<CuentasAnuales> {
             return;
         }
 
+        // En modo punto fijo el BigDecimal se crea recién aquí, antes de persistir
+        if (processorConfig.isMontosPuntoFijo()) {
+            chunk.forEach(item -> item.setMonto(ScaledAmount.toBigDecimal(item.getMontoEscalado())));
+        }
+
         // Log de detalle de cada registro (solo en nivel DEBUG para no saturar logs)
         if (log.isDebugEnabled()) {
             chunk.forEach(cuentaAnual -> log.debug(
@@ -40,7 +51,7 @@ public class CuentasAnualesItemWriter implements ItemWriter<CuentasAnuales> {
 
         try {
             // Guardar el chunk completo
-            cuentasAnualesService.saveAll(chunk.getItems());
+            guardar(chunk);
 
             log.info("✓ Chunk de {} registros de cuentas anuales guardado exitosamente en la base de datos",
                     chunk.size());
@@ -68,4 +79,33 @@ public class CuentasAnualesItemWriter implements ItemWriter<CuentasAnuales> {
             throw e; // Re-lanzar para que Spring Batch maneje el error
         }
     }
+
+    // Actualiza cuentas anuales que el índice de ids registra como ya cargadas, sin
+    // leerlas antes de la base de datos
+    public void actualizar(@NonNull Chunk<? extends CuentasAnuales> chunk) {
+        if (processorConfig.isMontosPuntoFijo()) {
+            chunk.forEach(item -> item.setMonto(ScaledAmount.toBigDecimal(item.getMontoEscalado())));
+        }
+        if (esJdbc()) {
+            // El lote JDBC ya actualiza los ids existentes en un solo viaje
+            guardar(chunk);
+            log.info("✓ {} cuentas anuales ya cargadas actualizadas por lote JDBC", chunk.size());
+            return;
+        }
+        int actualizadas = cuentasAnualesService.updateAll(chunk.getItems());
+        log.info("✓ {} cuentas anuales ya cargadas actualizadas ({} no encontradas, guardadas)",
+                actualizadas, chunk.size() - actualizadas);
+    }
+
+    private void guardar(Chunk<? extends CuentasAnuales> chunk) {
+        if (esJdbc()) {
+            cuentasAnualesService.saveAllBatch(chunk.getItems());
+        } else {
+            cuentasAnualesService.saveAll(chunk.getItems());
+        }
+    }
+
+    private boolean esJdbc() {
+        return processorConfig.getEscrituraCuentasAnuales() == ModoEscritura.JDBC;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+import com.batch.SpringBatchApp.utils.ConcurrentLongSet;
+
+// Ids aceptados en la ejecución actual de una entidad, compartidos por todas las
+// particiones y archivos. Los ids de un chunk quedan pendientes hasta que el chunk se
+// confirma; si se revierte se liberan, porque el reintento vuelve a procesar los
+// mismos registros y no deben verse como duplicados
+public class DuplicateIdFilter {
+
+    private volatile ConcurrentLongSet ids = new ConcurrentLongSet();
+
+    // Ids del chunk en curso de cada ejecución de step (una por partición)
+    private final Map<Long, Pendientes> pendientesPorStep = new ConcurrentHashMap<>();
+
+    // Registra el id; retorna false si ya se aceptó antes en la ejecución. Con
+    // confirmado los ids no se liberan aunque el chunk falle (lectura fusionada y
+    // procesamiento por lote, donde el reintento no vuelve a validar los registros)
+    public boolean registrar(long id, boolean confirmado) {
+        if (!ids.agregar(id)) {
+            return false;
+        }
+        if (!confirmado) {
+            Long stepId = stepActual();
+            if (stepId != null) {
+                pendientesPorStep.computeIfAbsent(stepId, k -> new Pendientes()).agregar(id);
+            }
+        }
+        return true;
+    }
+
+    // El chunk se confirmó: sus ids quedan registrados
+    public void confirmar(StepExecution stepExecution) {
+        if (stepExecution.getId() != null) {
+            pendientesPorStep.remove(stepExecution.getId());
+        }
+    }
+
+    // El chunk se revirtió: se liberan sus ids para el reintento
+    public void liberar(StepExecution stepExecution) {
+        Pendientes pendientes = stepExecution.getId() != null ? pendientesPorStep.remove(stepExecution.getId())
+                : null;
+        if (pendientes != null) {
+            pendientes.liberarEn(ids);
+        }
+    }
+
+    // Vacía el registro y reserva espacio para la cantidad de ids esperada
+    public void reiniciar(long idsEsperados) {
+        pendientesPorStep.clear();
+        ids = new ConcurrentLongSet(idsEsperados);
+    }
+
+    public long getCantidad() {
+        return ids.getCantidad();
+    }
+
+    public long getBytesReservados() {
+        return ids.getBytesReservados();
+    }
+
+    // En procesamiento paralelo el contexto del step también está registrado en los
+    // hilos de trabajo
+    private static Long stepActual() {
+        StepContext contexto = StepSynchronizationManager.getContext();
+        return contexto != null ? contexto.getStepExecution().getId() : null;
+    }
+
+    private static final class Pendientes {
+
+        private long[] ids = new long[64];
+        private int cantidad;
+
+        synchronized void agregar(long id) {
+            if (cantidad == ids.length) {
+                ids = Arrays.copyOf(ids, cantidad << 1);
+            }
+            ids[cantidad++] = id;
+        }
+
+        synchronized void liberarEn(ConcurrentLongSet conjunto) {
+            for (int i = 0; i < cantidad; i++) {
+                conjunto.eliminar(ids[i]);
+            }
+            cantidad = 0;
+        }
+    }
+}
@@ -4,16 +4,22 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.AfterStep;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.CuentasAnuales;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
@@ -22,9 +28,15 @@ public class ErrorCuentasAnualesWriter {
 
     private static final String ERROR_FILE_NAME = "cuentas_anuales_errores.csv";
     private static final String ERROR_DIRECTORY = "error-files";
-    private final AtomicBoolean headerWritten = new AtomicBoolean(false);
-    private final AtomicLong errorCount = new AtomicLong(0);
+    private static final String HEADER = "cuenta_id,fecha_original,transaccion_original,monto_original,descripcion_original,motivo_error,timestamp_error";
     private final Path errorFilePath;
+    private final ErrorFileSink sink;
+
+    @Autowired
+    private ProcessorConfig processorConfig;
+
+    @Autowired
+    private ErrorStores errorStores;
 
     public ErrorCuentasAnualesWriter() {
         try {
@@ -40,6 +52,8 @@ public class ErrorCuentasAnualesWriter {
             String fileName = timestamp + "_" + ERROR_FILE_NAME;
             this.errorFilePath = errorDir.resolve(fileName);
 
+            this.sink = new ErrorFileSink(errorFilePath, HEADER);
+
             log.info("Archivo de errores de cuentas anuales configurado en: {}", errorFilePath.toAbsolutePath());
 
         } catch (IOException e) {
@@ -48,122 +62,94 @@ public class ErrorCuentasAnualesWriter {
         }
     }
 
-    // Escribe un registro de cuenta anual con error al archivo CSV
-    public synchronized void writeErrorCuentaAnual(CuentasAnuales cuentaAnual, String motivo, String valorOriginal) {
-        try {
-            // Escribir header si es la primera vez
-            if (!headerWritten.getAndSet(true)) {
-                writeHeader();
-            }
-
-            // Preparar datos para escribir
-            String line = buildErrorLine(cuentaAnual, motivo, valorOriginal);
-
-            // Escribir línea al archivo
-            Files.write(errorFilePath, (line + System.lineSeparator()).getBytes(),
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-
-            errorCount.incrementAndGet();
-
-            log.debug("Error de cuenta anual registrado en archivo: ID={}, Motivo={}, Valor={}, Total errores={}",
-                    cuentaAnual.getCuenta_id(), motivo, valorOriginal, errorCount.get());
-
-        } catch (IOException e) {
-            log.error("Error crítico al escribir registro de cuenta anual con error al archivo: {}", e.getMessage());
-            log.error("ADVERTENCIA: No se pudo registrar el error en archivo para cuenta anual ID: {}",
-                    cuentaAnual.getCuenta_id());
-        }
+    // Registra un registro de cuenta anual con error en el archivo CSV
+    public void writeErrorCuentaAnual(CuentasAnuales cuentaAnual, String motivo, String valorOriginal) {
+        // En lectura fusionada el reader valida los registros y el reintento de un chunk
+        // no los vuelve a leer, así que sus errores se publican de inmediato
+        sink.escribir(processorConfig.isLecturaFusionada(), cuentaAnual.getPosicionOrigen(),
+                cuentaAnual.getCuenta_id() != null ? cuentaAnual.getCuenta_id().toString() : "N/A",
+                cuentaAnual.getFecha() != null ? cuentaAnual.getFecha().toString() : valorOriginal,
+                cuentaAnual.getTransaccion() != null ? cuentaAnual.getTransaccion() : valorOriginal,
+                cuentaAnual.getMonto() != null ? cuentaAnual.getMonto().toString() : valorOriginal,
+                cuentaAnual.getDescripcion() != null ? cuentaAnual.getDescripcion() : valorOriginal,
+                motivo);
+
+        log.debug("Error de cuenta anual registrado en archivo: ID={}, Motivo={}, Valor={}, Total errores={}",
+                cuentaAnual.getCuenta_id(), motivo, valorOriginal, sink.getCantidad());
     }
 
-    // Escribe una línea de error cuando no se puede crear el registro de cuenta
+    // Registra una línea de error cuando no se puede crear el registro de cuenta
     // anual
-    public synchronized void writeErrorLine(String cuenta_id, String fecha, String transaccion, String monto,
+    public void writeErrorLine(long posicion, String cuenta_id, String fecha, String transaccion, String monto,
             String descripcion, String motivo) {
-        try {
-            // Escribir header si es la primera vez
-            if (!headerWritten.getAndSet(true)) {
-                writeHeader();
-            }
-
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            String line = String.format("%s,%s,%s,%s,%s,%s,%s",
-                    escapeCsv(cuenta_id != null ? cuenta_id : "N/A"),
-                    escapeCsv(fecha != null ? fecha : "N/A"),
-                    escapeCsv(transaccion != null ? transaccion : "N/A"),
-                    escapeCsv(monto != null ? monto : "N/A"),
-                    escapeCsv(descripcion != null ? descripcion : "N/A"),
-                    escapeCsv(motivo),
-                    escapeCsv(timestamp));
-
-            Files.write(errorFilePath, (line + System.lineSeparator()).getBytes(),
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-
-            errorCount.incrementAndGet();
-
-            log.debug("Línea de cuenta anual con error registrada: ID={}, Motivo={}, Total errores={}",
-                    cuenta_id, motivo, errorCount.get());
+        sink.escribir(true, posicion,
+                cuenta_id != null ? cuenta_id : "N/A",
+                fecha != null ? fecha : "N/A",
+                transaccion != null ? transaccion : "N/A",
+                monto != null ? monto : "N/A",
+                descripcion != null ? descripcion : "N/A",
+                motivo);
+
+        log.debug("Línea de cuenta anual con error registrada: ID={}, Motivo={}, Total errores={}",
+                cuenta_id, motivo, sink.getCantidad());
+    }
 
-        } catch (IOException e) {
-            log.error("Error crítico al escribir línea de cuenta anual con error al archivo: {}", e.getMessage());
-            log.error("ADVERTENCIA: No se pudo registrar el error en archivo para cuenta ID: {}", cuenta_id);
-        }
+    // Los errores de un chunk se publican al confirmarse y se descartan si se revierte
+    @AfterChunk
+    public void confirmarErrores(ChunkContext chunkContext) {
+        sink.confirmar(chunkContext.getStepContext().getStepExecution());
     }
 
-    private void writeHeader() throws IOException {
-        String header = "cuenta_id,fecha_original,transaccion_original,monto_original,descripcion_original,motivo_error,timestamp_error";
-        Files.write(errorFilePath, (header + System.lineSeparator()).getBytes(),
-                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        log.info("Header del archivo de errores de cuentas anuales escrito correctamente");
+    @AfterChunkError
+    public void descartarErrores(ChunkContext chunkContext) {
+        sink.descartar(chunkContext.getStepContext().getStepExecution());
     }
 
-    private String buildErrorLine(CuentasAnuales cuentaAnual, String motivo, String valorOriginal) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-
-        return String.format("%s,%s,%s,%s,%s,%s,%s",
-                escapeCsv(cuentaAnual.getCuenta_id() != null ? cuentaAnual.getCuenta_id().toString() : "N/A"),
-                escapeCsv(cuentaAnual.getFecha() != null ? cuentaAnual.getFecha().toString() : valorOriginal),
-                escapeCsv(cuentaAnual.getTransaccion() != null ? cuentaAnual.getTransaccion() : valorOriginal),
-                escapeCsv(cuentaAnual.getMonto() != null ? cuentaAnual.getMonto().toString() : valorOriginal),
-                escapeCsv(cuentaAnual.getDescripcion() != null ? cuentaAnual.getDescripcion() : valorOriginal),
-                escapeCsv(motivo),
-                escapeCsv(timestamp));
+    // Al terminar el step se publican los errores registrados fuera de un chunk y se
+    // espera a que el escritor deje todo en el archivo
+    @AfterStep
+    public void escribirAlTerminar(StepExecution stepExecution) {
+        sink.confirmar(stepExecution);
+        sink.flush();
     }
 
-    // Escapa caracteres especiales para CSV
-    private String escapeCsv(String value) {
-        if (value == null) {
-            return "";
-        }
+    // Aplica la rotación configurada y, con el almacén de errores habilitado, cada
+    // error también se guarda indexado
+    @PostConstruct
+    public void configurarSink() {
+        sink.configurarRotacion(processorConfig.getTamanoMaximoSegmentoErrores(),
+                processorConfig.getRegistrosMaximosSegmentoErrores(), processorConfig.isComprimirArchivosErrores());
+        sink.setAlmacen(errorStores.cuentasAnuales());
+    }
 
-        // Si contiene coma, comillas o salto de línea, envolver en comillas
-        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
-            // Escapar comillas dobles duplicándolas
-            value = value.replace("\"", "\"\"");
-            return "\"" + value + "\"";
-        }
+    @PreDestroy
+    public void cerrar() {
+        sink.cerrar();
+    }
 
-        return value;
+    // Registra las métricas de la cola de errores
+    public void logQueueStats() {
+        sink.logEstadisticas();
     }
 
-    // Obtiene la ruta del archivo de errores
+    // Obtiene la ruta del archivo de errores, o del manifiesto de sus segmentos si se rotan
     public String getErrorFilePath() {
-        return errorFilePath.toAbsolutePath().toString();
+        return sink.getRuta().toAbsolutePath().toString();
     }
 
     // Obtiene el número de registros de cuenta anual con error escritos
     public long getErrorCount() {
-        return errorCount.get();
+        return sink.getCantidad();
     }
 
     // Resetea el contador de errores
     public void resetErrorCount() {
-        errorCount.set(0);
-        headerWritten.set(false);
+        sink.reiniciar();
         log.info("Contadores de ErrorCuentasAnualesWriter reseteados");
     }
 
     // Verifica si el archivo de errores existe y tiene contenido
     public boolean hasErrors() {
-        return errorCount.get() > 0;
+        return sink.getCantidad() > 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,695 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+import com.batch.SpringBatchApp.utils.MpscBoundedQueue;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Destino de un archivo CSV de errores compartido por readers y processors. Los
+// errores se publican en una cola acotada sin candados y un hilo escritor propio los
+// codifica en UTF-8 sobre un buffer reutilizado y los escribe en grupo por un único
+// stream, abierto desde el primer error hasta reiniciar. Si la cola se llena los
+// productores esperan a que el escritor la vacíe.
+//
+// Los errores de un chunk quedan pendientes hasta que el chunk se confirma y se
+// descartan si se revierte, porque el reintento vuelve a procesar los mismos
+// registros y los registraría de nuevo. Los errores de lectura se publican de
+// inmediato: el reintento no vuelve a leer las líneas.
+//
+// Con un ErrorStore el escritor también guarda cada error publicado en el almacén
+// indexado, con el archivo de la partición y la posición de la línea de origen, y lo
+// sincroniza cada vez que escribe el archivo CSV.
+//
+// Con rotación el archivo se divide en segmentos numerados, cada uno con su
+// encabezado, que se cierran al alcanzar el tamaño (sin comprimir) o la cantidad de
+// registros configurada, y opcionalmente se comprimen con gzip mientras se escriben.
+// Un manifiesto junto a los segmentos lista cada uno con sus registros y si ya está
+// completo; se reescribe al abrir o cerrar un segmento y al terminar cada step
+@Slf4j
+public final class ErrorFileSink {
+
+    private static final DateTimeFormatter FORMATO_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Bytes acumulados antes de escribir sin esperar a que se vacíe la cola
+    private static final int UMBRAL_ESCRITURA = 64 * 1024;
+
+    private static final int CAPACIDAD_COLA = 8192;
+
+    // Espera máxima del escritor sin errores nuevos y de los productores con la cola llena
+    private static final long ESPERA_ESCRITOR_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long ESPERA_COLA_LLENA_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    // Vueltas que el escritor espera activamente a un productor que reservó una posición
+    // sin publicarla, antes de ceder el procesador y luego de dormir: si el productor
+    // perdió el procesador, girar solo lo demora (con una CPU, indefinidamente)
+    private static final int VUELTAS_ACTIVAS = 64;
+    private static final int VUELTAS_CEDIENDO = 256;
+
+    private static final byte[] SALTO_LINEA = System.lineSeparator().getBytes();
+
+    private static final String ENCABEZADO_MANIFIESTO = "segmento,archivo,registros,bytes_sin_comprimir,bytes,completo";
+
+    private final Path archivo;
+    private final String encabezado;
+
+    // Límites de los segmentos; null escribe un único archivo sin comprimir
+    private volatile Rotacion rotacion;
+    private final Path manifiesto;
+
+    // Almacén indexado de los errores; null si está deshabilitado o falló
+    private volatile ErrorStore almacen;
+
+    private final MpscBoundedQueue<Registro> cola = new MpscBoundedQueue<>(CAPACIDAD_COLA);
+
+    // Errores del chunk en curso de cada ejecución de step (una por partición)
+    private final Map<Long, Pendientes> pendientesPorStep = new ConcurrentHashMap<>();
+
+    // Registros publicados y escritos desde que se creó el sink, para esperar en flush
+    private final AtomicLong publicados = new AtomicLong();
+    private volatile long escritos;
+
+    // Registros publicados desde el último reinicio
+    private final AtomicLong cantidad = new AtomicLong();
+
+    // Métricas de la cola y del escritor
+    private final LongAdder esperasColaLlena = new LongAdder();
+    private volatile int profundidadMaxima;
+    private volatile long latenciaTotalNanos;
+    private volatile long latenciaMaximaNanos;
+
+    private volatile Thread escritor;
+    private volatile boolean escritorEsperando;
+    private volatile boolean detenido;
+
+    // Estado del escritor. Solo lo usa el hilo escritor, salvo al reiniciar; ambos
+    // toman el monitor del sink, que los productores nunca toman
+    private byte[] buffer = new byte[UMBRAL_ESCRITURA + 1024];
+    private int posicion;
+    private int registrosEnBuffer;
+    private long primerEncolado;
+    private long sumaEncolados;
+    private OutputStream salida;
+    private boolean encabezadoEscrito;
+    private long registrosSegmento;
+    private long bytesSegmento;
+    private final List<Segmento> segmentos = new ArrayList<>();
+    private Segmento segmentoActual;
+    private long segundoTimestamp = Long.MIN_VALUE;
+    private String timestamp;
+
+    public ErrorFileSink(Path archivo, String encabezado) {
+        this.archivo = archivo;
+        this.encabezado = encabezado;
+        this.manifiesto = archivo.resolveSibling(nombreBase() + "_manifiesto.csv");
+    }
+
+    // Divide el archivo en segmentos de hasta maximoBytes sin comprimir o maximoRegistros
+    // registros (0 sin límite), comprimidos con gzip si se indica. Se configura antes
+    // del primer error; sin límites ni compresión se escribe un único archivo
+    public void configurarRotacion(long maximoBytes, long maximoRegistros, boolean comprimir) {
+        Rotacion configurada = new Rotacion(Math.max(maximoBytes, 0), Math.max(maximoRegistros, 0), comprimir);
+        this.rotacion = configurada.activa() ? configurada : null;
+        if (rotacion != null) {
+            log.info("Archivo de errores {} en segmentos: máximo {} bytes, {} registros, gzip={} (manifiesto {})",
+                    archivo.getFileName(), configurada.maximoBytes(), configurada.maximoRegistros(), comprimir,
+                    manifiesto.getFileName());
+        }
+    }
+
+    // Archivo que describe la salida: el CSV o, con rotación, el manifiesto de segmentos
+    public Path getRuta() {
+        return rotacion != null ? manifiesto : archivo;
+    }
+
+    public void setAlmacen(ErrorStore almacen) {
+        this.almacen = almacen;
+    }
+
+    // Registra una línea con los campos escapados para CSV y el momento actual como
+    // última columna; el último campo es el motivo. Sin confirmado la línea pertenece
+    // al chunk en curso y se publica cuando el chunk se confirma; con confirmado, o
+    // fuera de un step, se publica de inmediato (errores de lectura y lectura
+    // fusionada). La posición es el byte de inicio de la línea en el archivo de
+    // origen, o -1 si no se conoce
+    public void escribir(boolean confirmado, long posicion, String... campos) {
+        StepContext contexto = StepSynchronizationManager.getContext();
+        Registro registro = new Registro(campos, System.currentTimeMillis(), posicion,
+                almacen != null ? origen(contexto) : null);
+        Long stepId = confirmado || contexto == null ? null : contexto.getStepExecution().getId();
+        if (stepId == null) {
+            publicar(registro);
+            return;
+        }
+        pendientesPorStep.computeIfAbsent(stepId, k -> new Pendientes()).agregar(registro);
+    }
+
+    // El chunk se confirmó: se publican sus errores
+    public void confirmar(StepExecution stepExecution) {
+        Pendientes pendientes = stepExecution.getId() != null ? pendientesPorStep.remove(stepExecution.getId())
+                : null;
+        if (pendientes != null) {
+            for (Registro registro : pendientes.vaciar()) {
+                publicar(registro);
+            }
+        }
+    }
+
+    // El chunk se revirtió: sus errores se descartan y el reintento los vuelve a registrar
+    public void descartar(StepExecution stepExecution) {
+        Pendientes pendientes = stepExecution.getId() != null ? pendientesPorStep.remove(stepExecution.getId())
+                : null;
+        if (pendientes != null) {
+            log.debug("Descartados {} errores del chunk revertido en {}", pendientes.vaciar().size(),
+                    archivo.getFileName());
+        }
+    }
+
+    // Espera a que el escritor deje en el archivo todo lo publicado hasta ahora y, con
+    // rotación, actualiza el manifiesto con los registros del segmento abierto
+    public void flush() {
+        long objetivo = publicados.get();
+        Thread hilo = escritor;
+        while (escritos < objetivo && hilo != null && hilo.isAlive()) {
+            LockSupport.unpark(hilo);
+            LockSupport.parkNanos(this, ESPERA_COLA_LLENA_NANOS);
+        }
+        if (rotacion != null) {
+            synchronized (this) {
+                escribirManifiesto();
+            }
+        }
+    }
+
+    // Escribe lo publicado, descarta lo pendiente y cierra el archivo; el siguiente error
+    // vuelve a escribir el encabezado, como al comienzo de una nueva ejecución (con
+    // rotación, en un segmento nuevo)
+    public void reiniciar() {
+        pendientesPorStep.clear();
+        flush();
+        synchronized (this) {
+            cerrarSalida();
+            encabezadoEscrito = false;
+        }
+        cantidad.set(0);
+    }
+
+    // Escribe lo pendiente y detiene el hilo escritor
+    public void cerrar() {
+        reiniciar();
+        detenido = true;
+        Thread hilo = escritor;
+        if (hilo != null) {
+            LockSupport.unpark(hilo);
+            try {
+                hilo.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        escritor = null;
+    }
+
+    // Errores publicados desde el último reinicio
+    public long getCantidad() {
+        return cantidad.get();
+    }
+
+    public int getProfundidadCola() {
+        return cola.getTamano();
+    }
+
+    public int getProfundidadMaxima() {
+        return profundidadMaxima;
+    }
+
+    public long getEsperasColaLlena() {
+        return esperasColaLlena.sum();
+    }
+
+    // Tiempo promedio entre la publicación de un error y su escritura en el archivo
+    public long getLatenciaPromedioMicros() {
+        long total = escritos;
+        return total > 0 ? TimeUnit.NANOSECONDS.toMicros(latenciaTotalNanos / total) : 0;
+    }
+
+    public long getLatenciaMaximaMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latenciaMaximaNanos);
+    }
+
+    // Registra las métricas de la cola y del escritor
+    public void logEstadisticas() {
+        log.info("Cola de errores {}: profundidad={}, máxima={}/{}, esperas por cola llena={}, "
+                + "latencia de escritura promedio={} µs, máxima={} µs", archivo.getFileName(), getProfundidadCola(),
+                profundidadMaxima, cola.getCapacidad(), getEsperasColaLlena(), getLatenciaPromedioMicros(),
+                getLatenciaMaximaMicros());
+    }
+
+    private void publicar(Registro registro) {
+        Thread hilo = iniciarEscritor();
+        registro.encolado = System.nanoTime();
+        if (!cola.ofrecer(registro)) {
+            // Contrapresión: se espera a que el escritor libere espacio
+            esperasColaLlena.increment();
+            do {
+                LockSupport.unpark(hilo);
+                LockSupport.parkNanos(this, ESPERA_COLA_LLENA_NANOS);
+            } while (!cola.ofrecer(registro));
+        }
+        publicados.incrementAndGet();
+        cantidad.incrementAndGet();
+        if (escritorEsperando) {
+            LockSupport.unpark(hilo);
+        }
+    }
+
+    private Thread iniciarEscritor() {
+        Thread hilo = escritor;
+        if (hilo != null) {
+            return hilo;
+        }
+        synchronized (pendientesPorStep) {
+            if (escritor == null) {
+                detenido = false;
+                escritor = Thread.ofPlatform().daemon().name("errores-" + archivo.getFileName()).start(this::drenar);
+            }
+            return escritor;
+        }
+    }
+
+    // Bucle del hilo escritor: toma errores mientras haya, escribe el buffer al llenarse
+    // o al vaciarse la cola y espera cuando no hay nada que hacer
+    private void drenar() {
+        int vueltas = 0;
+        while (true) {
+            Registro registro = cola.tomar();
+            if (registro != null) {
+                vueltas = 0;
+                agregar(registro);
+                continue;
+            }
+            if (registrosEnBuffer > 0) {
+                escribirBuffer();
+                continue;
+            }
+            if (!cola.estaVacia()) {
+                // Un productor reservó una posición y aún no publica el error
+                esperarPublicacion(vueltas++);
+                continue;
+            }
+            vueltas = 0;
+            if (detenido) {
+                return;
+            }
+            escritorEsperando = true;
+            if (cola.estaVacia()) {
+                LockSupport.parkNanos(this, ESPERA_ESCRITOR_NANOS);
+            }
+            escritorEsperando = false;
+        }
+    }
+
+    private void esperarPublicacion(int vueltas) {
+        if (vueltas < VUELTAS_ACTIVAS) {
+            Thread.onSpinWait();
+        } else if (vueltas < VUELTAS_CEDIENDO) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(this, ESPERA_COLA_LLENA_NANOS);
+        }
+    }
+
+    private synchronized void agregar(Registro registro) {
+        int profundidad = Math.min(cola.getTamano() + 1, cola.getCapacidad());
+        if (profundidad > profundidadMaxima) {
+            profundidadMaxima = profundidad;
+        }
+        if (rotacion != null && registrosSegmento > 0 && rotacion.alcanzada(registrosSegmento, bytesSegmento)) {
+            rotar();
+        }
+        int inicio = posicion;
+        if (!encabezadoEscrito) {
+            agregarTexto(encabezado);
+            agregarSaltoLinea();
+            encabezadoEscrito = true;
+            log.info("Header del archivo de errores {} escrito correctamente", archivo.getFileName());
+        }
+        for (String campo : registro.campos) {
+            agregarCampo(campo);
+            agregarByte(',');
+        }
+        agregarCampo(getTimestamp(registro.instante));
+        agregarSaltoLinea();
+        guardarEnAlmacen(registro);
+        registrosSegmento++;
+        bytesSegmento += posicion - inicio;
+
+        if (registrosEnBuffer == 0) {
+            primerEncolado = registro.encolado;
+        }
+        registrosEnBuffer++;
+        sumaEncolados += registro.encolado;
+
+        if (posicion >= UMBRAL_ESCRITURA) {
+            escribirBuffer();
+        }
+    }
+
+    private synchronized void escribirBuffer() {
+        try {
+            if (salida == null) {
+                salida = abrirSalida();
+            }
+            salida.write(buffer, 0, posicion);
+            // En gzip el flush deja en el disco todo lo comprimido hasta el último registro
+            salida.flush();
+            if (segmentoActual != null) {
+                segmentoActual.registros = registrosSegmento;
+                segmentoActual.bytesSinComprimir = bytesSegmento;
+            }
+            sincronizarAlmacen();
+        } catch (IOException e) {
+            log.error("Error crítico al escribir {} errores en el archivo {}: {}", registrosEnBuffer,
+                    segmentoActual != null ? segmentoActual.ruta : archivo, e.getMessage());
+            cerrarSalida();
+        } finally {
+            long ahora = System.nanoTime();
+            latenciaTotalNanos += registrosEnBuffer * ahora - sumaEncolados;
+            latenciaMaximaNanos = Math.max(latenciaMaximaNanos, ahora - primerEncolado);
+            escritos += registrosEnBuffer;
+            posicion = 0;
+            registrosEnBuffer = 0;
+            sumaEncolados = 0;
+        }
+    }
+
+    private void guardarEnAlmacen(Registro registro) {
+        ErrorStore destino = almacen;
+        if (destino == null) {
+            return;
+        }
+        // El último campo es el motivo
+        int datos = registro.campos.length - 1;
+        try {
+            destino.agregar(registro.origen, registro.posicion, registro.campos[datos],
+                    Arrays.copyOf(registro.campos, datos), registro.instante);
+        } catch (IOException | RuntimeException e) {
+            desactivarAlmacen(destino, e);
+        }
+    }
+
+    private void sincronizarAlmacen() {
+        ErrorStore destino = almacen;
+        if (destino == null) {
+            return;
+        }
+        try {
+            destino.sincronizar();
+        } catch (IOException | RuntimeException e) {
+            desactivarAlmacen(destino, e);
+        }
+    }
+
+    // Un almacén que falla deja de recibir errores; el archivo CSV sigue completo
+    private void desactivarAlmacen(ErrorStore destino, Exception e) {
+        log.error("Error al guardar en el almacén de errores de {}, se desactiva para {}: {}",
+                destino.getEntidad(), archivo.getFileName(), e.getMessage());
+        almacen = null;
+    }
+
+    // Sin rotación se agrega al archivo; con rotación se crea el siguiente segmento
+    private OutputStream abrirSalida() throws IOException {
+        Rotacion configurada = rotacion;
+        if (configurada == null) {
+            return Files.newOutputStream(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        int numero = segmentos.size() + 1;
+        Path ruta = archivo.resolveSibling(String.format("%s_%03d.csv%s", nombreBase(), numero,
+                configurada.comprimir() ? ".gz" : ""));
+        OutputStream destino = Files.newOutputStream(ruta, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            OutputStream abierta = configurada.comprimir() ? new GZIPOutputStream(destino, UMBRAL_ESCRITURA, true)
+                    : destino;
+            segmentoActual = new Segmento(numero, ruta);
+            segmentos.add(segmentoActual);
+            escribirManifiesto();
+            log.info("Segmento {} de errores abierto: {}", numero, ruta.getFileName());
+            return abierta;
+        } catch (IOException | RuntimeException e) {
+            destino.close();
+            throw e;
+        }
+    }
+
+    // Cierra el segmento al alcanzar el límite; el siguiente registro abre uno nuevo
+    private void rotar() {
+        if (posicion > 0) {
+            escribirBuffer();
+        }
+        cerrarSalida();
+    }
+
+    // Cierra el archivo (en gzip escribe el final del stream) y, con rotación, marca el
+    // segmento como completo
+    private void cerrarSalida() {
+        if (salida != null) {
+            try {
+                salida.close();
+                if (segmentoActual != null) {
+                    segmentoActual.completo = true;
+                }
+            } catch (IOException e) {
+                log.warn("No se pudo cerrar el archivo de errores {}: {}",
+                        segmentoActual != null ? segmentoActual.ruta : archivo, e.getMessage());
+            }
+            salida = null;
+        }
+        if (segmentoActual != null) {
+            escribirManifiesto();
+            segmentoActual = null;
+            encabezadoEscrito = false;
+        }
+        registrosSegmento = 0;
+        bytesSegmento = 0;
+    }
+
+    // Reescribe el manifiesto completo en un temporal y lo reemplaza, para que quien lo
+    // lea nunca vea una versión a medias
+    private void escribirManifiesto() {
+        StringBuilder texto = new StringBuilder(ENCABEZADO_MANIFIESTO).append(System.lineSeparator());
+        for (Segmento segmento : segmentos) {
+            long bytes;
+            try {
+                bytes = Files.exists(segmento.ruta) ? Files.size(segmento.ruta) : 0;
+            } catch (IOException e) {
+                bytes = -1;
+            }
+            texto.append(segmento.numero).append(',').append(segmento.ruta.getFileName()).append(',')
+                    .append(segmento.registros).append(',').append(segmento.bytesSinComprimir).append(',')
+                    .append(bytes).append(',').append(segmento.completo).append(System.lineSeparator());
+        }
+        Path temporal = manifiesto.resolveSibling(manifiesto.getFileName() + ".tmp");
+        try {
+            Files.writeString(temporal, texto, StandardCharsets.UTF_8);
+            try {
+                Files.move(temporal, manifiesto, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, manifiesto, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo escribir el manifiesto de errores {}: {}", manifiesto, e.getMessage());
+        }
+    }
+
+    // Nombre del archivo sin la extensión .csv, base de los segmentos y del manifiesto
+    private String nombreBase() {
+        String nombre = archivo.getFileName().toString();
+        return nombre.endsWith(".csv") ? nombre.substring(0, nombre.length() - 4) : nombre;
+    }
+
+    // Timestamp del error, formateado una vez por segundo
+    private String getTimestamp(long instante) {
+        long segundo = instante / 1000;
+        if (segundo != segundoTimestamp) {
+            timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(instante), ZoneId.systemDefault())
+                    .format(FORMATO_TIMESTAMP);
+            segundoTimestamp = segundo;
+        }
+        return timestamp;
+    }
+
+    // Si el valor contiene coma, comillas o salto de línea se envuelve en comillas y
+    // las comillas se duplican
+    private void agregarCampo(String valor) {
+        if (valor == null) {
+            return;
+        }
+        boolean comillas = false;
+        for (int i = 0; i < valor.length() && !comillas; i++) {
+            char c = valor.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            agregarTexto(valor);
+            return;
+        }
+        agregarByte('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') {
+                agregarByte('"');
+            }
+            i = agregarCaracter(valor, i);
+        }
+        agregarByte('"');
+    }
+
+    private void agregarTexto(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            i = agregarCaracter(texto, i);
+        }
+    }
+
+    // Codifica en UTF-8 el carácter en la posición i y retorna la posición del último
+    // char consumido (i + 1 para pares suplentes)
+    private int agregarCaracter(String texto, int i) {
+        char c = texto.charAt(i);
+        if (c < 0x80) {
+            agregarByte(c);
+            return i;
+        }
+        asegurarEspacio(4);
+        if (c < 0x800) {
+            buffer[posicion++] = (byte) (0xC0 | (c >> 6));
+            buffer[posicion++] = (byte) (0x80 | (c & 0x3F));
+            return i;
+        }
+        if (Character.isHighSurrogate(c) && i + 1 < texto.length() && Character.isLowSurrogate(texto.charAt(i + 1))) {
+            int codigo = Character.toCodePoint(c, texto.charAt(i + 1));
+            buffer[posicion++] = (byte) (0xF0 | (codigo >> 18));
+            buffer[posicion++] = (byte) (0x80 | ((codigo >> 12) & 0x3F));
+            buffer[posicion++] = (byte) (0x80 | ((codigo >> 6) & 0x3F));
+            buffer[posicion++] = (byte) (0x80 | (codigo & 0x3F));
+            return i + 1;
+        }
+        if (Character.isSurrogate(c)) {
+            // Suplente sin pareja: se reemplaza por '?' como String.getBytes
+            buffer[posicion++] = '?';
+            return i;
+        }
+        buffer[posicion++] = (byte) (0xE0 | (c >> 12));
+        buffer[posicion++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[posicion++] = (byte) (0x80 | (c & 0x3F));
+        return i;
+    }
+
+    private void agregarSaltoLinea() {
+        asegurarEspacio(SALTO_LINEA.length);
+        System.arraycopy(SALTO_LINEA, 0, buffer, posicion, SALTO_LINEA.length);
+        posicion += SALTO_LINEA.length;
+    }
+
+    private void agregarByte(int b) {
+        asegurarEspacio(1);
+        buffer[posicion++] = (byte) b;
+    }
+
+    // Una línea muy larga puede superar el espacio sobre el umbral; el buffer crece
+    private void asegurarEspacio(int bytes) {
+        if (posicion + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, posicion + bytes));
+        }
+    }
+
+    // Archivo de la partición del step. En procesamiento paralelo y en la lectura por
+    // adelantado el contexto del step también está registrado en los hilos de trabajo
+    private static String origen(StepContext contexto) {
+        return contexto != null
+                ? contexto.getStepExecution().getExecutionContext().getString(FileRangePartitioner.ARCHIVO_KEY, null)
+                : null;
+    }
+
+    private static final class Registro {
+
+        private final String[] campos;
+        private final long instante;
+        private final long posicion;
+        private final String origen;
+        private long encolado;
+
+        Registro(String[] campos, long instante, long posicion, String origen) {
+            this.campos = campos;
+            this.instante = instante;
+            this.posicion = posicion;
+            this.origen = origen;
+        }
+    }
+
+    // Límites de cada segmento; 0 sin límite
+    private record Rotacion(long maximoBytes, long maximoRegistros, boolean comprimir) {
+
+        boolean activa() {
+            return maximoBytes > 0 || maximoRegistros > 0 || comprimir;
+        }
+
+        boolean alcanzada(long registros, long bytes) {
+            return maximoRegistros > 0 && registros >= maximoRegistros || maximoBytes > 0 && bytes >= maximoBytes;
+        }
+    }
+
+    private static final class Segmento {
+
+        private final int numero;
+        private final Path ruta;
+        private long registros;
+        private long bytesSinComprimir;
+        private boolean completo;
+
+        Segmento(int numero, Path ruta) {
+            this.numero = numero;
+            this.ruta = ruta;
+        }
+    }
+
+    private static final class Pendientes {
+
+        private List<Registro> registros = new ArrayList<>();
+
+        synchronized void agregar(Registro registro) {
+            registros.add(registro);
+        }
+
+        synchronized List<Registro> vaciar() {
+            List<Registro> vaciados = registros;
+            registros = new ArrayList<>();
+            return vaciados;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Pasos del job de reproceso de errores. El primero exporta del ErrorStore los
+// registros seleccionados, con las correcciones indicadas, a un CSV con las columnas
+// del archivo original; el job lo carga con el mismo worker de la entidad (reader,
+// processor y writer de una carga completa), así que no se vuelve a leer el archivo
+// original y los registros que fallan de nuevo quedan como errores nuevos. Al
+// terminar la carga, los registros exportados se marcan como reprocesados
+@Component
+@Slf4j
+public class ErrorReplay implements JobExecutionDecider {
+
+    // Parámetros del job
+    public static final String ENTIDAD_KEY = "entidad";
+    public static final String MOTIVO_KEY = "motivo";
+    public static final String ORIGEN_KEY = "origen";
+    public static final String ID_KEY = "id";
+    public static final String POSICION_DESDE_KEY = "posicionDesde";
+    public static final String POSICION_HASTA_KEY = "posicionHasta";
+    public static final String CORRECCIONES_KEY = "correcciones";
+    public static final String INCLUIR_REPROCESADOS_KEY = "incluirReprocesados";
+
+    // Archivo exportado, en el contexto del job; lo lee el partitioner del reproceso
+    public static final String ARCHIVO_KEY = "archivoReproceso";
+
+    // Secuencias existentes al exportar: la marca final no toca los errores nuevos
+    private static final String LIMITE_KEY = "reproceso.secuenciaLimite";
+    private static final String CANTIDAD_KEY = "reproceso.cantidad";
+
+    // Estado del decider cuando no hay registros que reprocesar
+    public static final String SIN_REGISTROS = "SIN_REGISTROS";
+
+    private static final String DIRECTORIO_EXPORTADOS = "reproceso";
+
+    // Columnas de cada entidad, en el orden del archivo original
+    private static final Map<String, String> CABECERAS = Map.of(
+            ErrorStores.TRANSACCIONES, "id,fecha,monto,tipo",
+            ErrorStores.INTERESES, "cuenta_id,nombre,saldo,edad,tipo",
+            ErrorStores.CUENTAS_ANUALES, "cuenta_id,fecha,transaccion,monto,descripcion");
+
+    @Autowired
+    private ErrorStores errorStores;
+
+    // Tasklet del primer paso: escribe la selección y deja en el contexto del job el
+    // archivo, la cantidad y la secuencia límite
+    public RepeatStatus exportar(StepContribution contribution, ChunkContext chunkContext) throws IOException {
+        StepExecution stepExecution = contribution.getStepExecution();
+        JobParameters parametros = stepExecution.getJobParameters();
+        String entidad = parametros.getString(ENTIDAD_KEY);
+        ErrorStore almacen = almacen(entidad);
+        Map<Long, String[]> correcciones = leerCorrecciones(parametros.getString(CORRECCIONES_KEY));
+        long limite = almacen.getCantidad();
+
+        Path archivo = errorStores.getDirectorio().resolve(DIRECTORIO_EXPORTADOS)
+                .resolve(entidad + "_" + stepExecution.getJobExecutionId() + ".csv");
+        Files.createDirectories(archivo.getParent());
+
+        long[] cantidades = new long[2];
+        try (BufferedWriter out = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            out.write(CABECERAS.get(entidad));
+            out.newLine();
+            almacen.recorrer(filtro(parametros, limite, correcciones), entrada -> {
+                String[] corregidos = correcciones.get(entrada.secuencia());
+                try {
+                    escribirLinea(out, corregidos != null ? corregidos : entrada.datos());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                cantidades[0]++;
+                if (corregidos != null) {
+                    cantidades[1]++;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        ExecutionContext contexto = stepExecution.getJobExecution().getExecutionContext();
+        contexto.putString(ARCHIVO_KEY, archivo.toAbsolutePath().toUri().toString());
+        contexto.putLong(LIMITE_KEY, limite);
+        contexto.putLong(CANTIDAD_KEY, cantidades[0]);
+        contribution.incrementWriteCount(cantidades[0]);
+
+        log.info("{} registros de {} exportados para reprocesar en {} ({} corregidos)", cantidades[0], entidad,
+                archivo, cantidades[1]);
+        return RepeatStatus.FINISHED;
+    }
+
+    // Continúa con el paso de la entidad o termina si no se exportó nada
+    @Override
+    public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+        if (jobExecution.getExecutionContext().getLong(CANTIDAD_KEY, 0) == 0) {
+            log.info("No hay registros que reprocesar");
+            return new FlowExecutionStatus(SIN_REGISTROS);
+        }
+        return new FlowExecutionStatus(jobExecution.getJobParameters().getString(ENTIDAD_KEY));
+    }
+
+    // Tasklet del último paso: marca como reprocesada la misma selección que se exportó
+    public RepeatStatus marcarReprocesados(StepContribution contribution, ChunkContext chunkContext)
+            throws IOException {
+        StepExecution stepExecution = contribution.getStepExecution();
+        JobParameters parametros = stepExecution.getJobParameters();
+        ErrorStore almacen = almacen(parametros.getString(ENTIDAD_KEY));
+        long limite = stepExecution.getJobExecution().getExecutionContext().getLong(LIMITE_KEY);
+        Map<Long, String[]> correcciones = leerCorrecciones(parametros.getString(CORRECCIONES_KEY));
+
+        long marcados = almacen.marcar(filtro(parametros, limite, correcciones), ErrorStore.REPROCESADO);
+        contribution.incrementWriteCount(marcados);
+        return RepeatStatus.FINISHED;
+    }
+
+    private ErrorStore almacen(String entidad) {
+        if (!StringUtils.hasText(entidad)) {
+            throw new IllegalArgumentException("Falta el parámetro " + ENTIDAD_KEY + " del reproceso");
+        }
+        ErrorStore almacen = errorStores.porEntidad(entidad);
+        if (almacen == null) {
+            throw new IllegalStateException("El almacén de errores de " + entidad
+                    + " está deshabilitado o no se pudo abrir (batch.processor.almacen-errores-habilitado)");
+        }
+        return almacen;
+    }
+
+    // Selección del reproceso; con correcciones solo entran los registros corregidos
+    private static ErrorStore.Filtro filtro(JobParameters parametros, long limite, Map<Long, String[]> correcciones) {
+        Long desde = parametros.getLong(POSICION_DESDE_KEY);
+        Long hasta = parametros.getLong(POSICION_HASTA_KEY);
+        ErrorStore.Filtro filtro = new ErrorStore.Filtro()
+                .motivo(parametros.getString(MOTIVO_KEY))
+                .origen(parametros.getString(ORIGEN_KEY))
+                .id(parametros.getString(ID_KEY))
+                .posiciones(desde != null && desde >= 0 ? desde : Long.MIN_VALUE,
+                        hasta != null && hasta >= 0 ? hasta : Long.MAX_VALUE)
+                .secuencias(0, limite)
+                .incluirReprocesados(Boolean.parseBoolean(parametros.getString(INCLUIR_REPROCESADOS_KEY)));
+        if (!correcciones.isEmpty()) {
+            filtro.soloSecuencias(correcciones.keySet());
+        }
+        return filtro;
+    }
+
+    // Lee el CSV de correcciones: header y luego la secuencia seguida de las columnas
+    private static Map<Long, String[]> leerCorrecciones(String ruta) throws IOException {
+        Map<Long, String[]> correcciones = new HashMap<>();
+        if (!StringUtils.hasText(ruta)) {
+            return correcciones;
+        }
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(ruta), StandardCharsets.UTF_8)) {
+            String linea = in.readLine();
+            int numero = 1;
+            while ((linea = in.readLine()) != null) {
+                numero++;
+                if (linea.isBlank()) {
+                    continue;
+                }
+                String[] valores = tokenizer.tokenize(linea).getValues();
+                try {
+                    String[] datos = new String[valores.length - 1];
+                    System.arraycopy(valores, 1, datos, 0, datos.length);
+                    correcciones.put(Long.parseLong(valores[0].trim()), datos);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Secuencia inválida en la línea " + numero + " de " + ruta
+                            + ": '" + valores[0] + "'", e);
+                }
+            }
+        }
+        log.info("{} correcciones leídas de {}", correcciones.size(), ruta);
+        return correcciones;
+    }
+
+    // Escribe los campos como una línea CSV. Los saltos de línea se reemplazan por
+    // espacios porque el reader no los acepta dentro de un campo
+    private static void escribirLinea(BufferedWriter out, String[] campos) throws IOException {
+        for (int i = 0; i < campos.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String campo = campos[i] != null ? campos[i].replace('\r', ' ').replace('\n', ' ') : "";
+            if (campo.indexOf(',') >= 0 || campo.indexOf('"') >= 0) {
+                out.write('"');
+                out.write(campo.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(campo);
+            }
+        }
+        out.newLine();
+    }
+}
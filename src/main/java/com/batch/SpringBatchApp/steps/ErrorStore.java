@@ -0,0 +1,521 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Almacén de los registros rechazados de una entidad, indexado para buscarlos y
+// reprocesarlos. Se guarda en tres archivos de solo agregado:
+// - <entidad>.log: los campos de cada rechazo y el momento en que ocurrió
+// - <entidad>.idx: una entrada de tamaño fijo por rechazo con su offset en el log, la
+//   posición de la línea en el archivo de origen, el motivo, el archivo de origen y el
+//   estado. La secuencia de un rechazo es su número de entrada en el índice
+// - <entidad>.dic: los textos de motivos y archivos de origen, cada uno una sola vez
+// Se escriben en ese orden (diccionario, log, índice), así ante una caída del proceso
+// una entrada del índice nunca apunta a datos que no se escribieron; al abrir se
+// descarta la cola incompleta que pudo dejar la caída. No se fuerza la escritura al
+// disco, así que tras una caída del sistema operativo el almacén puede perder o dañar
+// sus últimas entradas. Lo único que se reescribe en su lugar es el estado de una
+// entrada, al marcarla como reprocesada.
+// Las búsquedas recorren el índice en bloques y solo leen del log las entradas que
+// cumplen el filtro. Los métodos públicos están sincronizados: el hilo escritor de
+// errores agrega mientras otro hilo busca
+@Slf4j
+public final class ErrorStore implements Closeable {
+
+    // Incrementar al cambiar el formato de alguno de los archivos
+    static final int VERSION = 1;
+
+    private static final int MAGIC_LOG = 0x45524C47;
+    private static final int MAGIC_INDICE = 0x45524958;
+    private static final int MAGIC_DICCIONARIO = 0x45524443;
+    private static final int CABECERA = 2 * Integer.BYTES;
+
+    // Offset en el log, posición en el origen, motivo, origen y estado
+    static final int TAMANO_ENTRADA = 2 * Long.BYTES + 2 * Integer.BYTES + 1;
+    private static final int ESTADO = TAMANO_ENTRADA - 1;
+
+    public static final byte PENDIENTE = 0;
+    public static final byte REPROCESADO = 1;
+
+    // Entradas del índice leídas de una vez al buscar
+    private static final int ENTRADAS_POR_BLOQUE = 4096;
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final String entidad;
+    private final Anexo diccionario;
+    private final Anexo registros;
+    private final Anexo indice;
+
+    private final List<String> textos;
+    private final Map<String, Integer> idsTexto = new HashMap<>();
+    private long cantidad;
+
+    // Buffer de lectura de registros del log; crece con el registro más largo
+    private ByteBuffer lectura = ByteBuffer.allocate(1024);
+
+    private ErrorStore(String entidad, Anexo diccionario, Anexo registros, Anexo indice, List<String> textos,
+            long cantidad) {
+        this.entidad = entidad;
+        this.diccionario = diccionario;
+        this.registros = registros;
+        this.indice = indice;
+        this.textos = textos;
+        this.cantidad = cantidad;
+        for (int i = 0; i < textos.size(); i++) {
+            idsTexto.put(textos.get(i), i);
+        }
+    }
+
+    // Abre (o crea vacío) el almacén de la entidad en el directorio
+    public static ErrorStore abrir(Path directorio, String entidad) throws IOException {
+        Files.createDirectories(directorio);
+        List<Anexo> abiertos = new ArrayList<>();
+        try {
+            Anexo diccionario = agregarA(abiertos,
+                    new Anexo(directorio.resolve(entidad + ".dic"), MAGIC_DICCIONARIO));
+            Anexo registros = agregarA(abiertos, new Anexo(directorio.resolve(entidad + ".log"), MAGIC_LOG));
+            Anexo indice = agregarA(abiertos, new Anexo(directorio.resolve(entidad + ".idx"), MAGIC_INDICE));
+
+            List<String> textos = leerDiccionario(diccionario);
+            long cantidad = recuperar(indice, registros, textos.size());
+
+            log.info("Almacén de errores de {} abierto: {} registros, {} motivos y orígenes", entidad, cantidad,
+                    textos.size());
+            return new ErrorStore(entidad, diccionario, registros, indice, textos, cantidad);
+        } catch (IOException | RuntimeException e) {
+            for (Anexo anexo : abiertos) {
+                anexo.cerrarSinEscribir();
+            }
+            throw e;
+        }
+    }
+
+    private static Anexo agregarA(List<Anexo> abiertos, Anexo anexo) {
+        abiertos.add(anexo);
+        return anexo;
+    }
+
+    // Agrega un rechazo y retorna su secuencia. Los datos quedan en buffers hasta
+    // sincronizar
+    public synchronized long agregar(String origen, long posicion, String motivo, String[] datos, long instante)
+            throws IOException {
+        int idMotivo = idTexto(motivo);
+        int idOrigen = idTexto(origen);
+
+        byte[][] bytes = new byte[datos.length][];
+        int largo = Long.BYTES + Short.BYTES;
+        for (int i = 0; i < datos.length; i++) {
+            bytes[i] = datos[i] != null ? datos[i].getBytes(StandardCharsets.UTF_8) : null;
+            largo += Integer.BYTES + (bytes[i] != null ? bytes[i].length : 0);
+        }
+
+        long offset = registros.getTamano();
+        ByteBuffer registro = registros.reservar(Integer.BYTES + largo);
+        registro.putInt(largo).putLong(instante).putShort((short) datos.length);
+        for (byte[] campo : bytes) {
+            if (campo == null) {
+                registro.putInt(-1);
+            } else {
+                registro.putInt(campo.length).put(campo);
+            }
+        }
+
+        // El índice se escribe al disco solo después del diccionario y del log
+        if (!indice.cabe(TAMANO_ENTRADA)) {
+            sincronizar();
+        }
+        indice.reservar(TAMANO_ENTRADA).putLong(offset).putLong(posicion).putInt(idMotivo).putInt(idOrigen)
+                .put(PENDIENTE);
+        return cantidad++;
+    }
+
+    // Escribe lo agregado en los tres archivos, en el orden que mantiene el índice válido
+    // si el proceso se cae; no espera a que el sistema operativo lo lleve al disco
+    public synchronized void sincronizar() throws IOException {
+        diccionario.vaciar();
+        registros.vaciar();
+        indice.vaciar();
+    }
+
+    // Entrega en orden de secuencia las entradas que cumplen el filtro
+    public synchronized void recorrer(Filtro filtro, Consumer<Entrada> visitante) throws IOException {
+        sincronizar();
+        BitSet motivos = filtro.motivo != null ? coincidencias(filtro.motivo) : null;
+        BitSet origenes = filtro.origen != null ? coincidencias(filtro.origen) : null;
+
+        ByteBuffer bloque = ByteBuffer.allocate(ENTRADAS_POR_BLOQUE * TAMANO_ENTRADA);
+        long secuencia = Math.max(0, filtro.secuenciaDesde);
+        long hasta = Math.min(cantidad, filtro.secuenciaHasta);
+        while (secuencia < hasta) {
+            int entradas = (int) Math.min(ENTRADAS_POR_BLOQUE, hasta - secuencia);
+            bloque.clear().limit(entradas * TAMANO_ENTRADA);
+            indice.leer(bloque, posicionEntrada(secuencia));
+            bloque.flip();
+
+            for (int i = 0; i < entradas; i++, secuencia++) {
+                long offset = bloque.getLong();
+                long posicion = bloque.getLong();
+                int motivo = bloque.getInt();
+                int origen = bloque.getInt();
+                byte estado = bloque.get();
+
+                if ((estado == REPROCESADO && !filtro.incluirReprocesados)
+                        || (motivos != null && !motivos.get(motivo))
+                        || (origenes != null && !origenes.get(origen))
+                        || posicion < filtro.posicionDesde || posicion > filtro.posicionHasta
+                        || (filtro.secuencias != null && !filtro.secuencias.contains(secuencia))) {
+                    continue;
+                }
+
+                Entrada entrada = leerEntrada(secuencia, offset, posicion, motivo, origen, estado);
+                if (filtro.id == null || (entrada.datos().length > 0 && filtro.id.equals(entrada.datos()[0]))) {
+                    visitante.accept(entrada);
+                }
+            }
+        }
+    }
+
+    public List<Entrada> buscar(Filtro filtro) throws IOException {
+        List<Entrada> encontradas = new ArrayList<>();
+        recorrer(filtro, encontradas::add);
+        return encontradas;
+    }
+
+    // Cambia el estado de las entradas que cumplen el filtro y retorna cuántas cambió
+    public synchronized long marcar(Filtro filtro, byte estado) throws IOException {
+        List<Long> secuencias = new ArrayList<>();
+        recorrer(filtro, entrada -> secuencias.add(entrada.secuencia()));
+        ByteBuffer valor = ByteBuffer.allocate(1);
+        for (long secuencia : secuencias) {
+            valor.clear();
+            valor.put(0, estado);
+            indice.escribir(valor, posicionEntrada(secuencia) + ESTADO);
+        }
+        log.info("{} registros del almacén de errores de {} marcados como {}", secuencias.size(), entidad,
+                estado == REPROCESADO ? "reprocesados" : "pendientes");
+        return secuencias.size();
+    }
+
+    // Registros guardados; también es la secuencia que recibirá el siguiente
+    public synchronized long getCantidad() {
+        return cantidad;
+    }
+
+    public String getEntidad() {
+        return entidad;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sincronizar();
+        } finally {
+            diccionario.cerrarSinEscribir();
+            registros.cerrarSinEscribir();
+            indice.cerrarSinEscribir();
+        }
+    }
+
+    private int idTexto(String texto) throws IOException {
+        String valor = texto != null ? texto : "";
+        Integer id = idsTexto.get(valor);
+        if (id != null) {
+            return id;
+        }
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        diccionario.reservar(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+        id = textos.size();
+        textos.add(valor);
+        idsTexto.put(valor, id);
+        return id;
+    }
+
+    // Ids de los textos que contienen el buscado, sin distinguir mayúsculas
+    private BitSet coincidencias(String buscado) {
+        String minusculas = buscado.toLowerCase(Locale.ROOT);
+        BitSet ids = new BitSet(textos.size());
+        for (int i = 0; i < textos.size(); i++) {
+            if (textos.get(i).toLowerCase(Locale.ROOT).contains(minusculas)) {
+                ids.set(i);
+            }
+        }
+        return ids;
+    }
+
+    private Entrada leerEntrada(long secuencia, long offset, long posicion, int motivo, int origen, byte estado)
+            throws IOException {
+        ByteBuffer largo = ByteBuffer.allocate(Integer.BYTES);
+        registros.leer(largo, offset);
+        int bytes = largo.getInt(0);
+        if (lectura.capacity() < bytes) {
+            lectura = ByteBuffer.allocate(Math.max(bytes, lectura.capacity() * 2));
+        }
+        lectura.clear().limit(bytes);
+        registros.leer(lectura, offset + Integer.BYTES);
+        lectura.flip();
+
+        long instante = lectura.getLong();
+        String[] datos = new String[lectura.getShort()];
+        for (int i = 0; i < datos.length; i++) {
+            int largoCampo = lectura.getInt();
+            if (largoCampo >= 0) {
+                datos[i] = new String(lectura.array(), lectura.position(), largoCampo, StandardCharsets.UTF_8);
+                lectura.position(lectura.position() + largoCampo);
+            }
+        }
+        return new Entrada(secuencia, textos.get(origen), posicion, textos.get(motivo), instante, datos,
+                estado == REPROCESADO);
+    }
+
+    private static long posicionEntrada(long secuencia) {
+        return CABECERA + secuencia * TAMANO_ENTRADA;
+    }
+
+    // Lee los textos completos y descarta uno que haya quedado a medio escribir
+    private static List<String> leerDiccionario(Anexo diccionario) throws IOException {
+        long tamano = diccionario.getTamano() - CABECERA;
+        if (tamano > Integer.MAX_VALUE) {
+            throw new IOException("Diccionario del almacén de errores demasiado grande: " + tamano + " bytes");
+        }
+        ByteBuffer contenido = ByteBuffer.allocate((int) tamano);
+        diccionario.leer(contenido, CABECERA);
+        contenido.flip();
+
+        List<String> textos = new ArrayList<>();
+        while (contenido.remaining() >= Integer.BYTES) {
+            int inicio = contenido.position();
+            int largo = contenido.getInt();
+            if (largo < 0 || largo > contenido.remaining()) {
+                contenido.position(inicio);
+                break;
+            }
+            textos.add(new String(contenido.array(), contenido.position(), largo, StandardCharsets.UTF_8));
+            contenido.position(contenido.position() + largo);
+        }
+        if (contenido.hasRemaining()) {
+            diccionario.truncar(CABECERA + contenido.position());
+        }
+        return textos;
+    }
+
+    // Descarta desde el final las entradas del índice incompletas o que apuntan a datos
+    // que no están en el log ni en el diccionario, y el log sin entrada en el índice.
+    // Retorna las entradas válidas
+    private static long recuperar(Anexo indice, Anexo registros, int textos) throws IOException {
+        long cantidad = (indice.getTamano() - CABECERA) / TAMANO_ENTRADA;
+        long finRegistros = CABECERA;
+        ByteBuffer entrada = ByteBuffer.allocate(TAMANO_ENTRADA);
+        ByteBuffer largo = ByteBuffer.allocate(Integer.BYTES);
+        while (cantidad > 0) {
+            entrada.clear();
+            indice.leer(entrada, posicionEntrada(cantidad - 1));
+            long offset = entrada.getLong(0);
+            int motivo = entrada.getInt(2 * Long.BYTES);
+            int origen = entrada.getInt(2 * Long.BYTES + Integer.BYTES);
+            if (motivo < textos && origen < textos && offset >= CABECERA
+                    && offset + Integer.BYTES <= registros.getTamano()) {
+                largo.clear();
+                registros.leer(largo, offset);
+                long fin = offset + Integer.BYTES + largo.getInt(0);
+                if (fin <= registros.getTamano()) {
+                    finRegistros = fin;
+                    break;
+                }
+            }
+            cantidad--;
+        }
+
+        long descartadas = indice.getTamano() - posicionEntrada(cantidad);
+        if (descartadas > 0) {
+            log.warn("Almacén de errores: se descartan {} bytes incompletos del índice", descartadas);
+            indice.truncar(posicionEntrada(cantidad));
+        }
+        if (registros.getTamano() > finRegistros) {
+            log.warn("Almacén de errores: se descartan {} bytes del log sin entrada en el índice",
+                    registros.getTamano() - finRegistros);
+            registros.truncar(finRegistros);
+        }
+        return cantidad;
+    }
+
+    // Un rechazo guardado. La posición es el byte de inicio de la línea en el archivo de
+    // origen, o -1 si no se conoce; los datos son los campos en el orden del CSV
+    public record Entrada(long secuencia, String origen, long posicion, String motivo, long instante, String[] datos,
+            boolean reprocesado) {
+    }
+
+    // Criterios de búsqueda; los que no se indican no filtran. Motivo y origen se buscan
+    // como texto contenido sin distinguir mayúsculas y el id se compara con el primer
+    // campo. Las entradas reprocesadas se omiten salvo que se pidan
+    public static final class Filtro {
+
+        private String motivo;
+        private String origen;
+        private String id;
+        private long posicionDesde = Long.MIN_VALUE;
+        private long posicionHasta = Long.MAX_VALUE;
+        private long secuenciaDesde = 0;
+        private long secuenciaHasta = Long.MAX_VALUE;
+        private Set<Long> secuencias;
+        private boolean incluirReprocesados;
+
+        public Filtro motivo(String motivo) {
+            this.motivo = vacioANull(motivo);
+            return this;
+        }
+
+        public Filtro origen(String origen) {
+            this.origen = vacioANull(origen);
+            return this;
+        }
+
+        public Filtro id(String id) {
+            this.id = vacioANull(id);
+            return this;
+        }
+
+        // Posiciones de línea en [desde, hasta]
+        public Filtro posiciones(long desde, long hasta) {
+            this.posicionDesde = desde;
+            this.posicionHasta = hasta;
+            return this;
+        }
+
+        // Secuencias en [desde, hasta)
+        public Filtro secuencias(long desde, long hasta) {
+            this.secuenciaDesde = desde;
+            this.secuenciaHasta = hasta;
+            return this;
+        }
+
+        // Solo las secuencias indicadas
+        public Filtro soloSecuencias(Collection<Long> secuencias) {
+            this.secuencias = new HashSet<>(secuencias);
+            return this;
+        }
+
+        public Filtro incluirReprocesados(boolean incluir) {
+            this.incluirReprocesados = incluir;
+            return this;
+        }
+
+        private static String vacioANull(String valor) {
+            return valor == null || valor.isBlank() ? null : valor.trim();
+        }
+    }
+
+    // Archivo de solo agregado con cabecera y un buffer de escritura. Las lecturas y la
+    // escritura del estado son posicionales y no mueven el final
+    private static final class Anexo {
+
+        private final Path ruta;
+        private final FileChannel canal;
+        private ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+
+        // Tamaño lógico, incluido lo que está en el buffer
+        private long tamano;
+
+        Anexo(Path ruta, int magic) throws IOException {
+            this.ruta = ruta;
+            this.canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                if (canal.size() < CABECERA) {
+                    canal.truncate(0);
+                    ByteBuffer cabecera = ByteBuffer.allocate(CABECERA).putInt(magic).putInt(VERSION);
+                    cabecera.flip();
+                    escribir(cabecera, 0);
+                } else {
+                    ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+                    leer(cabecera, 0);
+                    if (cabecera.getInt(0) != magic || cabecera.getInt(Integer.BYTES) != VERSION) {
+                        throw new IOException(ruta + " no es un archivo del almacén de errores de la versión "
+                                + VERSION);
+                    }
+                }
+                tamano = canal.size();
+            } catch (IOException | RuntimeException e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        long getTamano() {
+            return tamano;
+        }
+
+        boolean cabe(int bytes) {
+            return buffer.remaining() >= bytes;
+        }
+
+        // Buffer con espacio para los bytes indicados, que el llamador debe escribir completos
+        ByteBuffer reservar(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                vaciar();
+                if (buffer.capacity() < bytes) {
+                    buffer = ByteBuffer.allocate(bytes);
+                }
+            }
+            tamano += bytes;
+            return buffer;
+        }
+
+        void vaciar() throws IOException {
+            buffer.flip();
+            escribir(buffer, tamano - buffer.remaining());
+            buffer.clear();
+        }
+
+        void escribir(ByteBuffer datos, long posicion) throws IOException {
+            long actual = posicion;
+            while (datos.hasRemaining()) {
+                actual += canal.write(datos, actual);
+            }
+        }
+
+        // Llena el buffer desde la posición indicada; falla si el archivo termina antes
+        void leer(ByteBuffer destino, long posicion) throws IOException {
+            long actual = posicion;
+            while (destino.hasRemaining()) {
+                int leidos = canal.read(destino, actual);
+                if (leidos < 0) {
+                    throw new EOFException("Fin inesperado de " + ruta + " en el byte " + actual);
+                }
+                actual += leidos;
+            }
+        }
+
+        void truncar(long nuevoTamano) throws IOException {
+            canal.truncate(nuevoTamano);
+            tamano = nuevoTamano;
+        }
+
+        void cerrarSinEscribir() {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                log.warn("No se pudo cerrar {}: {}", ruta, e.getMessage());
+            }
+        }
+    }
+}
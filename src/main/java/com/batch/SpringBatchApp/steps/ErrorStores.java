@@ -0,0 +1,91 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.batch.SpringBatchApp.config.ProcessorConfig;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Almacenes de errores de las tres entidades, abiertos una vez y compartidos por los
+// writers de errores y el job de reproceso
+@Component
+@Slf4j
+public class ErrorStores {
+
+    public static final String TRANSACCIONES = "transacciones";
+    public static final String INTERESES = "intereses";
+    public static final String CUENTAS_ANUALES = "cuentas_anuales";
+
+    @Autowired
+    private ProcessorConfig processorConfig;
+
+    private final Map<String, Optional<ErrorStore>> abiertos = new ConcurrentHashMap<>();
+
+    // Almacén de cada entidad, o null si está deshabilitado o no se pudo abrir
+    @Nullable
+    public ErrorStore transacciones() {
+        return abrir(TRANSACCIONES);
+    }
+
+    @Nullable
+    public ErrorStore intereses() {
+        return abrir(INTERESES);
+    }
+
+    @Nullable
+    public ErrorStore cuentasAnuales() {
+        return abrir(CUENTAS_ANUALES);
+    }
+
+    // Almacén de la entidad con el nombre usado por los jobs (transacciones, intereses
+    // o cuentas_anuales)
+    @Nullable
+    public ErrorStore porEntidad(String entidad) {
+        return switch (entidad) {
+            case TRANSACCIONES, INTERESES, CUENTAS_ANUALES -> abrir(entidad);
+            default -> throw new IllegalArgumentException("Entidad desconocida: " + entidad);
+        };
+    }
+
+    public Path getDirectorio() {
+        return Paths.get(processorConfig.getDirectorioAlmacenErrores());
+    }
+
+    // Un almacén que no se puede abrir solo deja los errores en los archivos CSV
+    private ErrorStore abrir(String entidad) {
+        if (!processorConfig.isAlmacenErroresHabilitado()) {
+            return null;
+        }
+        return abiertos.computeIfAbsent(entidad, e -> {
+            try {
+                return Optional.of(ErrorStore.abrir(getDirectorio(), e));
+            } catch (IOException | RuntimeException ex) {
+                log.warn("No se pudo abrir el almacén de errores de {} en {}, los errores solo se escriben en CSV: {}",
+                        e, getDirectorio(), ex.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        abiertos.values().forEach(almacen -> almacen.ifPresent(a -> {
+            try {
+                a.close();
+            } catch (IOException | RuntimeException e) {
+                log.warn("No se pudo cerrar el almacén de errores de {}: {}", a.getEntidad(), e.getMessage());
+            }
+        }));
+        abiertos.clear();
+    }
+}
@@ -4,16 +4,22 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.AfterStep;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.Transacciones;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
@@ -22,9 +28,15 @@ public class ErrorTransactionWriter {
 
     private static final String ERROR_FILE_NAME = "transacciones_errores.csv";
     private static final String ERROR_DIRECTORY = "error-files";
-    private final AtomicBoolean headerWritten = new AtomicBoolean(false);
-    private final AtomicLong errorCount = new AtomicLong(0);
+    private static final String HEADER = "id,fecha_original,monto_original,tipo_original,motivo_error,timestamp_error";
     private final Path errorFilePath;
+    private final ErrorFileSink sink;
+
+    @Autowired
+    private ProcessorConfig processorConfig;
+
+    @Autowired
+    private ErrorStores errorStores;
 
     public ErrorTransactionWriter() {
         try {
@@ -40,6 +52,8 @@ public class ErrorTransactionWriter {
             String fileName = timestamp + "_" + ERROR_FILE_NAME;
             this.errorFilePath = errorDir.resolve(fileName);
 
+            this.sink = new ErrorFileSink(errorFilePath, HEADER);
+
             log.info("Archivo de errores configurado en: {}", errorFilePath.toAbsolutePath());
 
         } catch (IOException e) {
@@ -48,120 +62,89 @@ public class ErrorTransactionWriter {
         }
     }
 
-    // Escribe una transacción con error al archivo CSV
-    public synchronized void writeErrorTransaction(Transacciones transaccion, String motivo, String valorOriginal) {
-        try {
-            // Escribir header si es la primera vez
-            if (!headerWritten.getAndSet(true)) {
-                writeHeader();
-            }
-
-            // Preparar datos para escribir
-            String line = buildErrorLine(transaccion, motivo, valorOriginal);
-
-            // Escribir línea al archivo
-            Files.write(errorFilePath, (line + System.lineSeparator()).getBytes(),
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-
-            errorCount.incrementAndGet();
-
-            log.debug("Error registrado en archivo: ID={}, Motivo={}, Valor={}, Total errores={}",
-                    transaccion.getId(), motivo, valorOriginal, errorCount.get());
-
-        } catch (IOException e) {
-            log.error("Error crítico al escribir transacción con error al archivo: {}", e.getMessage());
-            // NO lanzar excepción aquí para evitar detener el procesamiento
-            log.error("ADVERTENCIA: No se pudo registrar el error en archivo para transacción ID: {}",
-                    transaccion.getId());
-        }
+    // Registra una transacción con error en el archivo CSV
+    public void writeErrorTransaction(Transacciones transaccion, String motivo, String valorOriginal) {
+        // En lectura fusionada el reader valida los registros y el reintento de un chunk
+        // no los vuelve a leer, así que sus errores se publican de inmediato
+        sink.escribir(processorConfig.isLecturaFusionada(), transaccion.getPosicionOrigen(),
+                transaccion.getId() != null ? transaccion.getId().toString() : "N/A",
+                transaccion.getFecha() != null ? transaccion.getFecha().toString() : valorOriginal,
+                transaccion.getMonto() != null ? transaccion.getMonto().toString() : valorOriginal,
+                transaccion.getTipo() != null ? transaccion.getTipo() : valorOriginal,
+                motivo);
+
+        log.debug("Error registrado en archivo: ID={}, Motivo={}, Valor={}, Total errores={}",
+                transaccion.getId(), motivo, valorOriginal, sink.getCantidad());
     }
 
-    // Escribe una línea de error cuando no se puede crear la transacción
-    public synchronized void writeErrorLine(String id, String fecha, String monto, String tipo, String motivo) {
-        try {
-            // Escribir header si es la primera vez
-            if (!headerWritten.getAndSet(true)) {
-                writeHeader();
-            }
-
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            String line = String.format("%s,%s,%s,%s,%s,%s",
-                    escapeCsv(id != null ? id : "N/A"),
-                    escapeCsv(fecha != null ? fecha : "N/A"),
-                    escapeCsv(monto != null ? monto : "N/A"),
-                    escapeCsv(tipo != null ? tipo : "N/A"),
-                    escapeCsv(motivo),
-                    escapeCsv(timestamp));
-
-            Files.write(errorFilePath, (line + System.lineSeparator()).getBytes(),
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    // Registra una línea de error cuando no se puede crear la transacción
+    public void writeErrorLine(long posicion, String id, String fecha, String monto, String tipo, String motivo) {
+        sink.escribir(true, posicion,
+                id != null ? id : "N/A",
+                fecha != null ? fecha : "N/A",
+                monto != null ? monto : "N/A",
+                tipo != null ? tipo : "N/A",
+                motivo);
 
-            errorCount.incrementAndGet();
-
-            log.debug("Línea con error registrada: ID={}, Motivo={}, Total errores={}",
-                    id, motivo, errorCount.get());
-
-        } catch (IOException e) {
-            log.error("Error crítico al escribir línea con error al archivo: {}", e.getMessage());
-            // NO lanzar excepción aquí para evitar detener el procesamiento
-            log.error("ADVERTENCIA: No se pudo registrar el error en archivo para ID: {}", id);
-        }
+        log.debug("Línea con error registrada: ID={}, Motivo={}, Total errores={}", id, motivo, sink.getCantidad());
     }
 
-    private void writeHeader() throws IOException {
-        String header = "id,fecha_original,monto_original,tipo_original,motivo_error,timestamp_error";
-        Files.write(errorFilePath, (header + System.lineSeparator()).getBytes(),
-                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        log.info("Header del archivo de errores escrito correctamente");
+    // Los errores de un chunk se publican al confirmarse y se descartan si se revierte
+    @AfterChunk
+    public void confirmarErrores(ChunkContext chunkContext) {
+        sink.confirmar(chunkContext.getStepContext().getStepExecution());
     }
 
-    private String buildErrorLine(Transacciones transaccion, String motivo, String valorOriginal) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    @AfterChunkError
+    public void descartarErrores(ChunkContext chunkContext) {
+        sink.descartar(chunkContext.getStepContext().getStepExecution());
+    }
 
-        return String.format("%s,%s,%s,%s,%s,%s",
-                escapeCsv(transaccion.getId() != null ? transaccion.getId().toString() : "N/A"),
-                escapeCsv(transaccion.getFecha() != null ? transaccion.getFecha().toString() : valorOriginal),
-                escapeCsv(transaccion.getMonto() != null ? transaccion.getMonto().toString() : valorOriginal),
-                escapeCsv(transaccion.getTipo() != null ? transaccion.getTipo() : valorOriginal),
-                escapeCsv(motivo),
-                escapeCsv(timestamp));
+    // Al terminar el step se publican los errores registrados fuera de un chunk y se
+    // espera a que el escritor deje todo en el archivo
+    @AfterStep
+    public void escribirAlTerminar(StepExecution stepExecution) {
+        sink.confirmar(stepExecution);
+        sink.flush();
     }
 
-    // Escapa caracteres especiales para CSV
-    private String escapeCsv(String value) {
-        if (value == null) {
-            return "";
-        }
+    // Aplica la rotación configurada y, con el almacén de errores habilitado, cada
+    // error también se guarda indexado
+    @PostConstruct
+    public void configurarSink() {
+        sink.configurarRotacion(processorConfig.getTamanoMaximoSegmentoErrores(),
+                processorConfig.getRegistrosMaximosSegmentoErrores(), processorConfig.isComprimirArchivosErrores());
+        sink.setAlmacen(errorStores.transacciones());
+    }
 
-        // Si contiene coma, comillas o salto de línea, envolver en comillas
-        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
-            // Escapar comillas dobles duplicándolas
-            value = value.replace("\"", "\"\"");
-            return "\"" + value + "\"";
-        }
+    @PreDestroy
+    public void cerrar() {
+        sink.cerrar();
+    }
 
-        return value;
+    // Registra las métricas de la cola de errores
+    public void logQueueStats() {
+        sink.logEstadisticas();
     }
 
-    // Obtiene la ruta del archivo de errores
+    // Obtiene la ruta del archivo de errores, o del manifiesto de sus segmentos si se rotan
     public String getErrorFilePath() {
-        return errorFilePath.toAbsolutePath().toString();
+        return sink.getRuta().toAbsolutePath().toString();
     }
 
     // Obtiene el número de transacciones con error escritas
     public long getErrorCount() {
-        return errorCount.get();
+        return sink.getCantidad();
     }
 
     // Resetea el contador de errores
     public void resetErrorCount() {
-        errorCount.set(0);
-        headerWritten.set(false);
+        sink.reiniciar();
         log.info("Contadores de ErrorTransactionWriter reseteados");
     }
 
     // Verifica si el archivo de errores existe y tiene contenido
     public boolean hasErrors() {
-        return errorCount.get() > 0;
+        return sink.getCantidad() > 0;
     }
 }
\ No newline at end of file
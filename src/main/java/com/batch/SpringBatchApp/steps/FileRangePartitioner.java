@@ -0,0 +1,108 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Divide un archivo CSV en rangos de bytes alineados a inicio de línea, uno por
+// partición. Cada worker lee solo su rango con MappedCsvItemReader.setRango; los
+// archivos que no se pueden recorrer por bytes (por ejemplo dentro de un jar o
+// comprimidos) quedan en una sola partición.
+@Slf4j
+public class FileRangePartitioner implements Partitioner {
+
+    public static final String INICIO_KEY = "startOffset";
+    public static final String FIN_KEY = "endOffset";
+    public static final String INDICE_KEY = "partitionIndex";
+    public static final String ARCHIVO_KEY = "fileName";
+
+    // Bytes leídos de una vez al buscar el siguiente salto de línea
+    private static final int TAMANO_BUSQUEDA = 8192;
+
+    private final Resource resource;
+    private final String fileName;
+
+    public FileRangePartitioner(Resource resource, String fileName) {
+        this.resource = resource;
+        this.fileName = fileName;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> particiones = new LinkedHashMap<>();
+
+        try {
+            if (gridSize <= 1 || !resource.exists() || !resource.isFile()
+                    || CsvByteSource.esComprimido(fileName)) {
+                particiones.put(nombreParticion(0), crearContexto(0, 0, Long.MAX_VALUE));
+                log.info("Archivo {} procesado en una sola partición", fileName);
+                return particiones;
+            }
+
+            try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+                long tamano = channel.size();
+                long inicio = 0;
+                for (int i = 0; i < gridSize; i++) {
+                    long fin = i == gridSize - 1 ? tamano
+                            : Math.max(inicio, alinearALinea(channel, tamano * (i + 1) / gridSize, tamano));
+                    particiones.put(nombreParticion(i), crearContexto(i, inicio, fin));
+                    log.debug("Partición {} de {}: bytes [{}, {})", i, fileName, inicio, fin);
+                    inicio = fin;
+                }
+                log.info("Archivo {} ({} bytes) dividido en {} particiones", fileName, tamano, gridSize);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Error al particionar el archivo " + fileName, e);
+        }
+
+        return particiones;
+    }
+
+    // Retorna el inicio de la primera línea que comienza en la posición indicada o
+    // después de ella
+    private long alinearALinea(FileChannel channel, long posicion, long tamano) throws IOException {
+        if (posicion <= 0) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUSQUEDA);
+        long desde = posicion - 1;
+        while (desde < tamano) {
+            buffer.clear();
+            int leidos = channel.read(buffer, desde);
+            if (leidos <= 0) {
+                break;
+            }
+            for (int i = 0; i < leidos; i++) {
+                if (buffer.get(i) == '\n') {
+                    return desde + i + 1;
+                }
+            }
+            desde += leidos;
+        }
+        return tamano;
+    }
+
+    private ExecutionContext crearContexto(int indice, long inicio, long fin) {
+        ExecutionContext contexto = new ExecutionContext();
+        contexto.putInt(INDICE_KEY, indice);
+        contexto.putLong(INICIO_KEY, inicio);
+        contexto.putLong(FIN_KEY, fin);
+        contexto.putString(ARCHIVO_KEY, fileName);
+        return contexto;
+    }
+
+    private static String nombreParticion(int indice) {
+        return "particion" + indice;
+    }
+}
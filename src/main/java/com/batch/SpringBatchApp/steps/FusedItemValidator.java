@@ -0,0 +1,12 @@
+package com.batch.SpringBatchApp.steps;
+
+// Validación que el reader aplica a cada entidad mapeada en el modo de lectura
+// fusionada, en lugar de pasarla por un ItemProcessor
+@FunctionalInterface
+public interface FusedItemValidator<T> {
+
+    // Valida y normaliza la entidad sobre el mismo objeto. Retorna false si la rechaza;
+    // en ese caso el rechazo ya quedó registrado en el archivo de errores
+    boolean validar(T item);
+
+}
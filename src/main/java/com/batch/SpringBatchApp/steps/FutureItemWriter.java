@@ -0,0 +1,84 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Writer que espera los resultados de ConcurrentItemProcessor en el orden del chunk,
+// descarta los filtrados (null) y escribe el resto con el writer delegado. Si el
+// processor lanzó una excepción se relanza la original para que la evalúe la
+// política de skip del step.
+@Slf4j
+public class FutureItemWriter<T> implements ItemStreamWriter<Future<T>> {
+
+    private final ItemWriter<T> delegate;
+    private final ConcurrentItemProcessor<?, T> processor;
+
+    // Tiempo que el writer esperó resultados pendientes
+    private final LongAdder esperaNanos = new LongAdder();
+    private long inicio;
+
+    public FutureItemWriter(ItemWriter<T> delegate, ConcurrentItemProcessor<?, T> processor) {
+        Assert.notNull(delegate, "Se requiere un writer delegado");
+        this.delegate = delegate;
+        this.processor = processor;
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends Future<T>> chunk) throws Exception {
+        Chunk<T> resultados = new Chunk<>();
+        long inicioEspera = System.nanoTime();
+        for (Future<T> futuro : chunk) {
+            T item = obtener(futuro);
+            if (item != null) {
+                resultados.add(item);
+            }
+        }
+        esperaNanos.add(System.nanoTime() - inicioEspera);
+
+        if (!resultados.isEmpty()) {
+            delegate.write(resultados);
+        }
+    }
+
+    private T obtener(Future<T> futuro) throws Exception {
+        try {
+            return futuro.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    public long getEsperaMs() {
+        return TimeUnit.NANOSECONDS.toMillis(esperaNanos.sum());
+    }
+
+    @Override
+    public void open(@NonNull ExecutionContext executionContext) throws ItemStreamException {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (processor != null && processor.getRegistrosProcesados() > 0) {
+            log.info("Procesamiento paralelo finalizado: {} registros, {} ms de proceso acumulado en los hilos, "
+                    + "{} ms de espera del writer, {} ms del step",
+                    processor.getRegistrosProcesados(), processor.getProcesoAcumuladoMs(), getEsperaMs(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        }
+    }
+}
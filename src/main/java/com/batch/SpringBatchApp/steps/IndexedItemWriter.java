@@ -0,0 +1,88 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Writer que consulta el índice de ids cargados antes de escribir: los registros
+// nuevos van al writer delegado y los ya cargados en ejecuciones anteriores se
+// omiten o, si hay actualizador, se actualizan sin consultar la base de datos. Los
+// ids nuevos se registran en el índice recién cuando la transacción del chunk se
+// confirma
+@Slf4j
+public class IndexedItemWriter<T> implements ItemWriter<T> {
+
+    private final LoadedIdIndex indice;
+    private final ToLongFunction<T> id;
+    private final ItemWriter<T> delegate;
+    @Nullable
+    private final ItemWriter<T> actualizador;
+
+    public IndexedItemWriter(LoadedIdIndex indice, ToLongFunction<T> id, ItemWriter<T> delegate,
+            @Nullable ItemWriter<T> actualizador) {
+        Assert.notNull(indice, "Se requiere un índice de ids");
+        Assert.notNull(id, "Se requiere la función de id");
+        Assert.notNull(delegate, "Se requiere un writer delegado");
+        this.indice = indice;
+        this.id = id;
+        this.delegate = delegate;
+        this.actualizador = actualizador;
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends T> chunk) throws Exception {
+        List<T> nuevos = new ArrayList<>(chunk.size());
+        List<T> cargados = new ArrayList<>();
+        long[] idsNuevos = new long[chunk.size()];
+        int cantidadNuevos = 0;
+        for (T item : chunk) {
+            long valor = id.applyAsLong(item);
+            if (indice.contiene(valor)) {
+                cargados.add(item);
+            } else {
+                nuevos.add(item);
+                idsNuevos[cantidadNuevos++] = valor;
+            }
+        }
+
+        if (!nuevos.isEmpty()) {
+            delegate.write(new Chunk<>(nuevos));
+        }
+        if (!cargados.isEmpty()) {
+            if (actualizador != null) {
+                actualizador.write(new Chunk<>(cargados));
+            } else {
+                log.info("{} registros omitidos: el índice de {} los registra como ya cargados", cargados.size(),
+                        indice.getEntidad());
+            }
+        }
+
+        registrarAlConfirmar(idsNuevos, cantidadNuevos);
+    }
+
+    private void registrarAlConfirmar(long[] ids, int cantidad) {
+        if (cantidad == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            indice.registrar(ids, cantidad);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                indice.registrar(ids, cantidad);
+            }
+        });
+    }
+}
@@ -1,10 +1,16 @@
 package com.batch.SpringBatchApp.steps;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
@@ -13,19 +19,26 @@ import org.springframework.stereotype.Component;
 
 import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.Intereses;
+import com.batch.SpringBatchApp.utils.ScaledAmount;
+import com.batch.SpringBatchApp.utils.TextNormalizer;
+import com.batch.SpringBatchApp.utils.TipoCanonico;
+import com.batch.SpringBatchApp.utils.TypeDictionary;
+import com.batch.SpringBatchApp.utils.ValidationPolicies;
+import com.batch.SpringBatchApp.utils.ValidationPolicy;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
-public class InteresesItemProcessor implements ItemProcessor<Intereses, Intereses> {
+public class InteresesItemProcessor
+        implements ItemProcessor<Intereses, Intereses>, BatchItemProcessor<Intereses, Intereses>,
+        FusedItemValidator<Intereses> {
 
-    // Tipos de cuenta válidos para intereses
-    private static final List<String> TIPOS_VALIDOS = Arrays.asList("AHORRO", "PRESTAMO", "HIPOTECA", "CREDITO");
+    // Regla de tipo válido, que se registra como advertencia al rechazar
+    private static final String REGLA_TIPO = "tipoValido";
 
-    // Tipos que deben ser enviados al archivo de errores
-    private static final List<String> TIPOS_INVALIDOS = Arrays.asList("-1", "INVALID", "DESCONOCIDO", "UNKNOWN",
-            "ERROR");
+    // Rechazo por id ya aceptado en la ejecución (con rechazarDuplicados)
+    private static final String REGLA_DUPLICADO = "idDuplicado";
 
     @Autowired
     private ProcessorConfig processorConfig;
@@ -33,6 +46,20 @@ public class InteresesItemProcessor implements ItemProcessor<Intereses, Interese
     @Autowired
     private ErrorInteresesWriter errorWriter;
 
+    // Tipos de cuenta válidos para intereses
+    @Autowired
+    private TypeDictionary typeDictionary;
+
+    // Límites de validación de cada ejecución del job
+    @Autowired
+    private ValidationPolicies politicas;
+
+    // Rechazos por regla; las reglas de cada ejecución se guardan en sus políticas
+    private final RuleChain.Contadores rechazosPorRegla = new RuleChain.Contadores();
+
+    // Ids aceptados en la ejecución, para rechazar duplicados
+    private final DuplicateIdFilter duplicados = new DuplicateIdFilter();
+
     // Contadores para estadísticas
     private final AtomicLong processedCount = new AtomicLong(0);
     private final AtomicLong validCount = new AtomicLong(0);
@@ -42,235 +69,240 @@ public class InteresesItemProcessor implements ItemProcessor<Intereses, Interese
     @Override
     @Nullable
     public Intereses process(@NonNull Intereses item) throws Exception {
-        processedCount.incrementAndGet();
+        return procesarLote(List.of(item), false, false).get(0); // null filtra el registro si se rechazó
+    }
 
-        log.debug("Procesando registro de interés: cuenta_id={}, tipo={}", item.getCuenta_id(), item.getTipo());
+    // Lectura fusionada: el reader pasa cada registro recién mapeado, que se valida con
+    // las mismas reglas y se normaliza sobre el mismo objeto
+    @Override
+    public boolean validar(Intereses item) {
+        return procesarLote(List.of(item), true, true).get(0) != null;
+    }
 
-        // Verificar si es un marcador de error del reader
-        if (isErrorMarker(item)) {
-            log.debug("Marcador de error detectado, saltando: cuenta_id={}", item.getCuenta_id());
-            skippedCount.incrementAndGet();
-            return null; // Filtrar - no procesar más
-        }
+    // Procesa un chunk completo: salta los marcadores de error, valida el resto en lote
+    // y retorna, en el orden del chunk, la versión procesada de cada registro o null si
+    // se rechazó
+    @Override
+    public List<Intereses> procesarLote(List<? extends Intereses> items) {
+        return procesarLote(items, false, true);
+    }
 
-        try {
-            // Validación de campos obligatorios
-            if (!validarCamposObligatorios(item)) {
-                errorWriter.writeErrorInteres(item, "Campos obligatorios faltantes", "N/A");
-                errorCount.incrementAndGet();
-                return null;
+    // Con idsConfirmados los ids aceptados no se liberan si el chunk se revierte: la
+    // lectura fusionada y BatchChunkProcessor no vuelven a validar los registros en el
+    // reintento
+    private List<Intereses> procesarLote(List<? extends Intereses> items, boolean enLugar,
+            boolean idsConfirmados) {
+        processedCount.addAndGet(items.size());
+
+        List<Intereses> candidatos = new ArrayList<>(items.size());
+        int[] indices = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            Intereses item = items.get(i);
+            log.debug("Procesando registro de interés: cuenta_id={}, tipo={}", item.getCuenta_id(), item.getTipo());
+
+            // Verificar si es un marcador de error del reader
+            if (isErrorMarker(item)) {
+                log.debug("Marcador de error detectado, saltando: cuenta_id={}", item.getCuenta_id());
+                skippedCount.incrementAndGet();
+            } else {
+                indices[candidatos.size()] = i;
+                candidatos.add(item);
             }
+        }
 
-            // Validación de cuenta_id
-            if (!validarCuentaId(item)) {
-                errorWriter.writeErrorInteres(item, "cuenta_id inválido",
-                        item.getCuenta_id() != null ? item.getCuenta_id().toString() : "null");
-                errorCount.incrementAndGet();
-                return null;
+        RuleChain.Lote<Intereses> lote = validarLote(candidatos);
+        List<Intereses> procesados = Arrays.asList(new Intereses[items.size()]);
+        for (int i = 0; i < candidatos.size(); i++) {
+            Intereses item = candidatos.get(i);
+            TipoCanonico tipoNormalizado = revisar(item, lote, i);
+            if (tipoNormalizado != null && !esDuplicado(item, idsConfirmados)) {
+                Intereses procesado = normalizar(item, enLugar ? item : new Intereses(), tipoNormalizado);
+                registrarValido(procesado);
+                procesados.set(indices[i], procesado);
             }
+        }
+        return procesados;
+    }
 
-            // Validación de nombre
-            if (!validarNombre(item)) {
-                errorWriter.writeErrorInteres(item, "Nombre inválido", item.getNombre());
-                errorCount.incrementAndGet();
-                return null;
-            }
+    // Valida los candidatos en lote; si alguna regla lanza una excepción retorna null
+    // para que cada registro se valide por separado
+    @Nullable
+    private RuleChain.Lote<Intereses> validarLote(List<Intereses> candidatos) {
+        try {
+            return getReglas().validarLote(candidatos);
+        } catch (RuntimeException e) {
+            log.warn("Error en la validación por lote, se valida cada registro por separado: {}",
+                    e.getMessage());
+            return null;
+        }
+    }
 
-            // Validación de saldo
-            if (!validarSaldo(item)) {
-                errorWriter.writeErrorInteres(item, "Saldo inválido",
-                        item.getSaldo() != null ? item.getSaldo().toString() : "null");
-                errorCount.incrementAndGet();
-                return null;
-            }
+    // Con rechazarDuplicados, rechaza el registro si su id ya se aceptó en la ejecución.
+    // Solo se registran ids de registros que cumplen las reglas
+    private boolean esDuplicado(Intereses item, boolean idsConfirmados) {
+        if (!processorConfig.isRechazarDuplicados() || duplicados.registrar(item.getCuenta_id(), idsConfirmados)) {
+            return false;
+        }
+        log.debug("Registro de interés rechazado por id duplicado: cuenta_id={}", item.getCuenta_id());
+        rechazosPorRegla.sumar(REGLA_DUPLICADO);
+        escribirError(item, "Registro duplicado", String.valueOf(item.getCuenta_id()));
+        errorCount.incrementAndGet();
+        return true;
+    }
 
-            // Validación de edad
-            if (!validarEdad(item)) {
-                errorWriter.writeErrorInteres(item, "Edad inválida", String.valueOf(item.getEdad()));
-                errorCount.incrementAndGet();
-                return null;
-            }
+    // Al confirmarse el chunk sus ids quedan registrados; si se revierte se liberan
+    // para que el reintento no los rechace como duplicados
+    @AfterChunk
+    public void confirmarIds(ChunkContext chunkContext) {
+        duplicados.confirmar(chunkContext.getStepContext().getStepExecution());
+    }
 
-            // Validación crítica de tipo - RECHAZAR tipos inválidos
-            String tipoNormalizado = normalizarTipo(item.getTipo());
-            if (!TIPOS_VALIDOS.contains(tipoNormalizado)) {
-                log.warn(
-                        "Registro rechazado por tipo inválido: cuenta_id={}, Tipo original='{}', Tipo normalizado='{}'",
-                        item.getCuenta_id(), item.getTipo(), tipoNormalizado);
-                errorWriter.writeErrorInteres(item, "Tipo de cuenta no válido", item.getTipo());
+    @AfterChunkError
+    public void liberarIds(ChunkContext chunkContext) {
+        duplicados.liberar(chunkContext.getStepContext().getStepExecution());
+    }
+
+    // Registra el rechazo del registro y retorna null, o retorna su tipo normalizado si
+    // cumple todas las reglas. Sin lote se validan aquí las reglas
+    private TipoCanonico revisar(Intereses item, @Nullable RuleChain.Lote<Intereses> lote, int indice) {
+        try {
+            ValidationRule<Intereses> rechazo = lote != null ? lote.getRechazo(indice) : getReglas().validar(item);
+            if (rechazo != null) {
+                if (REGLA_TIPO.equals(rechazo.nombre())) {
+                    log.warn(
+                            "Registro rechazado por tipo inválido: cuenta_id={}, Tipo original='{}'",
+                            item.getCuenta_id(), item.getTipo());
+                } else {
+                    log.debug("Registro rechazado por la regla {}: cuenta_id={}", rechazo.nombre(),
+                            item.getCuenta_id());
+                }
+                escribirError(item, rechazo.motivo(), rechazo.valorOriginal().apply(item));
                 errorCount.incrementAndGet();
                 return null;
             }
 
-            // Si llegamos aquí, el registro es válido - crear versión procesada
-            Intereses interesProcesado = crearInteresProcesado(item, tipoNormalizado);
-            validCount.incrementAndGet();
-
-            log.info("Registro de interés procesado exitosamente: cuenta_id={}, nombre={}, saldo={}, edad={}, tipo={}",
-                    interesProcesado.getCuenta_id(), interesProcesado.getNombre(),
-                    interesProcesado.getSaldo(), interesProcesado.getEdad(), interesProcesado.getTipo());
-
-            return interesProcesado;
+            return typeDictionary.intereses().buscar(item.getTipo());
 
         } catch (Exception e) {
             log.error("Error inesperado al procesar registro de interés cuenta_id={}: {}", item.getCuenta_id(),
                     e.getMessage(), e);
-            errorWriter.writeErrorInteres(item, "Error de procesamiento: " + e.getMessage(), "N/A");
+            escribirError(item, "Error de procesamiento: " + e.getMessage(), "N/A");
             errorCount.incrementAndGet();
             return null; // Filtrar en lugar de lanzar excepción
         }
     }
 
+    private void registrarValido(Intereses procesado) {
+        validCount.incrementAndGet();
+        log.info("Registro de interés procesado exitosamente: cuenta_id={}, nombre={}, saldo={}, edad={}, tipo={}",
+                procesado.getCuenta_id(), procesado.getNombre(), saldoComoTexto(procesado), procesado.getEdad(),
+                procesado.getTipo());
+    }
+
     // Verifica si el registro es un marcador de error del reader
     private boolean isErrorMarker(Intereses item) {
         return item.getTipo() != null && item.getTipo().startsWith("__ERROR_MARKER__");
     }
 
-    private Intereses crearInteresProcesado(Intereses original, String tipoNormalizado) {
-        Intereses procesado = new Intereses();
+    // Copia los campos del registro original al procesado aplicando las
+    // transformaciones; ambos pueden ser el mismo objeto
+    private Intereses normalizar(Intereses original, Intereses procesado, TipoCanonico tipoNormalizado) {
         procesado.setCuenta_id(original.getCuenta_id());
         procesado.setNombre(normalizarNombre(original.getNombre()));
         procesado.setEdad(original.getEdad());
-        procesado.setTipo(tipoNormalizado);
+        procesado.setTipo(tipoNormalizado.name());
 
         // Aplicar transformaciones al saldo
-        BigDecimal saldoTransformado = transformarSaldo(original.getSaldo());
-        procesado.setSaldo(saldoTransformado);
+        if (processorConfig.isMontosPuntoFijo()) {
+            procesado.setSaldoEscalado(transformarSaldoEscalado(original.getSaldoEscalado()));
+        } else {
+            BigDecimal saldoTransformado = transformarSaldo(original.getSaldo());
+            procesado.setSaldo(saldoTransformado);
+        }
 
         return procesado;
     }
 
-    private boolean validarCamposObligatorios(Intereses item) {
-        if (item.getCuenta_id() == null || item.getCuenta_id() <= 0) {
-            log.debug("cuenta_id inválido: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (item.getNombre() == null || item.getNombre().trim().isEmpty()) {
-            log.debug("Nombre nulo o vacío para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (item.getSaldo() == null) {
-            log.debug("Saldo nulo para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (item.getEdad() < 0) {
-            log.debug("Edad negativa para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (item.getTipo() == null || item.getTipo().trim().isEmpty()) {
-            log.debug("Tipo nulo o vacío para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        return true;
+    // Compila las reglas para la ejecución del step que comienza
+    @BeforeStep
+    public void compilarReglas(StepExecution stepExecution) {
+        RuleChain<Intereses> reglas = politicas.compilado(stepExecution, this, this::compilarReglas);
+        log.debug("Reglas de intereses compiladas: {}", reglas.getNombres());
     }
 
-    private boolean validarCuentaId(Intereses item) {
-        Long cuentaId = item.getCuenta_id();
-
-        if (cuentaId == null || cuentaId <= 0) {
-            log.debug("cuenta_id debe ser un número positivo: {}", cuentaId);
-            return false;
-        }
-
-        // Validar rango razonable para IDs de cuenta
-        if (cuentaId > 999999999L) {
-            log.debug("cuenta_id fuera de rango válido: {}", cuentaId);
-            return false;
-        }
-
-        return true;
+    // Reglas de la ejecución a la que pertenece el step del hilo actual
+    private RuleChain<Intereses> getReglas() {
+        return politicas.compiladoVigente(this, this::compilarReglas);
     }
 
-    private boolean validarNombre(Intereses item) {
-        String nombre = item.getNombre();
-
-        if (nombre == null || nombre.trim().isEmpty()) {
-            log.debug("Nombre vacío para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        String nombreLimpio = nombre.trim();
-
-        // Validar longitud
-        if (nombreLimpio.length() < 2) {
-            log.debug("Nombre muy corto para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (nombreLimpio.length() > 100) {
-            log.debug("Nombre muy largo para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        // Validar que contenga al menos una letra
-        if (!nombreLimpio.matches(".*[a-zA-ZÀ-ÿ].*")) {
-            log.debug("Nombre debe contener al menos una letra para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        return true;
+    // Arma la cadena de reglas con los límites ya calculados de la política de la ejecución
+    private RuleChain<Intereses> compilarReglas(ValidationPolicy politica) {
+        boolean puntoFijo = processorConfig.isMontosPuntoFijo();
+        long saldoMaximoEscalado = politica.getMontoMaximoEscalado();
+        TypeDictionary.Diccionario tipos = typeDictionary.intereses();
+
+        return RuleChain.<Intereses>builder(rechazosPorRegla)
+                // Campos obligatorios
+                .regla("cuentaIdPositivo", 0, i -> i.getCuenta_id() != null && i.getCuenta_id() > 0,
+                        "Campos obligatorios faltantes", i -> "N/A")
+                .reglaSi(!puntoFijo, "saldoPresente", 0, i -> i.getSaldo() != null,
+                        "Campos obligatorios faltantes", i -> "N/A")
+                .reglaRango("edadNoNegativa", 0, Intereses::getEdad, 0, Long.MAX_VALUE,
+                        "Campos obligatorios faltantes", i -> "N/A")
+                .regla("nombrePresente", 1, i -> !esVacio(i.getNombre()),
+                        "Campos obligatorios faltantes", i -> "N/A")
+                .regla("tipoPresente", 1, i -> !esVacio(i.getTipo()),
+                        "Campos obligatorios faltantes", i -> "N/A")
+                // Rango razonable para IDs de cuenta
+                .reglaRango("cuentaIdEnRango", 0, Intereses::getCuenta_id, Long.MIN_VALUE, 999999999L,
+                        "cuenta_id inválido", i -> String.valueOf(i.getCuenta_id()))
+                // Rango de edad razonable
+                .reglaRango("edadMaxima", 0, Intereses::getEdad, Long.MIN_VALUE, 150,
+                        "Edad inválida", i -> String.valueOf(i.getEdad()))
+                // Nombre con longitud válida y al menos una letra
+                .regla("nombreLongitud", 2, i -> longitudNombreValida(i.getNombre()),
+                        "Nombre inválido", Intereses::getNombre)
+                .regla("nombreConLetra", 2, i -> contieneLetra(i.getNombre()),
+                        "Nombre inválido", Intereses::getNombre)
+                // Saldo dentro del límite (los saldos cero se permiten)
+                .reglaRangoSi(puntoFijo, "saldoMaximo", 3, Intereses::getSaldoEscalado,
+                        -saldoMaximoEscalado, saldoMaximoEscalado, "Saldo inválido", this::saldoComoTexto)
+                .reglaSi(!puntoFijo, "saldoMaximo", 3,
+                        i -> politica.esMontoValido(i.getSaldo()),
+                        "Saldo inválido", this::saldoComoTexto)
+                // Tipo reconocido por el diccionario de cuentas de interés
+                .regla(REGLA_TIPO, 5, i -> tipos.buscar(i.getTipo()) != null,
+                        "Tipo de cuenta no válido", Intereses::getTipo)
+                .build();
     }
 
-    private boolean validarSaldo(Intereses item) {
-        BigDecimal saldo = item.getSaldo();
-
-        // Validar rangos máximos
-        BigDecimal saldoMaximo = new BigDecimal(processorConfig.getMontoMaximo());
-        if (saldo.abs().compareTo(saldoMaximo) > 0) {
-            log.debug("Saldo excede el límite permitido: {} para cuenta_id: {}", saldo, item.getCuenta_id());
-            return false;
-        }
-
-        // Permitir saldos cero para cuentas de interés (pueden estar inactivas)
-        return true;
+    private static boolean esVacio(String valor) {
+        return TextNormalizer.esVacio(valor);
     }
 
-    private boolean validarEdad(Intereses item) {
-        int edad = item.getEdad();
-
-        // Validar rango de edad razonable
-        if (edad < 0) {
-            log.debug("Edad no puede ser negativa para cuenta_id: {}", item.getCuenta_id());
-            return false;
-        }
-
-        if (edad > 150) {
-            log.debug("Edad muy alta para cuenta_id: {}", item.getCuenta_id());
+    private static boolean longitudNombreValida(String nombre) {
+        if (nombre == null) {
             return false;
         }
+        int longitud = TextNormalizer.longitudRecortada(nombre);
+        return longitud >= 2 && longitud <= 100;
+    }
 
-        return true;
+    private static boolean contieneLetra(String nombre) {
+        return TextNormalizer.contieneLetra(nombre);
     }
 
+    // Capitalizar primera letra de cada palabra; un nombre ya normalizado se retorna tal cual
     private String normalizarNombre(String nombre) {
-        if (nombre == null) {
-            return null;
-        }
-
-        String nombreLimpio = nombre.trim();
-
-        // Capitalizar primera letra de cada palabra
-        String[] palabras = nombreLimpio.toLowerCase().split("\\s+");
-        StringBuilder resultado = new StringBuilder();
+        return TextNormalizer.capitalizarPalabras(nombre);
+    }
 
-        for (int i = 0; i < palabras.length; i++) {
-            if (i > 0) {
-                resultado.append(" ");
-            }
-            if (palabras[i].length() > 0) {
-                resultado.append(Character.toUpperCase(palabras[i].charAt(0)));
-                if (palabras[i].length() > 1) {
-                    resultado.append(palabras[i].substring(1));
-                }
-            }
+    private long transformarSaldoEscalado(long saldo) {
+        if (processorConfig.isConvertirNegativos() && saldo < 0) {
+            log.debug("Convirtiendo saldo negativo {} a positivo", saldo);
+            return -saldo;
         }
-
-        return resultado.toString();
+        return saldo;
     }
 
     private BigDecimal transformarSaldo(BigDecimal saldo) {
@@ -281,53 +313,20 @@ public class InteresesItemProcessor implements ItemProcessor<Intereses, Interese
         return saldo;
     }
 
-    private String normalizarTipo(String tipo) {
-        if (tipo == null) {
-            return null;
-        }
-
-        String tipoLimpio = tipo.trim().toUpperCase();
-
-        // Verificar si es un tipo explícitamente inválido
-        if (TIPOS_INVALIDOS.contains(tipoLimpio)) {
-            log.debug("Tipo identificado como inválido: {}", tipo);
-            return tipoLimpio; // Retornar para que sea rechazado posteriormente
+    // Texto del saldo para logs y archivo de errores, en cualquiera de los dos modos
+    private String saldoComoTexto(Intereses item) {
+        if (processorConfig.isMontosPuntoFijo()) {
+            return ScaledAmount.toString(item.getSaldoEscalado());
         }
+        return item.getSaldo() != null ? item.getSaldo().toString() : "null";
+    }
 
-        // Mapear tipos comunes a los estándar
-        switch (tipoLimpio) {
-            case "AHORRO":
-            case "SAVINGS":
-            case "SAV":
-            case "CUENTA_AHORRO":
-            case "CUENTAAHORRO":
-                return "AHORRO";
-
-            case "PRESTAMO":
-            case "LOAN":
-            case "CREDITO":
-            case "CREDIT":
-            case "CREDITO_PERSONAL":
-            case "CREDITOPERSONAL":
-                return "PRESTAMO";
-
-            case "HIPOTECA":
-            case "MORTGAGE":
-            case "HIP":
-            case "CREDITO_HIPOTECARIO":
-            case "CREDITOHIPOTECARIO":
-                return "HIPOTECA";
-
-            case "CORRIENTE":
-            case "CHECKING":
-            case "CURRENT":
-            case "CHK":
-                return "CREDITO"; // Mapear cuenta corriente a crédito
-
-            default:
-                log.debug("Tipo no reconocido, será rechazado: {}", tipo);
-                return tipoLimpio; // Retornar el tipo sin cambios para que sea rechazado
+    // Registra el error; en modo punto fijo el BigDecimal se completa solo aquí
+    private void escribirError(Intereses item, String motivo, String valorOriginal) {
+        if (processorConfig.isMontosPuntoFijo() && item.getSaldo() == null) {
+            item.setSaldo(ScaledAmount.toBigDecimal(item.getSaldoEscalado()));
         }
+        errorWriter.writeErrorInteres(item, motivo, valorOriginal);
     }
 
     // Obtiene estadísticas del procesamiento
@@ -338,8 +337,13 @@ public class InteresesItemProcessor implements ItemProcessor<Intereses, Interese
         log.info("Registros con errores filtrados: {}", errorCount.get());
         log.info("Marcadores de error saltados: {}", skippedCount.get());
         log.info("Archivo de errores: {}", errorWriter.getErrorFilePath());
-        log.info("Tipos válidos aceptados: {}", TIPOS_VALIDOS);
-        log.info("Tipos inválidos rechazados automáticamente: {}", TIPOS_INVALIDOS);
+        errorWriter.logQueueStats();
+        log.info("Tipos válidos aceptados: {}", typeDictionary.intereses().getAlias());
+        log.info("Rechazos por regla: {}", rechazosPorRegla.getRechazos());
+        if (processorConfig.isRechazarDuplicados()) {
+            log.info("Ids registrados para duplicados: {} ({} KB)", duplicados.getCantidad(),
+                    duplicados.getBytesReservados() / 1024);
+        }
     }
 
     // Resetea los contadores para una nueva ejecución
@@ -348,5 +352,7 @@ public class InteresesItemProcessor implements ItemProcessor<Intereses, Interese
         validCount.set(0);
         errorCount.set(0);
         skippedCount.set(0);
+        rechazosPorRegla.reset();
+        duplicados.reiniciar(processorConfig.isRechazarDuplicados() ? processorConfig.getIdsEsperados() : 0);
     }
 }
\ No newline at end of file
@@ -1,200 +1,251 @@
 package com.batch.SpringBatchApp.steps;
 
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-
-import org.springframework.batch.item.file.FlatFileItemReader;
-import org.springframework.batch.item.file.LineMapper;
-import org.springframework.batch.item.file.mapping.DefaultLineMapper;
-import org.springframework.batch.item.file.mapping.FieldSetMapper;
-import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
-import org.springframework.batch.item.file.transform.FieldSet;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 
+import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.Intereses;
+import com.batch.SpringBatchApp.utils.ScaledAmount;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@StepScope
 @Slf4j
-public class InteresesItemReader extends FlatFileItemReader<Intereses> {
+public class InteresesItemReader extends MappedCsvItemReader<Intereses> {
+
+    // Posición de cada columna en el archivo
+    private static final int CUENTA_ID = 0;
+    private static final int NOMBRE = 1;
+    private static final int SALDO = 2;
+    private static final int EDAD = 3;
+    private static final int TIPO = 4;
+
+    // Formato de los intereses en la cache de parseo
+    private static final ParsedRowCodec<Intereses> CODEC = new ParsedRowCodec<Intereses>() {
+        @Override
+        public void escribir(Intereses item, DataOutput out) throws IOException {
+            ParsedRowCodec.escribirLong(out, item.getCuenta_id());
+            ParsedRowCodec.escribirTexto(out, item.getNombre());
+            ParsedRowCodec.escribirDecimal(out, item.getSaldo());
+            out.writeLong(item.getSaldoEscalado());
+            out.writeInt(item.getEdad());
+            ParsedRowCodec.escribirTexto(out, item.getTipo());
+        }
+
+        @Override
+        public Intereses leer(DataInput in) throws IOException {
+            Intereses item = new Intereses();
+            item.setCuenta_id(ParsedRowCodec.leerLong(in));
+            item.setNombre(ParsedRowCodec.leerTexto(in));
+            item.setSaldo(ParsedRowCodec.leerDecimal(in));
+            item.setSaldoEscalado(in.readLong());
+            item.setEdad(in.readInt());
+            item.setTipo(ParsedRowCodec.leerTexto(in));
+            return item;
+        }
+    };
+
+    @Autowired
+    private ProcessorConfig processorConfig;
 
     @Autowired
     private ErrorInteresesWriter errorWriter;
 
-    public InteresesItemReader() {
+    @Autowired
+    private InteresesItemProcessor interesesItemProcessor;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    // Archivo (ruta del classpath o URL file:) y rango de bytes asignados por
+    // FileRangePartitioner a esta partición
+    @Value("#{stepExecutionContext['fileName']}")
+    private String archivoParticion;
+
+    @Value("#{stepExecutionContext['startOffset']}")
+    private Long inicioParticion;
+
+    @Value("#{stepExecutionContext['endOffset']}")
+    private Long finParticion;
+
+    // Archivo y columnas por defecto. Se configuran después de construir el reader para
+    // no invocar métodos sobrescribibles desde el constructor
+    @PostConstruct
+    public void configurarArchivo() {
         setName("readIntereses");
         setResource(new ClassPathResource("intereses.csv"));
         setLinesToSkip(1); // Saltar header
-        setEncoding(StandardCharsets.UTF_8.name());
+        setNames("cuenta_id", "nombre", "saldo", "edad", "tipo");
     }
 
     @Autowired
     public void configureAfterPropertiesSet() {
-        setLineMapper(getLineMapper());
+        setRecordMapper(getRecordMapper());
     }
 
-    private LineMapper<Intereses> getLineMapper() {
-        DefaultLineMapper<Intereses> lineMapper = new DefaultLineMapper<>();
-
-        // Configurar tokenizer
-        DelimitedLineTokenizer lineTokenizer = new DelimitedLineTokenizer();
-        lineTokenizer.setNames("cuenta_id", "nombre", "saldo", "edad", "tipo");
-        lineTokenizer.setDelimiter(",");
-
-        // Configurar mapper personalizado que NO lanza excepciones
-        FieldSetMapper<Intereses> fieldSetMapper = new FieldSetMapper<Intereses>() {
+    private CsvRecordMapper<Intereses> getRecordMapper() {
+        // Configurar mapper personalizado que NO lanza excepciones. Los campos se
+        // parsean directamente del registro; los String originales solo se
+        // construyen cuando hay que registrar un error
+        CsvRecordMapper<Intereses> recordMapper = new CsvRecordMapper<Intereses>() {
             @Override
-            public Intereses mapFieldSet(FieldSet fieldSet) {
-                String cuentaIdStr = null;
-                String nombreStr = null;
-                String saldoStr = null;
-                String edadStr = null;
-                String tipoStr = null;
-
+            public Intereses mapRecord(CsvRecord record) {
                 try {
-                    // Extraer valores del FieldSet
-                    cuentaIdStr = fieldSet.readString("cuenta_id");
-                    nombreStr = fieldSet.readString("nombre");
-                    saldoStr = fieldSet.readString("saldo");
-                    edadStr = fieldSet.readString("edad");
-                    tipoStr = fieldSet.readString("tipo");
-
                     // Crear registro de interés
                     Intereses interes = new Intereses();
 
                     // Procesar cuenta_id
-                    if (cuentaIdStr == null || cuentaIdStr.trim().isEmpty()) {
+                    if (record.isEmpty(CUENTA_ID)) {
                         log.warn("cuenta_id vacío o nulo en línea");
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                "cuenta_id vacío o nulo");
+                        writeErrorLine(record, "cuenta_id vacío o nulo");
                         return createErrorMarker(-1L, "cuenta_id inválido");
                     }
 
-                    Long cuentaId;
+                    long cuentaId;
                     try {
-                        cuentaId = Long.parseLong(cuentaIdStr.trim());
+                        cuentaId = record.readLong(CUENTA_ID);
                         if (cuentaId <= 0) {
-                            log.warn("cuenta_id debe ser positivo: '{}'", cuentaIdStr);
-                            errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                    "cuenta_id debe ser positivo");
+                            log.warn("cuenta_id debe ser positivo: '{}'", record.readString(CUENTA_ID));
+                            writeErrorLine(record, "cuenta_id debe ser positivo");
                             return createErrorMarker(-1L, "cuenta_id inválido");
                         }
                         interes.setCuenta_id(cuentaId);
                     } catch (NumberFormatException e) {
-                        log.warn("cuenta_id con formato inválido: '{}'", cuentaIdStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                "Formato de cuenta_id inválido");
+                        log.warn("cuenta_id con formato inválido: '{}'", record.readString(CUENTA_ID));
+                        writeErrorLine(record, "Formato de cuenta_id inválido");
                         return createErrorMarker(-1L, "Formato de cuenta_id inválido");
                     }
 
                     // Procesar nombre
-                    if (nombreStr == null || nombreStr.trim().isEmpty()) {
+                    if (record.isEmpty(NOMBRE)) {
                         log.warn("Nombre vacío para cuenta_id {}", cuentaId);
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr, "Nombre vacío");
+                        writeErrorLine(record, "Nombre vacío");
                         return createErrorMarker(cuentaId, "Nombre vacío");
                     }
 
                     // Validar nombre - solo letras, espacios y caracteres básicos
-                    String nombreLimpio = nombreStr.trim();
+                    String nombreLimpio = record.readString(NOMBRE);
                     if (nombreLimpio.length() < 2) {
-                        log.warn("Nombre muy corto para cuenta_id {}: '{}'", cuentaId, nombreStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                "Nombre muy corto (mínimo 2 caracteres)");
+                        log.warn("Nombre muy corto para cuenta_id {}: '{}'", cuentaId, nombreLimpio);
+                        writeErrorLine(record, "Nombre muy corto (mínimo 2 caracteres)");
                         return createErrorMarker(cuentaId, "Nombre muy corto");
                     }
 
                     if (nombreLimpio.length() > 100) {
-                        log.warn("Nombre muy largo para cuenta_id {}: '{}'", cuentaId, nombreStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                "Nombre muy largo (máximo 100 caracteres)");
+                        log.warn("Nombre muy largo para cuenta_id {}: '{}'", cuentaId, nombreLimpio);
+                        writeErrorLine(record, "Nombre muy largo (máximo 100 caracteres)");
                         return createErrorMarker(cuentaId, "Nombre muy largo");
                     }
 
                     interes.setNombre(nombreLimpio);
 
                     // Procesar saldo
-                    if (saldoStr == null || saldoStr.trim().isEmpty()) {
+                    if (record.isEmpty(SALDO)) {
                         log.warn("Saldo vacío para cuenta_id {}", cuentaId);
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr, "Saldo vacío");
+                        writeErrorLine(record, "Saldo vacío");
                         return createErrorMarker(cuentaId, "Saldo vacío");
                     }
 
                     try {
-                        BigDecimal saldo = new BigDecimal(saldoStr.trim());
-                        interes.setSaldo(saldo);
+                        if (processorConfig.isMontosPuntoFijo()) {
+                            interes.setSaldoEscalado(record.readScaled(SALDO, ScaledAmount.SCALE));
+                        } else {
+                            interes.setSaldo(record.readDecimal(SALDO));
+                        }
                     } catch (NumberFormatException e) {
-                        log.warn("Formato de saldo inválido para cuenta_id {}: '{}'", cuentaId, saldoStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                "Formato de saldo inválido");
+                        log.warn("Formato de saldo inválido para cuenta_id {}: '{}'", cuentaId,
+                                record.readString(SALDO));
+                        writeErrorLine(record, "Formato de saldo inválido");
                         return createErrorMarker(cuentaId, "Formato de saldo inválido");
                     }
 
                     // Procesar edad
-                    if (edadStr == null || edadStr.trim().isEmpty()) {
+                    if (record.isEmpty(EDAD)) {
                         log.warn("Edad vacía para cuenta_id {}", cuentaId);
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr, "Edad vacía");
+                        writeErrorLine(record, "Edad vacía");
                         return createErrorMarker(cuentaId, "Edad vacía");
                     }
 
                     try {
-                        int edad = Integer.parseInt(edadStr.trim());
+                        int edad = record.readInt(EDAD);
                         if (edad < 0) {
-                            log.warn("Edad negativa para cuenta_id {}: '{}'", cuentaId, edadStr);
-                            errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                    "Edad no puede ser negativa");
+                            log.warn("Edad negativa para cuenta_id {}: '{}'", cuentaId, edad);
+                            writeErrorLine(record, "Edad no puede ser negativa");
                             return createErrorMarker(cuentaId, "Edad negativa");
                         }
                         if (edad > 150) {
-                            log.warn("Edad muy alta para cuenta_id {}: '{}'", cuentaId, edadStr);
-                            errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                    "Edad muy alta (máximo 150 años)");
+                            log.warn("Edad muy alta para cuenta_id {}: '{}'", cuentaId, edad);
+                            writeErrorLine(record, "Edad muy alta (máximo 150 años)");
                             return createErrorMarker(cuentaId, "Edad muy alta");
                         }
                         interes.setEdad(edad);
                     } catch (NumberFormatException e) {
-                        log.warn("Formato de edad inválido para cuenta_id {}: '{}'", cuentaId, edadStr);
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                "Formato de edad inválido");
+                        log.warn("Formato de edad inválido para cuenta_id {}: '{}'", cuentaId,
+                                record.readString(EDAD));
+                        writeErrorLine(record, "Formato de edad inválido");
                         return createErrorMarker(cuentaId, "Formato de edad inválido");
                     }
 
                     // Procesar tipo
-                    if (tipoStr == null || tipoStr.trim().isEmpty()) {
+                    if (record.isEmpty(TIPO)) {
                         log.warn("Tipo vacío para cuenta_id {}", cuentaId);
-                        errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr,
-                                "Tipo de cuenta vacío");
+                        writeErrorLine(record, "Tipo de cuenta vacío");
                         return createErrorMarker(cuentaId, "Tipo vacío");
                     }
 
-                    interes.setTipo(tipoStr.trim());
+                    interes.setTipo(record.readString(TIPO));
 
                     log.debug(
                             "Registro de interés mapeado exitosamente en reader: cuenta_id={}, nombre={}, saldo={}, edad={}, tipo={}",
-                            cuentaId, nombreLimpio, interes.getSaldo(), interes.getEdad(), tipoStr.trim());
+                            cuentaId, nombreLimpio, interes.getSaldo(), interes.getEdad(), interes.getTipo());
 
                     return interes;
 
                 } catch (Exception e) {
                     String errorMsg = "Error general en mapeo: " + e.getMessage();
-                    log.error("Error inesperado al mapear línea de intereses: {}", fieldSet.toString(), e);
-                    errorWriter.writeErrorLine(cuentaIdStr, nombreStr, saldoStr, edadStr, tipoStr, errorMsg);
+                    log.error("Error inesperado al mapear línea de intereses: {}", record.toString(), e);
+                    writeErrorLine(record, errorMsg);
                     return createErrorMarker(-1L, "Error de mapeo general");
                 }
             }
         };
 
-        lineMapper.setLineTokenizer(lineTokenizer);
-        lineMapper.setFieldSetMapper(fieldSetMapper);
+        return recordMapper;
+    }
+
+    // Registra la línea original en el archivo de errores
+    private void writeErrorLine(CsvRecord record, String motivo) {
+        registrarRechazo(record.readAll(), motivo);
+    }
 
-        return lineMapper;
+    @Override
+    protected void escribirRechazo(String[] campos, String motivo, long posicion) {
+        errorWriter.writeErrorLine(posicion, campos[CUENTA_ID], campos[NOMBRE], campos[SALDO], campos[EDAD],
+                campos[TIPO], motivo);
+    }
+
+    @Override
+    protected void asignarPosicion(Intereses item, long posicion) {
+        item.setPosicionOrigen(posicion);
     }
 
     // Crea un registro de interés marcador para indicar error que será filtrado en
     // el processor
     private Intereses createErrorMarker(Long cuentaId, String reason) {
+        if (processorConfig.isLecturaFusionada()) {
+            return null; // Lectura fusionada: la línea se omite sin marcador
+        }
         Intereses errorMarker = new Intereses();
         errorMarker.setCuenta_id(cuentaId);
         errorMarker.setTipo("__ERROR_MARKER__:" + reason);
@@ -203,9 +254,23 @@ public class InteresesItemReader extends FlatFileItemReader<Intereses> {
 
     @Override
     public void afterPropertiesSet() throws Exception {
+        if (archivoParticion != null) {
+            setResource(resourceLoader.getResource(archivoParticion));
+        }
+        if (inicioParticion != null && finParticion != null) {
+            setRango(inicioParticion, finParticion);
+        }
+        if (processorConfig != null && processorConfig.isCacheParseoHabilitado()) {
+            setCacheParseo(Paths.get(processorConfig.getDirectorioCacheParseo()), CODEC,
+                    (processorConfig.isMontosPuntoFijo() ? 1 : 0) | (processorConfig.isLecturaFusionada() ? 2 : 0),
+                    0);
+        }
+        if (processorConfig != null && processorConfig.isLecturaFusionada()) {
+            setValidador(interesesItemProcessor);
+        }
         super.afterPropertiesSet();
         if (errorWriter != null) {
-            setLineMapper(getLineMapper());
+            setRecordMapper(getRecordMapper());
         }
     }
-}
\ No newline at end of file
+}
@@ -6,8 +6,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
+import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.Intereses;
 import com.batch.SpringBatchApp.service.InteresesService;
+import com.batch.SpringBatchApp.utils.ModoEscritura;
+import com.batch.SpringBatchApp.utils.ScaledAmount;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,6 +21,9 @@ public class InteresesItemWriter implements ItemWriter<Intereses> {
     @Autowired
     private InteresesService interesesService;
 
+    @Autowired
+    private ProcessorConfig processorConfig;
+
     @Override
     public void write(@NonNull Chunk<? extends Intereses> chunk) throws Exception {
         log.info("=== ESCRIBIENDO CHUNK DE INTERESES ===");
@@ -28,6 +34,11 @@ public class InteresesItemWriter implements ItemWriter<Intereses> {
             return;
         }
 
+        // En modo punto fijo el BigDecimal se crea recién aquí, antes de persistir
+        if (processorConfig.isMontosPuntoFijo()) {
+            chunk.forEach(item -> item.setSaldo(ScaledAmount.toBigDecimal(item.getSaldoEscalado())));
+        }
+
         // Log de detalle de cada registro (solo en nivel DEBUG para no saturar logs)
         if (log.isDebugEnabled()) {
             chunk.forEach(interes -> log.debug(
@@ -38,7 +49,7 @@ public class InteresesItemWriter implements ItemWriter<Intereses> {
 
         try {
             // Guardar el chunk completo
-            interesesService.saveAll(chunk.getItems());
+            guardar(chunk);
 
             log.info("✓ Chunk de {} registros de interés guardado exitosamente en la base de datos", chunk.size());
 
@@ -64,4 +75,33 @@ public class InteresesItemWriter implements ItemWriter<Intereses> {
             throw e; // Re-lanzar para que Spring Batch maneje el error
         }
     }
+
+    // Actualiza registros de interés que el índice de ids registra como ya cargados, sin
+    // leerlos antes de la base de datos
+    public void actualizar(@NonNull Chunk<? extends Intereses> chunk) {
+        if (processorConfig.isMontosPuntoFijo()) {
+            chunk.forEach(item -> item.setSaldo(ScaledAmount.toBigDecimal(item.getSaldoEscalado())));
+        }
+        if (esJdbc()) {
+            // El lote JDBC ya actualiza los ids existentes en un solo viaje
+            guardar(chunk);
+            log.info("✓ {} registros de interés ya cargados actualizados por lote JDBC", chunk.size());
+            return;
+        }
+        int actualizados = interesesService.updateAll(chunk.getItems());
+        log.info("✓ {} registros de interés ya cargados actualizados ({} no encontrados, guardados)",
+                actualizados, chunk.size() - actualizados);
+    }
+
+    private void guardar(Chunk<? extends Intereses> chunk) {
+        if (esJdbc()) {
+            interesesService.saveAllBatch(chunk.getItems());
+        } else {
+            interesesService.saveAll(chunk.getItems());
+        }
+    }
+
+    private boolean esJdbc() {
+        return processorConfig.getEscrituraIntereses() == ModoEscritura.JDBC;
+    }
 }
\ No newline at end of file
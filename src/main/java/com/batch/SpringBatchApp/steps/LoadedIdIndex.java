@@ -0,0 +1,209 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.batch.SpringBatchApp.utils.CompressedIdBitmap;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Índice persistente de los ids ya cargados en la tabla de una entidad, para omitir
+// o actualizar registros conocidos sin consultar la base de datos. Se guarda en dos
+// archivos: una foto del CompressedIdBitmap completo y un diario mapeado en memoria
+// con los ids agregados desde esa foto, que se escribe en cada commit de chunk. Al
+// llenarse el diario (o al cerrar) se escribe una foto nueva en un temporal que se
+// renombra y el diario vuelve a cero. Al abrir se carga la foto y se repite el
+// diario; repetir ids que ya están en la foto no tiene efecto.
+// El diario sobrevive a una caída del proceso pero no necesariamente a una del
+// sistema operativo; en ese caso el índice se reconstruye desde la base de datos
+@Slf4j
+public final class LoadedIdIndex implements Closeable {
+
+    // Incrementar al cambiar el formato de la foto o del diario
+    static final int VERSION = 1;
+
+    private static final int MAGIC_FOTO = 0x4C494446;
+    private static final int MAGIC_DIARIO = 0x4C49444A;
+
+    // Ids que caben en el diario antes de escribir una foto nueva
+    static final int CAPACIDAD_DIARIO = 1 << 20;
+    private static final int CABECERA_DIARIO = 3 * Integer.BYTES;
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final String entidad;
+    private final Path foto;
+    private final FileChannel canalDiario;
+    private final MappedByteBuffer diario;
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    private CompressedIdBitmap ids;
+    private int enDiario;
+
+    private LoadedIdIndex(String entidad, Path foto, FileChannel canalDiario, MappedByteBuffer diario,
+            CompressedIdBitmap ids, int enDiario) {
+        this.entidad = entidad;
+        this.foto = foto;
+        this.canalDiario = canalDiario;
+        this.diario = diario;
+        this.ids = ids;
+        this.enDiario = enDiario;
+    }
+
+    // Abre (o crea vacío) el índice de la entidad en el directorio
+    public static LoadedIdIndex abrir(Path directorio, String entidad) throws IOException {
+        Files.createDirectories(directorio);
+        Path foto = directorio.resolve(entidad + ".idx");
+        Path rutaDiario = directorio.resolve(entidad + ".diario");
+
+        CompressedIdBitmap ids = leerFoto(foto);
+        FileChannel canal = FileChannel.open(rutaDiario, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer diario;
+        try {
+            diario = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                    CABECERA_DIARIO + (long) CAPACIDAD_DIARIO * Integer.BYTES);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+
+        int enDiario = 0;
+        if (diario.getInt(0) == MAGIC_DIARIO && diario.getInt(Integer.BYTES) == VERSION) {
+            enDiario = Math.min(diario.getInt(2 * Integer.BYTES), CAPACIDAD_DIARIO);
+            for (int i = 0; i < enDiario; i++) {
+                ids.agregar(Integer.toUnsignedLong(diario.getInt(CABECERA_DIARIO + i * Integer.BYTES)));
+            }
+        } else {
+            diario.putInt(0, MAGIC_DIARIO);
+            diario.putInt(Integer.BYTES, VERSION);
+            diario.putInt(2 * Integer.BYTES, 0);
+        }
+
+        log.info("Índice de ids de {} abierto: {} ids ({} en el diario)", entidad, ids.getCantidad(), enDiario);
+        return new LoadedIdIndex(entidad, foto, canal, diario, ids, enDiario);
+    }
+
+    // Ids fuera de 0..2^32-1 no se indexan y nunca se consideran cargados
+    public boolean contiene(long id) {
+        candado.readLock().lock();
+        try {
+            return ids.contiene(id);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Registra ids confirmados en la base de datos
+    public void registrar(long[] nuevos, int cantidad) {
+        candado.writeLock().lock();
+        try {
+            for (int i = 0; i < cantidad; i++) {
+                if (ids.agregar(nuevos[i])) {
+                    if (enDiario == CAPACIDAD_DIARIO) {
+                        compactar();
+                    }
+                    diario.putInt(CABECERA_DIARIO + enDiario * Integer.BYTES, (int) nuevos[i]);
+                    enDiario++;
+                }
+            }
+            // La cantidad se escribe al final: una caída a mitad deja el diario anterior
+            diario.putInt(2 * Integer.BYTES, enDiario);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // Reemplaza todo el contenido, por ejemplo al reconstruir desde la base de datos
+    public void reemplazar(CompressedIdBitmap nuevos) {
+        candado.writeLock().lock();
+        try {
+            ids = nuevos;
+            compactar();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public long getCantidad() {
+        candado.readLock().lock();
+        try {
+            return ids.getCantidad();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public String getEntidad() {
+        return entidad;
+    }
+
+    // Escribe la foto y vacía el diario
+    @Override
+    public void close() throws IOException {
+        candado.writeLock().lock();
+        try {
+            if (enDiario > 0) {
+                compactar();
+            }
+        } finally {
+            candado.writeLock().unlock();
+            canalDiario.close();
+        }
+    }
+
+    // Se llama con el candado de escritura tomado
+    private void compactar() {
+        try {
+            escribirFoto();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el índice de ids de " + entidad, e);
+        }
+        diario.putInt(2 * Integer.BYTES, 0);
+        diario.force();
+        enDiario = 0;
+        log.debug("Índice de ids de {} compactado: {} ids", entidad, ids.getCantidad());
+    }
+
+    private void escribirFoto() throws IOException {
+        Path temporal = foto.resolveSibling(foto.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporal), TAMANO_BUFFER))) {
+            out.writeInt(MAGIC_FOTO);
+            out.writeInt(VERSION);
+            ids.escribir(out);
+        }
+        try {
+            Files.move(temporal, foto, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, foto, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static CompressedIdBitmap leerFoto(Path foto) throws IOException {
+        if (!Files.exists(foto)) {
+            return new CompressedIdBitmap();
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(foto), TAMANO_BUFFER))) {
+            if (in.readInt() != MAGIC_FOTO || in.readInt() != VERSION) {
+                log.warn("Índice de ids {} con formato desconocido, se descarta", foto);
+                return new CompressedIdBitmap();
+            }
+            return CompressedIdBitmap.leer(in);
+        }
+    }
+}
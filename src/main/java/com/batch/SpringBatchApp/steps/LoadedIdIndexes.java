@@ -0,0 +1,136 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.batch.SpringBatchApp.config.ProcessorConfig;
+import com.batch.SpringBatchApp.repository.CuentasAnualesRepository;
+import com.batch.SpringBatchApp.repository.InteresesRepository;
+import com.batch.SpringBatchApp.repository.TransaccionesRepository;
+import com.batch.SpringBatchApp.utils.CompressedIdBitmap;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Índices de ids cargados de las tres tablas, abiertos una vez y compartidos por
+// todas las particiones y archivos de la ejecución
+@Component
+@Slf4j
+public class LoadedIdIndexes {
+
+    private static final String TRANSACCIONES = "transacciones";
+    private static final String INTERESES = "intereses";
+    private static final String CUENTAS_ANUALES = "cuentas_anuales";
+
+    // Ids leídos por consulta al reconstruir
+    private static final int TAMANO_PAGINA = 10_000;
+
+    @Autowired
+    private ProcessorConfig processorConfig;
+
+    @Autowired
+    private TransaccionesRepository transaccionesRepository;
+
+    @Autowired
+    private InteresesRepository interesesRepository;
+
+    @Autowired
+    private CuentasAnualesRepository cuentasAnualesRepository;
+
+    private final Map<String, Optional<LoadedIdIndex>> abiertos = new ConcurrentHashMap<>();
+
+    // Índice de cada tabla, o null si el índice está deshabilitado o no se pudo abrir
+    @Nullable
+    public LoadedIdIndex transacciones() {
+        return abrir(TRANSACCIONES);
+    }
+
+    @Nullable
+    public LoadedIdIndex intereses() {
+        return abrir(INTERESES);
+    }
+
+    @Nullable
+    public LoadedIdIndex cuentasAnuales() {
+        return abrir(CUENTAS_ANUALES);
+    }
+
+    // Reconstruye los tres índices con los ids que hoy tiene la base de datos
+    public void reconstruir() {
+        reconstruir(TRANSACCIONES, transaccionesRepository::findIdsMayoresA);
+        reconstruir(INTERESES, interesesRepository::findIdsMayoresA);
+        reconstruir(CUENTAS_ANUALES, cuentasAnualesRepository::findIdsMayoresA);
+    }
+
+    private void reconstruir(String entidad, BiFunction<Long, Pageable, List<Long>> idsMayoresA) {
+        LoadedIdIndex indice = abrir(entidad);
+        if (indice == null) {
+            log.warn("No se reconstruye el índice de ids de {}: está deshabilitado o no se pudo abrir", entidad);
+            return;
+        }
+
+        log.info("Reconstruyendo índice de ids de {} desde la base de datos...", entidad);
+        CompressedIdBitmap ids = new CompressedIdBitmap();
+        long fueraDeRango = 0;
+        long desde = Long.MIN_VALUE;
+        List<Long> pagina;
+        do {
+            pagina = idsMayoresA.apply(desde, PageRequest.of(0, TAMANO_PAGINA));
+            for (Long id : pagina) {
+                if (!CompressedIdBitmap.esIndexable(id)) {
+                    fueraDeRango++;
+                }
+                ids.agregar(id);
+            }
+            if (!pagina.isEmpty()) {
+                desde = pagina.get(pagina.size() - 1);
+            }
+        } while (pagina.size() == TAMANO_PAGINA);
+
+        indice.reemplazar(ids);
+        log.info("✓ Índice de ids de {} reconstruido: {} ids ({} KB); {} ids fuera de rango no se indexan",
+                entidad, ids.getCantidad(), ids.getBytesOcupados() / 1024, fueraDeRango);
+    }
+
+    // Un índice que no se puede abrir solo desactiva la optimización para esa tabla
+    private LoadedIdIndex abrir(String entidad) {
+        if (!processorConfig.isIndiceIdsHabilitado()) {
+            return null;
+        }
+        return abiertos.computeIfAbsent(entidad, e -> {
+            Path directorio = Paths.get(processorConfig.getDirectorioIndiceIds());
+            try {
+                return Optional.of(LoadedIdIndex.abrir(directorio, e));
+            } catch (IOException | RuntimeException ex) {
+                log.warn("No se pudo abrir el índice de ids de {} en {}, se escribe sin índice: {}", e,
+                        directorio, ex.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    // Escribe la foto de cada índice abierto al cerrar la aplicación
+    @PreDestroy
+    public void cerrar() {
+        abiertos.values().forEach(indice -> indice.ifPresent(i -> {
+            try {
+                i.close();
+            } catch (IOException | RuntimeException e) {
+                log.warn("No se pudo cerrar el índice de ids de {}: {}", i.getEntidad(), e.getMessage());
+            }
+        }));
+        abiertos.clear();
+    }
+}
@@ -0,0 +1,575 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.transform.IncorrectTokenCountException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Reader CSV sobre un FileChannel mapeado en memoria. Busca los saltos de línea y
+// los delimitadores directamente en los bytes y entrega al mapper un CsvRecord sin
+// crear un String por línea. El reinicio se hace con el offset en bytes guardado en
+// el ExecutionContext en lugar de releer y descartar líneas. Con setRango el reader
+// lee solo las líneas que comienzan dentro de un rango de bytes (ver FileRangePartitioner).
+// Los recursos que no son archivos se leen como stream y en el reinicio se avanza con
+// InputStream.skip. Los .gz y .zip se descomprimen mientras se leen (ver CsvByteSource);
+// como no se puede posicionar en ellos, el reinicio cuenta líneas sin mapearlas. Con
+// setCacheParseo los registros mapeados se guardan en una ParsedRowCache y las
+// siguientes lecturas del mismo archivo sin cambios la recorren en lugar del CSV.
+// En la lectura fusionada el mapper retorna null para las líneas que rechaza y un
+// FusedItemValidator valida y normaliza cada entidad; las líneas rechazadas no llegan
+// al step pero cuentan como leídas, para que el reinicio por conteo salte las mismas.
+// Cada entidad y cada rechazo llevan el byte de inicio de su línea (asignarPosicion y
+// escribirRechazo), con el que el almacén de errores ubica los registros rechazados.
+@Slf4j
+public class MappedCsvItemReader<T> extends AbstractItemCountingItemStreamItemReader<T>
+        implements InitializingBean {
+
+    // Offset en bytes de la siguiente línea a leer
+    private static final String POSICION_KEY = "posicion.byte";
+
+    // Clave con la que AbstractItemCountingItemStreamItemReader guarda los registros leídos
+    private static final String READ_COUNT_KEY = "read.count";
+
+    // Tamaño de cada ventana mapeada; los archivos grandes se recorren por ventanas
+    private static final int TAMANO_VENTANA_POR_DEFECTO = 128 * 1024 * 1024;
+
+    private static final int TAMANO_VENTANA_MAXIMO = Integer.MAX_VALUE - 8;
+
+    private Resource resource;
+    private int linesToSkip = 0;
+    private byte delimiter = ',';
+    private String[] names = new String[0];
+    private CsvRecordMapper<T> recordMapper;
+    private FusedItemValidator<T> validador;
+    private int tamanoVentana = TAMANO_VENTANA_POR_DEFECTO;
+    private long inicioRango = 0;
+    private long finRango = Long.MAX_VALUE;
+    private Path directorioCache;
+    private ParsedRowCodec<T> codecCache;
+    private int varianteCache;
+    private long diaCache;
+
+    private CsvByteSource fuente;
+    private ByteBuffer ventana;
+    private long inicioVentana;
+    private int tamanoLectura;
+    private long posicion;
+    private long inicioLinea = -1;
+    private long posicionRestaurada = -1;
+    private CsvRecord record;
+    private ParsedRowCache.Lectura<T> lecturaCache;
+    private ParsedRowCache.Escritura<T> escrituraCache;
+
+    // Rechazos retenidos mientras otro hilo lee por adelantado (ver retenerRechazos)
+    private List<Rechazo> rechazosRetenidos;
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    public void setLinesToSkip(int linesToSkip) {
+        this.linesToSkip = linesToSkip;
+    }
+
+    public void setDelimiter(char delimiter) {
+        Assert.isTrue(delimiter < 0x80, "El delimitador debe ser un caracter ASCII");
+        this.delimiter = (byte) delimiter;
+    }
+
+    public void setNames(String... names) {
+        this.names = names.clone();
+    }
+
+    public void setRecordMapper(CsvRecordMapper<T> recordMapper) {
+        this.recordMapper = recordMapper;
+    }
+
+    public void setValidador(FusedItemValidator<T> validador) {
+        this.validador = validador;
+    }
+
+    public void setTamanoVentana(int tamanoVentana) {
+        Assert.isTrue(tamanoVentana > 0, "El tamaño de ventana debe ser positivo");
+        this.tamanoVentana = tamanoVentana;
+    }
+
+    // Limita la lectura a las líneas que comienzan en [inicio, fin). El inicio debe ser
+    // un inicio de línea; las líneas a saltar (header) solo se aplican si inicio es 0
+    public void setRango(long inicio, long fin) {
+        Assert.isTrue(inicio >= 0 && fin >= inicio, "Rango de bytes inválido");
+        this.inicioRango = inicio;
+        this.finRango = fin;
+    }
+
+    // Activa la cache de parseo en el directorio indicado. La variante identifica la
+    // configuración que cambia el resultado del mapper y el día, la fecha de la política
+    // con que el mapper valida fechas (0 si no valida fechas); la cache se descarta si
+    // alguno cambia
+    public void setCacheParseo(Path directorio, ParsedRowCodec<T> codec, int variante, long dia) {
+        this.directorioCache = directorio;
+        this.codecCache = codec;
+        this.varianteCache = variante;
+        this.diaCache = dia;
+    }
+
+    // Offset en bytes de la siguiente línea a leer
+    public long getPosicion() {
+        return posicion;
+    }
+
+    // Quita el validador de la lectura fusionada y lo retorna, para que quien lee por
+    // adelantado valide cada entidad en el hilo del step (ver PrefetchingItemReader)
+    public FusedItemValidator<T> quitarValidador() {
+        FusedItemValidator<T> actual = validador;
+        validador = null;
+        return actual;
+    }
+
+    // Desde aquí los rechazos no se escriben al leer sino que se acumulan hasta que se
+    // toman con tomarRechazos y se publican con publicarRechazos
+    public void retenerRechazos() {
+        rechazosRetenidos = new ArrayList<>();
+    }
+
+    // Rechazos retenidos desde la llamada anterior; lista vacía si no hubo
+    public List<Rechazo> tomarRechazos() {
+        if (rechazosRetenidos == null || rechazosRetenidos.isEmpty()) {
+            return List.of();
+        }
+        List<Rechazo> tomados = rechazosRetenidos;
+        rechazosRetenidos = new ArrayList<>();
+        return tomados;
+    }
+
+    public void publicarRechazos(List<Rechazo> rechazos) {
+        for (Rechazo rechazo : rechazos) {
+            escribirRechazo(rechazo.campos(), rechazo.motivo(), rechazo.posicion());
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(resource, "Se requiere un resource para el reader");
+        Assert.state(!isSaveState() || getName() != null, "Se requiere un nombre para guardar el estado del reader");
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        Assert.notNull(resource, "Se requiere un resource para el reader");
+        Assert.notNull(recordMapper, "Se requiere un CsvRecordMapper para el reader");
+
+        record = new CsvRecord(names, delimiter);
+        posicion = inicioRango;
+
+        if (!resource.exists()) {
+            log.warn("El archivo de entrada no existe: {}", resource.getDescription());
+            return;
+        }
+
+        if (abrirCache()) {
+            return;
+        }
+
+        abrirFuente();
+        log.debug("Archivo {} abierto para lectura ({})", resource.getDescription(),
+                fuente.permitePosicionar() ? "con acceso directo" : "secuencial");
+    }
+
+    // Abre la fuente de bytes en el inicio del rango y salta las líneas iniciales
+    private void abrirFuente() throws IOException {
+        fuente = CsvByteSource.abrir(resource);
+        tamanoLectura = fuente.ajustarTamanoVentana(tamanoVentana);
+        if (!fuente.permitePosicionar() && inicioRango > 0) {
+            throw new IllegalStateException(
+                    "No se puede leer un rango que no comienza en 0 de " + resource.getDescription());
+        }
+        posicion = inicioRango;
+        mapearVentana(inicioRango, tamanoLectura);
+
+        for (int i = 0; inicioRango == 0 && i < linesToSkip; i++) {
+            if (!siguienteLinea()) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    protected T doRead() throws Exception {
+        T item = leerRegistro();
+        while (item != null && validador != null && !validador.validar(item)) {
+            omitirRegistro();
+            item = leerRegistro();
+        }
+        return item;
+    }
+
+    // Siguiente entidad mapeada, desde la cache o desde el CSV
+    private T leerRegistro() throws Exception {
+        if (lecturaCache != null) {
+            return leerDeCache();
+        }
+
+        while (siguienteLinea()) {
+            if (record.isBlank()) {
+                continue;
+            }
+
+            if (record.getFieldCount() != names.length) {
+                if (escrituraCache != null) {
+                    try {
+                        escrituraCache.tokensIncorrectos(names.length, record.getFieldCount(), record.toString(),
+                                posicion);
+                    } catch (IOException e) {
+                        descartarEscrituraCache(e);
+                    }
+                }
+                throw new IncorrectTokenCountException(names.length, record.getFieldCount(), record.toString());
+            }
+
+            T item = recordMapper.mapRecord(record);
+            if (escrituraCache != null) {
+                try {
+                    if (item != null) {
+                        escrituraCache.item(item, posicion, inicioLinea);
+                    } else {
+                        escrituraCache.omitido(posicion);
+                    }
+                } catch (IOException e) {
+                    descartarEscrituraCache(e);
+                }
+            }
+            if (item == null) {
+                omitirRegistro();
+                continue;
+            }
+            asignarPosicion(item, inicioLinea);
+            return item;
+        }
+
+        if (escrituraCache != null) {
+            try {
+                escrituraCache.completar();
+                escrituraCache.close();
+                escrituraCache = null;
+            } catch (IOException e) {
+                descartarEscrituraCache(e);
+            }
+        }
+        return null;
+    }
+
+    // Cuenta como leída una línea que no se entrega al step
+    private void omitirRegistro() {
+        setCurrentItemCount(getCurrentItemCount() + 1);
+    }
+
+    // Registra una línea rechazada por el mapper: la escribe con escribirRechazo y la
+    // guarda en la cache de parseo para repetirla al leer desde la cache
+    protected final void registrarRechazo(String[] campos, String motivo) {
+        if (escrituraCache != null) {
+            try {
+                escrituraCache.rechazo(campos, motivo, inicioLinea);
+            } catch (IOException e) {
+                descartarEscrituraCache(e);
+            }
+        }
+        rechazar(campos, motivo, inicioLinea);
+    }
+
+    // Escribe el rechazo o, si se están reteniendo, lo guarda para publicarlo después
+    private void rechazar(String[] campos, String motivo, long posicion) {
+        if (rechazosRetenidos != null) {
+            rechazosRetenidos.add(new Rechazo(campos, motivo, posicion));
+        } else {
+            escribirRechazo(campos, motivo, posicion);
+        }
+    }
+
+    // Escribe una línea rechazada en el archivo de errores de la entidad; la posición
+    // es el byte de inicio de la línea
+    protected void escribirRechazo(String[] campos, String motivo, long posicion) {
+    }
+
+    // Guarda en la entidad el byte de inicio de la línea de la que se leyó
+    protected void asignarPosicion(T item, long posicion) {
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+        if (lecturaCache != null) {
+            log.info("Reanudando lectura desde la cache de parseo saltando {} registros", itemIndex);
+            saltarEnCache(itemIndex);
+            return;
+        }
+        if (escrituraCache != null) {
+            // Una cache solo se escribe si el rango se lee completo desde el inicio
+            escrituraCache.close();
+            escrituraCache = null;
+        }
+        if (posicionRestaurada >= 0 && fuente != null && fuente.permitePosicionar()) {
+            if (posicionar(posicionRestaurada)) {
+                log.info("Reanudando lectura de {} en el byte {} (registro {})", resource.getDescription(),
+                        posicionRestaurada, itemIndex);
+                return;
+            }
+            // El offset no cae en un inicio de línea: el archivo cambió desde la ejecución
+            // anterior. Se vuelve a abrir y se cuentan registros como sin offset guardado
+            log.warn("El byte {} guardado para {} no es un inicio de línea, se reanuda contando registros",
+                    posicionRestaurada, resource.getDescription());
+            fuente.close();
+            abrirFuente();
+        }
+        if (fuente != null) {
+            // Sin offset guardado o en un archivo comprimido: contar líneas sin mapearlas,
+            // para no repetir conversiones ni escrituras en el archivo de errores
+            log.info("Reanudando lectura de {} saltando {} registros", resource.getDescription(), itemIndex);
+            saltarRegistros(itemIndex);
+            return;
+        }
+        super.jumpToItem(itemIndex);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        posicionRestaurada = -1;
+        if (isSaveState() && executionContext.containsKey(getExecutionContextKey(POSICION_KEY))) {
+            posicionRestaurada = executionContext.getLong(getExecutionContextKey(POSICION_KEY));
+        }
+        super.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        if (isSaveState()) {
+            executionContext.putLong(getExecutionContextKey(POSICION_KEY), posicion);
+        }
+    }
+
+    // Guarda el estado como si el último registro leído fuera el indicado. Lo usa
+    // PrefetchingItemReader para guardar el punto del último registro consumido por el
+    // step en lugar del último leído por adelantado. Solo escribe los valores recibidos:
+    // no lee posicion ni el contador del reader, que el hilo de prefetch sigue modificando
+    public void guardarPuntoDeReinicio(ExecutionContext executionContext, long posicionConsumida,
+            int registrosConsumidos) {
+        if (isSaveState()) {
+            executionContext.putInt(getExecutionContextKey(READ_COUNT_KEY), registrosConsumidos);
+            executionContext.putLong(getExecutionContextKey(POSICION_KEY), posicionConsumida);
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        ventana = null;
+        record = null;
+        rechazosRetenidos = null;
+        if (lecturaCache != null) {
+            lecturaCache.close();
+            lecturaCache = null;
+        }
+        if (escrituraCache != null) {
+            escrituraCache.close();
+            escrituraCache = null;
+        }
+        if (fuente != null) {
+            fuente.close();
+            fuente = null;
+        }
+    }
+
+    // Abre la cache de parseo si está activa y corresponde al archivo actual. Si no
+    // existe o está desactualizada prepara su escritura y retorna false
+    private boolean abrirCache() throws IOException {
+        if (codecCache == null || !resource.isFile() || CsvByteSource.esComprimido(resource.getFilename())) {
+            return false;
+        }
+
+        Path archivo = resource.getFile().toPath();
+        ParsedRowCache.Clave clave = ParsedRowCache.Clave.de(archivo, getName(), inicioRango, finRango,
+                varianteCache, diaCache);
+        Path ubicacion = ParsedRowCache.ubicacion(directorioCache, archivo, clave);
+
+        lecturaCache = ParsedRowCache.abrir(ubicacion, clave, codecCache);
+        if (lecturaCache != null) {
+            log.info("Leyendo {} desde la cache de parseo {}", resource.getDescription(), ubicacion.getFileName());
+            return true;
+        }
+
+        try {
+            escrituraCache = ParsedRowCache.crear(ubicacion, clave, codecCache);
+        } catch (IOException e) {
+            log.warn("No se pudo crear la cache de parseo {}: {}", ubicacion, e.getMessage());
+        }
+        return false;
+    }
+
+    // Entrega la siguiente entrada de la cache, repitiendo los rechazos y los errores
+    // de cantidad de campos tal como ocurrieron al leer el CSV
+    private T leerDeCache() throws IOException {
+        while (true) {
+            switch (lecturaCache.siguiente()) {
+                case ParsedRowCache.ITEM -> {
+                    posicion = lecturaCache.getPosicion();
+                    T item = lecturaCache.getItem();
+                    asignarPosicion(item, lecturaCache.getInicio());
+                    return item;
+                }
+                case ParsedRowCache.RECHAZO -> rechazar(lecturaCache.getCampos(), lecturaCache.getMotivo(),
+                        lecturaCache.getInicio());
+                case ParsedRowCache.OMITIDO -> {
+                    posicion = lecturaCache.getPosicion();
+                    omitirRegistro();
+                }
+                case ParsedRowCache.TOKENS_INCORRECTOS -> {
+                    posicion = lecturaCache.getPosicion();
+                    throw new IncorrectTokenCountException(lecturaCache.getEsperados(),
+                            lecturaCache.getEncontrados(), lecturaCache.getLinea());
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+    }
+
+    // Avanza la cantidad indicada de registros de la cache sin repetir sus rechazos
+    private void saltarEnCache(int cantidad) throws IOException {
+        int saltados = 0;
+        while (saltados < cantidad) {
+            byte tipo = lecturaCache.siguiente();
+            if (tipo == ParsedRowCache.FIN) {
+                return;
+            }
+            if (tipo != ParsedRowCache.RECHAZO) {
+                posicion = lecturaCache.getPosicion();
+                saltados++;
+            }
+        }
+    }
+
+    private void descartarEscrituraCache(IOException e) {
+        log.warn("Error al escribir la cache de parseo, se descarta: {}", e.getMessage());
+        try {
+            escrituraCache.close();
+        } catch (IOException cierre) {
+            log.debug("Error al descartar la cache de parseo: {}", cierre.getMessage());
+        }
+        escrituraCache = null;
+    }
+
+    // Avanza la cantidad indicada de registros no vacíos sin pasarlos por el mapper
+    private void saltarRegistros(int cantidad) throws IOException {
+        int saltados = 0;
+        while (saltados < cantidad && siguienteLinea()) {
+            if (!record.isBlank()) {
+                saltados++;
+            }
+        }
+    }
+
+    // Avanza a la siguiente línea y apunta el record a ella. Retorna false al final del archivo
+    // o del rango
+    private boolean siguienteLinea() throws IOException {
+        if (ventana == null || posicion >= finRango) {
+            return false;
+        }
+
+        int inicio = (int) (posicion - inicioVentana);
+        if (inicio >= ventana.limit()) {
+            if (fuente.esUltimaVentana()) {
+                return false;
+            }
+            mapearVentana(posicion, tamanoLectura);
+            inicio = 0;
+            if (ventana.limit() == 0) {
+                return false;
+            }
+        }
+        int fin = buscarSaltoDeLinea(inicio);
+
+        while (fin < 0) {
+            if (fuente.esUltimaVentana()) {
+                // Última línea sin salto de línea final
+                fin = ventana.limit();
+                break;
+            }
+
+            // La línea cruza el borde de la ventana: remapear desde el inicio de la línea,
+            // agrandando la ventana si la línea completa no cabe
+            int tamanoActual = ventana.limit();
+            boolean mismaPosicion = inicioVentana == posicion;
+            int nuevoTamano = mismaPosicion
+                    ? (int) Math.min((long) tamanoActual * 2, TAMANO_VENTANA_MAXIMO)
+                    : tamanoLectura;
+            if (mismaPosicion && nuevoTamano <= tamanoActual) {
+                throw new IllegalStateException("Línea demasiado larga en el byte " + posicion);
+            }
+            mapearVentana(posicion, nuevoTamano);
+            inicio = 0;
+            fin = buscarSaltoDeLinea(0);
+        }
+
+        int siguiente = fin < ventana.limit() ? fin + 1 : fin;
+        int finContenido = fin;
+        if (finContenido > inicio && ventana.get(finContenido - 1) == '\r') {
+            finContenido--;
+        }
+
+        record.reset(ventana, inicio, finContenido);
+        inicioLinea = posicion;
+        posicion = inicioVentana + siguiente;
+        return true;
+    }
+
+    private int buscarSaltoDeLinea(int desde) {
+        int limite = ventana.limit();
+        for (int i = desde; i < limite; i++) {
+            if (ventana.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Avanza la lectura hasta un offset guardado. Se mapea desde el byte anterior para
+    // comprobar que sea un salto de línea; retorna false si el offset no corresponde a
+    // un inicio de línea dentro del rango (por ejemplo si el archivo cambió)
+    private boolean posicionar(long nuevaPosicion) throws IOException {
+        if (nuevaPosicion < posicion || nuevaPosicion > finRango) {
+            return false;
+        }
+        if (nuevaPosicion > posicion) {
+            mapearVentana(nuevaPosicion - 1, tamanoLectura);
+            boolean finDeArchivo = ventana.limit() == 1 && fuente.esUltimaVentana();
+            if (ventana.limit() == 0 || (ventana.get(0) != '\n' && !finDeArchivo)) {
+                return false;
+            }
+        }
+        posicion = nuevaPosicion;
+        return true;
+    }
+
+    private void mapearVentana(long desde, int tamano) throws IOException {
+        ventana = fuente.ventana(desde, tamano);
+        inicioVentana = desde;
+    }
+
+    // Línea rechazada por el mapper, con el byte de inicio de la línea
+    public record Rechazo(String[] campos, String motivo, long posicion) {
+    }
+}
@@ -0,0 +1,311 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Archivo binario con los registros ya mapeados de un rango de un CSV, para que las
+// siguientes ejecuciones sobre el mismo archivo no vuelvan a tokenizar ni parsear.
+// Guarda, en orden, cada entidad entregada por el mapper con la posición de su línea,
+// las líneas que el mapper registró como error, las líneas que omitió sin entidad
+// (lectura fusionada) y las líneas con cantidad de campos incorrecta. La cabecera
+// identifica el archivo de origen (tamaño, fecha de modificación y hash de muestras
+// del inicio y el final), el rango, la variante de mapeo y el día de validación del
+// que dependen los rechazos por fecha; si algo no coincide la cache se descarta. Se
+// escribe en un temporal que se renombra al completar el rango, así un archivo de
+// cache existente siempre está completo.
+@Slf4j
+public final class ParsedRowCache {
+
+    // Incrementar al cambiar el formato del archivo o de algún ParsedRowCodec
+    static final int VERSION = 3;
+
+    private static final int MAGIC = 0x50524331;
+
+    // Bytes del inicio y del final del archivo de origen que entran en el hash
+    private static final int BYTES_MUESTRA = 64 * 1024;
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    static final byte FIN = 0;
+    static final byte ITEM = 1;
+    static final byte RECHAZO = 2;
+    static final byte TOKENS_INCORRECTOS = 3;
+    static final byte OMITIDO = 4;
+
+    private ParsedRowCache() {
+    }
+
+    // Identifica el contenido de origen de una cache. El día es el de la política de
+    // validación (0 si el mapper no rechaza por fecha): las fechas válidas dependen de
+    // él, así que una cache de otro día repetiría rechazos que ya no corresponden
+    record Clave(String lector, long tamano, long modificado, long hash, long inicio, long fin, int variante,
+            long dia) {
+
+        static Clave de(Path archivo, String lector, long inicio, long fin, int variante, long dia)
+                throws IOException {
+            long modificado = Files.getLastModifiedTime(archivo).toMillis();
+            try (FileChannel channel = FileChannel.open(archivo, StandardOpenOption.READ)) {
+                long tamano = channel.size();
+                CRC32C crc = new CRC32C();
+                ByteBuffer buffer = ByteBuffer.allocate(BYTES_MUESTRA);
+                leerMuestra(channel, 0, buffer, crc);
+                if (tamano > BYTES_MUESTRA) {
+                    leerMuestra(channel, Math.max(BYTES_MUESTRA, tamano - BYTES_MUESTRA), buffer, crc);
+                }
+                return new Clave(lector, tamano, modificado, crc.getValue(), inicio, fin, variante, dia);
+            }
+        }
+
+        private static void leerMuestra(FileChannel channel, long desde, ByteBuffer buffer, CRC32C crc)
+                throws IOException {
+            buffer.clear();
+            while (buffer.hasRemaining() && channel.read(buffer, desde + buffer.position()) > 0) {
+                // leer hasta llenar el buffer o llegar al final
+            }
+            buffer.flip();
+            crc.update(buffer);
+        }
+
+        private void escribir(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(lector);
+            out.writeLong(tamano);
+            out.writeLong(modificado);
+            out.writeLong(hash);
+            out.writeLong(inicio);
+            out.writeLong(fin);
+            out.writeInt(variante);
+            out.writeLong(dia);
+        }
+
+        // Lee la cabecera; retorna null si no es una cache de esta versión
+        private static Clave leer(DataInputStream in) throws IOException {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            return new Clave(in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readLong(),
+                    in.readLong(), in.readInt(), in.readLong());
+        }
+    }
+
+    // Ubicación de la cache para un rango de un archivo
+    static Path ubicacion(Path directorio, Path archivo, Clave clave) {
+        return directorio.resolve(archivo.getFileName() + "." + clave.lector() + "." + clave.inicio() + "-"
+                + clave.fin() + ".rows");
+    }
+
+    // Abre la cache si existe y corresponde a la clave. Si existe pero no corresponde
+    // se elimina. Retorna null si no hay una cache utilizable
+    static <T> Lectura<T> abrir(Path ubicacion, Clave clave, ParsedRowCodec<T> codec) throws IOException {
+        if (!Files.isRegularFile(ubicacion)) {
+            return null;
+        }
+
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(ubicacion), TAMANO_BUFFER));
+        try {
+            Clave guardada = Clave.leer(in);
+            if (clave.equals(guardada)) {
+                return new Lectura<>(in, codec);
+            }
+        } catch (IOException e) {
+            log.debug("Cabecera ilegible en {}: {}", ubicacion, e.getMessage());
+        }
+
+        in.close();
+        log.info("Cache de parseo {} desactualizada, se elimina", ubicacion.getFileName());
+        Files.deleteIfExists(ubicacion);
+        return null;
+    }
+
+    static <T> Escritura<T> crear(Path ubicacion, Clave clave, ParsedRowCodec<T> codec) throws IOException {
+        Files.createDirectories(ubicacion.getParent());
+        Path temporal = ubicacion.resolveSibling(ubicacion.getFileName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporal), TAMANO_BUFFER));
+        clave.escribir(out);
+        return new Escritura<>(out, temporal, ubicacion, codec);
+    }
+
+    // Escribe las entradas en orden mientras el reader lee el CSV
+    static final class Escritura<T> implements Closeable {
+
+        private final DataOutputStream out;
+        private final Path temporal;
+        private final Path destino;
+        private final ParsedRowCodec<T> codec;
+        private long registros;
+        private boolean completa;
+
+        private Escritura(DataOutputStream out, Path temporal, Path destino, ParsedRowCodec<T> codec) {
+            this.out = out;
+            this.temporal = temporal;
+            this.destino = destino;
+            this.codec = codec;
+        }
+
+        // La posición es la de la línea siguiente y el inicio el de la línea del item
+        void item(T item, long posicion, long inicio) throws IOException {
+            out.writeByte(ITEM);
+            out.writeLong(posicion);
+            out.writeLong(inicio);
+            codec.escribir(item, out);
+            registros++;
+        }
+
+        // Línea registrada como error por el mapper; precede al item marcador
+        void rechazo(String[] campos, String motivo, long inicio) throws IOException {
+            out.writeByte(RECHAZO);
+            out.writeLong(inicio);
+            out.writeInt(campos.length);
+            for (String campo : campos) {
+                ParsedRowCodec.escribirTexto(out, campo);
+            }
+            ParsedRowCodec.escribirTexto(out, motivo);
+        }
+
+        // Línea que el mapper rechazó sin entregar una entidad
+        void omitido(long posicion) throws IOException {
+            out.writeByte(OMITIDO);
+            out.writeLong(posicion);
+            registros++;
+        }
+
+        void tokensIncorrectos(int esperados, int encontrados, String linea, long posicion) throws IOException {
+            out.writeByte(TOKENS_INCORRECTOS);
+            out.writeLong(posicion);
+            out.writeInt(esperados);
+            out.writeInt(encontrados);
+            ParsedRowCodec.escribirTexto(out, linea);
+            registros++;
+        }
+
+        // Cierra el archivo y lo publica con su nombre definitivo
+        void completar() throws IOException {
+            out.writeByte(FIN);
+            out.close();
+            try {
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+            completa = true;
+            log.info("Cache de parseo {} escrita ({} registros)", destino.getFileName(), registros);
+        }
+
+        // Descarta una cache incompleta
+        @Override
+        public void close() throws IOException {
+            if (!completa) {
+                out.close();
+                Files.deleteIfExists(temporal);
+            }
+        }
+    }
+
+    // Lee las entradas en orden. Después de siguiente() los campos de la entrada
+    // leída quedan disponibles en los getters
+    static final class Lectura<T> implements Closeable {
+
+        private final DataInputStream in;
+        private final ParsedRowCodec<T> codec;
+
+        private T item;
+        private long posicion;
+        private long inicio;
+        private String[] campos;
+        private String motivo;
+        private int esperados;
+        private int encontrados;
+        private String linea;
+
+        private Lectura(DataInputStream in, ParsedRowCodec<T> codec) {
+            this.in = in;
+            this.codec = codec;
+        }
+
+        // Lee la siguiente entrada y retorna su tipo
+        byte siguiente() throws IOException {
+            byte tipo = in.readByte();
+            switch (tipo) {
+                case ITEM -> {
+                    posicion = in.readLong();
+                    inicio = in.readLong();
+                    item = codec.leer(in);
+                }
+                case RECHAZO -> {
+                    inicio = in.readLong();
+                    campos = new String[in.readInt()];
+                    for (int i = 0; i < campos.length; i++) {
+                        campos[i] = ParsedRowCodec.leerTexto(in);
+                    }
+                    motivo = ParsedRowCodec.leerTexto(in);
+                }
+                case OMITIDO -> posicion = in.readLong();
+                case TOKENS_INCORRECTOS -> {
+                    posicion = in.readLong();
+                    esperados = in.readInt();
+                    encontrados = in.readInt();
+                    linea = ParsedRowCodec.leerTexto(in);
+                }
+                case FIN -> {
+                }
+                default -> throw new IOException("Entrada desconocida en la cache de parseo: " + tipo);
+            }
+            return tipo;
+        }
+
+        T getItem() {
+            return item;
+        }
+
+        long getPosicion() {
+            return posicion;
+        }
+
+        // Byte de inicio de la línea del item o del rechazo
+        long getInicio() {
+            return inicio;
+        }
+
+        String[] getCampos() {
+            return campos;
+        }
+
+        String getMotivo() {
+            return motivo;
+        }
+
+        int getEsperados() {
+            return esperados;
+        }
+
+        int getEncontrados() {
+            return encontrados;
+        }
+
+        String getLinea() {
+            return linea;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// Serializa una entidad ya mapeada (antes de validar) en la cache de parseo. Los
+// métodos estáticos escriben los tipos comunes admitiendo null
+public interface ParsedRowCodec<T> {
+
+    void escribir(T item, DataOutput out) throws IOException;
+
+    T leer(DataInput in) throws IOException;
+
+    static void escribirTexto(DataOutput out, String valor) throws IOException {
+        if (valor == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String leerTexto(DataInput in) throws IOException {
+        int largo = in.readInt();
+        if (largo < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[largo];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void escribirLong(DataOutput out, Long valor) throws IOException {
+        out.writeBoolean(valor != null);
+        if (valor != null) {
+            out.writeLong(valor);
+        }
+    }
+
+    static Long leerLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    static void escribirFecha(DataOutput out, LocalDate fecha) throws IOException {
+        out.writeBoolean(fecha != null);
+        if (fecha != null) {
+            out.writeLong(fecha.toEpochDay());
+        }
+    }
+
+    static LocalDate leerFecha(DataInput in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+    }
+
+    static void escribirDecimal(DataOutput out, BigDecimal valor) throws IOException {
+        if (valor == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] sinEscala = valor.unscaledValue().toByteArray();
+        out.writeInt(sinEscala.length);
+        out.write(sinEscala);
+        out.writeInt(valor.scale());
+    }
+
+    static BigDecimal leerDecimal(DataInput in) throws IOException {
+        int largo = in.readInt();
+        if (largo < 0) {
+            return null;
+        }
+        byte[] sinEscala = new byte[largo];
+        in.readFully(sinEscala);
+        return new BigDecimal(new BigInteger(sinEscala), in.readInt());
+    }
+}
@@ -0,0 +1,234 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.util.Assert;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Decorador que lee y mapea registros por adelantado en un hilo propio y los deja en
+// una cola acotada, para que el hilo del step tome entidades ya construidas mientras
+// el writer hace commit. El orden se mantiene y el checkpoint guardado corresponde
+// al último registro entregado al step, no al último leído por adelantado. Lo que la
+// lectura deja registrado fuera del chunk ocurre recién al entregar cada registro al
+// step: los rechazos del mapper viajan en la cola y la validación de la lectura
+// fusionada (errores e ids aceptados) corre en el hilo del step. Así nada queda
+// registrado para los registros leídos más allá del checkpoint.
+@Slf4j
+public class PrefetchingItemReader<T> implements ItemStreamReader<T> {
+
+    private final MappedCsvItemReader<T> delegate;
+    private final int profundidad;
+
+    // Validador de la lectura fusionada, que se aplica al entregar cada registro
+    private FusedItemValidator<T> validador;
+
+    private BlockingQueue<Entrada<T>> cola;
+    private Thread hiloLector;
+    private volatile boolean detenido;
+    private boolean finAlcanzado;
+
+    // Estado del delegate tras el último registro entregado al step
+    private long posicionConsumida;
+    private int registrosConsumidos;
+
+    // Métricas
+    private final LongAdder registrosPrefetch = new LongAdder();
+    private final LongAdder esperaConsumidorNanos = new LongAdder();
+    private final LongAdder esperaLectorNanos = new LongAdder();
+    private final AtomicInteger profundidadMaxima = new AtomicInteger();
+
+    public PrefetchingItemReader(MappedCsvItemReader<T> delegate, int profundidad) {
+        Assert.notNull(delegate, "Se requiere un reader delegado");
+        Assert.isTrue(profundidad > 0, "La profundidad del prefetch debe ser positiva");
+        this.delegate = delegate;
+        this.profundidad = profundidad;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        delegate.open(executionContext);
+        FusedItemValidator<T> quitado = delegate.quitarValidador();
+        if (quitado != null) {
+            validador = quitado;
+        }
+        delegate.retenerRechazos();
+
+        posicionConsumida = delegate.getPosicion();
+        registrosConsumidos = delegate.getCurrentItemCount();
+        finAlcanzado = false;
+        detenido = false;
+        cola = new ArrayBlockingQueue<>(profundidad);
+
+        // El delegate puede ser un proxy @StepScope: el hilo lector se registra en la
+        // misma ejecución del step para poder resolverlo
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        StepExecution stepExecution = stepContext != null ? stepContext.getStepExecution() : null;
+
+        hiloLector = new Thread(() -> leerPorAdelantado(stepExecution),
+                "prefetch-" + Thread.currentThread().getName());
+        hiloLector.setDaemon(true);
+        hiloLector.start();
+
+        log.debug("Prefetch iniciado con profundidad {} desde el byte {}", profundidad, posicionConsumida);
+    }
+
+    @Override
+    public T read() throws Exception {
+        while (!finAlcanzado) {
+            Entrada<T> entrada = cola.poll();
+            if (entrada == null) {
+                long inicio = System.nanoTime();
+                entrada = cola.take();
+                esperaConsumidorNanos.add(System.nanoTime() - inicio);
+            }
+
+            if (entrada.fin()) {
+                finAlcanzado = true;
+            } else {
+                posicionConsumida = entrada.posicion();
+                registrosConsumidos = entrada.registros();
+            }
+
+            // Rechazos del mapper en las líneas anteriores a este registro
+            delegate.publicarRechazos(entrada.rechazos());
+
+            if (entrada.error() != null) {
+                throw entrada.error();
+            }
+            // Un registro que la validación rechaza ya cuenta como leído en el delegate
+            T item = entrada.item();
+            if (item == null || validador == null || validador.validar(item)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        delegate.guardarPuntoDeReinicio(executionContext, posicionConsumida, registrosConsumidos);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        detenido = true;
+        if (hiloLector != null) {
+            hiloLector.interrupt();
+            try {
+                hiloLector.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Cerrar el delegate con el hilo lector todavía dentro de read() liberaría el
+            // mapeo que está leyendo: si no terminó, el delegate queda abierto y se falla
+            if (hiloLector.isAlive()) {
+                throw new ItemStreamException("El hilo de prefetch " + hiloLector.getName()
+                        + " no terminó; no se cierra el lector que todavía usa");
+            }
+            hiloLector = null;
+            logEstadisticas();
+        }
+        cola = null;
+        delegate.close();
+    }
+
+    // Bucle del hilo lector: lee del delegate y encola cada registro con la posición
+    // del delegate justo después de leerlo. Los errores se encolan en su lugar para
+    // que el step los reciba en orden
+    private void leerPorAdelantado(StepExecution stepExecution) {
+        if (stepExecution != null) {
+            StepSynchronizationManager.register(stepExecution);
+        }
+        try {
+            while (!detenido) {
+                Entrada<T> entrada;
+                try {
+                    T item = delegate.read();
+                    entrada = entrada(item, null, item == null);
+                } catch (Exception e) {
+                    entrada = entrada(null, e, false);
+                } catch (Error e) {
+                    // Errores graves: se entregan al step y el hilo termina
+                    encolar(entrada(null, new IllegalStateException("Error en el hilo de prefetch", e), false));
+                    throw e;
+                }
+
+                encolar(entrada);
+                if (entrada.fin()) {
+                    return;
+                }
+                registrosPrefetch.increment();
+            }
+        } catch (InterruptedException e) {
+            log.debug("Hilo de prefetch interrumpido");
+        } finally {
+            if (stepExecution != null) {
+                StepSynchronizationManager.close();
+            }
+        }
+    }
+
+    // Entrada con el estado del delegate y los rechazos retenidos desde la anterior
+    private Entrada<T> entrada(T item, Exception error, boolean fin) {
+        return new Entrada<>(item, error, delegate.tomarRechazos(), delegate.getPosicion(),
+                delegate.getCurrentItemCount(), fin);
+    }
+
+    private void encolar(Entrada<T> entrada) throws InterruptedException {
+        if (!cola.offer(entrada)) {
+            long inicio = System.nanoTime();
+            cola.put(entrada);
+            esperaLectorNanos.add(System.nanoTime() - inicio);
+        }
+        profundidadMaxima.accumulateAndGet(cola.size(), Math::max);
+    }
+
+    // Número de registros listos en la cola en este momento
+    public int getProfundidadActual() {
+        BlockingQueue<Entrada<T>> actual = cola;
+        return actual != null ? actual.size() : 0;
+    }
+
+    public int getProfundidadMaxima() {
+        return profundidadMaxima.get();
+    }
+
+    public long getRegistrosPrefetch() {
+        return registrosPrefetch.sum();
+    }
+
+    // Tiempo que el step esperó por registros (el lector no alcanzó a adelantarse)
+    public long getEsperaConsumidorMs() {
+        return TimeUnit.NANOSECONDS.toMillis(esperaConsumidorNanos.sum());
+    }
+
+    // Tiempo que el hilo lector esperó con la cola llena (el step es el cuello de botella)
+    public long getEsperaLectorMs() {
+        return TimeUnit.NANOSECONDS.toMillis(esperaLectorNanos.sum());
+    }
+
+    private void logEstadisticas() {
+        log.info("Prefetch finalizado: {} registros leídos por adelantado, profundidad máxima {}/{}, "
+                + "espera del step {} ms, espera del lector {} ms",
+                getRegistrosPrefetch(), getProfundidadMaxima(), profundidad, getEsperaConsumidorMs(),
+                getEsperaLectorMs());
+    }
+
+    // Registro leído por adelantado (o error, o fin de archivo) con los rechazos de las
+    // líneas anteriores y el estado del delegate después de leerlo
+    private record Entrada<T>(T item, Exception error, List<MappedCsvItemReader.Rechazo> rechazos, long posicion,
+            int registros, boolean fin) {
+    }
+}
@@ -0,0 +1,245 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+// Cadena inmutable de reglas de validación compilada a partir de ProcessorConfig.
+// Las reglas desactivadas no se agregan, los límites se calculan al compilar y las
+// reglas se ordenan por costo (las baratas primero; a igual costo se mantiene el orden
+// en que se declaran, que pone primero las que más rechazan). Cuenta los rechazos de
+// cada regla en contadores que sobreviven a las recompilaciones. Con validarLote un
+// chunk completo se valida regla por regla, leyendo las columnas de las reglas de
+// rango en arreglos de long.
+public final class RuleChain<T> {
+
+    private final ValidationRule<T>[] reglas;
+    private final LongAdder[] rechazos;
+
+    private RuleChain(List<ValidationRule<T>> reglas, Contadores contadores) {
+        this.reglas = reglas.toArray(RuleChain.<T>arregloDeReglas(reglas.size()));
+        this.rechazos = new LongAdder[this.reglas.length];
+        for (int i = 0; i < this.reglas.length; i++) {
+            this.rechazos[i] = contadores.de(this.reglas[i].nombre());
+        }
+    }
+
+    public static <T> Builder<T> builder(Contadores contadores) {
+        return new Builder<>(contadores);
+    }
+
+    // Retorna la primera regla que el item no cumple, o null si es válido
+    public ValidationRule<T> validar(T item) {
+        for (int i = 0; i < reglas.length; i++) {
+            if (!reglas[i].valida().test(item)) {
+                rechazos[i].increment();
+                return reglas[i];
+            }
+        }
+        return null;
+    }
+
+    // Valida un chunk completo regla por regla. Las reglas de rango leen su columna de
+    // los items pendientes en un long[] y la comparan en un ciclo sin ramas; las demás
+    // evalúan su predicado sobre los pendientes. Cada item se rechaza con la primera
+    // regla que no cumple, igual que en validar
+    public Lote<T> validarLote(List<? extends T> items) {
+        int cantidad = items.size();
+        int palabras = (cantidad + 63) >>> 6;
+        long[] pendientes = new long[palabras];
+        Arrays.fill(pendientes, -1L);
+        if ((cantidad & 63) != 0) {
+            pendientes[palabras - 1] = (1L << cantidad) - 1;
+        }
+
+        ValidationRule<T>[] rechazoPorItem = arregloDeReglas(cantidad);
+        int[] rechazadosPorRegla = new int[reglas.length];
+        long[] valores = new long[cantidad];
+        long[] fallidos = new long[palabras];
+
+        for (int r = 0; r < reglas.length; r++) {
+            ValidationRule<T> regla = reglas[r];
+            if (regla.columna() != null) {
+                ToLongFunction<T> columna = regla.columna();
+                for (int i = 0; i < cantidad; i++) {
+                    valores[i] = (pendientes[i >>> 6] & (1L << i)) != 0
+                            ? columna.applyAsLong(items.get(i))
+                            : regla.minimo();
+                }
+                marcarFueraDeRango(valores, cantidad, regla.minimo(), regla.maximo(), fallidos);
+            } else {
+                Arrays.fill(fallidos, 0L);
+                Predicate<T> valida = regla.valida();
+                for (int w = 0; w < palabras; w++) {
+                    for (long bits = pendientes[w]; bits != 0; bits &= bits - 1) {
+                        int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        if (!valida.test(items.get(i))) {
+                            fallidos[w] |= 1L << i;
+                        }
+                    }
+                }
+            }
+
+            boolean quedanPendientes = false;
+            for (int w = 0; w < palabras; w++) {
+                long nuevos = fallidos[w] & pendientes[w];
+                pendientes[w] &= ~nuevos;
+                quedanPendientes |= pendientes[w] != 0;
+                rechazadosPorRegla[r] += Long.bitCount(nuevos);
+                for (; nuevos != 0; nuevos &= nuevos - 1) {
+                    rechazoPorItem[(w << 6) + Long.numberOfTrailingZeros(nuevos)] = regla;
+                }
+            }
+            if (!quedanPendientes) {
+                break;
+            }
+        }
+
+        for (int r = 0; r < reglas.length; r++) {
+            if (rechazadosPorRegla[r] > 0) {
+                rechazos[r].add(rechazadosPorRegla[r]);
+            }
+        }
+        return new Lote<>(pendientes, rechazoPorItem);
+    }
+
+    // Java no crea arreglos de un tipo genérico; el cast es seguro porque el arreglo
+    // solo recibe reglas de T
+    @SuppressWarnings("unchecked")
+    private static <T> ValidationRule<T>[] arregloDeReglas(int largo) {
+        return (ValidationRule<T>[]) new ValidationRule<?>[largo];
+    }
+
+    // Marca en el bitmap los valores fuera de [minimo, maximo]
+    private static void marcarFueraDeRango(long[] valores, int cantidad, long minimo, long maximo,
+            long[] fallidos) {
+        Arrays.fill(fallidos, 0L);
+        for (int i = 0; i < cantidad; i++) {
+            long valor = valores[i];
+            long fuera = (valor < minimo | valor > maximo) ? 1L : 0L;
+            fallidos[i >>> 6] |= fuera << i;
+        }
+    }
+
+    // Nombres de las reglas activas en el orden en que se evalúan
+    public List<String> getNombres() {
+        List<String> nombres = new ArrayList<>(reglas.length);
+        for (ValidationRule<T> regla : reglas) {
+            nombres.add(regla.nombre());
+        }
+        return nombres;
+    }
+
+    public static final class Builder<T> {
+
+        private final Contadores contadores;
+        private final List<ValidationRule<T>> reglas = new ArrayList<>();
+
+        private Builder(Contadores contadores) {
+            this.contadores = contadores;
+        }
+
+        public Builder<T> regla(String nombre, int costo, Predicate<T> valida, String motivo,
+                Function<T, String> valorOriginal) {
+            reglas.add(new ValidationRule<>(nombre, costo, valida, motivo, valorOriginal));
+            return this;
+        }
+
+        // Agrega la regla solo si está activa en la configuración
+        public Builder<T> reglaSi(boolean activa, String nombre, int costo, Predicate<T> valida, String motivo,
+                Function<T, String> valorOriginal) {
+            return activa ? regla(nombre, costo, valida, motivo, valorOriginal) : this;
+        }
+
+        // Regla que exige minimo <= columna <= maximo. La columna solo se lee de items que
+        // cumplieron las reglas anteriores, así que puede asumir sus campos presentes
+        public Builder<T> reglaRango(String nombre, int costo, ToLongFunction<T> columna, long minimo, long maximo,
+                String motivo, Function<T, String> valorOriginal) {
+            Predicate<T> valida = item -> {
+                long valor = columna.applyAsLong(item);
+                return valor >= minimo && valor <= maximo;
+            };
+            reglas.add(new ValidationRule<>(nombre, costo, valida, motivo, valorOriginal, columna, minimo, maximo));
+            return this;
+        }
+
+        public Builder<T> reglaRangoSi(boolean activa, String nombre, int costo, ToLongFunction<T> columna,
+                long minimo, long maximo, String motivo, Function<T, String> valorOriginal) {
+            return activa ? reglaRango(nombre, costo, columna, minimo, maximo, motivo, valorOriginal) : this;
+        }
+
+        public RuleChain<T> build() {
+            List<ValidationRule<T>> ordenadas = new ArrayList<>(reglas);
+            ordenadas.sort(Comparator.comparingInt(ValidationRule::costo));
+            return new RuleChain<>(ordenadas, contadores);
+        }
+    }
+
+    // Resultado de validarLote: bitmap de aceptados y primera regla incumplida por item
+    public static final class Lote<T> {
+
+        private final long[] aceptados;
+        private final ValidationRule<T>[] rechazos;
+
+        private Lote(long[] aceptados, ValidationRule<T>[] rechazos) {
+            this.aceptados = aceptados;
+            this.rechazos = rechazos;
+        }
+
+        public boolean isAceptado(int indice) {
+            return (aceptados[indice >>> 6] & (1L << indice)) != 0;
+        }
+
+        // Regla que rechazó el item, o null si fue aceptado
+        public ValidationRule<T> getRechazo(int indice) {
+            return rechazos[indice];
+        }
+
+        public int getCantidadAceptados() {
+            int total = 0;
+            for (long palabra : aceptados) {
+                total += Long.bitCount(palabra);
+            }
+            return total;
+        }
+    }
+
+    // Rechazos por regla de un processor, compartidos por todas sus compilaciones
+    public static final class Contadores {
+
+        private final Map<String, LongAdder> porRegla = new ConcurrentHashMap<>();
+
+        private LongAdder de(String nombre) {
+            return porRegla.computeIfAbsent(nombre, n -> new LongAdder());
+        }
+
+        // Rechazos de cada regla que rechazó al menos un item
+        public Map<String, Long> getRechazos() {
+            Map<String, Long> resultado = new TreeMap<>();
+            porRegla.forEach((nombre, contador) -> {
+                long total = contador.sum();
+                if (total > 0) {
+                    resultado.put(nombre, total);
+                }
+            });
+            return resultado;
+        }
+
+        // Suma un rechazo hecho fuera de la cadena, como los ids duplicados
+        public void sumar(String nombre) {
+            de(nombre).increment();
+        }
+
+        public void reset() {
+            porRegla.values().forEach(LongAdder::reset);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.batch.SpringBatchApp.steps;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
@@ -14,19 +19,26 @@ import org.springframework.stereotype.Component;
 
 import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.Transacciones;
-import com.batch.SpringBatchApp.utils.DateParser;
+import com.batch.SpringBatchApp.utils.ScaledAmount;
+import com.batch.SpringBatchApp.utils.TextNormalizer;
+import com.batch.SpringBatchApp.utils.TipoCanonico;
+import com.batch.SpringBatchApp.utils.TypeDictionary;
+import com.batch.SpringBatchApp.utils.ValidationPolicies;
+import com.batch.SpringBatchApp.utils.ValidationPolicy;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
-public class TransaccionesItemProcessor implements ItemProcessor<Transacciones, Transacciones> {
+public class TransaccionesItemProcessor
+        implements ItemProcessor<Transacciones, Transacciones>, BatchItemProcessor<Transacciones, Transacciones>,
+        FusedItemValidator<Transacciones> {
 
-    // Tipos de transacción válidos - SOLO debito y credito según requerimientos
-    private static final List<String> TIPOS_VALIDOS = Arrays.asList("DEBITO", "CREDITO");
+    // Regla de tipo válido, que se registra como advertencia al rechazar
+    private static final String REGLA_TIPO = "tipoValido";
 
-    // Tipos que deben ser enviados al archivo de errores
-    private static final List<String> TIPOS_INVALIDOS = Arrays.asList("INVALID", "DESCONOCIDO", "UNKNOWN", "ERROR");
+    // Rechazo por id ya aceptado en la ejecución (con rechazarDuplicados)
+    private static final String REGLA_DUPLICADO = "idDuplicado";
 
     @Autowired
     private ProcessorConfig processorConfig;
@@ -34,8 +46,19 @@ public class TransaccionesItemProcessor implements ItemProcessor<Transacciones,
     @Autowired
     private ErrorTransactionWriter errorWriter;
 
+    // Tipos de transacción válidos
     @Autowired
-    private DateParser dateParser;
+    private TypeDictionary typeDictionary;
+
+    // Límites de validación de cada ejecución del job
+    @Autowired
+    private ValidationPolicies politicas;
+
+    // Rechazos por regla; las reglas de cada ejecución se guardan en sus políticas
+    private final RuleChain.Contadores rechazosPorRegla = new RuleChain.Contadores();
+
+    // Ids aceptados en la ejecución, para rechazar duplicados
+    private final DuplicateIdFilter duplicados = new DuplicateIdFilter();
 
     // Contadores para estadísticas
     private final AtomicLong processedCount = new AtomicLong(0);
@@ -46,156 +69,216 @@ public class TransaccionesItemProcessor implements ItemProcessor<Transacciones,
     @Override
     @Nullable
     public Transacciones process(@NonNull Transacciones item) throws Exception {
-        processedCount.incrementAndGet();
+        return procesarLote(List.of(item), false, false).get(0); // null filtra el registro si se rechazó
+    }
 
-        log.debug("Procesando transacción: ID={}, Tipo={}", item.getId(), item.getTipo());
+    // Lectura fusionada: el reader pasa cada transacción recién mapeada, que se valida
+    // con las mismas reglas y se normaliza sobre el mismo objeto
+    @Override
+    public boolean validar(Transacciones item) {
+        return procesarLote(List.of(item), true, true).get(0) != null;
+    }
 
-        // Verificar si es un marcador de error del reader
-        if (isErrorMarker(item)) {
-            log.debug("Marcador de error detectado, saltando: ID={}", item.getId());
-            skippedCount.incrementAndGet();
-            return null; // Filtrar - no procesar más
-        }
+    // Procesa un chunk completo: salta los marcadores de error, valida el resto en lote
+    // y retorna, en el orden del chunk, la versión procesada de cada registro o null si
+    // se rechazó
+    @Override
+    public List<Transacciones> procesarLote(List<? extends Transacciones> items) {
+        return procesarLote(items, false, true);
+    }
 
-        try {
-            // Validación de campos obligatorios
-            if (!validarCamposObligatorios(item)) {
-                errorWriter.writeErrorTransaction(item, "Campos obligatorios faltantes", "N/A");
-                errorCount.incrementAndGet();
-                return null;
+    // Con idsConfirmados los ids aceptados no se liberan si el chunk se revierte: la
+    // lectura fusionada y BatchChunkProcessor no vuelven a validar los registros en el
+    // reintento
+    private List<Transacciones> procesarLote(List<? extends Transacciones> items, boolean enLugar,
+            boolean idsConfirmados) {
+        processedCount.addAndGet(items.size());
+
+        List<Transacciones> candidatas = new ArrayList<>(items.size());
+        int[] indices = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            Transacciones item = items.get(i);
+            log.debug("Procesando transacción: ID={}, Tipo={}", item.getId(), item.getTipo());
+
+            // Verificar si es un marcador de error del reader
+            if (isErrorMarker(item)) {
+                log.debug("Marcador de error detectado, saltando: ID={}", item.getId());
+                skippedCount.incrementAndGet();
+            } else {
+                indices[candidatas.size()] = i;
+                candidatas.add(item);
             }
+        }
 
-            // Validación de fecha (validación adicional del processor)
-            if (!validarFecha(item)) {
-                errorWriter.writeErrorTransaction(item, "Fecha inválida en processor",
-                        item.getFecha() != null ? item.getFecha().toString() : "null");
-                errorCount.incrementAndGet();
-                return null;
+        RuleChain.Lote<Transacciones> lote = validarLote(candidatas);
+        List<Transacciones> procesadas = Arrays.asList(new Transacciones[items.size()]);
+        for (int i = 0; i < candidatas.size(); i++) {
+            Transacciones item = candidatas.get(i);
+            TipoCanonico tipoNormalizado = revisar(item, lote, i);
+            if (tipoNormalizado != null && !esDuplicada(item, idsConfirmados)) {
+                Transacciones procesada = normalizar(item, enLugar ? item : new Transacciones(), tipoNormalizado);
+                registrarValida(procesada);
+                procesadas.set(indices[i], procesada);
             }
+        }
+        return procesadas;
+    }
 
-            // Validación de monto
-            if (!validarMonto(item)) {
-                errorWriter.writeErrorTransaction(item, "Monto inválido",
-                        item.getMonto() != null ? item.getMonto().toString() : "null");
-                errorCount.incrementAndGet();
-                return null;
-            }
+    // Valida las candidatas en lote; si alguna regla lanza una excepción retorna null
+    // para que cada transacción se valide por separado
+    @Nullable
+    private RuleChain.Lote<Transacciones> validarLote(List<Transacciones> candidatas) {
+        try {
+            return getReglas().validarLote(candidatas);
+        } catch (RuntimeException e) {
+            log.warn("Error en la validación por lote, se valida cada transacción por separado: {}",
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    // Con rechazarDuplicados, rechaza la transacción si su id ya se aceptó en la ejecución.
+    // Solo se registran ids de registros que cumplen las reglas
+    private boolean esDuplicada(Transacciones item, boolean idsConfirmados) {
+        if (!processorConfig.isRechazarDuplicados() || duplicados.registrar(item.getId(), idsConfirmados)) {
+            return false;
+        }
+        log.debug("Transacción rechazada por id duplicado: ID={}", item.getId());
+        rechazosPorRegla.sumar(REGLA_DUPLICADO);
+        escribirError(item, "Registro duplicado", String.valueOf(item.getId()));
+        errorCount.incrementAndGet();
+        return true;
+    }
+
+    // Al confirmarse el chunk sus ids quedan registrados; si se revierte se liberan
+    // para que el reintento no los rechace como duplicados
+    @AfterChunk
+    public void confirmarIds(ChunkContext chunkContext) {
+        duplicados.confirmar(chunkContext.getStepContext().getStepExecution());
+    }
+
+    @AfterChunkError
+    public void liberarIds(ChunkContext chunkContext) {
+        duplicados.liberar(chunkContext.getStepContext().getStepExecution());
+    }
 
-            // Validación crítica de tipo - RECHAZAR tipos inválidos
-            String tipoNormalizado = normalizarTipo(item.getTipo());
-            if (!TIPOS_VALIDOS.contains(tipoNormalizado)) {
-                log.warn("Transacción rechazada por tipo inválido: ID={}, Tipo original='{}', Tipo normalizado='{}'",
-                        item.getId(), item.getTipo(), tipoNormalizado);
-                errorWriter.writeErrorTransaction(item, "Tipo de transacción no válido", item.getTipo());
+    // Registra el rechazo de la transacción y retorna null, o retorna su tipo
+    // normalizado si cumple todas las reglas. Sin lote se validan aquí las reglas
+    private TipoCanonico revisar(Transacciones item, @Nullable RuleChain.Lote<Transacciones> lote, int indice) {
+        try {
+            ValidationRule<Transacciones> rechazo = lote != null ? lote.getRechazo(indice) : getReglas().validar(item);
+            if (rechazo != null) {
+                if (REGLA_TIPO.equals(rechazo.nombre())) {
+                    log.warn("Transacción rechazada por tipo inválido: ID={}, Tipo original='{}'",
+                            item.getId(), item.getTipo());
+                } else {
+                    log.debug("Transacción rechazada por la regla {}: ID={}", rechazo.nombre(), item.getId());
+                }
+                escribirError(item, rechazo.motivo(), rechazo.valorOriginal().apply(item));
                 errorCount.incrementAndGet();
                 return null;
             }
 
-            // Si llegamos aquí, la transacción es válida - crear versión procesada
-            Transacciones transaccionProcesada = crearTransaccionProcesada(item, tipoNormalizado);
-            validCount.incrementAndGet();
-
-            log.info("Transacción procesada exitosamente: ID={}, Tipo={}, Monto={}",
-                    transaccionProcesada.getId(), transaccionProcesada.getTipo(),
-                    transaccionProcesada.getMonto());
-
-            return transaccionProcesada;
+            return typeDictionary.transacciones().buscar(item.getTipo());
 
         } catch (Exception e) {
             log.error("Error inesperado al procesar transacción ID={}: {}", item.getId(), e.getMessage(), e);
-            errorWriter.writeErrorTransaction(item, "Error de procesamiento: " + e.getMessage(), "N/A");
+            escribirError(item, "Error de procesamiento: " + e.getMessage(), "N/A");
             errorCount.incrementAndGet();
             return null; // Filtrar en lugar de lanzar excepción
         }
     }
 
+    private void registrarValida(Transacciones procesada) {
+        validCount.incrementAndGet();
+        log.info("Transacción procesada exitosamente: ID={}, Tipo={}, Monto={}",
+                procesada.getId(), procesada.getTipo(), montoComoTexto(procesada));
+    }
+
     // Verifica si la transacción es un marcador de error del reader
     private boolean isErrorMarker(Transacciones item) {
         return item.getTipo() != null && item.getTipo().startsWith("__ERROR_MARKER__");
     }
 
-    private Transacciones crearTransaccionProcesada(Transacciones original, String tipoNormalizado) {
-        Transacciones procesada = new Transacciones();
+    // Copia los campos de la transacción original a la procesada aplicando las
+    // transformaciones; ambas pueden ser el mismo objeto
+    private Transacciones normalizar(Transacciones original, Transacciones procesada,
+            TipoCanonico tipoNormalizado) {
         procesada.setId(original.getId());
         procesada.setFecha(original.getFecha());
-        procesada.setTipo(tipoNormalizado);
+        procesada.setTipo(tipoNormalizado.name());
 
         // Aplicar transformaciones al monto
-        BigDecimal montoTransformado = transformarMonto(original.getMonto());
-        procesada.setMonto(montoTransformado);
+        if (processorConfig.isMontosPuntoFijo()) {
+            procesada.setMontoEscalado(transformarMontoEscalado(original.getMontoEscalado()));
+        } else {
+            BigDecimal montoTransformado = transformarMonto(original.getMonto());
+            procesada.setMonto(montoTransformado);
+        }
 
         return procesada;
     }
 
-    private boolean validarCamposObligatorios(Transacciones item) {
-        if (item.getId() == null || item.getId() <= 0) {
-            log.debug("ID inválido: {}", item.getId());
-            return false;
-        }
-
-        if (item.getFecha() == null) {
-            log.debug("Fecha nula para ID: {}", item.getId());
-            return false;
-        }
-
-        if (item.getMonto() == null) {
-            log.debug("Monto nulo para ID: {}", item.getId());
-            return false;
-        }
-
-        if (item.getTipo() == null || item.getTipo().trim().isEmpty()) {
-            log.debug("Tipo nulo o vacío para ID: {}", item.getId());
-            return false;
-        }
-
-        return true;
+    // Compila las reglas para la ejecución del step que comienza
+    @BeforeStep
+    public void compilarReglas(StepExecution stepExecution) {
+        RuleChain<Transacciones> reglas = politicas.compilado(stepExecution, this, this::compilarReglas);
+        log.debug("Reglas de transacciones compiladas: {}", reglas.getNombres());
     }
 
-    private boolean validarFecha(Transacciones item) {
-        LocalDate fecha = item.getFecha();
-
-        // Usar el validador del DateParser para consistencia
-        if (!dateParser.isValidDate(fecha)) {
-            log.debug("Fecha inválida según DateParser: {} para ID: {}", fecha, item.getId());
-            return false;
-        }
-
-        // Validaciones adicionales específicas del procesador
-        if (processorConfig.isValidarFechasFuturas()) {
-            LocalDate ahora = LocalDate.now();
-            if (fecha.isAfter(ahora)) {
-                log.debug("Fecha futura no permitida: {} para ID: {}", fecha, item.getId());
-                return false;
-            }
-        }
-
-        LocalDate fechaMinima = LocalDate.of(processorConfig.getAnioMinimo(), 1, 1);
-        if (fecha.isBefore(fechaMinima)) {
-            log.debug("Fecha anterior al año mínimo {}: {} para ID: {}",
-                    processorConfig.getAnioMinimo(), fecha, item.getId());
-            return false;
-        }
-
-        return true;
+    // Reglas de la ejecución a la que pertenece el step del hilo actual
+    private RuleChain<Transacciones> getReglas() {
+        return politicas.compiladoVigente(this, this::compilarReglas);
     }
 
-    private boolean validarMonto(Transacciones item) {
-        BigDecimal monto = item.getMonto();
+    // Arma la cadena de reglas con los límites ya calculados de la política de la ejecución
+    private RuleChain<Transacciones> compilarReglas(ValidationPolicy politica) {
+        boolean puntoFijo = processorConfig.isMontosPuntoFijo();
+        long diaMinimo = Math.max(politica.getDiaMinimoParser(), politica.getDiaMinimo());
+        long diaMaximo = Math.min(politica.getDiaMaximoParser(), politica.getDiaMaximo());
+        long montoMaximoEscalado = politica.getMontoMaximoEscalado();
+        TypeDictionary.Diccionario tipos = typeDictionary.transacciones();
+
+        return RuleChain.<Transacciones>builder(rechazosPorRegla)
+                // Campos obligatorios
+                .regla("idPositivo", 0, t -> t.getId() != null && t.getId() > 0,
+                        "Campos obligatorios faltantes", t -> "N/A")
+                .regla("fechaPresente", 0, t -> t.getFecha() != null,
+                        "Campos obligatorios faltantes", t -> "N/A")
+                .reglaSi(!puntoFijo, "montoPresente", 0, t -> t.getMonto() != null,
+                        "Campos obligatorios faltantes", t -> "N/A")
+                .regla("tipoPresente", 1, t -> !esVacio(t.getTipo()),
+                        "Campos obligatorios faltantes", t -> "N/A")
+                // Fecha dentro del rango del DateParser, del año mínimo y sin fechas futuras
+                .reglaRango("fechaEnRango", 2, t -> t.getFecha().toEpochDay(),
+                        diaMinimo, diaMaximo,
+                        "Fecha inválida en processor", t -> String.valueOf(t.getFecha()))
+                // Monto
+                .reglaSi(processorConfig.isOmitirMontosCero(), "montoNoCero", 3,
+                        puntoFijo ? t -> t.getMontoEscalado() != 0
+                                : t -> t.getMonto() != null && t.getMonto().signum() != 0,
+                        "Monto inválido", this::montoComoTexto)
+                .reglaRangoSi(puntoFijo, "montoMaximo", 3, Transacciones::getMontoEscalado,
+                        -montoMaximoEscalado, montoMaximoEscalado, "Monto inválido", this::montoComoTexto)
+                .reglaSi(!puntoFijo, "montoMaximo", 3,
+                        t -> politica.esMontoValido(t.getMonto()),
+                        "Monto inválido", this::montoComoTexto)
+                // Tipo reconocido por el diccionario de transacciones
+                .regla(REGLA_TIPO, 5, t -> tipos.buscar(t.getTipo()) != null,
+                        "Tipo de transacción no válido", Transacciones::getTipo)
+                .build();
+    }
 
-        // Validar que no sea cero si está configurado para omitirlos
-        if (processorConfig.isOmitirMontosCero() && monto.compareTo(BigDecimal.ZERO) == 0) {
-            log.debug("Monto cero no permitido para ID: {}", item.getId());
-            return false;
-        }
+    private static boolean esVacio(String valor) {
+        return TextNormalizer.esVacio(valor);
+    }
 
-        // Validar rangos máximos
-        BigDecimal montoMaximo = new BigDecimal(processorConfig.getMontoMaximo());
-        if (monto.abs().compareTo(montoMaximo) > 0) {
-            log.debug("Monto excede el límite permitido: {} para ID: {}", monto, item.getId());
-            return false;
+    private long transformarMontoEscalado(long monto) {
+        if (processorConfig.isConvertirNegativos() && monto < 0) {
+            log.debug("Convirtiendo monto negativo {} a positivo", monto);
+            return -monto;
         }
-
-        return true;
+        return monto;
     }
 
     private BigDecimal transformarMonto(BigDecimal monto) {
@@ -206,41 +289,20 @@ public class TransaccionesItemProcessor implements ItemProcessor<Transacciones,
         return monto;
     }
 
-    private String normalizarTipo(String tipo) {
-        if (tipo == null) {
-            return null;
-        }
-
-        String tipoLimpio = tipo.trim().toUpperCase();
-
-        // Verificar si es un tipo explícitamente inválido
-        if (TIPOS_INVALIDOS.contains(tipoLimpio)) {
-            log.debug("Tipo identificado como inválido: {}", tipo);
-            return tipoLimpio; // Retornar para que sea rechazado posteriormente
+    // Texto del monto para logs y archivo de errores, en cualquiera de los dos modos
+    private String montoComoTexto(Transacciones item) {
+        if (processorConfig.isMontosPuntoFijo()) {
+            return ScaledAmount.toString(item.getMontoEscalado());
         }
+        return item.getMonto() != null ? item.getMonto().toString() : "null";
+    }
 
-        // Mapear tipos comunes a los estándar (SOLO debito y credito)
-        switch (tipoLimpio) {
-            case "DEBITO":
-            case "DEBIT":
-            case "DB":
-            case "RETIRO":
-            case "WITHDRAWAL":
-            case "EGRESO":
-                return "DEBITO";
-
-            case "CREDITO":
-            case "CREDIT":
-            case "CR":
-            case "DEPOSITO":
-            case "DEPOSIT":
-            case "INGRESO":
-                return "CREDITO";
-
-            default:
-                log.debug("Tipo no reconocido, será rechazado: {}", tipo);
-                return tipoLimpio; // Retornar el tipo sin cambios para que sea rechazado
+    // Registra el error; en modo punto fijo el BigDecimal se completa solo aquí
+    private void escribirError(Transacciones item, String motivo, String valorOriginal) {
+        if (processorConfig.isMontosPuntoFijo() && item.getMonto() == null) {
+            item.setMonto(ScaledAmount.toBigDecimal(item.getMontoEscalado()));
         }
+        errorWriter.writeErrorTransaction(item, motivo, valorOriginal);
     }
 
     // Crea un marcador de error para transacciones que no se pueden procesar
@@ -260,8 +322,13 @@ public class TransaccionesItemProcessor implements ItemProcessor<Transacciones,
         log.info("Transacciones con errores filtradas: {}", errorCount.get());
         log.info("Marcadores de error saltados: {}", skippedCount.get());
         log.info("Archivo de errores: {}", errorWriter.getErrorFilePath());
-        log.info("Tipos válidos aceptados: {}", TIPOS_VALIDOS);
-        log.info("Tipos inválidos rechazados automáticamente: {}", TIPOS_INVALIDOS);
+        errorWriter.logQueueStats();
+        log.info("Tipos válidos aceptados: {}", typeDictionary.transacciones().getAlias());
+        log.info("Rechazos por regla: {}", rechazosPorRegla.getRechazos());
+        if (processorConfig.isRechazarDuplicados()) {
+            log.info("Ids registrados para duplicados: {} ({} KB)", duplicados.getCantidad(),
+                    duplicados.getBytesReservados() / 1024);
+        }
     }
 
     // Resetea los contadores para una nueva ejecución
@@ -270,5 +337,7 @@ public class TransaccionesItemProcessor implements ItemProcessor<Transacciones,
         validCount.set(0);
         errorCount.set(0);
         skippedCount.set(0);
+        rechazosPorRegla.reset();
+        duplicados.reiniciar(processorConfig.isRechazarDuplicados() ? processorConfig.getIdsEsperados() : 0);
     }
 }
\ No newline at end of file
@@ -1,150 +1,204 @@
 package com.batch.SpringBatchApp.steps;
 
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 
-import org.springframework.batch.item.file.FlatFileItemReader;
-import org.springframework.batch.item.file.LineMapper;
-import org.springframework.batch.item.file.mapping.DefaultLineMapper;
-import org.springframework.batch.item.file.mapping.FieldSetMapper;
-import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
-import org.springframework.batch.item.file.transform.FieldSet;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 
+import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.Transacciones;
 import com.batch.SpringBatchApp.utils.DateParser;
+import com.batch.SpringBatchApp.utils.ScaledAmount;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@StepScope
 @Slf4j
-public class TransaccionesItemReader extends FlatFileItemReader<Transacciones> {
+public class TransaccionesItemReader extends MappedCsvItemReader<Transacciones> {
+
+    // Posición de cada columna en el archivo
+    private static final int ID = 0;
+    private static final int FECHA = 1;
+    private static final int MONTO = 2;
+    private static final int TIPO = 3;
+
+    // Formato de las transacciones en la cache de parseo
+    private static final ParsedRowCodec<Transacciones> CODEC = new ParsedRowCodec<Transacciones>() {
+        @Override
+        public void escribir(Transacciones item, DataOutput out) throws IOException {
+            ParsedRowCodec.escribirLong(out, item.getId());
+            ParsedRowCodec.escribirFecha(out, item.getFecha());
+            ParsedRowCodec.escribirDecimal(out, item.getMonto());
+            out.writeLong(item.getMontoEscalado());
+            ParsedRowCodec.escribirTexto(out, item.getTipo());
+        }
+
+        @Override
+        public Transacciones leer(DataInput in) throws IOException {
+            Transacciones item = new Transacciones();
+            item.setId(ParsedRowCodec.leerLong(in));
+            item.setFecha(ParsedRowCodec.leerFecha(in));
+            item.setMonto(ParsedRowCodec.leerDecimal(in));
+            item.setMontoEscalado(in.readLong());
+            item.setTipo(ParsedRowCodec.leerTexto(in));
+            return item;
+        }
+    };
 
     @Autowired
     private DateParser dateParser;
 
+    @Autowired
+    private ProcessorConfig processorConfig;
+
     @Autowired
     private ErrorTransactionWriter errorWriter;
 
-    public TransaccionesItemReader() {
+    @Autowired
+    private TransaccionesItemProcessor transaccionesItemProcessor;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    // Archivo (ruta del classpath o URL file:) y rango de bytes asignados por
+    // FileRangePartitioner a esta partición
+    @Value("#{stepExecutionContext['fileName']}")
+    private String archivoParticion;
+
+    @Value("#{stepExecutionContext['startOffset']}")
+    private Long inicioParticion;
+
+    @Value("#{stepExecutionContext['endOffset']}")
+    private Long finParticion;
+
+    // Archivo y columnas por defecto. Se configuran después de construir el reader para
+    // no invocar métodos sobrescribibles desde el constructor
+    @PostConstruct
+    public void configurarArchivo() {
         setName("readTransactions");
         setResource(new ClassPathResource("transacciones.csv"));
         setLinesToSkip(1); // Saltar header
-        setEncoding(StandardCharsets.UTF_8.name());
+        setNames("id", "fecha", "monto", "tipo");
     }
 
     @Autowired
     public void configureAfterPropertiesSet() {
-        setLineMapper(getLineMapper());
+        setRecordMapper(getRecordMapper());
     }
 
-    private LineMapper<Transacciones> getLineMapper() {
-        DefaultLineMapper<Transacciones> lineMapper = new DefaultLineMapper<>();
-
-        // Configurar tokenizer
-        DelimitedLineTokenizer lineTokenizer = new DelimitedLineTokenizer();
-        lineTokenizer.setNames("id", "fecha", "monto", "tipo");
-        lineTokenizer.setDelimiter(",");
-
-        // Configurar mapper personalizado que NO lanza excepciones
-        FieldSetMapper<Transacciones> fieldSetMapper = new FieldSetMapper<Transacciones>() {
+    private CsvRecordMapper<Transacciones> getRecordMapper() {
+        // Configurar mapper personalizado que NO lanza excepciones. Los campos se
+        // parsean directamente del registro; los String originales solo se
+        // construyen cuando hay que registrar un error
+        CsvRecordMapper<Transacciones> recordMapper = new CsvRecordMapper<Transacciones>() {
             @Override
-            public Transacciones mapFieldSet(FieldSet fieldSet) {
-                String idStr = null;
-                String fechaStr = null;
-                String montoStr = null;
-                String tipoStr = null;
-
+            public Transacciones mapRecord(CsvRecord record) {
                 try {
-                    // Extraer valores del FieldSet
-                    idStr = fieldSet.readString("id");
-                    fechaStr = fieldSet.readString("fecha");
-                    montoStr = fieldSet.readString("monto");
-                    tipoStr = fieldSet.readString("tipo");
-
                     // Crear transacción marcadora de error si hay problemas
                     Transacciones transaccion = new Transacciones();
-                    boolean hasError = false;
-                    String errorReason = "";
 
                     // Procesar ID
-                    if (idStr == null || idStr.trim().isEmpty()) {
+                    if (record.isEmpty(ID)) {
                         log.warn("ID vacío o nulo en línea");
-                        errorWriter.writeErrorLine(idStr, fechaStr, montoStr, tipoStr, "ID vacío o nulo");
+                        writeErrorLine(record, "ID vacío o nulo");
                         return createErrorMarker(-1L, "ID inválido");
                     }
 
-                    Long id;
+                    long id;
                     try {
-                        id = Long.parseLong(idStr.trim());
+                        id = record.readLong(ID);
                         transaccion.setId(id);
                     } catch (NumberFormatException e) {
-                        log.warn("ID con formato inválido: '{}'", idStr);
-                        errorWriter.writeErrorLine(idStr, fechaStr, montoStr, tipoStr, "Formato de ID inválido");
+                        log.warn("ID con formato inválido: '{}'", record.readString(ID));
+                        writeErrorLine(record, "Formato de ID inválido");
                         return createErrorMarker(-1L, "Formato de ID inválido");
                     }
 
                     // Procesar fecha
-                    LocalDate fecha = dateParser.parseDate(fechaStr);
+                    LocalDate fecha = dateParser.parseDate(record.readChars(FECHA));
                     if (fecha == null || !dateParser.isValidDate(fecha)) {
-                        log.warn("Fecha inválida para ID {}: '{}'", id, fechaStr);
-                        errorWriter.writeErrorLine(idStr, fechaStr, montoStr, tipoStr,
-                                "Fecha inválida o fuera de rango");
+                        log.warn("Fecha inválida para ID {}: '{}'", id, record.readString(FECHA));
+                        writeErrorLine(record, "Fecha inválida o fuera de rango");
                         return createErrorMarker(id, "Fecha inválida");
                     }
                     transaccion.setFecha(fecha);
 
                     // Procesar monto
-                    if (montoStr == null || montoStr.trim().isEmpty()) {
+                    if (record.isEmpty(MONTO)) {
                         log.warn("Monto vacío para ID {}", id);
-                        errorWriter.writeErrorLine(idStr, fechaStr, montoStr, tipoStr, "Monto vacío");
+                        writeErrorLine(record, "Monto vacío");
                         return createErrorMarker(id, "Monto vacío");
                     }
 
                     try {
-                        BigDecimal monto = new BigDecimal(montoStr.trim());
-                        transaccion.setMonto(monto);
+                        if (processorConfig.isMontosPuntoFijo()) {
+                            transaccion.setMontoEscalado(record.readScaled(MONTO, ScaledAmount.SCALE));
+                        } else {
+                            transaccion.setMonto(record.readDecimal(MONTO));
+                        }
                     } catch (NumberFormatException e) {
-                        log.warn("Formato de monto inválido para ID {}: '{}'", id, montoStr);
-                        errorWriter.writeErrorLine(idStr, fechaStr, montoStr, tipoStr, "Formato de monto inválido");
+                        log.warn("Formato de monto inválido para ID {}: '{}'", id, record.readString(MONTO));
+                        writeErrorLine(record, "Formato de monto inválido");
                         return createErrorMarker(id, "Formato de monto inválido");
                     }
 
                     // Procesar tipo
-                    if (tipoStr == null || tipoStr.trim().isEmpty()) {
+                    if (record.isEmpty(TIPO)) {
                         log.warn("Tipo vacío para ID {}", id);
-                        errorWriter.writeErrorLine(idStr, fechaStr, montoStr, tipoStr, "Tipo de transacción vacío");
+                        writeErrorLine(record, "Tipo de transacción vacío");
                         return createErrorMarker(id, "Tipo vacío");
                     }
 
-                    transaccion.setTipo(tipoStr.trim());
+                    transaccion.setTipo(record.readString(TIPO));
 
                     log.debug("Transacción mapeada exitosamente en reader: ID={}, Fecha={}, Monto={}, Tipo={}",
-                            id, fecha, transaccion.getMonto(), tipoStr);
+                            id, fecha, transaccion.getMonto(), transaccion.getTipo());
 
                     return transaccion;
 
                 } catch (Exception e) {
                     String errorMsg = "Error general en mapeo: " + e.getMessage();
-                    log.error("Error inesperado al mapear línea: {}", fieldSet.toString(), e);
-                    errorWriter.writeErrorLine(idStr, fechaStr, montoStr, tipoStr, errorMsg);
+                    log.error("Error inesperado al mapear línea: {}", record.toString(), e);
+                    writeErrorLine(record, errorMsg);
                     return createErrorMarker(-1L, "Error de mapeo general");
                 }
             }
         };
 
-        lineMapper.setLineTokenizer(lineTokenizer);
-        lineMapper.setFieldSetMapper(fieldSetMapper);
+        return recordMapper;
+    }
+
+    // Registra la línea original en el archivo de errores
+    private void writeErrorLine(CsvRecord record, String motivo) {
+        registrarRechazo(record.readAll(), motivo);
+    }
+
+    @Override
+    protected void escribirRechazo(String[] campos, String motivo, long posicion) {
+        errorWriter.writeErrorLine(posicion, campos[ID], campos[FECHA], campos[MONTO], campos[TIPO], motivo);
+    }
 
-        return lineMapper;
+    @Override
+    protected void asignarPosicion(Transacciones item, long posicion) {
+        item.setPosicionOrigen(posicion);
     }
 
     // Crea una transacción marcadora para indicar error que será filtrada en el
     // processor
     private Transacciones createErrorMarker(Long id, String reason) {
+        if (processorConfig.isLecturaFusionada()) {
+            return null; // Lectura fusionada: la línea se omite sin marcador
+        }
         Transacciones errorMarker = new Transacciones();
         errorMarker.setId(id);
         errorMarker.setTipo("__ERROR_MARKER__:" + reason);
@@ -153,9 +207,23 @@ public class TransaccionesItemReader extends FlatFileItemReader<Transacciones> {
 
     @Override
     public void afterPropertiesSet() throws Exception {
+        if (archivoParticion != null) {
+            setResource(resourceLoader.getResource(archivoParticion));
+        }
+        if (inicioParticion != null && finParticion != null) {
+            setRango(inicioParticion, finParticion);
+        }
+        if (processorConfig != null && processorConfig.isCacheParseoHabilitado()) {
+            setCacheParseo(Paths.get(processorConfig.getDirectorioCacheParseo()), CODEC,
+                    (processorConfig.isMontosPuntoFijo() ? 1 : 0) | (processorConfig.isLecturaFusionada() ? 2 : 0),
+                    dateParser != null ? dateParser.getHoy().toEpochDay() : 0);
+        }
+        if (processorConfig != null && processorConfig.isLecturaFusionada()) {
+            setValidador(transaccionesItemProcessor);
+        }
         super.afterPropertiesSet();
         if (dateParser != null && errorWriter != null) {
-            setLineMapper(getLineMapper());
+            setRecordMapper(getRecordMapper());
         }
     }
-}
\ No newline at end of file
+}
@@ -6,8 +6,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
+import com.batch.SpringBatchApp.config.ProcessorConfig;
 import com.batch.SpringBatchApp.entities.Transacciones;
 import com.batch.SpringBatchApp.service.TransaccionesService;
+import com.batch.SpringBatchApp.utils.ModoEscritura;
+import com.batch.SpringBatchApp.utils.ScaledAmount;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,6 +21,9 @@ public class TransaccionesItemWriter implements ItemWriter<Transacciones> {
     @Autowired
     private TransaccionesService transaccionesService;
 
+    @Autowired
+    private ProcessorConfig processorConfig;
+
     @Override
     public void write(@NonNull Chunk<? extends Transacciones> chunk) throws Exception {
         log.info("=== ESCRIBIENDO CHUNK ===");
@@ -28,6 +34,11 @@ public class TransaccionesItemWriter implements ItemWriter<Transacciones> {
             return;
         }
 
+        // En modo punto fijo el BigDecimal se crea recién aquí, antes de persistir
+        if (processorConfig.isMontosPuntoFijo()) {
+            chunk.forEach(item -> item.setMonto(ScaledAmount.toBigDecimal(item.getMontoEscalado())));
+        }
+
         // Log de detalle de cada transacción (solo en nivel DEBUG para no saturar logs)
         if (log.isDebugEnabled()) {
             chunk.forEach(transaccion -> log.debug("Transacción a guardar: ID={}, Fecha={}, Monto={}, Tipo={}",
@@ -37,7 +48,7 @@ public class TransaccionesItemWriter implements ItemWriter<Transacciones> {
 
         try {
             // Guardar el chunk completo
-            transaccionesService.saveAll(chunk.getItems());
+            guardar(chunk);
 
             log.info("✓ Chunk de {} transacciones guardado exitosamente en la base de datos", chunk.size());
 
@@ -63,4 +74,33 @@ public class TransaccionesItemWriter implements ItemWriter<Transacciones> {
             throw e; // Re-lanzar para que Spring Batch maneje el error
         }
     }
+
+    // Actualiza transacciones que el índice de ids registra como ya cargadas, sin
+    // leerlas antes de la base de datos
+    public void actualizar(@NonNull Chunk<? extends Transacciones> chunk) {
+        if (processorConfig.isMontosPuntoFijo()) {
+            chunk.forEach(item -> item.setMonto(ScaledAmount.toBigDecimal(item.getMontoEscalado())));
+        }
+        if (esJdbc()) {
+            // El lote JDBC ya actualiza los ids existentes en un solo viaje
+            guardar(chunk);
+            log.info("✓ {} transacciones ya cargadas actualizadas por lote JDBC", chunk.size());
+            return;
+        }
+        int actualizadas = transaccionesService.updateAll(chunk.getItems());
+        log.info("✓ {} transacciones ya cargadas actualizadas ({} no encontradas, guardadas)",
+                actualizadas, chunk.size() - actualizadas);
+    }
+
+    private void guardar(Chunk<? extends Transacciones> chunk) {
+        if (esJdbc()) {
+            transaccionesService.saveAllBatch(chunk.getItems());
+        } else {
+            transaccionesService.saveAll(chunk.getItems());
+        }
+    }
+
+    private boolean esJdbc() {
+        return processorConfig.getEscrituraTransacciones() == ModoEscritura.JDBC;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.batch.SpringBatchApp.steps;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+// Regla de validación de un processor: el predicado retorna true si el item la
+// cumple; si no, el item se rechaza con el motivo y el valor indicados. El costo
+// relativo ordena la cadena (ver RuleChain). Las reglas de rango indican además la
+// columna numérica y sus límites, para validarlas por lote sobre un long[]
+public record ValidationRule<T>(String nombre, int costo, Predicate<T> valida, String motivo,
+        Function<T, String> valorOriginal, ToLongFunction<T> columna, long minimo, long maximo) {
+
+    public ValidationRule(String nombre, int costo, Predicate<T> valida, String motivo,
+            Function<T, String> valorOriginal) {
+        this(nombre, costo, valida, motivo, valorOriginal, null, 0, 0);
+    }
+}
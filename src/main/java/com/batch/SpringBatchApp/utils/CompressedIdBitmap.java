@@ -0,0 +1,192 @@
+package com.batch.SpringBatchApp.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Bitmap comprimido de ids entre 0 y 2^32 - 1, al estilo Roaring: los 16 bits altos
+// eligen un contenedor y los 16 bajos se guardan en él, como arreglo ordenado de char
+// mientras tenga hasta 4096 valores y como bitmap de 8 KB después. Así un rango denso
+// de ids ocupa 1 bit por id y uno disperso 2 bytes por id. No es seguro para varios
+// hilos; LoadedIdIndex lo protege con su candado
+public class CompressedIdBitmap {
+
+    public static final long ID_MAXIMO = 0xFFFFFFFFL;
+
+    private static final int MAXIMO_ARREGLO = 4096;
+    private static final int PALABRAS_BITMAP = 1024;
+
+    private static final byte TIPO_ARREGLO = 0;
+    private static final byte TIPO_BITMAP = 1;
+
+    private char[] claves = new char[4];
+    private Contenedor[] contenedores = new Contenedor[4];
+    private int cantidadContenedores;
+    private long cantidad;
+
+    public static boolean esIndexable(long id) {
+        return id >= 0 && id <= ID_MAXIMO;
+    }
+
+    public boolean contiene(long id) {
+        if (!esIndexable(id)) {
+            return false;
+        }
+        int posicion = buscarClave((char) (id >>> 16));
+        return posicion >= 0 && contenedores[posicion].contiene((char) id);
+    }
+
+    // Agrega el id; retorna false si ya estaba o está fuera de rango
+    public boolean agregar(long id) {
+        if (!esIndexable(id)) {
+            return false;
+        }
+        char clave = (char) (id >>> 16);
+        int posicion = buscarClave(clave);
+        if (posicion < 0) {
+            posicion = -posicion - 1;
+            insertarContenedor(posicion, clave);
+        }
+        if (contenedores[posicion].agregar((char) id)) {
+            cantidad++;
+            return true;
+        }
+        return false;
+    }
+
+    public long getCantidad() {
+        return cantidad;
+    }
+
+    // Memoria aproximada de los contenedores, en bytes
+    public long getBytesOcupados() {
+        long total = (long) claves.length * (Character.BYTES + 8);
+        for (int i = 0; i < cantidadContenedores; i++) {
+            Contenedor contenedor = contenedores[i];
+            total += contenedor.bits != null ? PALABRAS_BITMAP * (long) Long.BYTES
+                    : contenedor.valores.length * (long) Character.BYTES;
+        }
+        return total;
+    }
+
+    public void escribir(DataOutput out) throws IOException {
+        out.writeInt(cantidadContenedores);
+        for (int i = 0; i < cantidadContenedores; i++) {
+            Contenedor contenedor = contenedores[i];
+            out.writeChar(claves[i]);
+            out.writeInt(contenedor.cantidad);
+            if (contenedor.bits != null) {
+                out.writeByte(TIPO_BITMAP);
+                for (long palabra : contenedor.bits) {
+                    out.writeLong(palabra);
+                }
+            } else {
+                out.writeByte(TIPO_ARREGLO);
+                for (int j = 0; j < contenedor.cantidad; j++) {
+                    out.writeChar(contenedor.valores[j]);
+                }
+            }
+        }
+    }
+
+    public static CompressedIdBitmap leer(DataInput in) throws IOException {
+        CompressedIdBitmap bitmap = new CompressedIdBitmap();
+        int total = in.readInt();
+        bitmap.claves = new char[Math.max(4, total)];
+        bitmap.contenedores = new Contenedor[Math.max(4, total)];
+        for (int i = 0; i < total; i++) {
+            char clave = in.readChar();
+            int cantidad = in.readInt();
+            byte tipo = in.readByte();
+            Contenedor contenedor = new Contenedor();
+            contenedor.cantidad = cantidad;
+            if (tipo == TIPO_BITMAP) {
+                contenedor.bits = new long[PALABRAS_BITMAP];
+                for (int j = 0; j < PALABRAS_BITMAP; j++) {
+                    contenedor.bits[j] = in.readLong();
+                }
+                contenedor.valores = null;
+            } else {
+                contenedor.valores = new char[Math.max(4, cantidad)];
+                for (int j = 0; j < cantidad; j++) {
+                    contenedor.valores[j] = in.readChar();
+                }
+            }
+            bitmap.claves[i] = clave;
+            bitmap.contenedores[i] = contenedor;
+            bitmap.cantidad += cantidad;
+        }
+        bitmap.cantidadContenedores = total;
+        return bitmap;
+    }
+
+    private int buscarClave(char clave) {
+        return Arrays.binarySearch(claves, 0, cantidadContenedores, clave);
+    }
+
+    private void insertarContenedor(int posicion, char clave) {
+        if (cantidadContenedores == claves.length) {
+            claves = Arrays.copyOf(claves, claves.length << 1);
+            contenedores = Arrays.copyOf(contenedores, contenedores.length << 1);
+        }
+        System.arraycopy(claves, posicion, claves, posicion + 1, cantidadContenedores - posicion);
+        System.arraycopy(contenedores, posicion, contenedores, posicion + 1, cantidadContenedores - posicion);
+        claves[posicion] = clave;
+        contenedores[posicion] = new Contenedor();
+        cantidadContenedores++;
+    }
+
+    // Valores de 16 bits de un contenedor: arreglo ordenado o bitmap según la cantidad
+    private static final class Contenedor {
+
+        private char[] valores = new char[4];
+        private long[] bits;
+        private int cantidad;
+
+        boolean contiene(char valor) {
+            if (bits != null) {
+                return (bits[valor >>> 6] & (1L << valor)) != 0;
+            }
+            return Arrays.binarySearch(valores, 0, cantidad, valor) >= 0;
+        }
+
+        boolean agregar(char valor) {
+            if (bits != null) {
+                long antes = bits[valor >>> 6];
+                long despues = antes | (1L << valor);
+                bits[valor >>> 6] = despues;
+                if (antes == despues) {
+                    return false;
+                }
+                cantidad++;
+                return true;
+            }
+            int posicion = Arrays.binarySearch(valores, 0, cantidad, valor);
+            if (posicion >= 0) {
+                return false;
+            }
+            if (cantidad == MAXIMO_ARREGLO) {
+                pasarABitmap();
+                return agregar(valor);
+            }
+            posicion = -posicion - 1;
+            if (cantidad == valores.length) {
+                valores = Arrays.copyOf(valores, Math.min(MAXIMO_ARREGLO, valores.length << 1));
+            }
+            System.arraycopy(valores, posicion, valores, posicion + 1, cantidad - posicion);
+            valores[posicion] = valor;
+            cantidad++;
+            return true;
+        }
+
+        private void pasarABitmap() {
+            bits = new long[PALABRAS_BITMAP];
+            for (int i = 0; i < cantidad; i++) {
+                char valor = valores[i];
+                bits[valor >>> 6] |= 1L << valor;
+            }
+            valores = null;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.batch.SpringBatchApp.utils;
+
+import java.util.Arrays;
+
+// Conjunto de long sin boxing para cientos de millones de ids. Se divide en
+// segmentos con su propio candado, cada uno una tabla de direccionamiento abierto
+// (sondeo lineal) sobre un long[]; la memoria es de 8 bytes por celda, con las tablas
+// entre el 37% y el 75% de ocupación. El 0 marca celda vacía y se guarda aparte
+public class ConcurrentLongSet {
+
+    private static final int SEGMENTOS = 64;
+    private static final int BITS_SEGMENTO = Integer.numberOfTrailingZeros(SEGMENTOS);
+    private static final int CAPACIDAD_MINIMA = 16;
+    private static final int CAPACIDAD_MAXIMA = 1 << 30;
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+
+    public ConcurrentLongSet() {
+        this(0);
+    }
+
+    // Reserva espacio para la cantidad esperada de elementos y evita redimensionar
+    public ConcurrentLongSet(long cantidadEsperada) {
+        long porSegmento = cantidadEsperada / SEGMENTOS + 1;
+        int capacidad = capacidadPara(porSegmento);
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(capacidad);
+        }
+    }
+
+    // Agrega el valor; retorna false si ya estaba
+    public boolean agregar(long valor) {
+        long hash = mezclar(valor);
+        return segmento(hash).agregar(valor, hash);
+    }
+
+    public boolean contiene(long valor) {
+        long hash = mezclar(valor);
+        return segmento(hash).contiene(valor, hash);
+    }
+
+    // Quita el valor; retorna false si no estaba
+    public boolean eliminar(long valor) {
+        long hash = mezclar(valor);
+        return segmento(hash).eliminar(valor, hash);
+    }
+
+    public long getCantidad() {
+        long total = 0;
+        for (Segmento segmento : segmentos) {
+            total += segmento.getCantidad();
+        }
+        return total;
+    }
+
+    // Memoria ocupada por las tablas, en bytes
+    public long getBytesReservados() {
+        long total = 0;
+        for (Segmento segmento : segmentos) {
+            total += segmento.getCapacidad() * (long) Long.BYTES;
+        }
+        return total;
+    }
+
+    // Vacía el conjunto y libera las tablas grandes
+    public void limpiar() {
+        for (Segmento segmento : segmentos) {
+            segmento.limpiar();
+        }
+    }
+
+    private Segmento segmento(long hash) {
+        return segmentos[(int) (hash >>> (Long.SIZE - BITS_SEGMENTO))];
+    }
+
+    // Finalizador de MurmurHash3: reparte ids consecutivos en toda la tabla. Los 6 bits
+    // altos eligen el segmento y los bajos la celda
+    static long mezclar(long valor) {
+        long h = valor;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int capacidadPara(long cantidad) {
+        long requerida = Math.max(CAPACIDAD_MINIMA, cantidad + cantidad / 3 + 1);
+        if (requerida >= CAPACIDAD_MAXIMA) {
+            return CAPACIDAD_MAXIMA;
+        }
+        return Integer.highestOneBit((int) requerida - 1) << 1;
+    }
+
+    private static final class Segmento {
+
+        private final int capacidadInicial;
+        private long[] tabla;
+        private int mascara;
+        private int cantidad;
+        private boolean tieneCero;
+
+        Segmento(int capacidad) {
+            this.capacidadInicial = capacidad;
+            inicializar(capacidad);
+        }
+
+        private void inicializar(int capacidad) {
+            tabla = new long[capacidad];
+            mascara = capacidad - 1;
+            cantidad = 0;
+        }
+
+        synchronized boolean agregar(long valor, long hash) {
+            if (valor == 0) {
+                boolean nuevo = !tieneCero;
+                tieneCero = true;
+                return nuevo;
+            }
+            int i = (int) hash & mascara;
+            while (tabla[i] != 0) {
+                if (tabla[i] == valor) {
+                    return false;
+                }
+                i = (i + 1) & mascara;
+            }
+            tabla[i] = valor;
+            if (++cantidad > (tabla.length >>> 2) * 3) {
+                redimensionar();
+            }
+            return true;
+        }
+
+        synchronized boolean contiene(long valor, long hash) {
+            if (valor == 0) {
+                return tieneCero;
+            }
+            int i = (int) hash & mascara;
+            while (tabla[i] != 0) {
+                if (tabla[i] == valor) {
+                    return true;
+                }
+                i = (i + 1) & mascara;
+            }
+            return false;
+        }
+
+        // Borrado con desplazamiento hacia atrás, sin marcas de borrado
+        synchronized boolean eliminar(long valor, long hash) {
+            if (valor == 0) {
+                boolean estaba = tieneCero;
+                tieneCero = false;
+                return estaba;
+            }
+            int i = (int) hash & mascara;
+            while (tabla[i] != valor) {
+                if (tabla[i] == 0) {
+                    return false;
+                }
+                i = (i + 1) & mascara;
+            }
+            int hueco = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mascara;
+                long actual = tabla[j];
+                if (actual == 0) {
+                    break;
+                }
+                int inicio = (int) mezclar(actual) & mascara;
+                // El elemento puede ocupar el hueco si su posición inicial no está entre
+                // el hueco (exclusive) y su posición actual (inclusive)
+                if (((j - inicio) & mascara) >= ((j - hueco) & mascara)) {
+                    tabla[hueco] = actual;
+                    hueco = j;
+                }
+            }
+            tabla[hueco] = 0;
+            cantidad--;
+            return true;
+        }
+
+        private void redimensionar() {
+            if (tabla.length >= CAPACIDAD_MAXIMA) {
+                throw new IllegalStateException("Segmento del conjunto de ids lleno: " + cantidad + " elementos");
+            }
+            long[] anterior = tabla;
+            inicializar(anterior.length << 1);
+            for (long valor : anterior) {
+                if (valor != 0) {
+                    int i = (int) mezclar(valor) & mascara;
+                    while (tabla[i] != 0) {
+                        i = (i + 1) & mascara;
+                    }
+                    tabla[i] = valor;
+                    cantidad++;
+                }
+            }
+        }
+
+        synchronized int getCantidad() {
+            return cantidad + (tieneCero ? 1 : 0);
+        }
+
+        synchronized int getCapacidad() {
+            return tabla.length;
+        }
+
+        synchronized void limpiar() {
+            if (tabla.length == capacidadInicial) {
+                Arrays.fill(tabla, 0L);
+                cantidad = 0;
+            } else {
+                inicializar(capacidadInicial);
+            }
+            tieneCero = false;
+        }
+    }
+}
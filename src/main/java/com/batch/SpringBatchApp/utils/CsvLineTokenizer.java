@@ -0,0 +1,410 @@
+package com.batch.SpringBatchApp.utils;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Tokenizer CSV sin asignaciones: escribe los offsets [inicio, fin) de cada columna en
+// un arreglo de enteros y parsea los valores tipados directamente desde los bytes.
+// Aplica las mismas reglas de comillas que DelimitedLineTokenizer. Cada hilo usa su
+// propia instancia (forCurrentThread), por lo que no es thread-safe.
+public class CsvLineTokenizer {
+
+    private static final byte QUOTE = '"';
+
+    private static final ThreadLocal<CsvLineTokenizer> POR_HILO = ThreadLocal
+            .withInitial(() -> new CsvLineTokenizer((byte) ','));
+
+    private byte delimiter;
+
+    private ByteBuffer buffer;
+    private int lineStart;
+    private int lineEnd;
+
+    // offsets[2 * i] = inicio y offsets[2 * i + 1] = fin de la columna i, ya sin
+    // espacios ni comillas exteriores
+    private int[] offsets = new int[16];
+    private boolean[] escaped = new boolean[8];
+    private int fieldCount;
+
+    // Buffer reutilizable para decodificar campos con caracteres no ASCII o comillas escapadas
+    private byte[] scratch = new byte[256];
+
+    // Vista reutilizable sobre una columna ASCII (válida hasta la siguiente llamada)
+    private final FieldChars fieldChars = new FieldChars();
+
+    public CsvLineTokenizer(byte delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    // Obtiene el tokenizer del hilo actual configurado con el delimitador indicado
+    public static CsvLineTokenizer forCurrentThread(byte delimiter) {
+        CsvLineTokenizer tokenizer = POR_HILO.get();
+        tokenizer.delimiter = delimiter;
+        return tokenizer;
+    }
+
+    // Separa la línea [lineStart, lineEnd) del buffer en columnas. Retorna el número de columnas
+    public int tokenize(ByteBuffer buffer, int lineStart, int lineEnd) {
+        this.buffer = buffer;
+        this.lineStart = lineStart;
+        this.lineEnd = lineEnd;
+        this.fieldCount = 0;
+
+        boolean inQuoted = false;
+        int fieldStart = lineStart;
+        for (int i = lineStart; i < lineEnd; i++) {
+            byte b = buffer.get(i);
+            if (b == delimiter && !inQuoted) {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            } else if (b == QUOTE) {
+                inQuoted = !inQuoted;
+            }
+        }
+        if (lineEnd > lineStart) {
+            addField(fieldStart, lineEnd);
+        }
+        return fieldCount;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == escaped.length) {
+            offsets = Arrays.copyOf(offsets, fieldCount * 4);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+
+        while (start < end && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+
+        boolean hasEscapes = false;
+        if (end - start >= 2 && buffer.get(start) == QUOTE && buffer.get(end - 1) == QUOTE) {
+            start++;
+            end--;
+            for (int i = start; i < end - 1; i++) {
+                if (buffer.get(i) == QUOTE && buffer.get(i + 1) == QUOTE) {
+                    hasEscapes = true;
+                    break;
+                }
+            }
+            // Dentro de las comillas también se recorta, como FieldSet.readString
+            if (!hasEscapes) {
+                while (start < end && isWhitespace(buffer.get(start))) {
+                    start++;
+                }
+                while (end > start && isWhitespace(buffer.get(end - 1))) {
+                    end--;
+                }
+            }
+        }
+
+        offsets[2 * fieldCount] = start;
+        offsets[2 * fieldCount + 1] = end;
+        escaped[fieldCount] = hasEscapes;
+        fieldCount++;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    // Una línea vacía o con solo espacios
+    public boolean isBlankLine() {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (!isWhitespace(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isEmpty(int index) {
+        checkIndex(index);
+        return offsets[2 * index] == offsets[2 * index + 1];
+    }
+
+    // Parsea un long con las mismas reglas que Long.parseLong sobre el valor recortado
+    public long parseLong(int index) {
+        checkIndex(index);
+        int start = offsets[2 * index];
+        int end = offsets[2 * index + 1];
+        if (start == end || escaped[index]) {
+            throw numberFormat(index);
+        }
+
+        boolean negative = false;
+        byte first = buffer.get(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+            if (start == end) {
+                throw numberFormat(index);
+            }
+        }
+
+        // Se acumula en negativo para poder representar Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = limit / 10;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || result < multmin) {
+                throw numberFormat(index);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormat(index);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    public int parseInt(int index) {
+        long value = parseLong(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw numberFormat(index);
+        }
+        return (int) value;
+    }
+
+    // Parsea un decimal [signo]digitos[.digitos] sin pasar por String. Otras notaciones
+    // (exponentes, más de 18 dígitos) se delegan a new BigDecimal(String)
+    public BigDecimal parseDecimal(int index) {
+        checkIndex(index);
+        int start = offsets[2 * index];
+        int end = offsets[2 * index + 1];
+        if (start == end || escaped[index]) {
+            throw numberFormat(index);
+        }
+
+        int i = start;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                if (++digits > 18) {
+                    return new BigDecimal(readString(index));
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return new BigDecimal(readString(index));
+            }
+        }
+
+        if (digits == 0) {
+            throw numberFormat(index);
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    // Parsea un decimal [signo]digitos[.digitos] como long escalado (por ejemplo 12.5 con
+    // escala 2 -> 1250). Más decimales que la escala, otras notaciones, más de 18
+    // dígitos o valores que no caben en un long al escalarlos se rechazan con
+    // NumberFormatException
+    public long parseScaledLong(int index, int scale) {
+        checkIndex(index);
+        int start = offsets[2 * index];
+        int end = offsets[2 * index + 1];
+        if (start == end || escaped[index]) {
+            throw numberFormat(index);
+        }
+
+        int i = start;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                if (++digits > 18 || (point && ++decimals > scale)) {
+                    throw numberFormat(index);
+                }
+                value = value * 10 + (b - '0');
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                throw numberFormat(index);
+            }
+        }
+
+        if (digits == 0) {
+            throw numberFormat(index);
+        }
+        // Completar la escala puede desbordar un valor de 17 o 18 dígitos
+        try {
+            for (; decimals < scale; decimals++) {
+                value = Math.multiplyExact(value, 10);
+            }
+        } catch (ArithmeticException e) {
+            throw numberFormat(index);
+        }
+        return negative ? -value : value;
+    }
+
+    // Decodifica la columna como String (ya recortada y sin comillas exteriores)
+    public String readString(int index) {
+        checkIndex(index);
+        int start = offsets[2 * index];
+        int end = offsets[2 * index + 1];
+        if (start == end) {
+            return "";
+        }
+        int length = copyField(index, start, end);
+
+        int from = 0;
+        while (from < length && isWhitespace(scratch[from])) {
+            from++;
+        }
+        while (length > from && isWhitespace(scratch[length - 1])) {
+            length--;
+        }
+        return new String(scratch, from, length - from, StandardCharsets.UTF_8);
+    }
+
+    // Vista de la columna como CharSequence sin crear un String. Solo se usa para
+    // columnas ASCII (fechas, códigos); si hay otros caracteres se decodifica a String.
+    // La vista se reutiliza y es válida hasta la siguiente llamada
+    public CharSequence readChars(int index) {
+        checkIndex(index);
+        int start = offsets[2 * index];
+        int end = offsets[2 * index + 1];
+        if (escaped[index]) {
+            return readString(index);
+        }
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) < 0) {
+                return readString(index);
+            }
+        }
+        fieldChars.reset(buffer, start, end);
+        return fieldChars;
+    }
+
+    // Todas las columnas como String, para los mensajes de error
+    public String[] readAll() {
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = readString(i);
+        }
+        return values;
+    }
+
+    // Línea completa decodificada, usada solo para logs y mensajes de error
+    public String lineAsString() {
+        if (buffer == null) {
+            return "";
+        }
+        byte[] bytes = new byte[lineEnd - lineStart];
+        buffer.get(lineStart, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int copyField(int index, int start, int end) {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+
+        if (!escaped[index]) {
+            buffer.get(start, scratch, 0, length);
+            return length;
+        }
+
+        // Reemplazar comillas dobles escapadas ("") por una sola
+        length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            scratch[length++] = b;
+            if (b == QUOTE && i + 1 < end && buffer.get(i + 1) == QUOTE) {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Campo " + index + " fuera de rango (campos: " + fieldCount + ")");
+        }
+    }
+
+    private NumberFormatException numberFormat(int index) {
+        return new NumberFormatException("For input string: \"" + readString(index) + "\"");
+    }
+
+    // CharSequence de solo lectura sobre un rango ASCII del buffer
+    private static final class FieldChars implements CharSequence {
+
+        private ByteBuffer buffer;
+        private int start;
+        private int end;
+
+        void reset(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) buffer.get(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes, 0, bytes.length);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+    }
+}
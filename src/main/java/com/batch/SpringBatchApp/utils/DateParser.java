@@ -1,13 +1,21 @@
 package com.batch.SpringBatchApp.utils;
 
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.batch.SpringBatchApp.config.ProcessorConfig;
+
 import lombok.extern.slf4j.Slf4j;
 
 @Component
@@ -31,26 +39,130 @@ public class DateParser {
             DateTimeFormatter.ofPattern("MM/dd/yy") // 01/05/24
     );
 
+    // Indica que la forma de la fecha no es una de las conocidas por el parseo rápido
+    private static final LocalDate SIN_CLASIFICAR = LocalDate.MIN;
+
+    // Valor guardado en la cache para las cadenas que no se pudieron parsear
+    private static final LocalDate FECHA_INVALIDA = LocalDate.MAX;
+
+    // Indica que la cadena no se puede compactar en un long
+    private static final long SIN_CLAVE = -1L;
+
+    @Autowired
+    private ProcessorConfig processorConfig;
+
+    @Autowired
+    private ValidationPolicies politicas;
+
+    // Cache de fechas ya parseadas. Las cadenas formadas solo por dígitos, '-' y '/'
+    // (casi todas) se compactan en un long para buscarlas sin crear un String; el
+    // resto usa la cadena como clave
+    private final Map<Long, LocalDate> cacheCompacta = new ConcurrentHashMap<>();
+    private final Map<String, LocalDate> cacheTexto = new ConcurrentHashMap<>();
+
+    private final LongAdder aciertosCache = new LongAdder();
+    private final LongAdder fallosCache = new LongAdder();
+
     // Intenta parsear una fecha usando múltiples formatos
     public LocalDate parseDate(String dateString) {
-        if (dateString == null || dateString.trim().isEmpty()) {
+        return parseDate((CharSequence) dateString);
+    }
+
+    // Variante sobre CharSequence para que los readers parseen la columna sin
+    // crear un String por línea
+    public LocalDate parseDate(CharSequence dateString) {
+        CharSequence cleanDateString = dateString != null ? trim(dateString) : null;
+        if (cleanDateString == null || cleanDateString.length() == 0) {
             log.debug("Cadena de fecha vacía o nula");
             return null;
         }
 
-        String cleanDateString = dateString.trim();
+        if (processorConfig == null || !processorConfig.isCacheFechasHabilitado()) {
+            return parseSinCache(cleanDateString);
+        }
 
-        for (DateTimeFormatter formatter : FORMATTERS) {
-            try {
-                LocalDate date = LocalDate.parse(cleanDateString, formatter);
+        // Dentro de un archivo se repiten pocas fechas distintas, así que casi siempre
+        // basta con una búsqueda en la cache (también para fechas inválidas)
+        long clave = claveCompacta(cleanDateString);
+        LocalDate cached = clave != SIN_CLAVE ? cacheCompacta.get(clave) : cacheTexto.get(cleanDateString.toString());
+        if (cached != null) {
+            aciertosCache.increment();
+            return cached == FECHA_INVALIDA ? null : cached;
+        }
+        fallosCache.increment();
+
+        LocalDate date = parseSinCache(cleanDateString);
+        LocalDate valor = date != null ? date : FECHA_INVALIDA;
+        int tamanoMaximo = processorConfig.getTamanoMaximoCacheFechas();
+        if (clave != SIN_CLAVE) {
+            guardarEnCache(cacheCompacta, clave, valor, tamanoMaximo);
+        } else {
+            guardarEnCache(cacheTexto, cleanDateString.toString(), valor, tamanoMaximo);
+        }
+        return date;
+    }
 
-                // Validación adicional para años de 2 dígitos
-                if (date.getYear() < 100) {
-                    // Asumimos que años 00-30 son 2000-2030, y 31-99 son 1931-1999
-                    int adjustedYear = date.getYear() < 30 ? 2000 + date.getYear() : 1900 + date.getYear();
-                    date = date.withYear(adjustedYear);
-                }
+    // Guarda una fecha en la cache. Al llegar al tamaño máximo se vacía completa: es
+    // más simple que un LRU y con pocas fechas distintas por archivo casi no ocurre
+    private static <K> void guardarEnCache(Map<K, LocalDate> cache, K clave, LocalDate valor, int tamanoMaximo) {
+        if (cache.size() >= tamanoMaximo) {
+            log.debug("Cache de fechas llena ({} entradas), se vacía", cache.size());
+            cache.clear();
+        }
+        cache.put(clave, valor);
+    }
 
+    // Compacta la cadena en un long usando 4 bits por carácter (dígitos, '-' y '/').
+    // Retorna SIN_CLAVE si tiene otros caracteres o no cabe
+    private static long claveCompacta(CharSequence text) {
+        int length = text.length();
+        if (length > 15) {
+            return SIN_CLAVE;
+        }
+        long clave = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            int codigo;
+            if (c >= '0' && c <= '9') {
+                codigo = c - '0' + 1;
+            } else if (c == '-') {
+                codigo = 11;
+            } else if (c == '/') {
+                codigo = 12;
+            } else {
+                return SIN_CLAVE;
+            }
+            clave = (clave << 4) | codigo;
+        }
+        return clave;
+    }
+
+    // Parsea la fecha sin pasar por la cache
+    private LocalDate parseSinCache(CharSequence cleanDateString) {
+        // Las formas habituales se resuelven sin probar formato por formato
+        LocalDate date = parseRapido(cleanDateString);
+        if (date != SIN_CLASIFICAR) {
+            if (date != null) {
+                log.debug("Fecha parseada exitosamente: '{}' -> {}", cleanDateString, date);
+            } else {
+                log.warn("No se pudo parsear la fecha: '{}'", cleanDateString);
+            }
+            return date;
+        }
+
+        date = parseConFormatos(cleanDateString);
+        if (date == null) {
+            log.warn("No se pudo parsear la fecha: '{}'", cleanDateString);
+        }
+        return date;
+    }
+
+    // Prueba la lista de formatos en orden de prioridad. Solo se usa para las
+    // formas que parseRapido no reconoce
+    LocalDate parseConFormatos(CharSequence cleanDateString) {
+        for (DateTimeFormatter formatter : FORMATTERS) {
+            try {
+                LocalDate date = ajustarAnio(LocalDate.parse(cleanDateString, formatter));
                 log.debug("Fecha parseada exitosamente: '{}' -> {}", cleanDateString, date);
                 return date;
 
@@ -59,30 +171,168 @@ public class DateParser {
                 continue;
             }
         }
-
-        log.warn("No se pudo parsear la fecha: '{}'", cleanDateString);
         return null;
     }
 
-    // Valida si una fecha es válida para el procesamiento
+    // Clasifica la fecha en una sola pasada por la posición de los separadores y la
+    // longitud de cada grupo de dígitos, y la construye directamente con el mismo orden
+    // de prioridad que FORMATTERS. Retorna null si la forma es conocida pero la fecha no
+    // es válida en ninguno de sus formatos, o SIN_CLASIFICAR si la forma no es conocida
+    LocalDate parseRapido(CharSequence text) {
+        int length = text.length();
+        if (length < 6 || length > 10) {
+            return SIN_CLASIFICAR;
+        }
+
+        char separador = 0;
+        int primero = -1;
+        int segundo = -1;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                continue;
+            }
+            if ((c != '-' && c != '/') || segundo >= 0) {
+                return SIN_CLASIFICAR;
+            }
+            if (primero < 0) {
+                primero = i;
+                separador = c;
+            } else if (c != separador) {
+                return SIN_CLASIFICAR;
+            } else {
+                segundo = i;
+            }
+        }
+
+        int largoA = primero;
+        int largoB = segundo - primero - 1;
+        int largoC = length - segundo - 1;
+        if (segundo < 0 || largoA < 1 || largoB < 1 || largoC < 1) {
+            return SIN_CLASIFICAR;
+        }
+
+        int a = digitos(text, 0, primero);
+        int b = digitos(text, primero + 1, segundo);
+        int c = digitos(text, segundo + 1, length);
+
+        if (largoA == 4) {
+            // yyyy-MM-dd, yyyy/MM/dd y las variantes yyyy-M-d (solo con guion)
+            boolean conocida = separador == '-' ? largoB <= 2 && largoC <= 2 : largoB == 2 && largoC == 2;
+            return conocida ? crearFecha(a, b, c, false) : SIN_CLASIFICAR;
+        }
+
+        if (largoA == 2 && largoB == 2 && (largoC == 4 || largoC == 2)) {
+            // dd-MM-yyyy antes que MM-dd-yyyy (y lo mismo con / y con años de 2 dígitos)
+            boolean anioCorto = largoC == 2;
+            LocalDate date = crearFecha(c, b, a, anioCorto);
+            return date != null ? date : crearFecha(c, a, b, anioCorto);
+        }
+
+        return SIN_CLASIFICAR;
+    }
+
+    private static int digitos(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    // Construye la fecha con las reglas de DateTimeFormatter.ofPattern: "yy" se interpreta
+    // como 2000-2099, "yyyy" no acepta el año 0 y un día inexistente en el mes se ajusta
+    // al último día del mes (ResolverStyle.SMART)
+    private static LocalDate crearFecha(int anio, int mes, int dia, boolean anioCorto) {
+        if (mes < 1 || mes > 12 || dia < 1 || dia > 31) {
+            return null;
+        }
+        int year = anioCorto ? 2000 + anio : anio;
+        if (year < 1) {
+            return null;
+        }
+        int ultimoDia = Month.of(mes).length(Year.isLeap(year));
+        return ajustarAnio(LocalDate.of(year, mes, Math.min(dia, ultimoDia)));
+    }
+
+    // Validación adicional para años de 2 dígitos
+    private static LocalDate ajustarAnio(LocalDate date) {
+        if (date.getYear() < 100) {
+            // Asumimos que años 00-30 son 2000-2030, y 31-99 son 1931-1999
+            int adjustedYear = date.getYear() < 30 ? 2000 + date.getYear() : 1900 + date.getYear();
+            date = date.withYear(adjustedYear);
+        }
+        return date;
+    }
+
+    // Recorta espacios al inicio y al final sin copiar si no hay nada que recortar
+    private static CharSequence trim(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return start == 0 && end == text.length() ? text : text.subSequence(start, end);
+    }
+
+    // Valida si una fecha es válida para el procesamiento: desde el año 2000 hasta 30
+    // días después del inicio de la ejecución, según la política de la ejecución
     public boolean isValidDate(LocalDate date) {
         if (date == null) {
             return false;
         }
 
-        LocalDate now = LocalDate.now();
-        LocalDate minDate = LocalDate.of(2000, 1, 1);
-        LocalDate maxDate = now.plusDays(30); // Permitir hasta 30 días en el futuro
-
-        boolean isValid = !date.isBefore(minDate) && !date.isAfter(maxDate);
+        ValidationPolicy politica = getPolitica();
+        boolean isValid = politica.esFechaEnRangoParser(date);
 
         if (!isValid) {
-            log.debug("Fecha fuera del rango válido: {} (rango: {} a {})", date, minDate, maxDate);
+            log.debug("Fecha fuera del rango válido: {} (rango: {} a {})", date,
+                    LocalDate.ofEpochDay(politica.getDiaMinimoParser()), politica.getFechaMaximaParser());
         }
 
         return isValid;
     }
 
+    // Día de la política con que isValidDate valida las fechas
+    public LocalDate getHoy() {
+        return getPolitica().getHoy();
+    }
+
+    // Política de la ejecución del step en curso. Sin contexto de Spring (por ejemplo en
+    // pruebas) se usa la configuración por defecto
+    private ValidationPolicy getPolitica() {
+        return politicas != null ? politicas.vigente() : ValidationPolicy.desde(new ProcessorConfig(), LocalDate.now());
+    }
+
+    public long getAciertosCache() {
+        return aciertosCache.sum();
+    }
+
+    public long getFallosCache() {
+        return fallosCache.sum();
+    }
+
+    // Vacía la cache de fechas y sus contadores
+    public void resetCache() {
+        cacheCompacta.clear();
+        cacheTexto.clear();
+        aciertosCache.reset();
+        fallosCache.reset();
+    }
+
+    // Registra las estadísticas de la cache de fechas
+    public void logCacheStats() {
+        long aciertos = aciertosCache.sum();
+        long fallos = fallosCache.sum();
+        long total = aciertos + fallos;
+        log.info("  - Aciertos: {}, Fallos: {}, Tasa de aciertos: {}%", aciertos, fallos,
+                total > 0 ? String.format("%.2f", aciertos * 100.0 / total) : "0.00");
+        log.info("  - Fechas en cache: {}", cacheCompacta.size() + cacheTexto.size());
+    }
+
     // Normaliza una fecha al formato estándar yyyy-MM-dd
     public String normalizeDate(LocalDate date) {
         if (date == null) {
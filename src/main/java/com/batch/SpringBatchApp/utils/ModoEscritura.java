@@ -0,0 +1,9 @@
+package com.batch.SpringBatchApp.utils;
+
+// Cómo guardan los writers cada chunk: JPA pasa por saveAll y el contexto de
+// persistencia de Hibernate; JDBC envía el chunk completo como un único lote de
+// sentencias preparadas
+public enum ModoEscritura {
+    JPA,
+    JDBC
+}
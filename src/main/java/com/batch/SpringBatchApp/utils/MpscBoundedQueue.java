@@ -0,0 +1,83 @@
+package com.batch.SpringBatchApp.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Cola acotada sin candados para varios productores y un único consumidor. Es un
+// arreglo circular en que cada celda tiene un número de secuencia: el productor
+// reserva una posición con un CAS sobre la cola y publica el elemento avanzando la
+// secuencia de la celda; el consumidor la lee cuando la secuencia indica que está
+// publicada y la libera para la siguiente vuelta. Si la cola está llena ofrecer
+// retorna false y el productor decide cómo esperar
+public final class MpscBoundedQueue<E> {
+
+    private final Object[] elementos;
+    private final AtomicLongArray secuencias;
+    private final int mascara;
+
+    // Siguiente posición a reservar por los productores
+    private final AtomicLong cola = new AtomicLong();
+
+    // Siguiente posición a leer; solo la modifica el consumidor
+    private volatile long cabeza;
+
+    public MpscBoundedQueue(int capacidad) {
+        int tamano = Integer.highestOneBit(Math.max(2, capacidad) - 1) << 1;
+        this.elementos = new Object[tamano];
+        this.secuencias = new AtomicLongArray(tamano);
+        this.mascara = tamano - 1;
+        for (int i = 0; i < tamano; i++) {
+            secuencias.set(i, i);
+        }
+    }
+
+    // Agrega el elemento; retorna false si la cola está llena
+    public boolean ofrecer(E elemento) {
+        long posicion;
+        int indice;
+        while (true) {
+            posicion = cola.get();
+            indice = (int) posicion & mascara;
+            long diferencia = secuencias.get(indice) - posicion;
+            if (diferencia == 0) {
+                if (cola.compareAndSet(posicion, posicion + 1)) {
+                    break;
+                }
+            } else if (diferencia < 0) {
+                return false;
+            }
+        }
+        elementos[indice] = elemento;
+        secuencias.set(indice, posicion + 1);
+        return true;
+    }
+
+    // Retorna el siguiente elemento o null si no hay ninguno publicado. Solo puede
+    // llamarlo el hilo consumidor
+    @SuppressWarnings("unchecked")
+    public E tomar() {
+        long posicion = cabeza;
+        int indice = (int) posicion & mascara;
+        if (secuencias.get(indice) != posicion + 1) {
+            return null;
+        }
+        E elemento = (E) elementos[indice];
+        elementos[indice] = null;
+        secuencias.set(indice, posicion + elementos.length);
+        cabeza = posicion + 1;
+        return elemento;
+    }
+
+    // Elementos reservados y aún no leídos (aproximado mientras hay productores activos)
+    public int getTamano() {
+        return (int) Math.max(0, cola.get() - cabeza);
+    }
+
+    public boolean estaVacia() {
+        return getTamano() == 0;
+    }
+
+    public int getCapacidad() {
+        return elementos.length;
+    }
+}
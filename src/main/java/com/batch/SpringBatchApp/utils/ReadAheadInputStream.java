@@ -0,0 +1,125 @@
+package com.batch.SpringBatchApp.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// InputStream que lee el stream de origen en un hilo propio y entrega los datos por
+// bloques a través de una cola acotada. Se usa para que la descompresión de gzip
+// ocurra en paralelo con el parseo del CSV. Los bloques se reutilizan.
+public class ReadAheadInputStream extends InputStream {
+
+    private static final Bloque FIN = new Bloque(new byte[0], 0, null);
+
+    private final InputStream origen;
+    private final BlockingQueue<Bloque> llenos;
+    private final BlockingQueue<byte[]> libres;
+    private final Thread hilo;
+    private volatile boolean cerrado;
+
+    private Bloque actual;
+    private int posicion;
+    private boolean fin;
+
+    public ReadAheadInputStream(InputStream origen, int tamanoBloque, int bloquesEnCola, String nombreHilo) {
+        this.origen = origen;
+        this.llenos = new ArrayBlockingQueue<>(bloquesEnCola + 1);
+        this.libres = new ArrayBlockingQueue<>(bloquesEnCola + 2);
+        for (int i = 0; i < bloquesEnCola + 2; i++) {
+            libres.add(new byte[tamanoBloque]);
+        }
+        this.hilo = new Thread(this::leerOrigen, nombreHilo);
+        this.hilo.setDaemon(true);
+        this.hilo.start();
+    }
+
+    // Bucle del hilo lector: llena bloques libres y los encola en orden
+    private void leerOrigen() {
+        try {
+            while (!cerrado) {
+                byte[] datos = libres.take();
+                int leidos = origen.readNBytes(datos, 0, datos.length);
+                if (leidos > 0) {
+                    llenos.put(new Bloque(datos, leidos, null));
+                }
+                if (leidos < datos.length) {
+                    llenos.put(FIN);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            try {
+                llenos.put(new Bloque(null, 0, e));
+            } catch (InterruptedException interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Asegura que haya un bloque con datos pendientes. Retorna false al final del stream
+    private boolean siguienteBloque() throws IOException {
+        if (actual != null && posicion < actual.largo()) {
+            return true;
+        }
+        if (fin) {
+            return false;
+        }
+        if (actual != null && actual.datos() != null && actual != FIN) {
+            libres.offer(actual.datos());
+        }
+
+        try {
+            actual = llenos.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Lectura interrumpida");
+        }
+        posicion = 0;
+
+        if (actual.error() != null) {
+            fin = true;
+            throw new IOException("Error al leer el stream en segundo plano", actual.error());
+        }
+        if (actual == FIN) {
+            fin = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!siguienteBloque()) {
+            return -1;
+        }
+        return actual.datos()[posicion++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] destino, int desde, int largo) throws IOException {
+        if (largo == 0) {
+            return 0;
+        }
+        if (!siguienteBloque()) {
+            return -1;
+        }
+        int copiados = Math.min(largo, actual.largo() - posicion);
+        System.arraycopy(actual.datos(), posicion, destino, desde, copiados);
+        posicion += copiados;
+        return copiados;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cerrado = true;
+        hilo.interrupt();
+        origen.close();
+    }
+
+    private record Bloque(byte[] datos, int largo, IOException error) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.batch.SpringBatchApp.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Utilidades para montos en punto fijo: el valor se guarda como un long en centavos
+// (escala 2) y solo se convierte a BigDecimal al persistir o al registrar errores
+public final class ScaledAmount {
+
+    // Número de decimales representados en el long
+    public static final int SCALE = 2;
+
+    private ScaledAmount() {
+    }
+
+    // Convierte un monto escalado a BigDecimal con la escala fija
+    public static BigDecimal toBigDecimal(long scaled) {
+        return BigDecimal.valueOf(scaled, SCALE);
+    }
+
+    // Convierte un BigDecimal a monto escalado, redondeando hacia abajo. Se usa para los
+    // límites de configuración: |monto| > límite equivale a |monto| > floor(límite)
+    public static long fromBigDecimal(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.FLOOR).unscaledValue().longValueExact();
+    }
+
+    // Texto del monto, por ejemplo 12345 -> "123.45"
+    public static String toString(long scaled) {
+        return toBigDecimal(scaled).toPlainString();
+    }
+}
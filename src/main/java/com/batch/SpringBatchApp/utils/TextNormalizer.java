@@ -0,0 +1,151 @@
+package com.batch.SpringBatchApp.utils;
+
+// Normalización de textos en una sola pasada, sin expresiones regulares. Recorta
+// como String.trim, colapsa los espacios (\s de las expresiones regulares: espacio,
+// tab, \n, \u000B, \f, \r) en uno solo y capitaliza mientras recorre, sobre un buffer
+// reutilizado por hilo. Si el texto no cambia se retorna la misma instancia, así los
+// valores ya normalizados no crean ningún String nuevo. Las mayúsculas y minúsculas
+// se aplican carácter por carácter e independientes del locale
+public final class TextNormalizer {
+
+    // Textos más largos usan un buffer propio en vez del compartido
+    private static final int TAMANO_BUFFER = 512;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[TAMANO_BUFFER]);
+
+    private enum Capitalizacion {
+        NINGUNA, PRIMERA, PALABRAS
+    }
+
+    private TextNormalizer() {
+    }
+
+    // Equivalente a texto.trim() y, si colapsar, a replaceAll("\\s+", " ")
+    public static String limpiar(String texto, boolean colapsar) {
+        return normalizar(texto, colapsar, Capitalizacion.NINGUNA);
+    }
+
+    // Equivalente a recortar, pasar a minúsculas, separar por \s+ y unir las palabras con
+    // un espacio y su primera letra en mayúscula
+    public static String capitalizarPalabras(String texto) {
+        return normalizar(texto, true, Capitalizacion.PALABRAS);
+    }
+
+    // Recorta, opcionalmente colapsa espacios y deja la primera letra en mayúscula y el
+    // resto en minúsculas
+    public static String capitalizarPrimera(String texto, boolean colapsar) {
+        return normalizar(texto, colapsar, Capitalizacion.PRIMERA);
+    }
+
+    // Equivalente a texto.trim().length() sin crear el String recortado
+    public static int longitudRecortada(String texto) {
+        int inicio = inicioRecortado(texto);
+        return finRecortado(texto, inicio) - inicio;
+    }
+
+    public static boolean esVacio(String texto) {
+        return texto == null || longitudRecortada(texto) == 0;
+    }
+
+    // Equivalente a texto.matches(".*[a-zA-ZÀ-ÿ].*")
+    public static boolean contieneLetra(String texto) {
+        if (texto == null) {
+            return false;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (esLetra(texto.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Nombre recortado con longitud entre minimo y maximo y solo letras, espacios,
+    // guiones y puntos (la clase [a-zA-ZÀ-ÿ\s\-\.]), verificado en una pasada
+    public static boolean esNombreValido(String nombre, int minimo, int maximo) {
+        if (nombre == null) {
+            return false;
+        }
+        int inicio = inicioRecortado(nombre);
+        int fin = finRecortado(nombre, inicio);
+        int longitud = fin - inicio;
+        if (longitud == 0 || longitud < minimo || longitud > maximo) {
+            return false;
+        }
+        for (int i = inicio; i < fin; i++) {
+            char c = nombre.charAt(i);
+            if (!esLetra(c) && !esEspacio(c) && c != '-' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalizar(String texto, boolean colapsar, Capitalizacion capitalizacion) {
+        if (texto == null) {
+            return null;
+        }
+        int inicio = inicioRecortado(texto);
+        int fin = finRecortado(texto, inicio);
+        int longitud = fin - inicio;
+        char[] buffer = longitud <= TAMANO_BUFFER ? BUFFER.get() : new char[longitud];
+
+        boolean cambio = inicio != 0 || fin != texto.length();
+        boolean enEspacio = false;
+        boolean inicioPalabra = true;
+        int n = 0;
+        for (int i = inicio; i < fin; i++) {
+            char c = texto.charAt(i);
+            if (colapsar && esEspacio(c)) {
+                if (enEspacio || c != ' ') {
+                    cambio = true;
+                }
+                if (!enEspacio) {
+                    buffer[n++] = ' ';
+                    enEspacio = true;
+                }
+                inicioPalabra = true;
+                continue;
+            }
+            enEspacio = false;
+
+            char resultado = switch (capitalizacion) {
+                case NINGUNA -> c;
+                case PRIMERA -> n == 0 ? Character.toUpperCase(c) : Character.toLowerCase(c);
+                case PALABRAS -> inicioPalabra ? Character.toUpperCase(Character.toLowerCase(c))
+                        : Character.toLowerCase(c);
+            };
+            if (resultado != c) {
+                cambio = true;
+            }
+            buffer[n++] = resultado;
+            inicioPalabra = false;
+        }
+        return cambio ? new String(buffer, 0, n) : texto;
+    }
+
+    // Mismo criterio que String.trim: recorta caracteres menores o iguales a ' '
+    private static int inicioRecortado(String texto) {
+        int inicio = 0;
+        while (inicio < texto.length() && texto.charAt(inicio) <= ' ') {
+            inicio++;
+        }
+        return inicio;
+    }
+
+    private static int finRecortado(String texto, int inicio) {
+        int fin = texto.length();
+        while (fin > inicio && texto.charAt(fin - 1) <= ' ') {
+            fin--;
+        }
+        return fin;
+    }
+
+    private static boolean esEspacio(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean esLetra(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '\u00C0' && c <= '\u00FF');
+    }
+}
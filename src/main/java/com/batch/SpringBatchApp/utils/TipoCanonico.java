@@ -0,0 +1,19 @@
+package com.batch.SpringBatchApp.utils;
+
+// Valores canónicos de los tipos de transacción y de cuenta. Los processors guardan
+// name(), así que el texto que llega al writer es siempre la misma instancia
+public enum TipoCanonico {
+    DEBITO,
+    CREDITO,
+    DEPOSITO,
+    RETIRO,
+    TRANSFERENCIA,
+    INTERES,
+    COMISION,
+    AJUSTE,
+    CARGO,
+    ABONO,
+    AHORRO,
+    PRESTAMO,
+    HIPOTECA
+}
@@ -0,0 +1,159 @@
+package com.batch.SpringBatchApp.utils;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.batch.SpringBatchApp.config.ProcessorConfig;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+// Diccionarios de normalización de tipos de cada entidad, construidos al iniciar a
+// partir de los alias de ProcessorConfig. La búsqueda recorre el texto (o un rango de
+// caracteres) sin crear una copia en mayúsculas y retorna el TipoCanonico, o null si
+// el tipo no se reconoce.
+@Component
+@Slf4j
+public class TypeDictionary {
+
+    @Autowired
+    private ProcessorConfig processorConfig;
+
+    private Diccionario transacciones;
+    private Diccionario intereses;
+    private Diccionario cuentasAnuales;
+
+    @PostConstruct
+    public void construir() {
+        transacciones = new Diccionario("transacciones", processorConfig.getAliasTransacciones());
+        intereses = new Diccionario("intereses", processorConfig.getAliasIntereses());
+        cuentasAnuales = new Diccionario("cuentas anuales", processorConfig.getAliasCuentasAnuales());
+        log.debug("Diccionarios de tipos construidos: transacciones={}, intereses={}, cuentas anuales={}",
+                transacciones.getTipos(), intereses.getTipos(), cuentasAnuales.getTipos());
+    }
+
+    public Diccionario transacciones() {
+        return transacciones;
+    }
+
+    public Diccionario intereses() {
+        return intereses;
+    }
+
+    public Diccionario cuentasAnuales() {
+        return cuentasAnuales;
+    }
+
+    // Tabla hash de direccionamiento abierto con los alias en mayúsculas. Inmutable
+    // después de construida
+    public static final class Diccionario {
+
+        private final String[] claves;
+        private final TipoCanonico[] valores;
+        private final int mascara;
+        private final Set<TipoCanonico> tipos;
+        private final Map<TipoCanonico, List<String>> alias;
+
+        Diccionario(String nombre, Map<TipoCanonico, List<String>> alias) {
+            int cantidad = alias.values().stream().mapToInt(List::size).sum();
+            int capacidad = Integer.highestOneBit(Math.max(4, cantidad * 2) - 1) << 1;
+            this.claves = new String[capacidad];
+            this.valores = new TipoCanonico[capacidad];
+            this.mascara = capacidad - 1;
+            this.tipos = Collections.unmodifiableSet(alias.isEmpty()
+                    ? EnumSet.noneOf(TipoCanonico.class)
+                    : EnumSet.copyOf(alias.keySet()));
+            this.alias = Collections.unmodifiableMap(new EnumMap<>(alias));
+
+            alias.forEach((tipo, textos) -> {
+                for (String texto : textos) {
+                    agregar(nombre, texto.trim(), tipo);
+                }
+            });
+        }
+
+        private void agregar(String nombre, String texto, TipoCanonico tipo) {
+            int i = hash(texto, 0, texto.length()) & mascara;
+            while (claves[i] != null) {
+                if (iguales(claves[i], texto, 0, texto.length())) {
+                    if (valores[i] != tipo) {
+                        throw new IllegalStateException("Alias '" + texto + "' de " + nombre
+                                + " asignado a " + valores[i] + " y " + tipo);
+                    }
+                    return;
+                }
+                i = (i + 1) & mascara;
+            }
+            claves[i] = texto;
+            valores[i] = tipo;
+        }
+
+        public TipoCanonico buscar(CharSequence texto) {
+            return texto != null ? buscar(texto, 0, texto.length()) : null;
+        }
+
+        // Busca el tipo del rango [desde, hasta) ignorando espacios en los extremos y
+        // mayúsculas/minúsculas
+        public TipoCanonico buscar(CharSequence texto, int desde, int hasta) {
+            while (desde < hasta && texto.charAt(desde) <= ' ') {
+                desde++;
+            }
+            while (hasta > desde && texto.charAt(hasta - 1) <= ' ') {
+                hasta--;
+            }
+            if (desde == hasta) {
+                return null;
+            }
+
+            for (int i = hash(texto, desde, hasta) & mascara; claves[i] != null; i = (i + 1) & mascara) {
+                if (iguales(claves[i], texto, desde, hasta)) {
+                    return valores[i];
+                }
+            }
+            return null;
+        }
+
+        // Tipos canónicos que este diccionario puede retornar
+        public Set<TipoCanonico> getTipos() {
+            return tipos;
+        }
+
+        public Map<TipoCanonico, List<String>> getAlias() {
+            return alias;
+        }
+
+        private static int hash(CharSequence texto, int desde, int hasta) {
+            int h = 0;
+            for (int i = desde; i < hasta; i++) {
+                h = 31 * h + mayuscula(texto.charAt(i));
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean iguales(String clave, CharSequence texto, int desde, int hasta) {
+            if (clave.length() != hasta - desde) {
+                return false;
+            }
+            for (int i = 0; i < clave.length(); i++) {
+                if (mayuscula(clave.charAt(i)) != mayuscula(texto.charAt(desde + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static char mayuscula(char c) {
+            if (c >= 'a' && c <= 'z') {
+                return (char) (c - ('a' - 'A'));
+            }
+            return c < 0x80 ? c : Character.toUpperCase(c);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.batch.SpringBatchApp.utils;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.batch.SpringBatchApp.config.ProcessorConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Construye la ValidationPolicy de cada ejecución de job. Se registra como listener
+// del step maestro de cada job: al comenzar crea la política y al terminar la libera,
+// así todas las particiones de la ejecución comparten los mismos límites. Los jobs
+// del directorio de entrada que corren a la vez tienen cada uno la suya. Junto a la
+// política se guarda lo que cada processor compila a partir de ella (sus reglas), ya
+// que los processors son singletons compartidos por todas las ejecuciones
+@Component
+@Slf4j
+public class ValidationPolicies implements StepExecutionListener {
+
+    @Autowired
+    private ProcessorConfig processorConfig;
+
+    private final Map<Long, Ejecucion> porEjecucion = new ConcurrentHashMap<>();
+
+    // Última política construida, para quien valida sin conocer la ejecución
+    private volatile ValidationPolicy ultima;
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        ValidationPolicy politica = para(stepExecution);
+        log.debug("Política de validación de la ejecución {}: hoy={}, montoMaximo={}",
+                stepExecution.getJobExecutionId(), politica.getHoy(), politica.getMontoMaximo());
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        porEjecucion.remove(stepExecution.getJobExecutionId());
+        return stepExecution.getExitStatus();
+    }
+
+    // Política de la ejecución de job a la que pertenece el step; la crea si el step
+    // maestro no la creó antes
+    public ValidationPolicy para(StepExecution stepExecution) {
+        return ejecucion(stepExecution).politica();
+    }
+
+    // Lo que compilar arma a partir de la política de la ejecución del step, una sola
+    // vez por ejecución y clave
+    @SuppressWarnings("unchecked")
+    public <R> R compilado(StepExecution stepExecution, Object clave, Function<ValidationPolicy, R> compilar) {
+        Ejecucion ejecucion = ejecucion(stepExecution);
+        return (R) ejecucion.compilados().computeIfAbsent(clave, c -> compilar.apply(ejecucion.politica()));
+    }
+
+    // compilado() para la ejecución del step del hilo actual. No hay una ejecución a
+    // la que recurrir fuera de un step
+    public <R> R compiladoVigente(Object clave, Function<ValidationPolicy, R> compilar) {
+        StepContext contexto = StepSynchronizationManager.getContext();
+        if (contexto == null) {
+            throw new IllegalStateException("Las reglas de validación se resuelven dentro de un step");
+        }
+        return compilado(contexto.getStepExecution(), clave, compilar);
+    }
+
+    private Ejecucion ejecucion(StepExecution stepExecution) {
+        return porEjecucion.computeIfAbsent(stepExecution.getJobExecutionId(),
+                id -> new Ejecucion(construir(), new ConcurrentHashMap<>()));
+    }
+
+    // Política de la ejecución a la que pertenece el step del hilo actual. Fuera de un
+    // step se usa actual()
+    public ValidationPolicy vigente() {
+        StepContext contexto = StepSynchronizationManager.getContext();
+        return contexto != null ? para(contexto.getStepExecution()) : actual();
+    }
+
+    // Política de la ejecución más reciente, o una nueva si aún no se ejecutó ningún job.
+    // Con jobs concurrentes puede ser la de otra ejecución: solo para validar fuera de un step
+    public ValidationPolicy actual() {
+        ValidationPolicy politica = ultima;
+        return politica != null ? politica : construir();
+    }
+
+    private ValidationPolicy construir() {
+        ValidationPolicy politica = ValidationPolicy.desde(processorConfig, LocalDate.now());
+        ultima = politica;
+        return politica;
+    }
+
+    // Política de una ejecución y lo compilado a partir de ella, por clave
+    private record Ejecucion(ValidationPolicy politica, Map<Object, Object> compilados) {
+    }
+}
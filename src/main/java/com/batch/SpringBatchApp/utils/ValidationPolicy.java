@@ -0,0 +1,117 @@
+package com.batch.SpringBatchApp.utils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.batch.SpringBatchApp.config.ProcessorConfig;
+
+// Límites de validación de una ejecución, calculados una sola vez a partir de
+// ProcessorConfig y de la fecha de inicio. Inmutable: todas las particiones y
+// registros de la ejecución validan contra el mismo día aunque el proceso cruce la
+// medianoche. Las fechas se comparan como días epoch y los montos contra el
+// BigDecimal o el long en centavos ya construidos
+public final class ValidationPolicy {
+
+    // Rango que acepta DateParser.isValidDate: desde el año 2000 hasta 30 días en el futuro
+    private static final LocalDate FECHA_MINIMA_PARSER = LocalDate.of(2000, 1, 1);
+    private static final int DIAS_FUTUROS_PARSER = 30;
+
+    // Años en el futuro que acepta esAnioValido sin validación de fechas futuras
+    private static final int ANIOS_FUTUROS = 10;
+
+    private final LocalDate hoy;
+
+    private final long diaMinimoParser;
+    private final long diaMaximoParser;
+
+    // Rango del año mínimo configurado y, con validarFechasFuturas, sin fechas futuras
+    private final long diaMinimo;
+    private final long diaMaximo;
+
+    private final int anioMinimo;
+    private final int anioMaximo;
+
+    private final BigDecimal montoMaximo;
+    private final BigDecimal montoMinimo;
+    private final long montoMaximoEscalado;
+
+    private ValidationPolicy(ProcessorConfig config, LocalDate hoy) {
+        this.hoy = hoy;
+        this.diaMinimoParser = FECHA_MINIMA_PARSER.toEpochDay();
+        this.diaMaximoParser = hoy.plusDays(DIAS_FUTUROS_PARSER).toEpochDay();
+        this.diaMinimo = LocalDate.of(config.getAnioMinimo(), 1, 1).toEpochDay();
+        this.diaMaximo = config.isValidarFechasFuturas() ? hoy.toEpochDay() : LocalDate.MAX.toEpochDay();
+        this.anioMinimo = config.getAnioMinimo();
+        this.anioMaximo = hoy.getYear() + (config.isValidarFechasFuturas() ? 0 : ANIOS_FUTUROS);
+        this.montoMaximo = config.getLimiteMaximoComoDecimal();
+        this.montoMinimo = montoMaximo.negate();
+        this.montoMaximoEscalado = config.getLimiteMaximoEscalado();
+    }
+
+    public static ValidationPolicy desde(ProcessorConfig config, LocalDate hoy) {
+        return new ValidationPolicy(config, hoy);
+    }
+
+    // Fecha dentro del rango de DateParser.isValidDate
+    public boolean esFechaEnRangoParser(LocalDate fecha) {
+        return fecha != null && enRango(fecha.toEpochDay(), diaMinimoParser, diaMaximoParser);
+    }
+
+    // Fecha desde el año mínimo y, si está configurado, no futura
+    public boolean esFechaValida(LocalDate fecha) {
+        return fecha != null && enRango(fecha.toEpochDay(), diaMinimo, diaMaximo);
+    }
+
+    public boolean esAnioValido(int anio) {
+        return anio >= anioMinimo && anio <= anioMaximo;
+    }
+
+    // Monto o saldo con valor absoluto dentro del límite máximo
+    public boolean esMontoValido(BigDecimal monto) {
+        return monto != null && monto.compareTo(montoMaximo) <= 0 && monto.compareTo(montoMinimo) >= 0;
+    }
+
+    public boolean esMontoEscaladoValido(long monto) {
+        return enRango(monto, -montoMaximoEscalado, montoMaximoEscalado);
+    }
+
+    private static boolean enRango(long valor, long minimo, long maximo) {
+        return valor >= minimo && valor <= maximo;
+    }
+
+    public LocalDate getHoy() {
+        return hoy;
+    }
+
+    public LocalDate getFechaMaximaParser() {
+        return LocalDate.ofEpochDay(diaMaximoParser);
+    }
+
+    public long getDiaMinimoParser() {
+        return diaMinimoParser;
+    }
+
+    public long getDiaMaximoParser() {
+        return diaMaximoParser;
+    }
+
+    public long getDiaMinimo() {
+        return diaMinimo;
+    }
+
+    public long getDiaMaximo() {
+        return diaMaximo;
+    }
+
+    public BigDecimal getMontoMaximo() {
+        return montoMaximo;
+    }
+
+    public BigDecimal getMontoMinimo() {
+        return montoMinimo;
+    }
+
+    public long getMontoMaximoEscalado() {
+        return montoMaximoEscalado;
+    }
+}
@@ -2,7 +2,6 @@ package com.batch.SpringBatchApp.utils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -20,15 +19,18 @@ public class ValidationUtils {
     @Autowired
     private ProcessorConfig processorConfig;
 
+    // Tipos válidos y alias de cada entidad
+    @Autowired
+    private TypeDictionary typeDictionary;
+
+    // Límites de monto y fecha de la ejecución actual
+    @Autowired
+    private ValidationPolicies politicas;
+
     // Patrones de validación
     private static final Pattern NUMERO_PATTERN = Pattern.compile("^-?\\d+(\\.\\d+)?$");
-    private static final Pattern NOMBRE_PATTERN = Pattern.compile("^[a-zA-ZÀ-ÿ\\s\\-\\.]+$");
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@([A-Za-z0-9.-]+\\.[A-Za-z]{2,})$");
 
-    // Tipos válidos para cada entidad
-    private static final List<String> TIPOS_TRANSACCION_VALIDOS = Arrays.asList("DEBITO", "CREDITO");
-    private static final List<String> TIPOS_CUENTA_VALIDOS = Arrays.asList("AHORRO", "PRESTAMO", "HIPOTECA", "CREDITO");
-
     // Valida si un string es un número válido
     public boolean isValidNumber(String numberStr) {
         if (numberStr == null || numberStr.trim().isEmpty()) {
@@ -79,21 +81,11 @@ public class ValidationUtils {
         }
     }
 
-    // Valida si un nombre tiene formato válido
+    // Valida si un nombre tiene formato válido: longitud configurada y solo letras,
+    // espacios, guiones y puntos, en una sola pasada
     public boolean isValidName(String name) {
-        if (name == null || name.trim().isEmpty()) {
-            return false;
-        }
-
-        String cleanName = name.trim();
-
-        // Verificar longitud
-        if (!processorConfig.esLongitudNombreValida(cleanName)) {
-            return false;
-        }
-
-        // Verificar patrón (letras, espacios, guiones, puntos)
-        return NOMBRE_PATTERN.matcher(cleanName).matches();
+        return TextNormalizer.esNombreValido(name, processorConfig.getLongitudMinimaNombre(),
+                processorConfig.getLongitudMaximaNombre());
     }
 
     // Valida si un monto/saldo está dentro de los límites permitidos
@@ -102,7 +94,7 @@ public class ValidationUtils {
             return false;
         }
 
-        return processorConfig.esMontoValido(amount);
+        return politicas.vigente().esMontoValido(amount);
     }
 
     // Valida si una edad está en rango válido
@@ -116,8 +108,7 @@ public class ValidationUtils {
             return false;
         }
 
-        String normalizedType = normalizeTransactionType(type);
-        return TIPOS_TRANSACCION_VALIDOS.contains(normalizedType);
+        return typeDictionary.transacciones().buscar(type) != null;
     }
 
     // Valida si un tipo de cuenta es válido
@@ -126,104 +117,36 @@ public class ValidationUtils {
             return false;
         }
 
-        String normalizedType = normalizeAccountType(type);
-        return TIPOS_CUENTA_VALIDOS.contains(normalizedType);
+        return typeDictionary.intereses().buscar(type) != null;
     }
 
-    // Valida si una fecha está en rango válido
+    // Valida si una fecha está en rango válido: desde el año mínimo y, si está
+    // habilitada la validación, no futura
     public boolean isValidDate(LocalDate date) {
-        if (date == null) {
-            return false;
-        }
-
-        LocalDate now = LocalDate.now();
-        LocalDate minDate = LocalDate.of(processorConfig.getAnioMinimo(), 1, 1);
-
-        // Fecha muy antigua
-        if (date.isBefore(minDate)) {
-            return false;
-        }
-
-        // Fecha futura (si está habilitada la validación)
-        if (processorConfig.isValidarFechasFuturas() && date.isAfter(now)) {
-            return false;
-        }
-
-        return true;
+        return politicas.vigente().esFechaValida(date);
     }
 
     // Normaliza un tipo de transacción a los valores estándar
     public String normalizeTransactionType(String type) {
-        if (type == null || type.trim().isEmpty()) {
-            return null;
-        }
-
-        String cleanType = type.trim().toUpperCase();
-
-        switch (cleanType) {
-            case "DEBITO":
-            case "DEBIT":
-            case "DB":
-            case "RETIRO":
-            case "WITHDRAWAL":
-            case "EGRESO":
-                return "DEBITO";
-
-            case "CREDITO":
-            case "CREDIT":
-            case "CR":
-            case "DEPOSITO":
-            case "DEPOSIT":
-            case "INGRESO":
-                return "CREDITO";
-
-            default:
-                log.debug("Tipo de transacción no reconocido: '{}'", type);
-                return cleanType; // Retornar sin cambios para que sea evaluado posteriormente
-        }
+        return normalizar(typeDictionary.transacciones(), type);
     }
 
     // Normaliza un tipo de cuenta a los valores estándar
     public String normalizeAccountType(String type) {
+        return normalizar(typeDictionary.intereses(), type);
+    }
+
+    private String normalizar(TypeDictionary.Diccionario diccionario, String type) {
         if (type == null || type.trim().isEmpty()) {
             return null;
         }
 
-        String cleanType = type.trim().toUpperCase();
-
-        switch (cleanType) {
-            case "AHORRO":
-            case "SAVINGS":
-            case "SAV":
-            case "CUENTA_AHORRO":
-            case "CUENTAAHORRO":
-                return "AHORRO";
-
-            case "PRESTAMO":
-            case "LOAN":
-            case "PRESTAMO_PERSONAL":
-            case "PRESTAMOPERSONAL":
-                return "PRESTAMO";
-
-            case "HIPOTECA":
-            case "MORTGAGE":
-            case "HIP":
-            case "CREDITO_HIPOTECARIO":
-            case "CREDITOHIPOTECARIO":
-                return "HIPOTECA";
-
-            case "CREDITO":
-            case "CREDIT":
-            case "CORRIENTE":
-            case "CHECKING":
-            case "CURRENT":
-            case "CHK":
-                return "CREDITO";
-
-            default:
-                log.debug("Tipo de cuenta no reconocido: '{}'", type);
-                return cleanType; // Retornar sin cambios para que sea evaluado posteriormente
+        TipoCanonico tipo = diccionario.buscar(type);
+        if (tipo == null) {
+            log.debug("Tipo no reconocido: '{}'", type);
+            return type.trim().toUpperCase(); // Retornar sin cambios para que sea evaluado posteriormente
         }
+        return tipo.name();
     }
 
     // Valida si un string no está vacío ni es solo espacios
@@ -243,42 +166,21 @@ public class ValidationUtils {
             return null;
         }
 
-        String cleaned = input.trim();
-
-        if (processorConfig.isNormalizarEspacios()) {
-            // Reemplazar múltiples espacios con uno solo
-            cleaned = cleaned.replaceAll("\\s+", " ");
-        }
-
-        return cleaned;
+        // Recortar y, si está configurado, reemplazar múltiples espacios con uno solo
+        return TextNormalizer.limpiar(input, processorConfig.isNormalizarEspacios());
     }
 
     // Capitaliza un nombre según la configuración
     public String capitalizeName(String name) {
-        if (name == null || name.trim().isEmpty()) {
+        if (TextNormalizer.esVacio(name)) {
             return name;
         }
 
         if (!processorConfig.isCapitalizarNombres()) {
-            return name.trim();
-        }
-
-        String[] words = name.trim().toLowerCase().split("\\s+");
-        StringBuilder result = new StringBuilder();
-
-        for (int i = 0; i < words.length; i++) {
-            if (i > 0) {
-                result.append(" ");
-            }
-            if (words[i].length() > 0) {
-                result.append(Character.toUpperCase(words[i].charAt(0)));
-                if (words[i].length() > 1) {
-                    result.append(words[i].substring(1));
-                }
-            }
+            return TextNormalizer.limpiar(name, false);
         }
 
-        return result.toString();
+        return TextNormalizer.capitalizarPalabras(name);
     }
 
     // Valida un email básico (si fuera necesario en futuras expansiones)
@@ -305,12 +207,12 @@ public class ValidationUtils {
 
     // Obtiene los tipos válidos para transacciones
     public List<String> getValidTransactionTypes() {
-        return TIPOS_TRANSACCION_VALIDOS;
+        return typeDictionary.transacciones().getTipos().stream().map(TipoCanonico::name).toList();
     }
 
     // Obtiene los tipos válidos para cuentas
     public List<String> getValidAccountTypes() {
-        return TIPOS_CUENTA_VALIDOS;
+        return typeDictionary.intereses().getTipos().stream().map(TipoCanonico::name).toList();
     }
 
     // Valida múltiples campos obligatorios de una vez
@@ -0,0 +1,70 @@
+package com.batch.SpringBatchApp.steps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+class BatchChunkProcessorTest {
+
+	// Los rechazados cuentan como filtrados, el writer recibe solo los aceptados y el
+	// reintento de una escritura fallida no vuelve a validar el chunk
+	@Test
+	void filtraRechazadosYNoValidaDeNuevoAlReintentar() throws Exception {
+		AtomicInteger lotes = new AtomicInteger();
+		AtomicInteger validados = new AtomicInteger();
+		BatchItemProcessor<Integer, String> processor = items -> {
+			lotes.incrementAndGet();
+			validados.addAndGet(items.size());
+			List<String> resultados = new ArrayList<>();
+			for (Integer item : items) {
+				resultados.add(item % 2 == 0 ? "ok-" + item : null);
+			}
+			return resultados;
+		};
+
+		List<List<String>> escrituras = new ArrayList<>();
+		AtomicInteger fallos = new AtomicInteger(1);
+		SimpleStepBuilder<Integer, String> builder = new StepBuilder("lote", mock(JobRepository.class))
+				.<Integer, String>chunk(4, new ResourcelessTransactionManager());
+		Step step = BatchChunkProcessor.faultTolerant(builder
+				.reader(new ListItemReader<>(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)))
+				.writer(chunk -> {
+					escrituras.add(new ArrayList<>(chunk.getItems()));
+					if (fallos.getAndDecrement() > 0) {
+						throw new IllegalStateException("Fallo de escritura");
+					}
+				}), processor)
+				.retryLimit(3)
+				.retry(IllegalStateException.class)
+				.build();
+
+		StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+		step.execute(stepExecution);
+
+		assertEquals(BatchStatus.COMPLETED, stepExecution.getStatus());
+		assertEquals(10, stepExecution.getReadCount());
+		assertEquals(5, stepExecution.getFilterCount());
+		assertEquals(5, stepExecution.getWriteCount());
+		assertEquals(1, stepExecution.getRollbackCount());
+
+		// Tres chunks validados una sola vez cada uno aunque el primero se escribió dos veces
+		assertEquals(3, lotes.get());
+		assertEquals(10, validados.get());
+		assertEquals(List.of(List.of("ok-2", "ok-4"), List.of("ok-2", "ok-4"), List.of("ok-6", "ok-8"),
+				List.of("ok-10")), escrituras);
+	}
+}
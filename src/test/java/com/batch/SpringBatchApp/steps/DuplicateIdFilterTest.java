@@ -0,0 +1,104 @@
+package com.batch.SpringBatchApp.steps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+class DuplicateIdFilterTest {
+
+	// Un chunk que falla al escribir libera sus ids en @AfterChunkError: el reintento
+	// vuelve a procesar los mismos registros y no los ve como duplicados
+	@Test
+	void liberaLosIdsDelChunkRevertido() throws Exception {
+		DuplicateIdFilter filtro = new DuplicateIdFilter();
+		List<Long> escritos = new ArrayList<>();
+		AtomicInteger fallos = new AtomicInteger(1);
+
+		Step step = new StepBuilder("duplicados", mock(JobRepository.class))
+				.<Long, Long>chunk(3, new ResourcelessTransactionManager())
+				.reader(new ListItemReader<>(List.of(1L, 2L, 3L, 4L, 2L, 5L)))
+				.processor(id -> filtro.registrar(id, false) ? id : null)
+				.writer(chunk -> {
+					if (fallos.getAndDecrement() > 0) {
+						throw new IllegalStateException("Fallo de escritura");
+					}
+					escritos.addAll(chunk.getItems());
+				})
+				.listener(new Object() {
+					@AfterChunk
+					public void confirmar(ChunkContext chunkContext) {
+						filtro.confirmar(chunkContext.getStepContext().getStepExecution());
+					}
+
+					@AfterChunkError
+					public void liberar(ChunkContext chunkContext) {
+						filtro.liberar(chunkContext.getStepContext().getStepExecution());
+					}
+				})
+				.faultTolerant()
+				.retryLimit(3)
+				.retry(IllegalStateException.class)
+				.build();
+
+		StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+		step.execute(stepExecution);
+
+		assertEquals(BatchStatus.COMPLETED, stepExecution.getStatus());
+		assertEquals(1, stepExecution.getRollbackCount());
+		// El 2 repetido del segundo chunk sí es un duplicado
+		assertEquals(List.of(1L, 2L, 3L, 4L, 5L), escritos);
+		assertEquals(1, stepExecution.getFilterCount());
+		assertEquals(5, filtro.getCantidad());
+	}
+
+	// Solo se liberan los ids pendientes del step que falló; los confirmados y los de
+	// otras particiones se mantienen
+	@Test
+	void liberaSoloLosPendientesDelStep() {
+		DuplicateIdFilter filtro = new DuplicateIdFilter();
+		StepExecution particion = MetaDataInstanceFactory.createStepExecution("worker:0", 10L);
+		StepExecution otra = MetaDataInstanceFactory.createStepExecution("worker:1", 11L);
+
+		registrarEn(particion, filtro, 1, false);
+		filtro.confirmar(particion);
+		registrarEn(particion, filtro, 2, false);
+		registrarEn(particion, filtro, 3, true);
+		registrarEn(otra, filtro, 4, false);
+
+		filtro.liberar(particion);
+
+		assertFalse(filtro.registrar(1, true));
+		assertTrue(filtro.registrar(2, true));
+		assertFalse(filtro.registrar(3, true));
+		assertFalse(filtro.registrar(4, true));
+	}
+
+	private static void registrarEn(StepExecution stepExecution, DuplicateIdFilter filtro, long id,
+			boolean confirmado) {
+		StepSynchronizationManager.register(stepExecution);
+		try {
+			assertTrue(filtro.registrar(id, confirmado));
+		} finally {
+			StepSynchronizationManager.close();
+		}
+	}
+}
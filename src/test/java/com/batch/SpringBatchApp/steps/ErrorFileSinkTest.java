@@ -0,0 +1,235 @@
+package com.batch.SpringBatchApp.steps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ErrorFileSinkTest {
+
+	private static final String ENCABEZADO = "id,motivo,timestamp";
+
+	@TempDir
+	Path directorio;
+
+	// Cada segmento se cierra al llegar a la cantidad de registros y el siguiente
+	// comienza con su propio encabezado
+	@Test
+	void rotaPorCantidadDeRegistros() throws IOException {
+		ErrorFileSink sink = sink();
+		sink.configurarRotacion(0, 3, false);
+		try {
+			escribir(sink, 7);
+			sink.flush();
+
+			assertEquals(List.of(ids(1, 3), ids(4, 6), ids(7, 7)), List.of(filas(segmento(1)), filas(segmento(2)),
+					filas(segmento(3))));
+			assertEquals(List.of("1,errores_001.csv,3,true", "2,errores_002.csv,3,true", "3,errores_003.csv,1,false"),
+					resumenManifiesto());
+		} finally {
+			sink.cerrar();
+		}
+		// Al cerrar el último segmento queda completo
+		assertEquals("3,errores_003.csv,1,true", resumenManifiesto().get(2));
+	}
+
+	// Un segmento se cierra con el registro que alcanza el tamaño sin comprimir
+	@Test
+	void rotaPorTamano() throws IOException {
+		long maximo = 100;
+		ErrorFileSink sink = sink();
+		sink.configurarRotacion(maximo, 0, false);
+		try {
+			escribir(sink, 20);
+		} finally {
+			sink.cerrar();
+		}
+
+		List<String[]> manifiesto = manifiesto();
+		assertTrue(manifiesto.size() > 2);
+		List<String> todas = new ArrayList<>();
+		for (int i = 0; i < manifiesto.size(); i++) {
+			String[] columnas = manifiesto.get(i);
+			Path ruta = directorio.resolve(columnas[1]);
+			List<String> filas = filas(ruta);
+			long tamano = Files.size(ruta);
+			assertEquals(tamano, Long.parseLong(columnas[3]));
+			assertEquals(tamano, Long.parseLong(columnas[4]));
+			assertEquals(filas.size(), Long.parseLong(columnas[2]));
+			if (i < manifiesto.size() - 1) {
+				List<String> lineas = Files.readAllLines(ruta);
+				long ultima = (lineas.get(lineas.size() - 1) + System.lineSeparator())
+						.getBytes(StandardCharsets.UTF_8).length;
+				assertTrue(tamano >= maximo, "Segmento cerrado antes del límite: " + tamano);
+				assertTrue(tamano - ultima < maximo, "Segmento cerrado después del límite: " + tamano);
+			}
+			todas.addAll(filas);
+		}
+		assertEquals(ids(1, 20), todas);
+	}
+
+	// Con gzip cada escritura queda en el disco: el segmento abierto se descomprime
+	// hasta el último registro escrito, y al cerrar queda un gzip completo
+	@Test
+	void elSegmentoGzipSeLeeHastaElUltimoRegistro() throws IOException {
+		ErrorFileSink sink = sink();
+		sink.configurarRotacion(0, 0, true);
+		Path segmento = directorio.resolve("errores_001.csv.gz");
+		try {
+			escribir(sink, 5);
+			sink.flush();
+			assertEquals(ids(1, 5), filasDe(descomprimirHastaDondeSePueda(segmento)));
+			assertEquals(List.of("1,errores_001.csv.gz,5,false"), resumenManifiesto());
+
+			for (int i = 6; i <= 9; i++) {
+				sink.escribir(true, -1, String.valueOf(i), "Monto inválido");
+			}
+			sink.flush();
+			assertEquals(ids(1, 9), filasDe(descomprimirHastaDondeSePueda(segmento)));
+		} finally {
+			sink.cerrar();
+		}
+
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(segmento))) {
+			assertEquals(ids(1, 9), filasDe(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+		}
+		String[] columnas = manifiesto().get(0);
+		assertEquals(Files.size(segmento), Long.parseLong(columnas[4]));
+		assertTrue(Long.parseLong(columnas[3]) > 0);
+		assertEquals("true", columnas[5]);
+	}
+
+	// El manifiesto se reemplaza entero: quien lo lee mientras se rota nunca ve una
+	// versión a medias, y no quedan temporales
+	@Test
+	void elManifiestoSeReemplazaEntero() throws Exception {
+		ErrorFileSink sink = sink();
+		sink.configurarRotacion(0, 1, false);
+		Path manifiesto = directorio.resolve("errores_manifiesto.csv");
+		AtomicBoolean escribiendo = new AtomicBoolean(true);
+		AtomicReference<String> incompleto = new AtomicReference<>();
+		Thread lector = new Thread(() -> {
+			while (escribiendo.get() && incompleto.get() == null) {
+				try {
+					String texto = Files.readString(manifiesto);
+					String[] lineas = texto.split(System.lineSeparator());
+					boolean completo = texto.endsWith(System.lineSeparator()) && lineas[0].startsWith("segmento,");
+					for (int i = 1; i < lineas.length && completo; i++) {
+						completo = lineas[i].split(",", -1).length == 6;
+					}
+					if (!completo) {
+						incompleto.set(texto);
+					}
+				} catch (NoSuchFileException e) {
+					// todavía no se escribió
+				} catch (IOException e) {
+					incompleto.set(e.toString());
+				}
+			}
+		});
+		lector.start();
+		try {
+			escribir(sink, 200);
+			sink.flush();
+		} finally {
+			escribiendo.set(false);
+			lector.join();
+			sink.cerrar();
+		}
+
+		assertEquals(null, incompleto.get());
+		assertEquals(200, manifiesto().size());
+		assertFalse(Files.exists(directorio.resolve("errores_manifiesto.csv.tmp")));
+	}
+
+	private ErrorFileSink sink() {
+		return new ErrorFileSink(directorio.resolve("errores.csv"), ENCABEZADO);
+	}
+
+	private static void escribir(ErrorFileSink sink, int cantidad) {
+		for (int i = 1; i <= cantidad; i++) {
+			sink.escribir(true, -1, String.valueOf(i), "Monto inválido");
+		}
+	}
+
+	private Path segmento(int numero) {
+		return directorio.resolve(String.format("errores_%03d.csv", numero));
+	}
+
+	// Ids de las filas del segmento, verificando que comience con el encabezado
+	private static List<String> filas(Path segmento) throws IOException {
+		return filasDe(Files.readString(segmento));
+	}
+
+	private static List<String> filasDe(String texto) {
+		List<String> lineas = texto.lines().toList();
+		assertEquals(ENCABEZADO, lineas.get(0));
+		List<String> ids = new ArrayList<>();
+		for (String linea : lineas.subList(1, lineas.size())) {
+			String[] columnas = linea.split(",");
+			assertEquals(3, columnas.length);
+			assertEquals("Monto inválido", columnas[1]);
+			ids.add(columnas[0]);
+		}
+		return ids;
+	}
+
+	private static List<String> ids(int desde, int hasta) {
+		List<String> ids = new ArrayList<>();
+		for (int i = desde; i <= hasta; i++) {
+			ids.add(String.valueOf(i));
+		}
+		return ids;
+	}
+
+	// Filas del manifiesto sin el encabezado
+	private List<String[]> manifiesto() throws IOException {
+		List<String> lineas = Files.readAllLines(directorio.resolve("errores_manifiesto.csv"));
+		assertEquals("segmento,archivo,registros,bytes_sin_comprimir,bytes,completo", lineas.get(0));
+		List<String[]> filas = new ArrayList<>();
+		for (String linea : lineas.subList(1, lineas.size())) {
+			filas.add(linea.split(","));
+		}
+		return filas;
+	}
+
+	// Número, archivo, registros y completo de cada segmento del manifiesto
+	private List<String> resumenManifiesto() throws IOException {
+		List<String> resumen = new ArrayList<>();
+		for (String[] columnas : manifiesto()) {
+			resumen.add(columnas[0] + "," + columnas[1] + "," + columnas[2] + "," + columnas[5]);
+		}
+		return resumen;
+	}
+
+	// Descomprime un gzip que todavía se está escribiendo, hasta donde llegan los datos
+	private static String descomprimirHastaDondeSePueda(Path gzip) throws IOException {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(gzip))) {
+			byte[] buffer = new byte[256];
+			int leidos;
+			while ((leidos = in.read(buffer)) > 0) {
+				salida.write(buffer, 0, leidos);
+			}
+		} catch (EOFException e) {
+			// Fin del stream sin el cierre del gzip
+		}
+		return salida.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,118 @@
+package com.batch.SpringBatchApp.steps;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ErrorStoreTest {
+
+	@TempDir
+	Path directorio;
+
+	// Las búsquedas combinan motivo, origen, posición e id sobre los registros agregados
+	@Test
+	void buscaPorMotivoOrigenPosicionEId() throws IOException {
+		try (ErrorStore almacen = ErrorStore.abrir(directorio, "transacciones")) {
+			almacen.agregar("file:/in/a.csv", 10, "Monto inválido", new String[] { "1", "2024-01-05", "x", "DEBITO" }, 1);
+			almacen.agregar("file:/in/a.csv", 40, "Tipo inválido", new String[] { "2", "2024-01-05", "5", "OTRO" }, 2);
+			almacen.agregar("file:/in/b.csv", 70, "Monto inválido", new String[] { "3", "2024-01-06", "", "CREDITO" }, 3);
+
+			assertEquals(3, almacen.getCantidad());
+			assertEquals(List.of(0L, 2L), secuencias(almacen.buscar(new ErrorStore.Filtro().motivo("monto"))));
+			assertEquals(List.of(2L), secuencias(almacen.buscar(new ErrorStore.Filtro().origen("B.CSV"))));
+			assertEquals(List.of(1L, 2L), secuencias(almacen.buscar(new ErrorStore.Filtro().posiciones(40, 70))));
+			assertEquals(List.of(1L), secuencias(almacen.buscar(new ErrorStore.Filtro().id("2"))));
+			assertEquals(List.of(0L), secuencias(almacen.buscar(new ErrorStore.Filtro().motivo("monto").origen("a.csv"))));
+
+			ErrorStore.Entrada entrada = almacen.buscar(new ErrorStore.Filtro().id("3")).get(0);
+			assertEquals("file:/in/b.csv", entrada.origen());
+			assertEquals(70, entrada.posicion());
+			assertEquals("Monto inválido", entrada.motivo());
+			assertArrayEquals(new String[] { "3", "2024-01-06", "", "CREDITO" }, entrada.datos());
+			assertFalse(entrada.reprocesado());
+		}
+	}
+
+	// Los campos nulos se conservan como nulos
+	@Test
+	void conservaCamposNulos() throws IOException {
+		try (ErrorStore almacen = ErrorStore.abrir(directorio, "intereses")) {
+			almacen.agregar("file:/in/a.csv", 0, "Edad inválida", new String[] { "1", null, "10" }, 1);
+			String[] datos = almacen.buscar(new ErrorStore.Filtro()).get(0).datos();
+			assertEquals("1", datos[0]);
+			assertNull(datos[1]);
+			assertEquals("10", datos[2]);
+		}
+	}
+
+	// Los reprocesados quedan fuera de las búsquedas salvo que se pidan, también al reabrir
+	@Test
+	void marcaReprocesadosDeFormaPersistente() throws IOException {
+		try (ErrorStore almacen = ErrorStore.abrir(directorio, "cuentas_anuales")) {
+			for (int i = 0; i < 5; i++) {
+				almacen.agregar("file:/in/a.csv", i * 10, "Fecha inválida", new String[] { String.valueOf(i) }, i);
+			}
+			assertEquals(2, almacen.marcar(new ErrorStore.Filtro().soloSecuencias(Set.of(1L, 3L)),
+					ErrorStore.REPROCESADO));
+		}
+		try (ErrorStore almacen = ErrorStore.abrir(directorio, "cuentas_anuales")) {
+			assertEquals(List.of(0L, 2L, 4L), secuencias(almacen.buscar(new ErrorStore.Filtro())));
+			List<ErrorStore.Entrada> todos = almacen.buscar(new ErrorStore.Filtro().incluirReprocesados(true));
+			assertEquals(5, todos.size());
+			assertTrue(todos.get(1).reprocesado());
+			assertEquals(List.of(2L, 3L), secuencias(almacen.buscar(
+					new ErrorStore.Filtro().secuencias(2, 4).incluirReprocesados(true))));
+		}
+	}
+
+	// Una escritura cortada a mitad deja el almacén con los registros completos anteriores
+	@Test
+	void recuperaColasIncompletasAlAbrir() throws IOException {
+		try (ErrorStore almacen = ErrorStore.abrir(directorio, "transacciones")) {
+			for (int i = 0; i < 3; i++) {
+				almacen.agregar("file:/in/a.csv", i, "Monto inválido", new String[] { String.valueOf(i), "dato" }, i);
+			}
+		}
+		truncar(directorio.resolve("transacciones.idx"), 3);
+
+		try (ErrorStore almacen = ErrorStore.abrir(directorio, "transacciones")) {
+			assertEquals(2, almacen.getCantidad());
+			assertEquals(2, almacen.agregar("file:/in/a.csv", 9, "Tipo inválido", new String[] { "9", "x" }, 9));
+		}
+		try (ErrorStore almacen = ErrorStore.abrir(directorio, "transacciones")) {
+			List<ErrorStore.Entrada> todos = almacen.buscar(new ErrorStore.Filtro());
+			assertEquals(List.of(0L, 1L, 2L), secuencias(todos));
+			assertArrayEquals(new String[] { "9", "x" }, todos.get(2).datos());
+			assertEquals("Tipo inválido", todos.get(2).motivo());
+		}
+
+		// Sin el final del log la última entrada del índice apunta fuera y se descarta
+		truncar(directorio.resolve("transacciones.log"), 2);
+		try (ErrorStore almacen = ErrorStore.abrir(directorio, "transacciones")) {
+			assertEquals(2, almacen.getCantidad());
+			assertEquals(List.of(0L, 1L), secuencias(almacen.buscar(new ErrorStore.Filtro())));
+		}
+	}
+
+	private static void truncar(Path archivo, int bytes) throws IOException {
+		try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+			canal.truncate(canal.size() - bytes);
+		}
+	}
+
+	private static List<Long> secuencias(List<ErrorStore.Entrada> entradas) {
+		return entradas.stream().map(ErrorStore.Entrada::secuencia).toList();
+	}
+}
@@ -0,0 +1,135 @@
+package com.batch.SpringBatchApp.steps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+
+class FileRangePartitionerTest {
+
+	private static final int FILAS = 37;
+
+	@TempDir
+	Path directorio;
+
+	// Con cualquier cantidad de particiones los rangos cubren el archivo sin huecos,
+	// cada uno comienza en un inicio de línea y juntos entregan las mismas filas que una
+	// lectura completa: sin duplicados, sin faltantes y con el header saltado una vez
+	@Test
+	void lasParticionesEntreganLasMismasFilasQueUnaLectura() throws Exception {
+		byte[] contenido = csv();
+		Path archivo = Files.write(directorio.resolve("datos.csv"), contenido);
+		List<String> completa = leerRango(archivo, 0, Long.MAX_VALUE);
+		assertEquals(esperadas(), completa);
+
+		for (int particiones = 2; particiones <= 9; particiones++) {
+			Map<String, ExecutionContext> rangos = new FileRangePartitioner(new FileSystemResource(archivo),
+					"datos.csv").partition(particiones);
+			assertEquals(particiones, rangos.size());
+
+			List<String> union = new ArrayList<>();
+			long esperado = 0;
+			for (ExecutionContext rango : rangos.values()) {
+				long inicio = rango.getLong(FileRangePartitioner.INICIO_KEY);
+				long fin = rango.getLong(FileRangePartitioner.FIN_KEY);
+				assertEquals(esperado, inicio, "Rangos no contiguos con " + particiones + " particiones");
+				assertTrue(inicio == 0 || inicio == contenido.length || contenido[(int) inicio - 1] == '\n',
+						"El rango no comienza en un inicio de línea: " + inicio);
+				union.addAll(leerRango(archivo, inicio, fin));
+				esperado = fin;
+			}
+			assertEquals(contenido.length, esperado);
+			assertEquals(completa, union, "Filas distintas con " + particiones + " particiones");
+		}
+	}
+
+	// Una línea que cruza el borde entre dos rangos pertenece al rango donde comienza
+	@Test
+	void laLineaQueCruzaElBordeQuedaEnElRangoDondeComienza() throws Exception {
+		byte[] contenido = "id,valor\r\n1,uno\r\n2,una-linea-larga-que-cruza\r\n3,tres".getBytes(StandardCharsets.US_ASCII);
+		Path archivo = Files.write(directorio.resolve("borde.csv"), contenido);
+		long inicioFila2 = "id,valor\r\n1,uno\r\n".length();
+		long enMedioDeFila2 = inicioFila2 + 5;
+		long inicioFila3 = inicioFila2 + "2,una-linea-larga-que-cruza\r\n".length();
+
+		assertEquals(List.of("1|uno", "2|una-linea-larga-que-cruza"), leerRango(archivo, 0, enMedioDeFila2));
+		assertEquals(List.of("3|tres"), leerRango(archivo, inicioFila3, contenido.length));
+		assertEquals(List.of(), leerRango(archivo, inicioFila3, inicioFila3));
+
+		Map<String, ExecutionContext> rangos = new FileRangePartitioner(new FileSystemResource(archivo),
+				"borde.csv").partition(2);
+		assertEquals(inicioFila3, rangos.get("particion0").getLong(FileRangePartitioner.FIN_KEY));
+		assertEquals(inicioFila3, rangos.get("particion1").getLong(FileRangePartitioner.INICIO_KEY));
+	}
+
+	// Un .gz no se puede recorrer por bytes y queda en una sola partición
+	@Test
+	void unArchivoComprimidoQuedaEnUnaParticion() throws Exception {
+		Path archivo = Files.write(directorio.resolve("datos.csv.gz"), new byte[] { 1, 2, 3 });
+		Map<String, ExecutionContext> rangos = new FileRangePartitioner(new FileSystemResource(archivo),
+				"datos.csv.gz").partition(4);
+
+		assertEquals(1, rangos.size());
+		assertEquals(0, rangos.get("particion0").getLong(FileRangePartitioner.INICIO_KEY));
+		assertEquals(Long.MAX_VALUE, rangos.get("particion0").getLong(FileRangePartitioner.FIN_KEY));
+	}
+
+	// Lee las filas de un rango con una ventana pequeña, para que las líneas también
+	// crucen bordes de ventana
+	private static List<String> leerRango(Path archivo, long inicio, long fin) throws Exception {
+		MappedCsvItemReader<String> reader = new MappedCsvItemReader<>();
+		reader.setName("rango");
+		reader.setResource(new FileSystemResource(archivo));
+		reader.setLinesToSkip(1);
+		reader.setNames("id", "valor");
+		reader.setTamanoVentana(16);
+		reader.setRecordMapper(record -> record.readString(0) + "|" + record.readString(1));
+		reader.setRango(inicio, fin);
+
+		List<String> filas = new ArrayList<>();
+		reader.open(new ExecutionContext());
+		try {
+			String fila;
+			while ((fila = reader.read()) != null) {
+				filas.add(fila);
+			}
+		} finally {
+			reader.close();
+		}
+		return filas;
+	}
+
+	// CSV con fin de línea CRLF, filas de largo variable y sin salto de línea final
+	private static byte[] csv() {
+		StringBuilder contenido = new StringBuilder("id,valor\r\n");
+		for (int i = 1; i <= FILAS; i++) {
+			contenido.append(i).append(',').append(valor(i));
+			if (i < FILAS) {
+				contenido.append("\r\n");
+			}
+		}
+		return contenido.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static List<String> esperadas() {
+		List<String> filas = new ArrayList<>();
+		for (int i = 1; i <= FILAS; i++) {
+			filas.add(i + "|" + valor(i));
+		}
+		return filas;
+	}
+
+	private static String valor(int fila) {
+		return "v" + "x".repeat(fila % 7 * 3);
+	}
+}
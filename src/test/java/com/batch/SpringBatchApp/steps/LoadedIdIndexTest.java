@@ -0,0 +1,135 @@
+package com.batch.SpringBatchApp.steps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class LoadedIdIndexTest {
+
+	@TempDir
+	Path directorio;
+
+	// Sin cerrar (como tras una caída del proceso) no hay foto, y al reabrir se repite
+	// el diario
+	@Test
+	void repiteElDiarioAlReabrir() throws IOException {
+		LoadedIdIndex indice = LoadedIdIndex.abrir(directorio, "transacciones");
+		indice.registrar(new long[] { 5, 7, 5, 4_000_000_000L, -1 }, 5);
+		assertEquals(3, indice.getCantidad());
+		assertFalse(Files.exists(directorio.resolve("transacciones.idx")));
+		assertEquals(3, enDiario("transacciones"));
+
+		try (LoadedIdIndex reabierto = LoadedIdIndex.abrir(directorio, "transacciones")) {
+			assertEquals(3, reabierto.getCantidad());
+			assertTrue(reabierto.contiene(5));
+			assertTrue(reabierto.contiene(7));
+			assertTrue(reabierto.contiene(4_000_000_000L));
+			assertFalse(reabierto.contiene(-1));
+			assertFalse(reabierto.contiene(6));
+		}
+		indice.close();
+
+		// Al cerrar se escribe la foto y el diario queda vacío
+		assertTrue(Files.exists(directorio.resolve("transacciones.idx")));
+		assertEquals(0, enDiario("transacciones"));
+		try (LoadedIdIndex reabierto = LoadedIdIndex.abrir(directorio, "transacciones")) {
+			assertEquals(3, reabierto.getCantidad());
+			assertTrue(reabierto.contiene(4_000_000_000L));
+		}
+	}
+
+	// Con el diario lleno se escribe una foto y el diario vuelve a cero; lo registrado
+	// después de compactar queda en el diario nuevo
+	@Test
+	void compactaAlLlenarElDiario() throws IOException {
+		int total = LoadedIdIndex.CAPACIDAD_DIARIO + 10;
+		long[] ids = new long[total];
+		for (int i = 0; i < total; i++) {
+			ids[i] = i * 3L + 1;
+		}
+
+		LoadedIdIndex indice = LoadedIdIndex.abrir(directorio, "intereses");
+		indice.registrar(ids, LoadedIdIndex.CAPACIDAD_DIARIO);
+		assertFalse(Files.exists(directorio.resolve("intereses.idx")));
+		assertEquals(LoadedIdIndex.CAPACIDAD_DIARIO, enDiario("intereses"));
+
+		indice.registrar(new long[] { ids[LoadedIdIndex.CAPACIDAD_DIARIO], ids[0] }, 2);
+		assertTrue(Files.exists(directorio.resolve("intereses.idx")));
+		assertEquals(1, enDiario("intereses"));
+
+		long[] resto = new long[9];
+		System.arraycopy(ids, LoadedIdIndex.CAPACIDAD_DIARIO + 1, resto, 0, resto.length);
+		indice.registrar(resto, resto.length);
+		assertEquals(10, enDiario("intereses"));
+
+		// Foto más diario, sin cerrar el índice anterior
+		try (LoadedIdIndex reabierto = LoadedIdIndex.abrir(directorio, "intereses")) {
+			assertEquals(total, reabierto.getCantidad());
+			assertTrue(reabierto.contiene(ids[0]));
+			assertTrue(reabierto.contiene(ids[LoadedIdIndex.CAPACIDAD_DIARIO - 1]));
+			assertTrue(reabierto.contiene(ids[total - 1]));
+			assertFalse(reabierto.contiene(ids[total - 1] + 1));
+		}
+		indice.close();
+	}
+
+	// Los ids nuevos se registran en el índice solo si la transacción del chunk se
+	// confirma; un rollback no deja ninguno
+	@Test
+	void unRollbackNoRegistraIds() throws IOException {
+		TransactionTemplate transaccion = new TransactionTemplate(new ResourcelessTransactionManager());
+		List<Long> escritos = new ArrayList<>();
+		try (LoadedIdIndex indice = LoadedIdIndex.abrir(directorio, "cuentas_anuales")) {
+			IndexedItemWriter<Long> writer = new IndexedItemWriter<>(indice, Long::longValue,
+					chunk -> escritos.addAll(chunk.getItems()), null);
+
+			transaccion.executeWithoutResult(estado -> {
+				escribir(writer, 1L, 2L, 3L);
+				estado.setRollbackOnly();
+			});
+			assertEquals(0, indice.getCantidad());
+			assertEquals(0, enDiario("cuentas_anuales"));
+
+			transaccion.executeWithoutResult(estado -> escribir(writer, 1L, 2L, 3L));
+			assertEquals(3, indice.getCantidad());
+			assertEquals(3, enDiario("cuentas_anuales"));
+
+			// Ya registrados: se omiten sin llegar al writer delegado
+			transaccion.executeWithoutResult(estado -> escribir(writer, 2L, 4L));
+			assertEquals(List.of(1L, 2L, 3L, 1L, 2L, 3L, 4L), escritos);
+			assertEquals(4, indice.getCantidad());
+		}
+	}
+
+	private static void escribir(IndexedItemWriter<Long> writer, Long... ids) {
+		try {
+			writer.write(Chunk.of(ids));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Cantidad de ids en la cabecera del diario
+	private int enDiario(String entidad) throws IOException {
+		try (FileChannel canal = FileChannel.open(directorio.resolve(entidad + ".diario"), StandardOpenOption.READ)) {
+			ByteBuffer cabecera = ByteBuffer.allocate(3 * Integer.BYTES);
+			canal.read(cabecera, 0);
+			return cabecera.getInt(2 * Integer.BYTES);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.batch.SpringBatchApp.steps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+class MappedCsvItemReaderTest {
+
+	private static final int FILAS = 20;
+
+	@TempDir
+	Path directorio;
+
+	// En un archivo mapeado el reinicio continúa desde el byte guardado
+	@Test
+	void reanudaDesdeElOffsetEnArchivoMapeado() throws Exception {
+		Path archivo = escribir("datos.csv", csv(FILAS, 0));
+		verificarReinicio(new FileSystemResource(archivo), 7, true);
+	}
+
+	// Un recurso sin archivo (como uno del classpath dentro de un jar) se lee como
+	// stream y el reinicio avanza hasta el byte guardado
+	@Test
+	void reanudaDesdeElOffsetEnStream() throws Exception {
+		verificarReinicio(new ByteArrayResource(csv(FILAS, 0)), 11, true);
+	}
+
+	// En un .gz no se puede posicionar: el reinicio cuenta registros
+	@Test
+	void reanudaContandoRegistrosEnGzip() throws Exception {
+		ByteArrayOutputStream comprimido = new ByteArrayOutputStream();
+		try (OutputStream gzip = new GZIPOutputStream(comprimido)) {
+			gzip.write(csv(FILAS, 0));
+		}
+		Path archivo = escribir("datos.csv.gz", comprimido.toByteArray());
+		verificarReinicio(new FileSystemResource(archivo), 5, false);
+	}
+
+	// Si el archivo cambió y el offset guardado ya no es un inicio de línea, el reinicio
+	// cuenta registros sobre el archivo nuevo
+	@Test
+	void vuelveAContarRegistrosSiElArchivoCambio() throws Exception {
+		Path archivo = escribir("datos.csv", csv(FILAS, 0));
+		ExecutionContext contexto = leerYGuardar(new FileSystemResource(archivo), 6);
+
+		// Cada línea crece en un byte: el offset guardado cae dentro de una línea
+		escribir("datos.csv", csv(FILAS, 1));
+		assertEquals(List.of("7x", "8x"), leerDesde(new FileSystemResource(archivo), contexto, 2));
+	}
+
+	// Una lectura completa después de reiniciar entrega exactamente las filas restantes
+	@Test
+	void noRepiteNiPierdeFilasAlReiniciar() throws Exception {
+		Path archivo = escribir("datos.csv", csv(FILAS, 0));
+		ExecutionContext contexto = leerYGuardar(new FileSystemResource(archivo), 13);
+
+		List<String> restantes = leerDesde(new FileSystemResource(archivo), contexto, FILAS);
+		assertEquals(FILAS - 13, restantes.size());
+		assertEquals("14", restantes.get(0));
+		assertEquals(String.valueOf(FILAS), restantes.get(restantes.size() - 1));
+	}
+
+	private void verificarReinicio(Resource resource, int leidas, boolean conOffset) throws Exception {
+		ExecutionContext contexto = leerYGuardar(resource, leidas);
+		assertEquals(leidas, contexto.getInt("lector.read.count"));
+		assertTrue(contexto.containsKey("lector.posicion.byte"));
+		if (conOffset) {
+			assertEquals(offsetDeFila(leidas + 1), contexto.getLong("lector.posicion.byte"));
+		}
+		assertEquals(List.of(String.valueOf(leidas + 1), String.valueOf(leidas + 2)),
+				leerDesde(resource, contexto, 2));
+	}
+
+	// Lee la cantidad indicada de filas, guarda el estado y cierra el reader
+	private static ExecutionContext leerYGuardar(Resource resource, int filas) throws Exception {
+		ExecutionContext contexto = new ExecutionContext();
+		MappedCsvItemReader<String> reader = reader(resource);
+		reader.open(contexto);
+		try {
+			for (int i = 1; i <= filas; i++) {
+				assertEquals(String.valueOf(i), reader.read());
+			}
+			reader.update(contexto);
+		} finally {
+			reader.close();
+		}
+		return contexto;
+	}
+
+	// Abre un reader nuevo con el estado guardado y lee hasta la cantidad indicada de filas
+	private static List<String> leerDesde(Resource resource, ExecutionContext contexto, int filas)
+			throws Exception {
+		List<String> leidas = new ArrayList<>();
+		MappedCsvItemReader<String> reader = reader(resource);
+		reader.open(contexto);
+		try {
+			String fila;
+			while (leidas.size() < filas && (fila = reader.read()) != null) {
+				leidas.add(fila);
+			}
+			if (leidas.size() < filas) {
+				assertNull(reader.read());
+			}
+		} finally {
+			reader.close();
+		}
+		return leidas;
+	}
+
+	private static MappedCsvItemReader<String> reader(Resource resource) {
+		MappedCsvItemReader<String> reader = new MappedCsvItemReader<>();
+		reader.setName("lector");
+		reader.setResource(resource);
+		reader.setLinesToSkip(1);
+		reader.setNames("id", "valor");
+		reader.setRecordMapper(record -> record.readString(0));
+		return reader;
+	}
+
+	// CSV con header y filas "id,valor"; relleno agrega caracteres al id de cada fila
+	private static byte[] csv(int filas, int relleno) {
+		StringBuilder contenido = new StringBuilder("id,valor\n");
+		for (int i = 1; i <= filas; i++) {
+			contenido.append(i).append("x".repeat(relleno)).append(",valor-").append(i).append('\n');
+		}
+		return contenido.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	// Byte de inicio de la fila indicada (1 es la primera después del header) en csv(n, 0)
+	private static long offsetDeFila(int fila) {
+		return csv(fila - 1, 0).length;
+	}
+
+	private Path escribir(String nombre, byte[] contenido) throws IOException {
+		return Files.write(directorio.resolve(nombre), contenido);
+	}
+}
@@ -0,0 +1,194 @@
+package com.batch.SpringBatchApp.steps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.transform.IncorrectTokenCountException;
+import org.springframework.core.io.FileSystemResource;
+
+class ParsedRowCacheTest {
+
+	private static final String CSV = """
+			id,valor
+			1,uno
+			2,malo
+			3,dos,extra
+			4,omitir
+			5,cinco
+			""";
+
+	private static final ParsedRowCodec<String> CODEC = new ParsedRowCodec<String>() {
+		@Override
+		public void escribir(String item, DataOutput out) throws IOException {
+			ParsedRowCodec.escribirTexto(out, item);
+		}
+
+		@Override
+		public String leer(DataInput in) throws IOException {
+			return ParsedRowCodec.leerTexto(in);
+		}
+	};
+
+	@TempDir
+	Path directorio;
+
+	// Leer desde la cache repite los items, los rechazos (con su posición) y los errores
+	// de cantidad de campos tal como ocurrieron al leer el CSV
+	@Test
+	void laCacheRepiteLaLecturaDelCsv() throws Exception {
+		Path archivo = escribir(CSV);
+
+		Lectura desdeCsv = leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+		assertTrue(desdeCsv.mapeadas() > 0);
+		assertEquals(1, archivosDeCache().size());
+		assertEquals(List.of("item 1|uno", "rechazo 15 Valor inválido [2, malo]", "item error-2",
+				"tokens 2 3 3,dos,extra", "item 5|cinco"), desdeCsv.eventos());
+		assertEquals(5, desdeCsv.leidos());
+
+		Lectura desdeCache = leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+		assertEquals(0, desdeCache.mapeadas());
+		assertEquals(desdeCsv.eventos(), desdeCache.eventos());
+		assertEquals(desdeCsv.leidos(), desdeCache.leidos());
+		assertEquals(desdeCsv.posicion(), desdeCache.posicion());
+	}
+
+	@Test
+	void seInvalidaSiCambiaElTamano() throws Exception {
+		Path archivo = escribir(CSV);
+		leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+
+		Files.writeString(archivo, CSV + "6,seis\n", StandardCharsets.US_ASCII);
+		Lectura lectura = leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+		assertTrue(lectura.mapeadas() > 0);
+		assertEquals("item 6|seis", lectura.eventos().get(lectura.eventos().size() - 1));
+	}
+
+	@Test
+	void seInvalidaSiCambiaLaFechaDeModificacion() throws Exception {
+		Path archivo = escribir(CSV);
+		leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+
+		Files.setLastModifiedTime(archivo, FileTime.fromMillis(Files.getLastModifiedTime(archivo).toMillis() + 5000));
+		assertTrue(leer(archivo, 1, 100, 0, Long.MAX_VALUE).mapeadas() > 0);
+	}
+
+	// Mismo tamaño y misma fecha de modificación: lo detecta el hash de la muestra
+	@Test
+	void seInvalidaSiCambiaElContenido() throws Exception {
+		Path archivo = escribir(CSV);
+		FileTime modificado = Files.getLastModifiedTime(archivo);
+		leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+
+		Files.writeString(archivo, CSV.replace("1,uno", "1,UNO"), StandardCharsets.US_ASCII);
+		Files.setLastModifiedTime(archivo, modificado);
+		Lectura lectura = leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+		assertTrue(lectura.mapeadas() > 0);
+		assertEquals("item 1|UNO", lectura.eventos().get(0));
+	}
+
+	@Test
+	void noSeUsaConOtroRango() throws Exception {
+		Path archivo = escribir(CSV);
+		leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+
+		Lectura lectura = leer(archivo, 1, 100, 0, Files.size(archivo));
+		assertTrue(lectura.mapeadas() > 0);
+		assertEquals(2, archivosDeCache().size());
+	}
+
+	@Test
+	void seInvalidaSiCambiaLaVariante() throws Exception {
+		Path archivo = escribir(CSV);
+		leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+
+		assertTrue(leer(archivo, 2, 100, 0, Long.MAX_VALUE).mapeadas() > 0);
+		// La cache de la variante anterior se eliminó y se escribió la nueva
+		assertEquals(0, leer(archivo, 2, 100, 0, Long.MAX_VALUE).mapeadas());
+		assertTrue(leer(archivo, 1, 100, 0, Long.MAX_VALUE).mapeadas() > 0);
+	}
+
+	@Test
+	void seInvalidaSiCambiaElDia() throws Exception {
+		Path archivo = escribir(CSV);
+		leer(archivo, 1, 100, 0, Long.MAX_VALUE);
+
+		assertTrue(leer(archivo, 1, 101, 0, Long.MAX_VALUE).mapeadas() > 0);
+		assertEquals(1, archivosDeCache().size());
+	}
+
+	// Lee el archivo completo con la cache activa y anota en orden lo que ocurrió
+	private Lectura leer(Path archivo, int variante, long dia, long inicio, long fin) throws Exception {
+		List<String> eventos = new ArrayList<>();
+		int[] mapeadas = { 0 };
+		MappedCsvItemReader<String> reader = new MappedCsvItemReader<>() {
+			@Override
+			protected void escribirRechazo(String[] campos, String motivo, long posicion) {
+				eventos.add("rechazo " + posicion + " " + motivo + " " + Arrays.toString(campos));
+			}
+		};
+		reader.setName("lector");
+		reader.setResource(new FileSystemResource(archivo));
+		reader.setLinesToSkip(1);
+		reader.setNames("id", "valor");
+		reader.setRango(inicio, fin);
+		reader.setCacheParseo(directorio.resolve("cache"), CODEC, variante, dia);
+		reader.setRecordMapper(record -> {
+			mapeadas[0]++;
+			String id = record.readString(0);
+			String valor = record.readString(1);
+			if (valor.equals("malo")) {
+				reader.registrarRechazo(record.readAll(), "Valor inválido");
+				return "error-" + id;
+			}
+			return valor.equals("omitir") ? null : id + "|" + valor;
+		});
+
+		reader.open(new ExecutionContext());
+		try {
+			while (true) {
+				try {
+					String item = reader.read();
+					if (item == null) {
+						break;
+					}
+					eventos.add("item " + item);
+				} catch (IncorrectTokenCountException e) {
+					eventos.add("tokens " + e.getExpectedCount() + " " + e.getActualCount() + " " + e.getInput());
+				}
+			}
+			return new Lectura(eventos, mapeadas[0], reader.getCurrentItemCount() - 1, reader.getPosicion());
+		} finally {
+			reader.close();
+		}
+	}
+
+	private List<Path> archivosDeCache() throws IOException {
+		try (Stream<Path> archivos = Files.list(directorio.resolve("cache"))) {
+			return archivos.filter(archivo -> archivo.toString().endsWith(".rows")).toList();
+		}
+	}
+
+	private Path escribir(String contenido) throws IOException {
+		return Files.writeString(directorio.resolve("datos.csv"), contenido, StandardCharsets.US_ASCII);
+	}
+
+	// Eventos de una lectura, líneas que pasaron por el mapper, registros contados y
+	// byte final
+	private record Lectura(List<String> eventos, int mapeadas, int leidos, long posicion) {
+	}
+}
@@ -0,0 +1,124 @@
+package com.batch.SpringBatchApp.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class CompressedIdBitmapTest {
+
+	// Posición del tipo del primer contenedor en lo escrito: cantidad de contenedores,
+	// clave y cantidad de valores
+	private static final int TIPO_PRIMER_CONTENEDOR = Integer.BYTES + Character.BYTES + Integer.BYTES;
+
+	// Un contenedor pasa de arreglo a bitmap al recibir el valor 4097 y conserva los
+	// valores que tenía
+	@Test
+	void pasaABitmapDespuesDe4096Valores() throws IOException {
+		CompressedIdBitmap bitmap = new CompressedIdBitmap();
+		long base = 7L << 16;
+		for (int i = 0; i < 4096; i++) {
+			assertTrue(bitmap.agregar(base + i * 16L));
+		}
+		assertEquals(0, escribir(bitmap)[TIPO_PRIMER_CONTENEDOR]);
+
+		assertTrue(bitmap.agregar(base + 1));
+		assertEquals(4097, bitmap.getCantidad());
+		assertEquals(1, escribir(bitmap)[TIPO_PRIMER_CONTENEDOR]);
+		for (int i = 0; i < 4096; i++) {
+			assertTrue(bitmap.contiene(base + i * 16L));
+			assertFalse(bitmap.contiene(base + i * 16L + 2));
+		}
+		assertTrue(bitmap.contiene(base + 1));
+
+		// Ya como bitmap, repetir un valor no cambia la cantidad
+		assertFalse(bitmap.agregar(base + 1));
+		assertFalse(bitmap.agregar(base));
+		assertEquals(4097, bitmap.getCantidad());
+		// Los contenedores vecinos no se ven afectados
+		assertFalse(bitmap.contiene(base - 1));
+		assertFalse(bitmap.contiene(base + (1 << 16)));
+	}
+
+	@Test
+	void ignoraIdsFueraDeRango() {
+		CompressedIdBitmap bitmap = new CompressedIdBitmap();
+		assertFalse(bitmap.agregar(-1));
+		assertFalse(bitmap.agregar(CompressedIdBitmap.ID_MAXIMO + 1));
+		assertTrue(bitmap.agregar(CompressedIdBitmap.ID_MAXIMO));
+		assertTrue(bitmap.agregar(0));
+		assertFalse(bitmap.contiene(-1));
+		assertTrue(bitmap.contiene(CompressedIdBitmap.ID_MAXIMO));
+		assertEquals(2, bitmap.getCantidad());
+	}
+
+	// escribir y leer conservan contenedores de arreglo y de bitmap, y el bitmap leído
+	// sigue aceptando ids nuevos, incluso en un arreglo ya lleno
+	@Test
+	void escribeYLeeSinPerderIds() throws IOException {
+		CompressedIdBitmap original = new CompressedIdBitmap();
+		long[] dispersos = { 3, 70_000, 1L << 31, CompressedIdBitmap.ID_MAXIMO };
+		for (long id : dispersos) {
+			original.agregar(id);
+		}
+		long denso = 5L << 16;
+		for (int i = 0; i < 10_000; i++) {
+			original.agregar(denso + i);
+		}
+		long lleno = 9L << 16;
+		for (int i = 0; i < 4096; i++) {
+			original.agregar(lleno + i * 2L);
+		}
+
+		CompressedIdBitmap leido = leer(escribir(original));
+		assertEquals(original.getCantidad(), leido.getCantidad());
+		for (long id : dispersos) {
+			assertTrue(leido.contiene(id));
+		}
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(leido.contiene(denso + i));
+		}
+		assertFalse(leido.contiene(denso + 10_000));
+		for (int i = 0; i < 4096; i++) {
+			assertTrue(leido.contiene(lleno + i * 2L));
+			assertFalse(leido.contiene(lleno + i * 2L + 1));
+		}
+
+		assertTrue(leido.agregar(lleno + 1));
+		assertTrue(leido.agregar(2L << 16));
+		assertTrue(leido.agregar(100L << 16));
+		assertFalse(leido.agregar(denso));
+		assertEquals(original.getCantidad() + 3, leido.getCantidad());
+		assertTrue(leido.contiene(lleno + 1));
+		assertTrue(leido.contiene(lleno + 2));
+		assertTrue(leido.contiene(2L << 16));
+		assertTrue(leido.contiene(70_000));
+
+		CompressedIdBitmap vacio = leer(escribir(new CompressedIdBitmap()));
+		assertEquals(0, vacio.getCantidad());
+		assertTrue(vacio.agregar(1));
+	}
+
+	private static byte[] escribir(CompressedIdBitmap bitmap) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			bitmap.escribir(out);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static CompressedIdBitmap leer(byte[] bytes) throws IOException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			CompressedIdBitmap bitmap = CompressedIdBitmap.leer(in);
+			assertEquals(-1, in.read());
+			return bitmap;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.batch.SpringBatchApp.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLongSetTest {
+
+	// Capacidad de cada segmento de un conjunto creado sin cantidad esperada
+	private static final int CAPACIDAD = 16;
+
+	// Valores con la misma celda inicial se ubican uno tras otro y se siguen encontrando
+	// después de quitar el primero
+	@Test
+	void resuelveColisiones() {
+		List<Long> colisiones = valoresEnCelda(0, 3, 3);
+		ConcurrentLongSet conjunto = new ConcurrentLongSet();
+		for (long valor : colisiones) {
+			assertTrue(conjunto.agregar(valor));
+		}
+		for (long valor : colisiones) {
+			assertFalse(conjunto.agregar(valor));
+			assertTrue(conjunto.contiene(valor));
+		}
+
+		assertTrue(conjunto.eliminar(colisiones.get(0)));
+		assertFalse(conjunto.eliminar(colisiones.get(0)));
+		assertFalse(conjunto.contiene(colisiones.get(0)));
+		assertTrue(conjunto.contiene(colisiones.get(1)));
+		assertTrue(conjunto.contiene(colisiones.get(2)));
+		assertEquals(2, conjunto.getCantidad());
+	}
+
+	// Una secuencia que comienza en la última celda continúa al inicio de la tabla, y el
+	// borrado desplaza hacia atrás a través del borde sin mover un valor antes de su celda
+	@Test
+	void daLaVueltaAlFinalDeLaTabla() {
+		List<Long> enUltima = valoresEnCelda(5, CAPACIDAD - 1, 3);
+		long enPrimera = valoresEnCelda(5, 0, 1).get(0);
+		ConcurrentLongSet conjunto = new ConcurrentLongSet();
+		for (long valor : enUltima) {
+			conjunto.agregar(valor);
+		}
+		conjunto.agregar(enPrimera);
+
+		assertTrue(conjunto.eliminar(enUltima.get(0)));
+		assertTrue(conjunto.contiene(enUltima.get(1)));
+		assertTrue(conjunto.contiene(enUltima.get(2)));
+		assertTrue(conjunto.contiene(enPrimera));
+
+		assertTrue(conjunto.eliminar(enUltima.get(1)));
+		assertTrue(conjunto.contiene(enUltima.get(2)));
+		assertTrue(conjunto.contiene(enPrimera));
+		assertEquals(2, conjunto.getCantidad());
+	}
+
+	// El 0 marca celda vacía y se guarda aparte
+	@Test
+	void guardaElCero() {
+		ConcurrentLongSet conjunto = new ConcurrentLongSet();
+		assertFalse(conjunto.contiene(0));
+		assertTrue(conjunto.agregar(0));
+		assertFalse(conjunto.agregar(0));
+		assertTrue(conjunto.contiene(0));
+		assertEquals(1, conjunto.getCantidad());
+
+		assertTrue(conjunto.eliminar(0));
+		assertFalse(conjunto.eliminar(0));
+		assertFalse(conjunto.contiene(0));
+		assertEquals(0, conjunto.getCantidad());
+	}
+
+	// Los segmentos crecen al pasar el 75% de ocupación sin perder valores, y limpiar
+	// vuelve a la capacidad inicial
+	@Test
+	void redimensionaSinPerderValores() {
+		ConcurrentLongSet conjunto = new ConcurrentLongSet();
+		long inicial = conjunto.getBytesReservados();
+		assertEquals(64L * CAPACIDAD * Long.BYTES, inicial);
+
+		int cantidad = 100_000;
+		for (long i = -cantidad / 2; i < cantidad / 2; i++) {
+			assertTrue(conjunto.agregar(i * 31));
+		}
+		assertEquals(cantidad, conjunto.getCantidad());
+		assertTrue(conjunto.getBytesReservados() > inicial);
+		for (long i = -cantidad / 2; i < cantidad / 2; i++) {
+			assertTrue(conjunto.contiene(i * 31));
+			assertFalse(conjunto.contiene(i * 31 + 1));
+		}
+
+		for (long i = -cantidad / 2; i < cantidad / 2; i += 2) {
+			assertTrue(conjunto.eliminar(i * 31));
+		}
+		assertEquals(cantidad / 2, conjunto.getCantidad());
+		for (long i = -cantidad / 2; i < cantidad / 2; i++) {
+			assertEquals(i % 2 != 0, conjunto.contiene(i * 31));
+		}
+
+		conjunto.limpiar();
+		assertEquals(0, conjunto.getCantidad());
+		assertEquals(inicial, conjunto.getBytesReservados());
+	}
+
+	// Con la cantidad esperada se reserva de una vez: 1M ids son 64 segmentos de 32768
+	// celdas
+	@Test
+	void reservaParaLaCantidadEsperada() {
+		assertEquals(64L * 32768 * Long.BYTES, new ConcurrentLongSet(1_000_000).getBytesReservados());
+	}
+
+	// Valores distintos de 0 cuya celda inicial es la indicada en el segmento indicado
+	private static List<Long> valoresEnCelda(int segmento, int celda, int cantidad) {
+		List<Long> valores = new ArrayList<>();
+		for (long valor = 1; valores.size() < cantidad; valor++) {
+			long hash = ConcurrentLongSet.mezclar(valor);
+			if ((int) (hash >>> 58) == segmento && ((int) hash & (CAPACIDAD - 1)) == celda) {
+				valores.add(valor);
+			}
+		}
+		return valores;
+	}
+}
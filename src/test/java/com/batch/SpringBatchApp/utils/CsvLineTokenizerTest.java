@@ -0,0 +1,38 @@
+package com.batch.SpringBatchApp.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class CsvLineTokenizerTest {
+
+	private final CsvLineTokenizer tokenizer = new CsvLineTokenizer((byte) ',');
+
+	// Los montos que caben en un long al escalarlos se leen completos
+	@Test
+	void escalaMontosDentroDelLimite() {
+		assertEquals(1250, escalado("12.5", 2));
+		assertEquals(-1250, escalado("-12.50", 2));
+		assertEquals(9_223_372_036_854_775_800L, escalado("92233720368547758", 2));
+		assertEquals(-9_223_372_036_854_775_800L, escalado("-92233720368547758.0", 2));
+	}
+
+	// Completar la escala no puede desbordar: un monto enorme no se lee como uno chico
+	@Test
+	void rechazaMontosQueDesbordanAlEscalar() {
+		assertThrows(NumberFormatException.class, () -> escalado("184467440737095517", 2));
+		assertThrows(NumberFormatException.class, () -> escalado("92233720368547759", 2));
+		assertThrows(NumberFormatException.class, () -> escalado("922337203685477580.7", 2));
+		assertThrows(NumberFormatException.class, () -> escalado("1234567890123456789", 0));
+	}
+
+	private long escalado(String valor, int escala) {
+		byte[] bytes = valor.getBytes(StandardCharsets.US_ASCII);
+		tokenizer.tokenize(ByteBuffer.wrap(bytes), 0, bytes.length);
+		return tokenizer.parseScaledLong(0, escala);
+	}
+}
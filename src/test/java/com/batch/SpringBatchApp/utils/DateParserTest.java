@@ -0,0 +1,110 @@
+package com.batch.SpringBatchApp.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.batch.SpringBatchApp.config.ProcessorConfig;
+
+class DateParserTest {
+
+	private static final String[] ANIOS = { "0000", "0001", "0024", "0029", "0030", "0099", "0100", "1999",
+			"2000", "2023", "2024", "2100" };
+
+	private static final String[] ANIOS_CORTOS = { "00", "24", "29", "30", "99" };
+
+	private final DateParser parser = new DateParser();
+
+	// El parseo rápido debe dar el mismo resultado que la lista de formatos
+	@Test
+	void parseoRapidoEquivaleALosFormatos() {
+		for (String fecha : generarFechas()) {
+			assertEquals(parser.parseConFormatos(fecha), parser.parseDate(fecha), fecha);
+		}
+	}
+
+	// Las formas habituales no deben llegar a la lista de formatos
+	@Test
+	void formasHabitualesNoUsanLosFormatos() {
+		String[] fechas = { "2024-01-05", "05-01-2024", "13-01-2024", "05/01/2024", "01/13/2024", "2024/01/05",
+				"2024-1-5", "05-01-24", "05/01/24", "31/02/2024", "32/13/2024" };
+		for (String fecha : fechas) {
+			assertNotEquals(LocalDate.MIN, parser.parseRapido(fecha), fecha);
+		}
+	}
+
+	@Test
+	void respetaPrioridadYAjustesDeAnio() {
+		assertEquals(LocalDate.of(2024, 1, 5), parser.parseDate("05/01/2024"));
+		assertEquals(LocalDate.of(2024, 1, 13), parser.parseDate("01/13/2024"));
+		assertEquals(LocalDate.of(2024, 2, 29), parser.parseDate("2024-02-31"));
+		assertEquals(LocalDate.of(2099, 1, 5), parser.parseDate("05-01-99"));
+		assertEquals(LocalDate.of(1930, 1, 5), parser.parseDate("0030-01-05"));
+		assertEquals(LocalDate.of(2024, 1, 5), parser.parseDate(" 2024-01-05 "));
+		assertNull(parser.parseDate("0000-01-05"));
+		assertNull(parser.parseDate("2024-13-05"));
+		assertNull(parser.parseDate("2024/01-05"));
+		assertNull(parser.parseDate(""));
+	}
+
+	// Con cache, las fechas repetidas (válidas o no) no se vuelven a parsear
+	@Test
+	void cacheGuardaFechasValidasEInvalidas() {
+		DateParser conCache = new DateParser();
+		ReflectionTestUtils.setField(conCache, "processorConfig", new ProcessorConfig());
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(LocalDate.of(2024, 1, 5), conCache.parseDate("05/01/2024"));
+			assertEquals(LocalDate.of(2024, 1, 5), conCache.parseDate("2024-01-05"));
+			assertNull(conCache.parseDate("no-es-fecha"));
+		}
+
+		assertEquals(3, conCache.getFallosCache());
+		assertEquals(6, conCache.getAciertosCache());
+	}
+
+	private static List<String> generarFechas() {
+		List<String> fechas = new ArrayList<>();
+		for (char sep : new char[] { '-', '/' }) {
+			for (String anio : ANIOS) {
+				for (int mes = 0; mes <= 13; mes++) {
+					for (int dia = 0; dia <= 32; dia++) {
+						for (String m : variantes(mes)) {
+							for (String d : variantes(dia)) {
+								fechas.add(anio + sep + m + sep + d);
+							}
+						}
+					}
+				}
+			}
+			for (int a = 0; a <= 32; a++) {
+				for (int b = 0; b <= 32; b++) {
+					String inicio = String.format("%02d%c%02d%c", a, sep, b, sep);
+					for (String anio : ANIOS) {
+						fechas.add(inicio + anio);
+					}
+					for (String anio : ANIOS_CORTOS) {
+						fechas.add(inicio + anio);
+					}
+				}
+			}
+		}
+		fechas.add("5/1/2024");
+		fechas.add("2024-001-05");
+		fechas.add("20240105");
+		fechas.add("2024--05");
+		fechas.add("+2024-01-05");
+		return fechas;
+	}
+
+	private static String[] variantes(int valor) {
+		return valor < 10 ? new String[] { String.valueOf(valor), "0" + valor } : new String[] { String.valueOf(valor) };
+	}
+}
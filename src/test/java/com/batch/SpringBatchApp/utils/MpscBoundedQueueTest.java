@@ -0,0 +1,74 @@
+package com.batch.SpringBatchApp.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class MpscBoundedQueueTest {
+
+	@Test
+	void rechazaAlLlenarseYLiberaAlTomar() {
+		MpscBoundedQueue<Integer> cola = new MpscBoundedQueue<>(3);
+		assertEquals(4, cola.getCapacidad());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(cola.ofrecer(i));
+		}
+		assertFalse(cola.ofrecer(4));
+		assertEquals(0, cola.tomar());
+		assertTrue(cola.ofrecer(4));
+		for (int i = 1; i <= 4; i++) {
+			assertEquals(i, cola.tomar());
+		}
+		assertNull(cola.tomar());
+		assertTrue(cola.estaVacia());
+	}
+
+	// Cada elemento de cada productor llega una sola vez y en el orden de su productor
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	void variosProductoresUnConsumidor() throws InterruptedException {
+		int productores = 4;
+		int porProductor = 10_000;
+		MpscBoundedQueue<long[]> cola = new MpscBoundedQueue<>(64);
+		List<Thread> hilos = new ArrayList<>();
+		for (int p = 0; p < productores; p++) {
+			int productor = p;
+			Thread hilo = new Thread(() -> {
+				for (int i = 0; i < porProductor; i++) {
+					long[] elemento = { productor, i };
+					while (!cola.ofrecer(elemento)) {
+						Thread.yield();
+					}
+				}
+			});
+			hilos.add(hilo);
+			hilo.start();
+		}
+
+		long[] siguiente = new long[productores];
+		int recibidos = 0;
+		while (recibidos < productores * porProductor) {
+			long[] elemento = cola.tomar();
+			if (elemento == null) {
+				Thread.yield();
+				continue;
+			}
+			int productor = (int) elemento[0];
+			assertEquals(siguiente[productor], elemento[1]);
+			siguiente[productor]++;
+			recibidos++;
+		}
+		for (Thread hilo : hilos) {
+			hilo.join();
+		}
+		assertNull(cola.tomar());
+	}
+}
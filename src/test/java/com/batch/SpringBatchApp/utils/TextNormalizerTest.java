@@ -0,0 +1,111 @@
+package com.batch.SpringBatchApp.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class TextNormalizerTest {
+
+	private static final Pattern NOMBRE_PATTERN = Pattern.compile("^[a-zA-ZÀ-ÿ\\s\\-\\.]+$");
+
+	private static final String ALFABETO = "abcxyzABCXYZáéíñÁÉÑÀÿ-.'09 \t\n\u000B\f\r\u0001";
+
+	// Cada operación debe dar el mismo resultado que la implementación con expresiones
+	// regulares a la que reemplaza
+	@Test
+	void equivaleALasExpresionesRegulares() {
+		for (String texto : generarTextos(20_000)) {
+			assertEquals(texto.trim(), TextNormalizer.limpiar(texto, false), texto);
+			assertEquals(limpiarConRegex(texto), TextNormalizer.limpiar(texto, true), texto);
+			assertEquals(capitalizarPalabrasConSplit(texto), TextNormalizer.capitalizarPalabras(texto), texto);
+			assertEquals(capitalizarPrimeraConRegex(texto), TextNormalizer.capitalizarPrimera(texto, true), texto);
+			assertEquals(texto.trim().length(), TextNormalizer.longitudRecortada(texto), texto);
+			assertEquals(texto.matches("(?s).*[a-zA-ZÀ-ÿ].*"), TextNormalizer.contieneLetra(texto), texto);
+			assertEquals(esNombreValidoConRegex(texto, 2, 100), TextNormalizer.esNombreValido(texto, 2, 100), texto);
+		}
+	}
+
+	// Un texto que ya está normalizado no crea un String nuevo
+	@Test
+	void retornaLaMismaInstanciaSinCambios() {
+		String nombre = "Ana María Pérez";
+		String descripcion = "Pago de servicios - enero";
+		assertSame(nombre, TextNormalizer.capitalizarPalabras(nombre));
+		assertSame(descripcion, TextNormalizer.capitalizarPrimera(descripcion, true));
+		assertSame(descripcion, TextNormalizer.limpiar(descripcion, true));
+	}
+
+	@Test
+	void normalizaCasosHabituales() {
+		assertEquals("Ana María Pérez", TextNormalizer.capitalizarPalabras("  aNA\t\tmaría   PÉREZ "));
+		assertEquals("Pago de servicios", TextNormalizer.capitalizarPrimera(" pago  DE\nservicios ", true));
+		assertEquals("a  b", TextNormalizer.limpiar(" a  b ", false));
+		assertEquals("", TextNormalizer.capitalizarPalabras("   "));
+		assertTrue(TextNormalizer.esNombreValido(" Jean-Luc O. ", 2, 100));
+		assertFalse(TextNormalizer.esNombreValido("R2D2", 2, 100));
+		assertFalse(TextNormalizer.esNombreValido("A", 2, 100));
+	}
+
+	// Implementaciones anteriores de los processors y ValidationUtils. Las minúsculas
+	// usan Locale.ROOT para no depender del locale de la máquina
+	private static String limpiarConRegex(String texto) {
+		return texto.trim().replaceAll("\\s+", " ");
+	}
+
+	private static String capitalizarPalabrasConSplit(String texto) {
+		String[] palabras = texto.trim().toLowerCase(Locale.ROOT).split("\\s+");
+		StringBuilder resultado = new StringBuilder();
+		for (int i = 0; i < palabras.length; i++) {
+			if (i > 0) {
+				resultado.append(" ");
+			}
+			if (palabras[i].length() > 0) {
+				resultado.append(Character.toUpperCase(palabras[i].charAt(0)));
+				if (palabras[i].length() > 1) {
+					resultado.append(palabras[i].substring(1));
+				}
+			}
+		}
+		return resultado.toString();
+	}
+
+	private static String capitalizarPrimeraConRegex(String texto) {
+		String limpio = limpiarConRegex(texto);
+		if (limpio.length() > 0) {
+			limpio = Character.toUpperCase(limpio.charAt(0))
+					+ (limpio.length() > 1 ? limpio.substring(1).toLowerCase(Locale.ROOT) : "");
+		}
+		return limpio;
+	}
+
+	private static boolean esNombreValidoConRegex(String nombre, int minimo, int maximo) {
+		if (nombre == null || nombre.trim().isEmpty()) {
+			return false;
+		}
+		String limpio = nombre.trim();
+		return limpio.length() >= minimo && limpio.length() <= maximo && NOMBRE_PATTERN.matcher(limpio).matches();
+	}
+
+	private static List<String> generarTextos(int cantidad) {
+		Random random = new Random(42);
+		List<String> textos = new ArrayList<>(cantidad);
+		for (int i = 0; i < cantidad; i++) {
+			int longitud = random.nextInt(24);
+			StringBuilder texto = new StringBuilder(longitud);
+			for (int j = 0; j < longitud; j++) {
+				texto.append(ALFABETO.charAt(random.nextInt(ALFABETO.length())));
+			}
+			textos.add(texto.toString());
+		}
+		return textos;
+	}
+}
@@ -0,0 +1,118 @@
+package com.batch.SpringBatchApp.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.batch.SpringBatchApp.config.ProcessorConfig;
+
+class ValidationPolicyTest {
+
+	private static final LocalDate HOY = LocalDate.of(2024, 12, 31);
+
+	// Los límites se fijan con el día de inicio y no cambian al pasar la medianoche
+	@Test
+	void usaElDiaDeInicioDeLaEjecucion() {
+		ValidationPolicy politica = ValidationPolicy.desde(new ProcessorConfig(), HOY);
+
+		assertTrue(politica.esFechaValida(HOY));
+		assertFalse(politica.esFechaValida(HOY.plusDays(1)));
+		assertTrue(politica.esFechaEnRangoParser(HOY.plusDays(30)));
+		assertFalse(politica.esFechaEnRangoParser(HOY.plusDays(31)));
+		assertFalse(politica.esFechaEnRangoParser(LocalDate.of(1999, 12, 31)));
+		assertTrue(politica.esAnioValido(2024));
+		assertFalse(politica.esAnioValido(2025));
+	}
+
+	@Test
+	void respetaLaConfiguracion() {
+		ProcessorConfig config = new ProcessorConfig();
+		config.setAnioMinimo(2010);
+		config.setValidarFechasFuturas(false);
+		config.setMontoMaximo("500.50");
+		ValidationPolicy politica = ValidationPolicy.desde(config, HOY);
+
+		assertFalse(politica.esFechaValida(LocalDate.of(2009, 12, 31)));
+		assertTrue(politica.esFechaValida(HOY.plusYears(5)));
+		assertTrue(politica.esAnioValido(2034));
+		assertTrue(politica.esMontoValido(new BigDecimal("-500.50")));
+		assertFalse(politica.esMontoValido(new BigDecimal("500.51")));
+		assertFalse(politica.esMontoValido(null));
+		assertEquals(50050, politica.getMontoMaximoEscalado());
+		assertTrue(politica.esMontoEscaladoValido(-50050));
+		assertFalse(politica.esMontoEscaladoValido(50051));
+	}
+
+	// Dentro de un step se usa la política de su ejecución aunque otro job haya
+	// construido una después
+	@Test
+	void usaLaPoliticaDeLaEjecucionDelStep() {
+		ValidationPolicies politicas = new ValidationPolicies();
+		ReflectionTestUtils.setField(politicas, "processorConfig", new ProcessorConfig());
+		StepExecution primera = MetaDataInstanceFactory.createStepExecution(
+				MetaDataInstanceFactory.createJobExecution(1L), "worker", 10L);
+		StepExecution segunda = MetaDataInstanceFactory.createStepExecution(
+				MetaDataInstanceFactory.createJobExecution(2L), "worker", 20L);
+
+		ValidationPolicy dePrimera = politicas.para(primera);
+		ValidationPolicy deSegunda = politicas.para(segunda);
+		assertSame(deSegunda, politicas.actual());
+
+		StepSynchronizationManager.register(primera);
+		try {
+			assertSame(dePrimera, politicas.vigente());
+		} finally {
+			StepSynchronizationManager.close();
+		}
+		assertSame(deSegunda, politicas.vigente());
+	}
+
+	// Lo compilado se guarda por ejecución: dos jobs a la vez no se pisan las reglas y
+	// cada step de una ejecución reutiliza lo que compiló el primero
+	@Test
+	void compilaUnaVezPorEjecucion() {
+		ValidationPolicies politicas = new ValidationPolicies();
+		ReflectionTestUtils.setField(politicas, "processorConfig", new ProcessorConfig());
+		StepExecution primera = MetaDataInstanceFactory.createStepExecution(
+				MetaDataInstanceFactory.createJobExecution(1L), "worker", 10L);
+		StepExecution otraParticion = MetaDataInstanceFactory.createStepExecution(
+				MetaDataInstanceFactory.createJobExecution(1L), "worker:1", 11L);
+		StepExecution segunda = MetaDataInstanceFactory.createStepExecution(
+				MetaDataInstanceFactory.createJobExecution(2L), "worker", 20L);
+		List<ValidationPolicy> compiladas = new ArrayList<>();
+		Object clave = new Object();
+
+		Object dePrimera = politicas.compilado(primera, clave, politica -> {
+			compiladas.add(politica);
+			return new Object();
+		});
+		Object deSegunda = politicas.compilado(segunda, clave, politica -> {
+			compiladas.add(politica);
+			return new Object();
+		});
+		assertNotSame(dePrimera, deSegunda);
+		assertEquals(List.of(politicas.para(primera), politicas.para(segunda)), compiladas);
+
+		StepSynchronizationManager.register(otraParticion);
+		try {
+			assertSame(dePrimera, politicas.compiladoVigente(clave, politica -> new Object()));
+		} finally {
+			StepSynchronizationManager.close();
+		}
+		assertThrows(IllegalStateException.class, () -> politicas.compiladoVigente(clave, politica -> new Object()));
+	}
+}